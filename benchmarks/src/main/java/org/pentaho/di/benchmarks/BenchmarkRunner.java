@@ -0,0 +1,50 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the regular JMH command line options, but writes the results as JSON
+ * to <code>jmh-result.json</code> unless another format or file is given, so runs can be compared across releases.
+ */
+public class BenchmarkRunner {
+
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  public static void main( String[] args ) throws RunnerException, CommandLineOptionException, IOException {
+    CommandLineOptions commandLine = new CommandLineOptions( args );
+    if ( commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+      || commandLine.shouldListResultFormats() || commandLine.shouldListWithParams() ) {
+      org.openjdk.jmh.Main.main( args );
+      return;
+    }
+
+    Options options = new OptionsBuilder()
+      .parent( commandLine )
+      .resultFormat( commandLine.getResultFormat().orElse( ResultFormatType.JSON ) )
+      .result( commandLine.getResult().orElse( DEFAULT_RESULT_FILE ) )
+      .build();
+
+    new Runner( options ).run();
+  }
+}
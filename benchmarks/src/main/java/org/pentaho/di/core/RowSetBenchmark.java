@@ -0,0 +1,178 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Measures the row throughput of the thread safe {@link RowSet} implementations with producer and consumer threads
+ * wired the way a transformation wires step copies: one row set per pair of copies, 1:1, 1:N (the producer
+ * distributes round robin) and N:1 (the consumer reads round robin). The score is in rows per second.
+ *
+ * @see RowSetSingleThreadBenchmark for the row sets that are only used by a single thread
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class RowSetBenchmark {
+
+  /** Rows per invocation, a multiple of every batch size used by {@link BlockingBatchingRowSet}. */
+  private static final int NR_ROWS = 1000000;
+
+  private static final int NR_COPIES = 4;
+
+  @Param( { "Blocking", "BlockingBatching", "RingBuffer" } )
+  public String rowSetType;
+
+  @Param( { "1:1", "1:N", "N:1" } )
+  public String topology;
+
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    row = new Object[] { 1L };
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public long transfer() throws Exception {
+    int nrRowSets = "1:1".equals( topology ) ? 1 : NR_COPIES;
+    List<RowSet> rowSets = new ArrayList<>( nrRowSets );
+    for ( int i = 0; i < nrRowSets; i++ ) {
+      rowSets.add( createRowSet() );
+    }
+
+    List<Future<Long>> consumers = new ArrayList<>();
+    List<Future<?>> producers = new ArrayList<>();
+    switch ( topology ) {
+      case "1:N":
+        producers.add( executor.submit( () -> produce( rowSets, NR_ROWS ) ) );
+        for ( RowSet rowSet : rowSets ) {
+          consumers.add( executor.submit( () -> consume( List.of( rowSet ), NR_ROWS / NR_COPIES ) ) );
+        }
+        break;
+      case "N:1":
+        for ( RowSet rowSet : rowSets ) {
+          producers.add( executor.submit( () -> produce( List.of( rowSet ), NR_ROWS / NR_COPIES ) ) );
+        }
+        consumers.add( executor.submit( () -> consume( rowSets, NR_ROWS ) ) );
+        break;
+      default:
+        producers.add( executor.submit( () -> produce( rowSets, NR_ROWS ) ) );
+        consumers.add( executor.submit( () -> consume( rowSets, NR_ROWS ) ) );
+        break;
+    }
+
+    for ( Future<?> producer : producers ) {
+      producer.get();
+    }
+    long total = 0;
+    for ( Future<Long> consumer : consumers ) {
+      total += consumer.get();
+    }
+    return total;
+  }
+
+  private RowSet createRowSet() {
+    switch ( rowSetType ) {
+      case "BlockingBatching":
+        return new BlockingBatchingRowSet( Const.ROWS_IN_ROWSET );
+      case "RingBuffer":
+        return new RingBufferRowSet( Const.ROWS_IN_ROWSET );
+      default:
+        return new BlockingRowSet( Const.ROWS_IN_ROWSET );
+    }
+  }
+
+  /**
+   * Puts the rows round robin on the row sets, retrying the same way BaseStep does when a row set is full.
+   */
+  private void produce( List<RowSet> rowSets, int nrRows ) {
+    int index = 0;
+    for ( int i = 0; i < nrRows; i++ ) {
+      RowSet rowSet = rowSets.get( index );
+      while ( !rowSet.putRow( rowMeta, row ) ) {
+        if ( Thread.currentThread().isInterrupted() ) {
+          return;
+        }
+      }
+      if ( ++index == rowSets.size() ) {
+        index = 0;
+      }
+    }
+    for ( RowSet rowSet : rowSets ) {
+      rowSet.setDone();
+    }
+  }
+
+  /**
+   * Reads round robin from the row sets until the expected number of rows arrived. Like BaseStep, a row set that is
+   * done and empty is no longer read from.
+   */
+  private long consume( List<RowSet> inputRowSets, int nrRows ) {
+    List<RowSet> rowSets = new ArrayList<>( inputRowSets );
+    long count = 0;
+    int index = 0;
+    while ( count < nrRows && !rowSets.isEmpty() && !Thread.currentThread().isInterrupted() ) {
+      RowSet rowSet = rowSets.get( index );
+      Object[] r = rowSet.getRow();
+      if ( r != null ) {
+        count++;
+      } else if ( rowSet.isDone() && rowSet.size() == 0 ) {
+        rowSets.remove( index );
+        index--;
+      }
+      if ( ++index >= rowSets.size() ) {
+        index = 0;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Measures the cost of putting a row on a {@link RowSet} and getting it back from the same thread. This is how the
+ * single threaded engine uses {@link QueueRowSet} and {@link SingleRowRowSet}, and it shows the bare overhead of the
+ * thread safe implementations when nothing contends.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RowSetSingleThreadBenchmark {
+
+  @Param( { "Blocking", "Queue", "SingleRow", "RingBuffer" } )
+  public String rowSetType;
+
+  private RowSet rowSet;
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+
+  @Setup
+  public void setUp() {
+    switch ( rowSetType ) {
+      case "Queue":
+        rowSet = new QueueRowSet();
+        break;
+      case "SingleRow":
+        rowSet = new SingleRowRowSet();
+        break;
+      case "RingBuffer":
+        rowSet = new RingBufferRowSet( Const.ROWS_IN_ROWSET );
+        break;
+      default:
+        rowSet = new BlockingRowSet( Const.ROWS_IN_ROWSET );
+        break;
+    }
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    row = new Object[] { 1L };
+  }
+
+  @Benchmark
+  public Object[] putAndGetRow() {
+    rowSet.putRow( rowMeta, row );
+    return rowSet.getRow();
+  }
+}
@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the row array helpers of {@link RowDataUtil} that steps use to add fields to a row.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RowDataUtilBenchmark {
+
+  @Param( { "10", "100" } )
+  public int nrFields;
+
+  private Object[] row;
+  private Object[] fullRow;
+
+  @Setup
+  public void setUp() {
+    row = RowDataUtil.allocateRowData( nrFields );
+    for ( int i = 0; i < nrFields; i++ ) {
+      row[i] = (long) i;
+    }
+    // A row without spare room at the end, so adding a value has to reallocate
+    //
+    fullRow = new Object[nrFields];
+    System.arraycopy( row, 0, fullRow, 0, nrFields );
+  }
+
+  @Benchmark
+  public Object[] resizeArrayWithinCapacity() {
+    return RowDataUtil.resizeArray( row, nrFields + 1 );
+  }
+
+  @Benchmark
+  public Object[] resizeArrayBeyondCapacity() {
+    return RowDataUtil.resizeArray( fullRow, nrFields + 1 );
+  }
+
+  @Benchmark
+  public Object[] addValueData() {
+    return RowDataUtil.addValueData( row, nrFields, "extra" );
+  }
+
+  @Benchmark
+  public Object[] addValueDataBeyondCapacity() {
+    return RowDataUtil.addValueData( fullRow, nrFields, "extra" );
+  }
+}
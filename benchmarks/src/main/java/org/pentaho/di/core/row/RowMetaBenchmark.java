@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Measures {@link RowMeta#cloneRow(Object[])} and {@link RowMeta#indexOfValue(String)} on rows of different widths
+ * with a mix of data types. This replaces the ad-hoc {@link SpeedTest}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RowMetaBenchmark {
+
+  @Param( { "10", "100", "1000" } )
+  public int nrFields;
+
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private String firstField;
+  private String lastField;
+
+  @Setup
+  public void setUp() {
+    rowMeta = new RowMeta();
+    row = new Object[nrFields];
+    for ( int i = 0; i < nrFields; i++ ) {
+      switch ( i % 4 ) {
+        case 0:
+          rowMeta.addValueMeta( new ValueMetaString( "string" + i ) );
+          row[i] = "value " + i;
+          break;
+        case 1:
+          rowMeta.addValueMeta( new ValueMetaInteger( "integer" + i ) );
+          row[i] = (long) i;
+          break;
+        case 2:
+          rowMeta.addValueMeta( new ValueMetaNumber( "number" + i ) );
+          row[i] = i / 3.0;
+          break;
+        default:
+          rowMeta.addValueMeta( new ValueMetaDate( "date" + i ) );
+          row[i] = new Date( i * 1000L );
+          break;
+      }
+    }
+    firstField = rowMeta.getValueMeta( 0 ).getName();
+    lastField = rowMeta.getValueMeta( nrFields - 1 ).getName();
+  }
+
+  @Benchmark
+  public Object[] cloneRow() throws KettleValueException {
+    return rowMeta.cloneRow( row );
+  }
+
+  @Benchmark
+  public int indexOfFirstValue() {
+    return rowMeta.indexOfValue( firstField );
+  }
+
+  @Benchmark
+  public int indexOfLastValue() {
+    return rowMeta.indexOfValue( lastField );
+  }
+
+  @Benchmark
+  public int indexOfMissingValue() {
+    return rowMeta.indexOfValue( "missing" );
+  }
+}
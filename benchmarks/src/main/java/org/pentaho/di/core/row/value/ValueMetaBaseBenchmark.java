@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Measures {@link ValueMetaBase#compare(Object, Object)}, {@link ValueMetaBase#convertData(ValueMetaInterface, Object)}
+ * from a String and {@link ValueMetaBase#getString(Object)} for the common data types.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ValueMetaBaseBenchmark {
+
+  @Param( { "String", "Integer", "Number", "BigNumber", "Date" } )
+  public String type;
+
+  private ValueMetaInterface valueMeta;
+  private ValueMetaInterface stringMeta;
+  private Object value1;
+  private Object value2;
+  private String stringValue;
+
+  @Setup
+  public void setUp() throws KettleValueException {
+    switch ( type ) {
+      case "Integer":
+        valueMeta = new ValueMetaInteger( "value" );
+        value1 = 123456789L;
+        value2 = 123456790L;
+        break;
+      case "Number":
+        valueMeta = new ValueMetaNumber( "value" );
+        value1 = 12345.6789;
+        value2 = 12345.6790;
+        break;
+      case "BigNumber":
+        valueMeta = new ValueMetaBigNumber( "value" );
+        value1 = new BigDecimal( "12345678901234567890.123456789" );
+        value2 = new BigDecimal( "12345678901234567890.123456790" );
+        break;
+      case "Date":
+        valueMeta = new ValueMetaDate( "value" );
+        value1 = new Date( 1500000000000L );
+        value2 = new Date( 1500000001000L );
+        break;
+      default:
+        valueMeta = new ValueMetaString( "value" );
+        value1 = "Pentaho Data Integration 1";
+        value2 = "Pentaho Data Integration 2";
+        break;
+    }
+    stringMeta = new ValueMetaString( "string" );
+    stringValue = valueMeta.getString( value1 );
+  }
+
+  @Benchmark
+  public int compare() throws KettleValueException {
+    return valueMeta.compare( value1, value2 );
+  }
+
+  @Benchmark
+  public Object convertDataFromString() throws KettleValueException {
+    return valueMeta.convertData( stringMeta, stringValue );
+  }
+
+  @Benchmark
+  public String getString() throws KettleValueException {
+    return valueMeta.getString( value1 );
+  }
+}
@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Builds and runs the small transformations used by the step benchmarks: rows are injected into one or more Injector
+ * steps, flow through the step under test and end up in a Dummy step. Only the number of rows that reach the Dummy
+ * step is kept, so the measurement is not skewed by collecting the output.
+ */
+public class BenchmarkTransformation {
+
+  public static final String INJECTOR_STEPNAME = "injector";
+  public static final String OUTPUT_STEPNAME = "output";
+
+  private final TransMeta transMeta;
+  private final List<String> injectorStepnames = new ArrayList<>();
+  private final List<RowMetaInterface> injectorRowMetas = new ArrayList<>();
+  private final List<List<Object[]>> injectorRows = new ArrayList<>();
+
+  public BenchmarkTransformation() throws KettleException {
+    KettleEnvironment.init( false );
+    transMeta = new TransMeta();
+    transMeta.setName( "benchmark" );
+  }
+
+  /**
+   * @return the transformation metadata, to change the row set size or type for example
+   */
+  public TransMeta getTransMeta() {
+    return transMeta;
+  }
+
+  /**
+   * Adds a step to the transformation.
+   */
+  public StepMeta addStep( String stepname, StepMetaInterface stepMetaInterface ) {
+    String pluginId = PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface );
+    StepMeta stepMeta = new StepMeta( pluginId, stepname, stepMetaInterface );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  /**
+   * Adds an Injector step that will receive the given rows for every run. Injectors are fed in the order they were
+   * added, so add the ones a step reads completely first (info streams) before the main input.
+   */
+  public StepMeta addInjector( String stepname, RowMetaInterface rowMeta, List<Object[]> rows ) {
+    StepMeta injector = addStep( stepname, new InjectorMeta() );
+    injectorStepnames.add( stepname );
+    injectorRowMetas.add( rowMeta );
+    injectorRows.add( rows );
+    return injector;
+  }
+
+  /**
+   * Adds the Dummy step whose read lines are counted.
+   */
+  public StepMeta addOutput() {
+    return addStep( OUTPUT_STEPNAME, new DummyTransMeta() );
+  }
+
+  public void addHop( StepMeta from, StepMeta to ) {
+    transMeta.addTransHop( new TransHopMeta( from, to ) );
+  }
+
+  /**
+   * Runs the transformation once.
+   *
+   * @return the number of rows read by the output step
+   * @throws KettleException
+   *           in case the transformation can't be started or finished with errors
+   */
+  public long execute() throws KettleException {
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.ERROR );
+    trans.prepareExecution( null );
+
+    List<RowProducer> producers = new ArrayList<>();
+    for ( String injectorStepname : injectorStepnames ) {
+      producers.add( trans.addRowProducer( injectorStepname, 0 ) );
+    }
+    trans.startThreads();
+
+    for ( int i = 0; i < producers.size(); i++ ) {
+      RowProducer producer = producers.get( i );
+      RowMetaInterface rowMeta = injectorRowMetas.get( i );
+      for ( Object[] row : injectorRows.get( i ) ) {
+        producer.putRow( rowMeta, row );
+      }
+      producer.finished();
+    }
+
+    trans.waitUntilFinished();
+    if ( trans.getErrors() > 0 ) {
+      throw new KettleException( "Benchmark transformation finished with errors" );
+    }
+    StepInterface output = trans.getStepInterface( OUTPUT_STEPNAME, 0 );
+    return output.getLinesRead();
+  }
+}
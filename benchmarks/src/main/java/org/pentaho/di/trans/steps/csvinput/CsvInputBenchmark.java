@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.BenchmarkTransformation;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
+
+/**
+ * Measures the CSV file input step parsing a generated file with integer, string, number and date fields, with and
+ * without lazy conversion. The score is in rows per second.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class CsvInputBenchmark {
+
+  private static final int NR_ROWS = 500000;
+
+  @Param( { "true", "false" } )
+  public boolean lazyConversion;
+
+  private File file;
+  private BenchmarkTransformation transformation;
+
+  @Setup
+  public void setUp() throws IOException, KettleException {
+    file = File.createTempFile( "csv-input-benchmark", ".csv" );
+    Random random = new Random( 42 );
+    try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) {
+      writer.write( "id,name,amount,date,comment" );
+      writer.newLine();
+      for ( int i = 0; i < NR_ROWS; i++ ) {
+        writer.write( i + ",name-" + random.nextInt( 10000 ) + "," + random.nextInt( 1000000 ) / 100.0
+          + ",2024-" + String.format( "%02d-%02d", 1 + random.nextInt( 12 ), 1 + random.nextInt( 28 ) )
+          + ",\"a comment, with a delimiter\"" );
+        writer.newLine();
+      }
+    }
+
+    CsvInputMeta csvInputMeta = new CsvInputMeta();
+    csvInputMeta.setDefault();
+    csvInputMeta.setFilename( file.getAbsolutePath() );
+    csvInputMeta.setEncoding( StandardCharsets.UTF_8.name() );
+    csvInputMeta.setHeaderPresent( true );
+    csvInputMeta.setLazyConversionActive( lazyConversion );
+    csvInputMeta.setInputFields( new TextFileInputField[] {
+      field( "id", ValueMetaInterface.TYPE_INTEGER, "#" ),
+      field( "name", ValueMetaInterface.TYPE_STRING, null ),
+      field( "amount", ValueMetaInterface.TYPE_NUMBER, "#.##" ),
+      field( "date", ValueMetaInterface.TYPE_DATE, "yyyy-MM-dd" ),
+      field( "comment", ValueMetaInterface.TYPE_STRING, null ) } );
+
+    transformation = new BenchmarkTransformation();
+    StepMeta csvInput = transformation.addStep( "csv input", csvInputMeta );
+    StepMeta output = transformation.addOutput();
+    transformation.addHop( csvInput, output );
+  }
+
+  @TearDown
+  public void tearDown() {
+    if ( file != null ) {
+      file.delete();
+    }
+  }
+
+  private static TextFileInputField field( String name, int type, String format ) {
+    TextFileInputField field = new TextFileInputField();
+    field.setName( name );
+    field.setType( type );
+    field.setFormat( format );
+    field.setTrimType( ValueMetaInterface.TRIM_TYPE_NONE );
+    return field;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public long parse() throws KettleException {
+    return transformation.execute();
+  }
+}
@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.BenchmarkTransformation;
+import org.pentaho.di.trans.step.StepMeta;
+
+/**
+ * Measures the Memory group by step with a sum, a maximum and a count per group, for a small and a large number of
+ * distinct groups. The score is in input rows per second.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class MemoryGroupByBenchmark {
+
+  private static final int NR_ROWS = 500000;
+
+  @Param( { "100", "100000" } )
+  public int nrGroups;
+
+  private BenchmarkTransformation transformation;
+
+  @Setup
+  public void setUp() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+
+    Random random = new Random( 42 );
+    List<Object[]> rows = new ArrayList<>( NR_ROWS );
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      rows.add( new Object[] { "key-" + random.nextInt( nrGroups ), random.nextDouble() * 1000 } );
+    }
+
+    MemoryGroupByMeta groupByMeta = new MemoryGroupByMeta();
+    groupByMeta.allocate( 1, 3 );
+    groupByMeta.setGroupField( new String[] { "key" } );
+    groupByMeta.setAggregateField( new String[] { "total", "maximum", "count" } );
+    groupByMeta.setSubjectField( new String[] { "amount", "amount", "amount" } );
+    groupByMeta.setAggregateType( new int[] {
+      MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_MAX, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL } );
+    groupByMeta.setValueField( new String[] { null, null, null } );
+
+    transformation = new BenchmarkTransformation();
+    StepMeta injector = transformation.addInjector( BenchmarkTransformation.INJECTOR_STEPNAME, rowMeta, rows );
+    StepMeta groupBy = transformation.addStep( "group by", groupByMeta );
+    StepMeta output = transformation.addOutput();
+    transformation.addHop( injector, groupBy );
+    transformation.addHop( groupBy, output );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public long groupBy() throws KettleException {
+    return transformation.execute();
+  }
+}
@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.BenchmarkTransformation;
+import org.pentaho.di.trans.step.StepMeta;
+
+/**
+ * Measures the Sort rows step on random rows, either entirely in memory or with a sort size small enough to spill
+ * sorted chunks to temporary files and merge them. The score is in rows per second.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class SortRowsBenchmark {
+
+  private static final int NR_ROWS = 200000;
+
+  @Param( { "memory", "spill" } )
+  public String path;
+
+  private BenchmarkTransformation transformation;
+
+  @Setup
+  public void setUp() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    Random random = new Random( 42 );
+    List<Object[]> rows = new ArrayList<>( NR_ROWS );
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      rows.add( new Object[] { "name-" + random.nextInt( NR_ROWS ), (long) random.nextInt() } );
+    }
+
+    SortRowsMeta sortRowsMeta = new SortRowsMeta();
+    sortRowsMeta.setDefault();
+    sortRowsMeta.allocate( 2 );
+    sortRowsMeta.setFieldName( new String[] { "name", "id" } );
+    sortRowsMeta.setAscending( new boolean[] { true, false } );
+    sortRowsMeta.setCaseSensitive( new boolean[] { true, true } );
+    sortRowsMeta.setDirectory( System.getProperty( "java.io.tmpdir" ) );
+    sortRowsMeta.setSortSize( "memory".equals( path ) ? Integer.toString( NR_ROWS * 2 ) : "20000" );
+
+    transformation = new BenchmarkTransformation();
+    StepMeta injector = transformation.addInjector( BenchmarkTransformation.INJECTOR_STEPNAME, rowMeta, rows );
+    StepMeta sort = transformation.addStep( "sort", sortRowsMeta );
+    StepMeta output = transformation.addOutput();
+    transformation.addHop( injector, sort );
+    transformation.addHop( sort, output );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public long sortRows() throws KettleException {
+    return transformation.execute();
+  }
+}
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.BenchmarkTransformation;
+import org.pentaho.di.trans.step.StepMeta;
+
+/**
+ * Measures the Stream lookup step: a lookup stream of integer keys is loaded in memory and every row of the main stream
+ * looks up a value, with each of the lookup storage options. The score is in main stream rows per second.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class StreamLookupBenchmark {
+
+  private static final int NR_ROWS = 500000;
+  private static final int NR_LOOKUP_ROWS = 100000;
+
+  @Param( { "hashtable", "preserveMemory", "sortedList" } )
+  public String storage;
+
+  private BenchmarkTransformation transformation;
+
+  @Setup
+  public void setUp() throws KettleException {
+    RowMetaInterface lookupRowMeta = new RowMeta();
+    lookupRowMeta.addValueMeta( new ValueMetaInteger( "lookup_id" ) );
+    lookupRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    List<Object[]> lookupRows = new ArrayList<>( NR_LOOKUP_ROWS );
+    for ( long i = 0; i < NR_LOOKUP_ROWS; i++ ) {
+      lookupRows.add( new Object[] { i, "name-" + i } );
+    }
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    Random random = new Random( 42 );
+    List<Object[]> rows = new ArrayList<>( NR_ROWS );
+    for ( int i = 0; i < NR_ROWS; i++ ) {
+      // about one in ten rows misses the lookup
+      rows.add( new Object[] { (long) random.nextInt( NR_LOOKUP_ROWS + NR_LOOKUP_ROWS / 10 ) } );
+    }
+
+    StreamLookupMeta lookupMeta = new StreamLookupMeta();
+    lookupMeta.setDefault();
+    lookupMeta.allocate( 1, 1 );
+    lookupMeta.setKeystream( new String[] { "id" } );
+    lookupMeta.setKeylookup( new String[] { "lookup_id" } );
+    lookupMeta.setValue( new String[] { "name" } );
+    lookupMeta.setValueName( new String[] { "name" } );
+    lookupMeta.setValueDefault( new String[] { null } );
+    lookupMeta.setValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    lookupMeta.setMemoryPreservationActive( !"hashtable".equals( storage ) );
+    lookupMeta.setUsingSortedList( "sortedList".equals( storage ) );
+
+    transformation = new BenchmarkTransformation();
+    // The lookup rows are injected first: the step reads the whole info stream before the main stream
+    //
+    StepMeta lookupInjector = transformation.addInjector( "lookup", lookupRowMeta, lookupRows );
+    StepMeta injector = transformation.addInjector( BenchmarkTransformation.INJECTOR_STEPNAME, rowMeta, rows );
+    StepMeta lookup = transformation.addStep( "stream lookup", lookupMeta );
+    lookupMeta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( lookupInjector );
+    StepMeta output = transformation.addOutput();
+    transformation.addHop( lookupInjector, lookup );
+    transformation.addHop( injector, lookup );
+    transformation.addHop( lookup, output );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_ROWS )
+  public long streamLookup() throws KettleException {
+    return transformation.execute();
+  }
+}
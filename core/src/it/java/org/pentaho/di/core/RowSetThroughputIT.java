@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pushes the same number of rows through a {@link BlockingRowSet} and through a {@link RingBufferRowSet} with one
+ * producer and one consumer thread, the way two step copies use a hop, and logs the throughput of each.
+ */
+public class RowSetThroughputIT {
+  private static final Log log = LogFactory.getLog( RowSetThroughputIT.class );
+
+  private static final int NR_ROWS = 5000000;
+  private static final int ROWSET_SIZE = Const.ROWS_IN_ROWSET;
+  private static final int WARMUP_ROUNDS = 2;
+
+  @Test
+  public void compareThroughput() throws Exception {
+    measure( "BlockingRowSet", () -> new BlockingRowSet( ROWSET_SIZE ) );
+    for ( RingBufferRowSet.WaitStrategy strategy : RingBufferRowSet.WaitStrategy.values() ) {
+      measure( "RingBufferRowSet(" + strategy.getCode() + ")", () -> new RingBufferRowSet( ROWSET_SIZE, strategy ) );
+    }
+  }
+
+  private void measure( String name, Supplier<RowSet> factory ) throws Exception {
+    for ( int i = 0; i < WARMUP_ROUNDS; i++ ) {
+      transfer( factory.get() );
+    }
+    long start = System.nanoTime();
+    transfer( factory.get() );
+    long elapsed = System.nanoTime() - start;
+    log.info( String.format( "%-28s %,12d rows/s", name, (long) ( NR_ROWS / ( elapsed / 1e9 ) ) ) );
+  }
+
+  private void transfer( RowSet rowSet ) throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    Object[] row = new Object[] { 1L };
+
+    Thread producer = new Thread( () -> {
+      for ( int i = 0; i < NR_ROWS; i++ ) {
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          // retry, same as BaseStep.putRowToRowSet()
+        }
+      }
+      rowSet.setDone();
+    } );
+    producer.start();
+
+    long count = 0;
+    Object[] r = rowSet.getRow();
+    while ( r != null || !rowSet.isDone() || rowSet.size() > 0 ) {
+      if ( r != null ) {
+        count++;
+      }
+      r = rowSet.getRow();
+    }
+    producer.join();
+    assertEquals( NR_ROWS, count );
+  }
+}
@@ -13,6 +13,8 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -116,6 +118,24 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
     }
   }
 
+  /**
+   * Takes the first row with the regular get timeout, then drains whatever else is available while taking the queue
+   * lock only once.
+   */
+  @Override
+  public Object[][] getRows( int max ) {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    List<Object[]> drained = new ArrayList<>( Math.min( max, queArray.size() + 1 ) );
+    drained.add( row );
+    if ( max > 1 ) {
+      queArray.drainTo( drained, max - 1 );
+    }
+    return drained.toArray( new Object[drained.size()][] );
+  }
+
   @Override
   public int size() {
     return queArray.size();
@@ -15,6 +15,7 @@ package org.pentaho.di.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,9 +24,13 @@ import java.util.regex.Pattern;
 
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaAndData;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
@@ -563,6 +568,218 @@ public class Condition implements Cloneable, XMLInterface {
     return retval;
   }
 
+  /**
+   * Evaluate the condition on all rows of a batch. Comparisons of Integer, Number and Date fields with a constant are
+   * done on the primitive columns of the batch, other conditions are evaluated row by row.
+   *
+   * @param batch
+   *          the rows to evaluate
+   * @param result
+   *          receives the outcome for each row of the batch, it needs room for {@link RowBatch#size()} values
+   */
+  public void evaluate( RowBatch batch, boolean[] result ) {
+    if ( isVectorizable( batch.getRowMeta() ) ) {
+      evaluateVectorized( batch, result );
+    } else {
+      evaluateRows( batch, result );
+    }
+  }
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows
+   * @return true if {@link #evaluate(RowBatch, boolean[])} can evaluate the whole condition column by column.
+   */
+  public boolean isVectorizable( RowMetaInterface rowMeta ) {
+    if ( isComposite() ) {
+      for ( Condition condition : list ) {
+        if ( !condition.isVectorizable( rowMeta ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    if ( function == FUNC_TRUE ) {
+      return true;
+    }
+    if ( Utils.isEmpty( leftValuename ) ) {
+      return false;
+    }
+    int index = rowMeta.indexOfValue( leftValuename );
+    if ( index < 0 ) {
+      return false;
+    }
+
+    // Subclasses can bring their own comparator, only the plain types compare like their primitive values
+    //
+    ValueMetaInterface leftMeta = rowMeta.getValueMeta( index );
+    Class<?> leftClass = leftMeta.getClass();
+    if ( leftClass != ValueMetaInteger.class && leftClass != ValueMetaNumber.class
+      && leftClass != ValueMetaDate.class ) {
+      return false;
+    }
+    if ( leftMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL || leftMeta.isSortedDescending() ) {
+      return false;
+    }
+
+    switch ( function ) {
+      case FUNC_NULL:
+      case FUNC_NOT_NULL:
+        return true;
+      case FUNC_EQUAL:
+      case FUNC_NOT_EQUAL:
+      case FUNC_SMALLER:
+      case FUNC_SMALLER_EQUAL:
+      case FUNC_LARGER:
+      case FUNC_LARGER_EQUAL:
+        if ( rightExact == null || rightExact.getValueMeta() == null || rightExact.getValueData() == null ) {
+          return false;
+        }
+        // An Integer is compared to a Number as a Number (BACKLOG-18738)
+        //
+        return !( leftMeta.isInteger() && rightExact.getValueMeta().isNumber() );
+      default:
+        return false;
+    }
+  }
+
+  private void evaluateRows( RowBatch batch, boolean[] result ) {
+    RowMetaInterface rowMeta = batch.getRowMeta();
+    for ( int i = 0; i < batch.size(); i++ ) {
+      result[i] = evaluate( rowMeta, batch.getRow( i ) );
+    }
+  }
+
+  private void evaluateVectorized( RowBatch batch, boolean[] result ) {
+    if ( isAtomic() ) {
+      evaluateAtomic( batch, result );
+      return;
+    }
+
+    int size = batch.size();
+    list.get( 0 ).evaluateVectorized( batch, result );
+    boolean[] other = new boolean[size];
+    for ( int c = 1; c < list.size(); c++ ) {
+      Condition cb = list.get( c );
+      cb.evaluateVectorized( batch, other );
+      switch ( cb.getOperator() ) {
+        case Condition.OPERATOR_OR:
+          for ( int i = 0; i < size; i++ ) {
+            result[i] = result[i] || other[i];
+          }
+          break;
+        case Condition.OPERATOR_AND:
+          for ( int i = 0; i < size; i++ ) {
+            result[i] = result[i] && other[i];
+          }
+          break;
+        case Condition.OPERATOR_OR_NOT:
+          for ( int i = 0; i < size; i++ ) {
+            result[i] = result[i] || !other[i];
+          }
+          break;
+        case Condition.OPERATOR_AND_NOT:
+          for ( int i = 0; i < size; i++ ) {
+            result[i] = result[i] && !other[i];
+          }
+          break;
+        case Condition.OPERATOR_XOR:
+          for ( int i = 0; i < size; i++ ) {
+            result[i] = result[i] ^ other[i];
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    if ( isNegated() ) {
+      for ( int i = 0; i < size; i++ ) {
+        result[i] = !result[i];
+      }
+    }
+  }
+
+  private void evaluateAtomic( RowBatch batch, boolean[] result ) {
+    int size = batch.size();
+    if ( function == FUNC_TRUE ) {
+      Arrays.fill( result, 0, size, !negate );
+      return;
+    }
+
+    RowMetaInterface rowMeta = batch.getRowMeta();
+    int index = rowMeta.indexOfValue( leftValuename );
+    RowBatch.ColumnType columnType = batch.getColumnType( index );
+    if ( columnType == RowBatch.ColumnType.OBJECT ) {
+      // The field holds values of an unexpected class
+      //
+      evaluateRows( batch, result );
+      return;
+    }
+
+    if ( function == FUNC_NULL || function == FUNC_NOT_NULL ) {
+      boolean matchNull = function == FUNC_NULL;
+      for ( int i = 0; i < size; i++ ) {
+        result[i] = ( batch.isNull( i, index ) == matchNull ) ^ negate;
+      }
+      return;
+    }
+
+    ValueMetaInterface leftMeta = rowMeta.getValueMeta( index );
+    Object constant;
+    try {
+      constant = leftMeta.convertData( rightExact.getValueMeta(), rightExact.getValueData() );
+    } catch ( Exception e ) {
+      throw new RuntimeException( "Unexpected error evaluation condition [" + toString() + "]", e );
+    }
+    if ( constant == null ) {
+      evaluateRows( batch, result );
+      return;
+    }
+
+    // A null value sorts before everything else and can be treated as not zero, the row by row evaluation handles that
+    //
+    if ( columnType == RowBatch.ColumnType.DOUBLE ) {
+      double value = (Double) constant;
+      for ( int i = 0; i < size; i++ ) {
+        if ( batch.isNull( i, index ) ) {
+          result[i] = evaluate( rowMeta, batch.getRow( i ) );
+        } else {
+          result[i] = matches( Double.compare( batch.getDouble( i, index ), value ) ) ^ negate;
+        }
+      }
+    } else {
+      long value = leftMeta.isDate() ? ( (Date) constant ).getTime() : (Long) constant;
+      for ( int i = 0; i < size; i++ ) {
+        if ( batch.isNull( i, index ) ) {
+          result[i] = evaluate( rowMeta, batch.getRow( i ) );
+        } else {
+          result[i] = matches( Long.compare( batch.getLong( i, index ), value ) ) ^ negate;
+        }
+      }
+    }
+  }
+
+  private boolean matches( int cmp ) {
+    switch ( function ) {
+      case FUNC_EQUAL:
+        return cmp == 0;
+      case FUNC_NOT_EQUAL:
+        return cmp != 0;
+      case FUNC_SMALLER:
+        return cmp < 0;
+      case FUNC_SMALLER_EQUAL:
+        return cmp <= 0;
+      case FUNC_LARGER:
+        return cmp > 0;
+      case FUNC_LARGER_EQUAL:
+        return cmp >= 0;
+      default:
+        return false;
+    }
+  }
+
   public void addCondition( Condition cb ) {
     if ( isAtomic() && getLeftValuename() != null ) {
       /*
@@ -1060,6 +1060,11 @@ public class Const {
    */
   public static final String KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE = "KETTLE_FILE_OUTPUT_MAX_STREAM_LIFE";
 
+  /**
+   * The size in bytes of the buffer of a file opened by the Text File Output step. The default is 65536.
+   */
+  public static final String KETTLE_FILE_OUTPUT_BUFFER_SIZE = "KETTLE_FILE_OUTPUT_BUFFER_SIZE";
+
   /**
    * Set this variable to Y to disable standard Kettle logging to the console. (stdout)
    */
@@ -1726,6 +1731,87 @@ public class Const {
    */
   public static final String KETTLE_IGNORE_OUT_OF_RANGE_EXCEPTION = "KETTLE_IGNORE_OUT_OF_RANGE_EXCEPTION";
 
+  /**
+   * The name of the variable that sets the number of threads a Sort Rows step copy uses to sort its buffer. Defaults to
+   * the number of available processors divided by the number of copies, 1 sorts on the step thread only.
+   */
+  public static final String KETTLE_SORT_ROWS_PARALLELISM = "KETTLE_SORT_ROWS_PARALLELISM";
+
+  /**
+   * The name of the variable that sets the megabytes of rows a Sort Rows step copy keeps in memory before it writes
+   * them sorted to a temporary file. The size of the rows is estimated. 0 (default) leaves it to the sort size and free
+   * memory settings of the step.
+   */
+  public static final String KETTLE_SORT_ROWS_MEMORY_LIMIT = "KETTLE_SORT_ROWS_MEMORY_LIMIT";
+
+  /**
+   * The name of the variable that sets the memory budget in MB for the groups of a Memory Group By step. Rows of groups
+   * that don't fit are spilled to temporary files and aggregated afterwards. Empty or 0 keeps all groups in memory.
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_MEMORY_LIMIT = "KETTLE_MEMORY_GROUP_BY_MEMORY_LIMIT";
+
+  /**
+   * The name of the variable that sets the eviction policy of the cache of a Database Lookup step: LRU (default),
+   * TINY_LFU to keep the frequently looked up keys or FIFO for the cache of older versions.
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_POLICY = "KETTLE_DATABASE_LOOKUP_CACHE_POLICY";
+
+  /**
+   * The name of the variable that sets the memory budget in MB for the cache of a Database Lookup step, next to the
+   * cache size in rows. Empty or 0 only limits the number of rows.
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_MEMORY_LIMIT = "KETTLE_DATABASE_LOOKUP_CACHE_MEMORY_LIMIT";
+
+  /**
+   * The name of the variable that sets the number of distinct keys a Database Lookup step looks up with one query.
+   * Empty or 0 looks up every key on its own.
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_BATCH_SIZE = "KETTLE_DATABASE_LOOKUP_BATCH_SIZE";
+
+  /**
+   * The name of the variable that sets the number of batches of keys a Database Lookup step looks up ahead, on a
+   * connection of its own. Empty or 0 looks up every batch when it's full, on the connection of the step.
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_BATCH_PREFETCH = "KETTLE_DATABASE_LOOKUP_BATCH_PREFETCH";
+
+  /**
+   * The name of the variable that shares the caches of lookup steps that load all data: NONE (default) keeps a cache
+   * per step copy, TRANS shares it within the transformation and its sub-transformations, JOB within the job at the
+   * top and JVM within the whole JVM.
+   */
+  public static final String KETTLE_LOOKUP_CACHE_SCOPE = "KETTLE_LOOKUP_CACHE_SCOPE";
+
+  /**
+   * The name of the variable that sets the seconds after which a shared lookup cache is loaded again. Empty or 0
+   * keeps it as long as its scope runs.
+   */
+  public static final String KETTLE_LOOKUP_CACHE_TTL = "KETTLE_LOOKUP_CACHE_TTL";
+
+  /**
+   * The name of the system property that sets the memory in MB the shared lookup caches can hold in the JVM, before
+   * the unused ones are removed. Empty or 0 sets no limit.
+   */
+  public static final String KETTLE_LOOKUP_CACHE_MEMORY_LIMIT = "KETTLE_LOOKUP_CACHE_MEMORY_LIMIT";
+
+  /**
+   * The name of the variable that makes a Dimension Lookup/Update step insert its new versions with JDBC batches,
+   * together with the updates ending the versions before them. A batch holds the versions of one commit. "Y" or "N"
+   * (default).
+   */
+  public static final String KETTLE_DIMENSION_UPDATE_USE_BATCH = "KETTLE_DIMENSION_UPDATE_USE_BATCH";
+
+  /**
+   * The name of the variable that sets the number of prepared statements a database connection of a step keeps open
+   * by SQL, to use them again. 0 prepares every statement anew.
+   */
+  public static final String KETTLE_PREPARED_STATEMENT_CACHE_SIZE = "KETTLE_PREPARED_STATEMENT_CACHE_SIZE";
+
+  /**
+   * The name of the system property that sets the number of threads a BGZF (block compressed gzip) file is inflated or
+   * deflated with. The default is the number of processors, up to 4.
+   */
+  public static final String KETTLE_BGZF_THREADS = "KETTLE_BGZF_THREADS";
+
   /**
    Value that overrides gather performance metrics checkbox value in scheduler dialog
    */
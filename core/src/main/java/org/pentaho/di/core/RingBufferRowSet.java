@@ -0,0 +1,350 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Contains a buffer of rows backed by a lock-free single-producer/single-consumer ring buffer. Unlike
+ * {@link BlockingRowSet} no lock or condition is used: the writing step publishes rows by advancing a tail sequence
+ * and the reading step consumes them by advancing a head sequence.<br>
+ * <br>
+ * This row set is only safe when exactly one thread puts rows and exactly one thread gets rows at any given time. That
+ * is the case for every hop between two step copies (1:1, 1:N, N:1 and N:N dispatching) in a normal transformation.
+ * When a side has to wait, the configured {@link WaitStrategy} decides how the thread backs off.
+ *
+ * @since 11.1.0.0
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /**
+   * The way a producer or consumer waits for room or for rows in the ring buffer.
+   */
+  public enum WaitStrategy {
+
+    /** Busy-spin: lowest latency, burns a core per waiting step. Only use with more cores than steps. */
+    SPIN( "SPIN" ),
+
+    /** Spin briefly, then yield the CPU to other threads. */
+    YIELD( "YIELD" ),
+
+    /** Spin briefly, yield briefly, then park the thread for a short while. */
+    PARK( "PARK" );
+
+    private final String code;
+
+    WaitStrategy( String code ) {
+      this.code = code;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    /**
+     * Gets the wait strategy by code, defaults to {@link #PARK}.
+     *
+     * @param code
+     *          the wait strategy code
+     * @return the wait strategy
+     */
+    public static WaitStrategy getWaitStrategyByCode( String code ) {
+      if ( code != null ) {
+        for ( WaitStrategy strategy : values() ) {
+          if ( strategy.code.equalsIgnoreCase( code ) ) {
+            return strategy;
+          }
+        }
+      }
+      return PARK;
+    }
+  }
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 50 );
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+  private final WaitStrategy waitStrategy;
+
+  /** The sequence of the next row to read, only advanced by the consumer. */
+  private final AtomicLong head = new AtomicLong();
+
+  /** The sequence of the next row to write, only advanced by the producer. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** The last head value seen by the producer, avoids reading the shared head for every row. */
+  private long cachedHead;
+
+  /** The last tail value seen by the consumer, avoids reading the shared tail for every row. */
+  private long cachedTail;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new ring buffer row set with maxSize capacity that parks waiting threads.
+   *
+   * @param maxSize
+   */
+  public RingBufferRowSet( int maxSize ) {
+    this( maxSize, WaitStrategy.PARK );
+  }
+
+  /**
+   * Create a new ring buffer row set with maxSize capacity.
+   *
+   * @param maxSize
+   *          the maximum number of rows in the buffer
+   * @param waitStrategy
+   *          the way threads wait for room or rows
+   */
+  public RingBufferRowSet( int maxSize, WaitStrategy waitStrategy ) {
+    super();
+
+    capacity = Math.max( 1, maxSize );
+    int length = Integer.highestOneBit( capacity );
+    if ( length < capacity ) {
+      length <<= 1;
+    }
+    buffer = new Object[length][];
+    mask = length - 1;
+    this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+
+    long currentTail = tail.get();
+    if ( currentTail - cachedHead >= capacity ) {
+      cachedHead = head.get();
+      if ( currentTail - cachedHead >= capacity ) {
+        long deadline = System.nanoTime() + tu.toNanos( time );
+        int tries = 0;
+        do {
+          if ( !backOff( tries++, deadline ) ) {
+            return false;
+          }
+          cachedHead = head.get();
+        } while ( currentTail - cachedHead >= capacity );
+      }
+    }
+
+    buffer[(int) currentTail & mask] = rowData;
+    // Publish the row: the ordered store makes the slot write visible before the new tail
+    //
+    tail.lazySet( currentTail + 1 );
+    return true;
+  }
+
+  /**
+   * Copies as many rows as there is room for in one go and publishes them with a single tail update.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) {
+    this.rowMeta = rowMeta;
+    int put = 0;
+    while ( put < count ) {
+      long currentTail = tail.get();
+      long free = capacity - ( currentTail - cachedHead );
+      if ( free <= 0 ) {
+        cachedHead = head.get();
+        free = capacity - ( currentTail - cachedHead );
+      }
+      if ( free <= 0 ) {
+        // Full: wait for room the same way a single row does
+        //
+        if ( !putRowWait( rowMeta, rows[put], timeoutPut, TimeUnit.MILLISECONDS ) ) {
+          return put;
+        }
+        put++;
+        continue;
+      }
+
+      int n = (int) Math.min( free, count - put );
+      int written = 0;
+      while ( written < n && rows[put + written] != null ) {
+        buffer[(int) ( currentTail + written ) & mask] = rows[put + written];
+        written++;
+      }
+      tail.lazySet( currentTail + written );
+      put += written;
+      if ( written < n ) {
+        return put; // null row
+      }
+    }
+    return put;
+  }
+
+  /**
+   * Takes the first row with the regular get timeout, then everything else that is available with a single head
+   * update.
+   */
+  @Override
+  public Object[][] getRows( int max ) {
+    Object[] first = getRow();
+    if ( first == null ) {
+      return null;
+    }
+    long currentHead = head.get();
+    long available = cachedTail - currentHead;
+    if ( available < max - 1 ) {
+      cachedTail = tail.get();
+      available = cachedTail - currentHead;
+    }
+    int n = (int) Math.max( 0, Math.min( available, max - 1 ) );
+    Object[][] rows = new Object[n + 1][];
+    rows[0] = first;
+    for ( int i = 0; i < n; i++ ) {
+      int index = (int) ( currentHead + i ) & mask;
+      rows[i + 1] = buffer[index];
+      buffer[index] = null;
+    }
+    head.lazySet( currentHead + n );
+    return rows;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long currentHead = head.get();
+    if ( currentHead >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( currentHead >= cachedTail ) {
+        return null;
+      }
+    }
+    return take( currentHead );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long currentHead = head.get();
+    if ( currentHead >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( currentHead >= cachedTail ) {
+        long deadline = System.nanoTime() + tu.toNanos( timeout );
+        int tries = 0;
+        do {
+          // Once the producer is done and the buffer is drained there is no point in waiting any longer.
+          // Check the flag before the tail so a row put right before setDone() is not missed.
+          //
+          boolean finished = done.get();
+          cachedTail = tail.get();
+          if ( currentHead < cachedTail ) {
+            break;
+          }
+          if ( finished || !backOff( tries++, deadline ) ) {
+            return null;
+          }
+        } while ( true );
+      }
+    }
+    return take( currentHead );
+  }
+
+  private Object[] take( long currentHead ) {
+    int index = (int) currentHead & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null; // prevent any hold-up to GC
+    head.lazySet( currentHead + 1 );
+    return row;
+  }
+
+  /**
+   * Wait a little while according to the wait strategy.
+   *
+   * @return false if the deadline passed or the thread got interrupted
+   */
+  private boolean backOff( int tries, long deadline ) {
+    long remaining = deadline - System.nanoTime();
+    if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+      return false;
+    }
+    switch ( waitStrategy ) {
+      case SPIN:
+        Thread.onSpinWait();
+        break;
+      case YIELD:
+        if ( tries < SPIN_TRIES ) {
+          Thread.onSpinWait();
+        } else {
+          Thread.yield();
+        }
+        break;
+      default:
+        if ( tries < SPIN_TRIES ) {
+          Thread.onSpinWait();
+        } else if ( tries < YIELD_TRIES ) {
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos( this, Math.min( remaining, PARK_NANOS ) );
+        }
+        break;
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    // Read the head first: the tail can only have moved further since then
+    //
+    long currentHead = head.get();
+    return (int) ( tail.get() - currentHead );
+  }
+
+  /**
+   * @return the wait strategy used by this row set
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Clear this rowset. This is not thread safe, only call it when neither the producer nor the consumer is active.
+   */
+  @Override
+  public void clear() {
+    Arrays.fill( buffer, null );
+    head.set( 0L );
+    tail.set( 0L );
+    cachedHead = 0L;
+    cachedTail = 0L;
+    done.set( false );
+  }
+
+}
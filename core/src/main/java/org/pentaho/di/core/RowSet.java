@@ -13,6 +13,7 @@
 
 package org.pentaho.di.core;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -47,6 +48,50 @@ public interface RowSet {
    */
   boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a chunk of rows to this rowset, waiting for room the same way {@link #putRow(RowMetaInterface, Object[])}
+   * does. Rows are added in array order and the rows themselves can't be null. Implementations can override this to
+   * transfer the whole chunk at once instead of paying the synchronization cost for every row.
+   *
+   * @param rowMeta
+   *          The description of the rows
+   * @param rows
+   *          the rows of data, only the first count entries are used
+   * @param count
+   *          the number of rows to add
+   * @return the number of rows that were added, less than count if this buffer stayed full.
+   */
+  default int putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) {
+    for ( int i = 0; i < count; i++ ) {
+      if ( !putRow( rowMeta, rows[i] ) ) {
+        return i;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get up to max rows from the input buffer. It blocks for a short period until the first row becomes available, just
+   * like {@link #getRow()}, and then only takes the rows that are immediately available.
+   *
+   * @param max
+   *          the maximum number of rows to return
+   * @return the rows in the order they were added or null if no row is available.
+   */
+  default Object[][] getRows( int max ) {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    Object[][] rows = new Object[Math.max( 1, max )][];
+    int count = 0;
+    rows[count++] = row;
+    while ( count < max && ( row = getRowImmediate() ) != null ) {
+      rows[count++] = row;
+    }
+    return count == rows.length ? rows : Arrays.copyOf( rows, count );
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
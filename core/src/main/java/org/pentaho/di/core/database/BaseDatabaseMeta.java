@@ -2329,4 +2329,44 @@ public abstract class BaseDatabaseMeta implements Cloneable, DatabaseInterfaceEx
   public String getNamedCluster() {
     return getAttribute( NAMED_CLUSTER_ID, "" );
   }
+
+  /**
+   * Generates the standard MERGE INTO ... USING ... statement for the databases supporting it.
+   *
+   * @see DatabaseInterface#getMergeStatement(String, String, String[], String[], String[])
+   */
+  protected String getStandardMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                              String[] updateColumns, String[] insertColumns ) {
+    StringBuilder sql = new StringBuilder( 256 );
+    sql.append( "MERGE INTO " ).append( schemaTable ).append( " tgt USING " ).append( stagingTable )
+      .append( " stg ON ( " );
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      if ( i > 0 ) {
+        sql.append( " AND " );
+      }
+      sql.append( "tgt." ).append( keyColumns[ i ] ).append( " = stg." ).append( keyColumns[ i ] );
+    }
+    sql.append( " )" );
+    if ( updateColumns.length > 0 ) {
+      sql.append( " WHEN MATCHED THEN UPDATE SET " );
+      for ( int i = 0; i < updateColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( updateColumns[ i ] ).append( " = stg." ).append( updateColumns[ i ] );
+      }
+    }
+    if ( insertColumns != null ) {
+      sql.append( " WHEN NOT MATCHED THEN INSERT ( " ).append( String.join( ", ", insertColumns ) )
+        .append( " ) VALUES ( " );
+      for ( int i = 0; i < insertColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( "stg." ).append( insertColumns[ i ] );
+      }
+      sql.append( " )" );
+    }
+    return sql.toString();
+  }
 }
@@ -0,0 +1,76 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Loads rows into a table through the native bulk load API of a database, in process and without INSERT statements.
+ * The rows are written in the format of the API first and then loaded together on the connection of the step, in its
+ * transaction.
+ *
+ * @see DatabaseInterface#getBulkWriteStrategy()
+ * @see DatabaseBulkWriter
+ */
+public interface BulkWriteStrategy {
+
+  /**
+   * @param database
+   *          the connected database to load the rows on
+   * @param rowMeta
+   *          the layout of the rows, the value names are the columns of the table
+   * @return true if the driver of the connection offers the bulk load API and it can take values of these types
+   */
+  boolean supports( Database database, RowMetaInterface rowMeta );
+
+  /**
+   * Writes a row in the format of the bulk load API.
+   *
+   * @param rowMeta
+   *          the layout of the row
+   * @param row
+   *          the row
+   * @param out
+   *          the stream to write to
+   * @throws KettleValueException
+   *           in case a value can't be converted
+   */
+  void writeRow( RowMetaInterface rowMeta, Object[] row, OutputStream out ) throws KettleValueException, IOException;
+
+  /**
+   * Loads the rows written before into a table. The load is all or nothing, it isn't committed.
+   *
+   * @param database
+   *          the connected database to load the rows on
+   * @param schemaName
+   *          the schema of the table, null or empty for the default schema
+   * @param tableName
+   *          the table
+   * @param rowMeta
+   *          the layout of the rows
+   * @param data
+   *          the written rows
+   * @return the number of rows loaded
+   * @throws KettleDatabaseException
+   *           in case the load fails
+   */
+  long load( Database database, String schemaName, String tableName, RowMetaInterface rowMeta, InputStream data )
+    throws KettleDatabaseException;
+}
@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Writes the rows for a bulk load as UTF-8 CSV: values separated by a comma, rows ended by a new line. Every value is
+ * enclosed in double quotes, a double quote in a value is doubled. A null value is written without quotes as the null
+ * marker of the loader, so that an empty string and a null stay apart.<br>
+ * <br>
+ * Dates and timestamps are written in the JDBC timestamp escape format in the time zone of the JVM, the way the
+ * driver would bind them, and numbers without grouping or exponents.
+ */
+public abstract class CsvBulkWriteStrategy implements BulkWriteStrategy {
+
+  private final byte[] nullValue;
+
+  /**
+   * @param nullValue
+   *          the marker of a null value, written without quotes
+   */
+  protected CsvBulkWriteStrategy( String nullValue ) {
+    this.nullValue = nullValue.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Override
+  public boolean supports( Database database, RowMetaInterface rowMeta ) {
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          break;
+        default:
+          return false;
+      }
+    }
+    return database.getConnection() != null;
+  }
+
+  @Override
+  public void writeRow( RowMetaInterface rowMeta, Object[] row, OutputStream out )
+    throws KettleValueException, IOException {
+    StringBuilder line = new StringBuilder( 16 * rowMeta.size() );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      if ( i > 0 ) {
+        line.append( ',' );
+      }
+      String value = formatValue( rowMeta.getValueMeta( i ), row[ i ] );
+      if ( value == null ) {
+        out.write( line.toString().getBytes( StandardCharsets.UTF_8 ) );
+        out.write( nullValue );
+        line.setLength( 0 );
+      } else {
+        line.append( '"' );
+        for ( int c = 0; c < value.length(); c++ ) {
+          char ch = value.charAt( c );
+          if ( ch == '"' ) {
+            line.append( '"' );
+          }
+          line.append( ch );
+        }
+        line.append( '"' );
+      }
+    }
+    line.append( '\n' );
+    out.write( line.toString().getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  /**
+   * @return the value as the loader reads it, null for a null value
+   */
+  protected String formatValue( ValueMetaInterface valueMeta, Object data ) throws KettleValueException {
+    if ( valueMeta.isNull( data ) ) {
+      return null;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return Long.toString( valueMeta.getInteger( data ) );
+      case ValueMetaInterface.TYPE_NUMBER:
+        double number = valueMeta.getNumber( data );
+        if ( Double.isNaN( number ) || Double.isInfinite( number ) ) {
+          throw new KettleValueException( "Unable to bulk load the value " + number + " of " + valueMeta.getName() );
+        }
+        return BigDecimal.valueOf( number ).toPlainString();
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return valueMeta.getBigNumber( data ).toPlainString();
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return formatBoolean( valueMeta.getBoolean( data ) );
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Date date = valueMeta.getDate( data );
+        return date instanceof Timestamp ? date.toString() : new Timestamp( date.getTime() ).toString();
+      default:
+        return valueMeta.getString( data );
+    }
+  }
+
+  protected String formatBoolean( boolean value ) {
+    return value ? "true" : "false";
+  }
+
+  /**
+   * @return the quoted columns of the rows between parentheses
+   */
+  protected String getColumnList( DatabaseMeta databaseMeta, RowMetaInterface rowMeta ) {
+    StringBuilder columns = new StringBuilder( "(" );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      if ( i > 0 ) {
+        columns.append( ", " );
+      }
+      columns.append( databaseMeta.quoteField( rowMeta.getValueMeta( i ).getName() ) );
+    }
+    return columns.append( ')' ).toString();
+  }
+
+  /**
+   * Loads a class of the JDBC driver, the driver may live in a class loader of its own.
+   *
+   * @return the class or null if the driver doesn't have it
+   */
+  protected static Class<?> findDriverClass( Database database, String className ) {
+    ClassLoader[] classLoaders = {
+      database.getConnection().getClass().getClassLoader(),
+      Thread.currentThread().getContextClassLoader(),
+      CsvBulkWriteStrategy.class.getClassLoader() };
+    for ( ClassLoader classLoader : classLoaders ) {
+      if ( classLoader != null ) {
+        try {
+          return Class.forName( className, false, classLoader );
+        } catch ( ClassNotFoundException | LinkageError e ) {
+          // Try the next one
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -452,4 +452,18 @@ public class DB2DatabaseMeta extends BaseDatabaseMeta implements DatabaseInterfa
   public boolean supportsOptionsInURL() {
     return false;
   }
+
+  @Override
+  public int getMaxInsertValuesRows() {
+    return 1000;
+  }
+
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    if ( insertColumns == null && updateColumns.length == 0 ) {
+      return null;
+    }
+    return getStandardMergeStatement( schemaTable, stagingTable, keyColumns, updateColumns, insertColumns );
+  }
 }
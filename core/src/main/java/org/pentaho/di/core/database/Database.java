@@ -40,6 +40,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -82,6 +83,7 @@ import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.plugins.DatabasePluginType;
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -130,6 +132,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   private static final String DATA_SERVICES_PLUGIN_ID = "KettleThin";
 
   private int rowlimit;
+  private int fetchSize;
   private int commitsize;
 
   private Connection connection;
@@ -142,6 +145,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   private PreparedStatement pstmtSeq;
   private CallableStatement cstmt;
 
+  /**
+   * The prepared statements kept open by SQL, the least recently used one is closed when the cache is full
+   */
+  private Map<String, PreparedStatement> statementCache;
+
   private DatabaseMetaData dbmd;
 
   private RowMetaInterface rowMeta;
@@ -317,6 +325,22 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     rowlimit = rows;
   }
 
+  /**
+   * Set the number of rows the driver fetches from the database at once in the queries, 0 for the default.
+   *
+   * @param fetchSize
+   */
+  public void setFetchSize( int fetchSize ) {
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * @return the number of rows the driver fetches at once, 0 for the default
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
   /**
    * @return Returns the prepStatementInsert.
    */
@@ -655,6 +679,12 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
       tryCloseAndLog(  pstmtSeq, "seq statement" );
       pstmtSeq = null;
     }
+    if ( statementCache != null ) {
+      for ( PreparedStatement cached : statementCache.values() ) {
+        tryCloseAndLog( cached, "cached statement" );
+      }
+      statementCache = null;
+    }
 
     // See if there are other steps using this connection in a connection
     // group.
@@ -992,8 +1022,52 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Prepares a statement or takes the one prepared earlier for the same SQL on this connection. The statement stays
+   * open until it falls out of the cache, the connection is closed or it's closed with
+   * {@link #closePreparedStatement(PreparedStatement)}. A step keeping the statement for its rows leaves closing it to
+   * the connection. Variable {@link Const#KETTLE_PREPARED_STATEMENT_CACHE_SIZE} sets how many statements are kept, 0
+   * prepares a new statement every time.
+   *
+   * @param sql The SQL to be prepared
+   * @return The PreparedStatement object.
+   * @throws KettleDatabaseException
+   */
+  public PreparedStatement prepareCachedSQL( String sql ) throws KettleDatabaseException {
+    String strippedSql = databaseMeta.stripCR( sql );
+    if ( statementCache == null ) {
+      int cacheSize = Const.toInt( getVariable( Const.KETTLE_PREPARED_STATEMENT_CACHE_SIZE, "64" ), 64 );
+      if ( cacheSize <= 0 ) {
+        return prepareSQL( sql );
+      }
+      statementCache = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, PreparedStatement> eldest ) {
+          if ( size() > cacheSize ) {
+            tryCloseAndLog( eldest.getValue(), "cached statement" );
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+    PreparedStatement ps = statementCache.get( strippedSql );
+    try {
+      if ( ps == null || ps.isClosed() ) {
+        ps = prepareSQL( sql );
+        statementCache.put( strippedSql, ps );
+      }
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Couldn't prepare statement:" + Const.CR + sql, ex );
+    }
+    return ps;
+  }
+
   public void closePreparedStatement( PreparedStatement ps ) throws KettleDatabaseException {
     if ( ps != null ) {
+      if ( statementCache != null ) {
+        statementCache.values().remove( ps );
+      }
       try {
         ps.close();
       } catch ( SQLException e ) {
@@ -1112,6 +1186,73 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Sets the values of a row of a batch. Integer and Number values held in primitive columns are set without boxing
+   * them, the same way {@link ValueMetaInterface#setPreparedStatementValue(DatabaseMeta, PreparedStatement, int, Object)}
+   * sets them.
+   *
+   * @param rowMeta   the layout of the values to set
+   * @param batch     the batch with the row
+   * @param rowNr     the row in the batch
+   * @param columnNrs the column in the batch of every value of rowMeta
+   * @param ps        the statement
+   */
+  public void setValues( RowMetaInterface rowMeta, RowBatch batch, int rowNr, int[] columnNrs, PreparedStatement ps )
+    throws KettleDatabaseException {
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface v = rowMeta.getValueMeta( i );
+      int columnNr = columnNrs[ i ];
+
+      try {
+        if ( v.getType() == ValueMetaInterface.TYPE_INTEGER && databaseMeta.supportsSetLong()
+          && batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+          if ( batch.isNull( rowNr, columnNr ) ) {
+            ps.setNull( i + 1, java.sql.Types.INTEGER );
+          } else {
+            ps.setLong( i + 1, batch.getLong( rowNr, columnNr ) );
+          }
+        } else if ( v.getType() == ValueMetaInterface.TYPE_NUMBER
+          && batch.getColumnType( columnNr ) == RowBatch.ColumnType.DOUBLE ) {
+          if ( batch.isNull( rowNr, columnNr ) ) {
+            ps.setNull( i + 1, java.sql.Types.DOUBLE );
+          } else {
+            double num = batch.getDouble( rowNr, columnNr );
+            if ( databaseMeta.supportsFloatRoundingOnUpdate() && v.getPrecision() >= 0 ) {
+              num = Const.round( num, v.getPrecision() );
+            }
+            ps.setDouble( i + 1, num );
+          }
+        } else {
+          setValue( ps, v, batch.getObject( rowNr, columnNr ), i + 1 );
+        }
+      } catch ( SQLException | KettleDatabaseException e ) {
+        throw new KettleDatabaseException( "offending row : " + rowMeta, e );
+      }
+    }
+  }
+
+  /**
+   * Sets the values of more rows in a multi-row INSERT statement, row r from parameter r * rowMeta.size() + 1 on.
+   *
+   * @param rowMeta the layout of the rows
+   * @param rows    the rows, as many as the statement has
+   * @param ps      the statement of {@link #getInsertStatement(String, String, RowMetaInterface, int)}
+   */
+  public void setValuesMultiRow( RowMetaInterface rowMeta, List<Object[]> rows, PreparedStatement ps )
+    throws KettleDatabaseException {
+    int size = rowMeta.size();
+    for ( int r = 0; r < rows.size(); r++ ) {
+      Object[] data = rows.get( r );
+      for ( int i = 0; i < size; i++ ) {
+        try {
+          setValue( ps, rowMeta.getValueMeta( i ), data[ i ], r * size + i + 1 );
+        } catch ( KettleDatabaseException e ) {
+          throw new KettleDatabaseException( "offending row " + ( r + 1 ) + " : " + rowMeta, e );
+        }
+      }
+    }
+  }
+
   /**
    * Sets the values of the preparedStatement pstmt.
    *
@@ -1206,7 +1347,22 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   }
 
   public String getInsertStatement( String schemaName, String tableName, RowMetaInterface fields ) {
-    StringBuilder ins = new StringBuilder( 128 );
+    return getInsertStatement( schemaName, tableName, fields, 1 );
+  }
+
+  /**
+   * Gets an INSERT statement with the values of more rows: INSERT INTO table (a, b) VALUES ( ?, ?), ( ?, ?), ...
+   * Row r binds its values from parameter r * fields.size() + 1 on, see
+   * {@link #setValuesMultiRow(RowMetaInterface, List, PreparedStatement)}.
+   *
+   * @param schemaName the schema of the table
+   * @param tableName  the table
+   * @param fields     the layout of the rows, the value names are the columns
+   * @param nrRows     the number of rows in the statement, see {@link #getInsertValuesRows(RowMetaInterface, int)}
+   * @return the INSERT statement
+   */
+  public String getInsertStatement( String schemaName, String tableName, RowMetaInterface fields, int nrRows ) {
+    StringBuilder ins = new StringBuilder( 128 + nrRows * fields.size() * 3 );
 
     String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
     ins.append( "INSERT INTO " ).append( schemaTable ).append( " (" );
@@ -1222,17 +1378,113 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     ins.append( ") VALUES (" );
 
     // Add placeholders...
-    for ( int i = 0; i < fields.size(); i++ ) {
-      if ( i > 0 ) {
-        ins.append( ", " );
+    for ( int r = 0; r < nrRows; r++ ) {
+      if ( r > 0 ) {
+        ins.append( ", (" );
+      }
+      for ( int i = 0; i < fields.size(); i++ ) {
+        if ( i > 0 ) {
+          ins.append( ", " );
+        }
+        ins.append( " ?" );
       }
-      ins.append( " ?" );
+      ins.append( ')' );
     }
-    ins.append( ')' );
 
     return ins.toString();
   }
 
+  /**
+   * Works out how many rows go into a multi-row INSERT statement of this database: no more than asked for, than the
+   * database takes in a VALUES clause and than it binds parameters in a statement.
+   *
+   * @param fields  the layout of the rows
+   * @param maxRows the number of rows asked for
+   * @return the number of rows, 1 if the database doesn't insert more rows in a statement
+   */
+  public int getInsertValuesRows( RowMetaInterface fields, int maxRows ) {
+    DatabaseInterface databaseInterface = databaseMeta.getDatabaseInterface();
+    int nrRows = Math.min( maxRows, databaseInterface.getMaxInsertValuesRows() );
+    if ( fields.size() > 0 ) {
+      nrRows = Math.min( nrRows, databaseInterface.getMaxStatementParameters() / fields.size() );
+    }
+    return Math.max( nrRows, 1 );
+  }
+
+  /**
+   * Gets a writer loading rows into a table through the native bulk load API of the database instead of INSERT
+   * statements, on this connection.
+   *
+   * @param schemaName the schema of the table
+   * @param tableName  the table
+   * @param fields     the layout of the rows, the value names are the columns
+   * @return the writer or null if the database or its driver has no bulk load API for rows like these
+   */
+  public DatabaseBulkWriter getBulkWriter( String schemaName, String tableName, RowMetaInterface fields ) {
+    BulkWriteStrategy strategy = databaseMeta.getDatabaseInterface().getBulkWriteStrategy();
+    if ( strategy == null || connection == null || !strategy.supports( this, fields ) ) {
+      return null;
+    }
+    return new DatabaseBulkWriter( this, strategy, schemaName, tableName, fields );
+  }
+
+  /**
+   * Gets an inserter putting the rows for a table in multi-row INSERT statements on this connection.
+   *
+   * @param schemaName the schema of the table
+   * @param tableName  the table
+   * @param fields     the layout of the rows, the value names are the columns
+   * @param maxRows    the number of rows asked for in a statement
+   * @return the inserter or null if the database inserts a row per statement only
+   */
+  public MultiRowInsert getMultiRowInsert( String schemaName, String tableName, RowMetaInterface fields,
+                                           int maxRows ) {
+    int nrRows = getInsertValuesRows( fields, maxRows );
+    if ( nrRows <= 1 ) {
+      return null;
+    }
+    return new MultiRowInsert( this, schemaName, tableName, fields, nrRows );
+  }
+
+  /**
+   * Gets a merge upserting the rows for a table set-based through a staging table on this connection.
+   *
+   * @param schemaName       the schema of the table and the staging table
+   * @param tableName        the table
+   * @param stagingTableName the staging table
+   * @param fields           the layout of the rows, the value names are the columns. The key columns come first.
+   * @param nrKeys           the number of key columns, a row matches on all of them being equal
+   * @param update           per column true if a row with a key found in the table updates it
+   * @param insert           true to insert the rows with a key not found in the table, false to update only
+   * @return the merge or null if the database can't merge rows in one statement
+   */
+  public StagingMerge getStagingMerge( String schemaName, String tableName, String stagingTableName,
+                                       RowMetaInterface fields, int nrKeys, boolean[] update, boolean insert ) {
+    String[] keyColumns = new String[ nrKeys ];
+    List<String> updateColumns = new ArrayList<>();
+    String[] insertColumns = new String[ fields.size() ];
+    for ( int i = 0; i < fields.size(); i++ ) {
+      String column = databaseMeta.quoteField( fields.getValueMeta( i ).getName() );
+      if ( i < nrKeys ) {
+        keyColumns[ i ] = column;
+      } else if ( update[ i ] ) {
+        updateColumns.add( column );
+      }
+      insertColumns[ i ] = column;
+    }
+    // The rows with the same key are reduced to the last one in the database
+    //
+    String mergeRowsQuery = StagingMerge.getMergeRowsQuery( databaseMeta,
+      databaseMeta.getQuotedSchemaTableCombination( schemaName, stagingTableName ), keyColumns, insertColumns );
+    String mergeStatement = databaseMeta.getDatabaseInterface().getMergeStatement(
+      databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName ), mergeRowsQuery, keyColumns,
+      updateColumns.toArray( new String[ 0 ] ), insert ? insertColumns : null );
+    if ( mergeStatement == null || connection == null ) {
+      return null;
+    }
+    return new StagingMerge( this, schemaName, stagingTableName, fields, mergeRowsQuery, mergeStatement );
+  }
+
   public void insertRow() throws KettleDatabaseException {
     insertRow( prepStatementInsert );
   }
@@ -1423,6 +1675,9 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
         // Let's not forget to close the prepared statement.
         //
+        if ( statementCache != null ) {
+          statementCache.values().remove( ps );
+        }
         ps.close();
       }
     } catch ( BatchUpdateException ex ) {
@@ -1497,6 +1752,9 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
         // Let's not forget to close the prepared statement.
         //
+        if ( statementCache != null ) {
+          statementCache.values().remove( ps );
+        }
         ps.close();
       }
     } catch ( BatchUpdateException ex ) {
@@ -1522,6 +1780,22 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   }
 
   public Result execStatement( String rawsql, RowMetaInterface params, Object[] data ) throws KettleDatabaseException {
+    return execStatement( rawsql, params, data, false );
+  }
+
+  /**
+   * Executes a statement, with a prepared statement from {@link #prepareCachedSQL(String)} if it's cached. A statement
+   * executed over and over again is then parsed once on this connection.
+   *
+   * @param rawsql The SQL to execute
+   * @param params the layout of the parameters or null
+   * @param data   the values of the parameters
+   * @param cached true to execute a cached prepared statement
+   * @return a Result object indicating the number of lines read, deleted, inserted, updated, ...
+   * @throws KettleDatabaseException in case anything goes wrong.
+   */
+  public Result execStatement( String rawsql, RowMetaInterface params, Object[] data, boolean cached )
+    throws KettleDatabaseException {
     Result result = new Result();
 
     // Replace existing code with a class that removes comments from the raw
@@ -1534,7 +1808,14 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     try {
       boolean resultSet;
       int count;
-      if ( params != null ) {
+      if ( cached ) {
+        PreparedStatement prepStmt = prepareCachedSQL( sql );
+        if ( params != null ) {
+          setValues( params, data, prepStmt ); // set the parameters!
+        }
+        resultSet = prepStmt.execute();
+        count = prepStmt.getUpdateCount();
+      } else if ( params != null ) {
         try ( PreparedStatement prepStmt = connection.prepareStatement( databaseMeta.stripCR( sql ) ) ) {
           setValues( params, data, prepStmt ); // set the parameters!
           resultSet = prepStmt.execute();
@@ -1724,7 +2005,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
         if ( canWeSetFetchSize( pstmt ) ) {
           int maxRows = pstmt.getMaxRows();
-          int fs = Math.max( Const.FETCH_SIZE, maxRows );
+          int fs = fetchSize > 0 ? fetchSize : Math.max( Const.FETCH_SIZE, maxRows );
           if ( databaseMeta.isMySQLVariant() ) {
             setMysqlFetchSize( pstmt, fs, maxRows );
           } else {
@@ -1746,7 +2027,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
         selStmt = connection.createStatement();
         log.snap( Metrics.METRIC_DATABASE_CREATE_SQL_STOP, databaseMeta.getName() );
         if ( canWeSetFetchSize( selStmt ) ) {
-          int fs = Math.max( Const.FETCH_SIZE, selStmt.getMaxRows() );
+          int fs = fetchSize > 0 ? fetchSize : Math.max( Const.FETCH_SIZE, selStmt.getMaxRows() );
           if ( databaseMeta.getDatabaseInterface().isMySQLVariant()
             && databaseMeta.isStreamingResults() ) {
             selStmt.setFetchSize( Integer.MIN_VALUE );
@@ -1781,7 +2062,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   private boolean canWeSetFetchSize( Statement statement ) throws SQLException {
     return databaseMeta.isFetchSizeSupported()
-      && ( statement.getMaxRows() > 0
+      && ( fetchSize > 0 || statement.getMaxRows() > 0
       || databaseMeta.getDatabaseInterface() instanceof PostgreSQLDatabaseMeta
       || ( databaseMeta.isMySQLVariant() && databaseMeta.isStreamingResults() ) );
   }
@@ -1800,7 +2081,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
       if ( canWeSetFetchSize( ps ) ) {
         int maxRows = ps.getMaxRows();
-        int fs = Math.max( Const.FETCH_SIZE, maxRows );
+        int fs = fetchSize > 0 ? fetchSize : Math.max( Const.FETCH_SIZE, maxRows );
         // mysql have some restriction on fetch size assignment
         if ( databaseMeta.isMySQLVariant() ) {
           setMysqlFetchSize( ps, fs, maxRows );
@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Collects rows for a table in memory in the format of the bulk load API of the database and loads them together on
+ * a flush. A row that can't be converted is refused on its own, the load of the collected rows is all or nothing.
+ *
+ * @see Database#getBulkWriter(String, String, RowMetaInterface)
+ */
+public class DatabaseBulkWriter {
+
+  /**
+   * Hands the collected bytes to the loader without a copy.
+   */
+  private static class Buffer extends ByteArrayOutputStream {
+    Buffer( int size ) {
+      super( size );
+    }
+
+    ByteArrayInputStream getInputStream() {
+      return new ByteArrayInputStream( buf, 0, count );
+    }
+  }
+
+  private final Database database;
+  private final BulkWriteStrategy strategy;
+  private final String schemaName;
+  private final String tableName;
+  private final RowMetaInterface rowMeta;
+
+  private final Buffer buffer = new Buffer( 64 * 1024 );
+  private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream( 256 );
+  private int nrRows;
+
+  public DatabaseBulkWriter( Database database, BulkWriteStrategy strategy, String schemaName, String tableName,
+                             RowMetaInterface rowMeta ) {
+    this.database = database;
+    this.strategy = strategy;
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+    this.rowMeta = rowMeta;
+  }
+
+  /**
+   * Adds a row to the next load.
+   *
+   * @throws KettleDatabaseException
+   *           in case a value of the row can't be converted, the row isn't added
+   */
+  public void addRow( Object[] row ) throws KettleDatabaseException {
+    rowBuffer.reset();
+    try {
+      strategy.writeRow( rowMeta, row, rowBuffer );
+    } catch ( KettleValueException | IOException e ) {
+      throw new KettleDatabaseException( "Unable to convert row for the bulk load into table " + tableName, e );
+    }
+    try {
+      rowBuffer.writeTo( buffer );
+    } catch ( IOException e ) {
+      throw new KettleDatabaseException( e );
+    }
+    nrRows++;
+  }
+
+  /**
+   * @return the number of rows added since the last load
+   */
+  public int getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * Loads the rows added since the last load, without a commit. The rows are gone afterwards, also if the load fails.
+   *
+   * @return the number of rows loaded
+   */
+  public long flush() throws KettleDatabaseException {
+    if ( nrRows == 0 ) {
+      return 0;
+    }
+    try {
+      return strategy.load( database, schemaName, tableName, rowMeta, buffer.getInputStream() );
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * Forgets the rows added since the last load.
+   */
+  public void clear() {
+    buffer.reset();
+    nrRows = 0;
+  }
+}
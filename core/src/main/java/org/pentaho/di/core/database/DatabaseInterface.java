@@ -1253,6 +1253,54 @@ public interface DatabaseInterface extends Cloneable {
     return "";
   }
 
+  /**
+   * @return the number of rows one INSERT ... VALUES (...), (...) statement can take, 1 (the default) if the database
+   *         takes one row per statement
+   */
+  default int getMaxInsertValuesRows() {
+    return 1;
+  }
+
+  /**
+   * @return the number of parameters one statement can take
+   */
+  default int getMaxStatementParameters() {
+    return Short.MAX_VALUE;
+  }
+
+  /**
+   * @return the number of values one IN ( ... ) list can take
+   */
+  default int getMaxInListSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return the strategy loading rows through the native bulk load API of the database, null if there is none and
+   *         rows are inserted with INSERT statements
+   */
+  default BulkWriteStrategy getBulkWriteStrategy() {
+    return null;
+  }
+
+  /**
+   * Gets a statement merging the rows of a staging table into a table in one go: a row whose key is found updates the
+   * table, the others are inserted. The staging rows have the columns of the table, a row matches on all key columns
+   * being equal.
+   *
+   * @param schemaTable   the quoted schema and table to merge into
+   * @param stagingTable  the quoted schema and staging table, or a query on it in parentheses. Either is followed by an
+   *                      alias.
+   * @param keyColumns    the quoted key columns
+   * @param updateColumns the quoted columns to update, empty to leave a found row as it is
+   * @param insertColumns the quoted columns to insert, null to update the found rows only
+   * @return the statement or null if the database can't merge rows in one statement
+   */
+  default String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                    String[] updateColumns, String[] insertColumns ) {
+    return null;
+  }
+
   /**
    * Allows to get the column name for JDBC drivers with different behavior for aliases depending on the connector version.
    *
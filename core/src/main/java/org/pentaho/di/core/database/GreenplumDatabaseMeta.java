@@ -37,4 +37,13 @@ public class GreenplumDatabaseMeta extends PostgreSQLDatabaseMeta implements Dat
   public boolean supportsErrorHandlingOnBatchUpdates() {
     return false;
   }
+
+  /**
+   * @return null, INSERT ... ON CONFLICT is only there from Greenplum 7 on
+   */
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    return null;
+  }
 }
@@ -28,4 +28,13 @@ public class InfobrightDatabaseMeta extends MySQLDatabaseMeta implements Databas
     addExtraOption( getPluginId(), "characterEncoding", "UTF-8" );
   }
 
+  /**
+   * @return null, the loader of Infobright doesn't update rows
+   */
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    return null;
+  }
+
 }
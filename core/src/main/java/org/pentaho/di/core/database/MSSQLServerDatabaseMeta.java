@@ -530,4 +530,32 @@ public class MSSQLServerDatabaseMeta extends BaseDatabaseMeta implements Databas
   public void setConnectionSpecificInfoFromAttributes( Map<String, String> attributes ) {
     this.setUsingDoubleDecimalAsSchemaTableSeparator( setBooleanValueFromMap( attributes, "MSSQL_DOUBLE_DECIMAL_SEPARATOR" ) );
   }
+
+  /**
+   * @return 1000, the limit of a table value constructor
+   */
+  @Override
+  public int getMaxInsertValuesRows() {
+    return 1000;
+  }
+
+  /**
+   * @return MERGE INTO ... USING, it has to end with a semicolon
+   */
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    if ( insertColumns == null && updateColumns.length == 0 ) {
+      return null;
+    }
+    return getStandardMergeStatement( schemaTable, stagingTable, keyColumns, updateColumns, insertColumns ) + ";";
+  }
+
+  /**
+   * @return a little under the limit of 2100 parameters of a request
+   */
+  @Override
+  public int getMaxStatementParameters() {
+    return 2000;
+  }
 }
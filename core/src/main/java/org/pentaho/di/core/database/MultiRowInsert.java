@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Collects rows for a table and inserts them with multi-row INSERT ... VALUES ( ... ), ( ... ) statements, so that
+ * the database parses and executes a statement per so many rows instead of one per row. The statements are prepared
+ * through the statement cache of the connection, a full statement and the one for the rows left over at the end.
+ *
+ * @see Database#getMultiRowInsert(String, String, RowMetaInterface, int)
+ */
+public class MultiRowInsert {
+
+  private final Database database;
+  private final String schemaName;
+  private final String tableName;
+  private final RowMetaInterface rowMeta;
+  private final int nrRowsPerStatement;
+
+  private final List<Object[]> rows;
+
+  public MultiRowInsert( Database database, String schemaName, String tableName, RowMetaInterface rowMeta,
+                         int nrRowsPerStatement ) {
+    this.database = database;
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+    this.rowMeta = rowMeta;
+    this.nrRowsPerStatement = Math.max( nrRowsPerStatement, 1 );
+    this.rows = new ArrayList<>( this.nrRowsPerStatement );
+  }
+
+  /**
+   * Adds a row and inserts the collected rows once there are enough of them for a statement, without a commit.
+   *
+   * @return the number of rows inserted, 0 if the row is only collected
+   * @throws KettleDatabaseException
+   *           in case the statement fails, the collected rows are gone
+   */
+  public int addRow( Object[] row ) throws KettleDatabaseException {
+    rows.add( row );
+    if ( rows.size() < nrRowsPerStatement ) {
+      return 0;
+    }
+    return flush();
+  }
+
+  /**
+   * @return the number of rows collected and not inserted yet
+   */
+  public int getNrRows() {
+    return rows.size();
+  }
+
+  /**
+   * @return the number of rows in a full statement
+   */
+  public int getNrRowsPerStatement() {
+    return nrRowsPerStatement;
+  }
+
+  /**
+   * Inserts the collected rows in one statement, without a commit. The rows are gone afterwards, also if the insert
+   * fails.
+   *
+   * @return the number of rows inserted
+   */
+  public int flush() throws KettleDatabaseException {
+    if ( rows.isEmpty() ) {
+      return 0;
+    }
+    try {
+      String sql = database.getInsertStatement( schemaName, tableName, rowMeta, rows.size() );
+      PreparedStatement ps = database.prepareCachedSQL( sql );
+      database.setValuesMultiRow( rowMeta, rows, ps );
+      ps.executeUpdate();
+      return rows.size();
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error inserting " + rows.size() + " rows into table " + tableName, ex );
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * Forgets the collected rows.
+   */
+  public void clear() {
+    rows.clear();
+  }
+}
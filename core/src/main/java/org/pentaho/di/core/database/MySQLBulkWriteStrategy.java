@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Loads the rows with LOAD DATA LOCAL INFILE from an in-memory stream handed to the statement of the MySQL or MariaDB
+ * JDBC driver. The driver is reached through reflection. The connection needs the option allowLoadLocalInfile (MySQL)
+ * or allowLocalInfile (MariaDB) set to true and the server local_infile on. A load with conversion warnings fails.
+ */
+public class MySQLBulkWriteStrategy extends CsvBulkWriteStrategy {
+
+  private static final int MAX_WARNINGS = 10;
+
+  private static final String[] STATEMENT_CLASSES = {
+    "com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement", "org.mariadb.jdbc.MariaDbStatement" };
+
+  public MySQLBulkWriteStrategy() {
+    // The word NULL without quotes is null once the fields are enclosed
+    //
+    super( "NULL" );
+  }
+
+  @Override
+  public boolean supports( Database database, RowMetaInterface rowMeta ) {
+    if ( !super.supports( database, rowMeta ) || !isLocalInfileAllowed( database.getDatabaseMeta() ) ) {
+      return false;
+    }
+    for ( String className : STATEMENT_CLASSES ) {
+      Class<?> statementClass = findDriverClass( database, className );
+      if ( statementClass != null ) {
+        try {
+          statementClass.getMethod( "setLocalInfileInputStream", InputStream.class );
+          return true;
+        } catch ( NoSuchMethodException e ) {
+          // Newer drivers read local files only
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  protected String formatBoolean( boolean value ) {
+    return value ? "1" : "0";
+  }
+
+  @Override
+  public long load( Database database, String schemaName, String tableName, RowMetaInterface rowMeta,
+                    InputStream data ) throws KettleDatabaseException {
+    DatabaseMeta databaseMeta = database.getDatabaseMeta();
+    String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
+    String sql = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE " + schemaTable + " CHARACTER SET utf8mb4"
+      + " FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '' LINES TERMINATED BY '\\n' "
+      + getColumnList( databaseMeta, rowMeta );
+
+    try ( Statement statement = database.getConnection().createStatement() ) {
+      for ( String className : STATEMENT_CLASSES ) {
+        Class<?> statementClass = findDriverClass( database, className );
+        if ( statementClass != null && statement.isWrapperFor( statementClass ) ) {
+          statementClass.getMethod( "setLocalInfileInputStream", InputStream.class )
+            .invoke( statement.unwrap( statementClass ), data );
+          long nrRows = statement.executeUpdate( sql );
+          checkWarnings( statement, schemaTable );
+          return nrRows;
+        }
+      }
+      throw new KettleDatabaseException( "The connection doesn't offer LOAD DATA LOCAL INFILE from a stream" );
+    } catch ( InvocationTargetException e ) {
+      throw new KettleDatabaseException( "Error loading rows into table " + schemaTable, e.getCause() );
+    } catch ( ReflectiveOperationException | SQLException e ) {
+      throw new KettleDatabaseException( "Error loading rows into table " + schemaTable, e );
+    }
+  }
+
+  /**
+   * LOAD DATA loads a value it can't convert as a warning, with the default of the column. Such a load fails here, as
+   * the inserts of the rows would.
+   *
+   * @throws KettleDatabaseException
+   *           in case the load gave warnings
+   */
+  static void checkWarnings( Statement statement, String schemaTable ) throws SQLException, KettleDatabaseException {
+    StringBuilder messages = new StringBuilder();
+    int nrWarnings = 0;
+    try ( ResultSet warnings = statement.executeQuery( "SHOW WARNINGS" ) ) {
+      while ( warnings.next() ) {
+        if ( !"Note".equalsIgnoreCase( warnings.getString( 1 ) ) && nrWarnings++ < MAX_WARNINGS ) {
+          messages.append( Const.CR ).append( warnings.getString( 1 ) ).append( ' ' ).append( warnings.getInt( 2 ) )
+            .append( ": " ).append( warnings.getString( 3 ) );
+        }
+      }
+    }
+    if ( nrWarnings > 0 ) {
+      throw new KettleDatabaseException( "Loading rows into table " + schemaTable + " gave " + nrWarnings
+        + " warning(s):" + messages );
+    }
+  }
+
+  static boolean isLocalInfileAllowed( DatabaseMeta databaseMeta ) {
+    for ( Map.Entry<String, String> option : databaseMeta.getExtraOptions().entrySet() ) {
+      String name = option.getKey().substring( option.getKey().indexOf( '.' ) + 1 );
+      if ( ( "allowLoadLocalInfile".equals( name ) || "allowLocalInfile".equals( name ) )
+        && "true".equalsIgnoreCase( databaseMeta.environmentSubstitute( option.getValue() ) ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -466,6 +466,65 @@ public class MySQLDatabaseMeta extends BaseDatabaseMeta implements DatabaseInter
     return true;
   }
 
+  /**
+   * @return LOAD DATA LOCAL INFILE from a stream, if the connection allows local files
+   */
+  @Override public BulkWriteStrategy getBulkWriteStrategy() {
+    return new MySQLBulkWriteStrategy();
+  }
+
+  /**
+   * @return INSERT ... ON DUPLICATE KEY UPDATE, it needs a unique index on the key columns. An update only is an
+   *         UPDATE with a join.
+   */
+  @Override public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                             String[] updateColumns, String[] insertColumns ) {
+    StringBuilder sql = new StringBuilder( 256 );
+    if ( insertColumns == null ) {
+      if ( updateColumns.length == 0 ) {
+        return null;
+      }
+      sql.append( "UPDATE " ).append( schemaTable ).append( " tgt JOIN " ).append( stagingTable ).append( " stg ON " );
+      for ( int i = 0; i < keyColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( " AND " );
+        }
+        sql.append( "tgt." ).append( keyColumns[ i ] ).append( " = stg." ).append( keyColumns[ i ] );
+      }
+      sql.append( " SET " );
+      for ( int i = 0; i < updateColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( "tgt." ).append( updateColumns[ i ] ).append( " = stg." ).append( updateColumns[ i ] );
+      }
+      return sql.toString();
+    }
+    String columns = String.join( ", ", insertColumns );
+    sql.append( "INSERT INTO " ).append( schemaTable ).append( " ( " ).append( columns ).append( " ) SELECT " )
+      .append( columns ).append( " FROM " ).append( stagingTable ).append( " stg ON DUPLICATE KEY UPDATE " );
+    if ( updateColumns.length == 0 ) {
+      // Leaves a found row as it is
+      sql.append( keyColumns[ 0 ] ).append( " = " ).append( keyColumns[ 0 ] );
+    } else {
+      for ( int i = 0; i < updateColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( updateColumns[ i ] ).append( " = VALUES( " ).append( updateColumns[ i ] ).append( " )" );
+      }
+    }
+    return sql.toString();
+  }
+
+  @Override public int getMaxInsertValuesRows() {
+    return 1000;
+  }
+
+  @Override public int getMaxStatementParameters() {
+    return 65_535;
+  }
+
   @Override public boolean isRequiringTransactionsOnQueries() {
     return false;
   }
@@ -660,4 +660,21 @@ public class OracleDatabaseMeta extends BaseDatabaseMeta implements DatabaseInte
   public void setConnectionSpecificInfoFromAttributes( Map<String, String> attributes ) {
     this.setStrictBigNumberInterpretation( setBooleanValueFromMap( attributes, STRICT_BIGNUMBER_INTERPRETATION ) );
   }
+
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    if ( insertColumns == null && updateColumns.length == 0 ) {
+      return null;
+    }
+    return getStandardMergeStatement( schemaTable, stagingTable, keyColumns, updateColumns, insertColumns );
+  }
+
+  /**
+   * @return 1000, more values in a list fail with ORA-01795
+   */
+  @Override
+  public int getMaxInListSize() {
+    return 1000;
+  }
 }
@@ -0,0 +1,76 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Loads the rows with COPY ... FROM STDIN in CSV format through the copy API of the PostgreSQL JDBC driver. The driver
+ * is reached through reflection, the strategy isn't supported with other drivers or without the driver.
+ */
+public class PostgreSQLBulkWriteStrategy extends CsvBulkWriteStrategy {
+
+  private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+  public PostgreSQLBulkWriteStrategy() {
+    // An empty value without quotes is null in CSV format
+    //
+    super( "" );
+  }
+
+  @Override
+  public boolean supports( Database database, RowMetaInterface rowMeta ) {
+    return super.supports( database, rowMeta ) && getPGConnection( database ) != null;
+  }
+
+  @Override
+  public long load( Database database, String schemaName, String tableName, RowMetaInterface rowMeta,
+                    InputStream data ) throws KettleDatabaseException {
+    DatabaseMeta databaseMeta = database.getDatabaseMeta();
+    String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
+    String sql = "COPY " + schemaTable + " " + getColumnList( databaseMeta, rowMeta ) + " FROM STDIN WITH CSV";
+
+    Class<?> pgConnectionClass = getPGConnection( database );
+    if ( pgConnectionClass == null ) {
+      throw new KettleDatabaseException( "The connection doesn't offer the PostgreSQL copy API" );
+    }
+    try {
+      Object pgConnection = database.getConnection().unwrap( pgConnectionClass );
+      Object copyManager = pgConnectionClass.getMethod( "getCopyAPI" ).invoke( pgConnection );
+      Object rows = copyManager.getClass().getMethod( "copyIn", String.class, InputStream.class )
+        .invoke( copyManager, sql, data );
+      return ( (Number) rows ).longValue();
+    } catch ( InvocationTargetException e ) {
+      throw new KettleDatabaseException( "Error copying rows into table " + schemaTable, e.getCause() );
+    } catch ( ReflectiveOperationException | SQLException e ) {
+      throw new KettleDatabaseException( "Error copying rows into table " + schemaTable, e );
+    }
+  }
+
+  private Class<?> getPGConnection( Database database ) {
+    Connection connection = database.getConnection();
+    Class<?> pgConnectionClass = findDriverClass( database, PG_CONNECTION_CLASS );
+    try {
+      return pgConnectionClass != null && connection.isWrapperFor( pgConnectionClass ) ? pgConnectionClass : null;
+    } catch ( SQLException e ) {
+      return null;
+    }
+  }
+}
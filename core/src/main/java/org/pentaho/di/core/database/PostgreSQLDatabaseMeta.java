@@ -513,6 +513,65 @@ public class PostgreSQLDatabaseMeta extends BaseDatabaseMeta implements Database
     return false;
   }
 
+  /**
+   * @return COPY ... FROM STDIN through the copy API of the driver
+   */
+  @Override
+  public BulkWriteStrategy getBulkWriteStrategy() {
+    return new PostgreSQLBulkWriteStrategy();
+  }
+
+  /**
+   * @return INSERT ... ON CONFLICT ... DO UPDATE, it needs a unique index on the key columns. An update only is an
+   *         UPDATE ... FROM.
+   */
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    StringBuilder sql = new StringBuilder( 256 );
+    if ( insertColumns == null ) {
+      if ( updateColumns.length == 0 ) {
+        return null;
+      }
+      sql.append( "UPDATE " ).append( schemaTable ).append( " tgt SET " );
+      for ( int i = 0; i < updateColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( updateColumns[ i ] ).append( " = stg." ).append( updateColumns[ i ] );
+      }
+      sql.append( " FROM " ).append( stagingTable ).append( " stg WHERE " );
+      for ( int i = 0; i < keyColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( " AND " );
+        }
+        sql.append( "tgt." ).append( keyColumns[ i ] ).append( " = stg." ).append( keyColumns[ i ] );
+      }
+      return sql.toString();
+    }
+    String columns = String.join( ", ", insertColumns );
+    sql.append( "INSERT INTO " ).append( schemaTable ).append( " ( " ).append( columns ).append( " ) SELECT " )
+      .append( columns ).append( " FROM " ).append( stagingTable ).append( " stg ON CONFLICT ( " )
+      .append( String.join( ", ", keyColumns ) ).append( " ) DO " );
+    if ( updateColumns.length == 0 ) {
+      sql.append( "NOTHING" );
+    } else {
+      sql.append( "UPDATE SET " );
+      for ( int i = 0; i < updateColumns.length; i++ ) {
+        if ( i > 0 ) {
+          sql.append( ", " );
+        }
+        sql.append( updateColumns[ i ] ).append( " = EXCLUDED." ).append( updateColumns[ i ] );
+      }
+    }
+    return sql.toString();
+  }
+
+  @Override
+  public int getMaxInsertValuesRows() {
+    return 1000;
+  }
+
   /**
    * PG needs the extra E in front of the string before it allows you to quote it. Imagine that.
    *
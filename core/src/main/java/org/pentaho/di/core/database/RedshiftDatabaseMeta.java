@@ -132,6 +132,23 @@ public class RedshiftDatabaseMeta extends PostgreSQLDatabaseMeta {
     return "redshift";
   }
 
+  /**
+   * @return null, Redshift copies from S3 only and not from STDIN
+   */
+  @Override
+  public BulkWriteStrategy getBulkWriteStrategy() {
+    return null;
+  }
+
+  /**
+   * @return null, Redshift has no INSERT ... ON CONFLICT
+   */
+  @Override
+  public String getMergeStatement( String schemaTable, String stagingTable, String[] keyColumns,
+                                   String[] updateColumns, String[] insertColumns ) {
+    return null;
+  }
+
   private String getParamIfSet( String param, String val ) {
     if ( !isEmpty( val ) ) {
       return "&" + param + "=" + val;
@@ -0,0 +1,229 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Collects the rows to upsert into a table and writes them set-based: the rows are loaded into a staging table, with
+ * the native bulk load of the database or else with multi-row or batched inserts, and one statement merges the staging
+ * table into the table. A lookup and an update or insert per row become a statement per so many rows.<br>
+ * <br>
+ * Every row is staged with its number in the column {@value #ROW_NR_COLUMN}. The merge reads the last row of every key
+ * only, ranked with ROW_NUMBER() in the database, so a later row wins over an earlier one. A key with a null value
+ * matches nothing, those rows are all merged.<br>
+ * <br>
+ * The staging table is created with the columns of the rows and the row number if it doesn't exist, and dropped again
+ * on close. An existing staging table is used as it is, it needs the row number column too.
+ *
+ * @see Database#getStagingMerge(String, String, String, RowMetaInterface, int, boolean[], boolean)
+ */
+public class StagingMerge {
+
+  /**
+   * The column of the staging table holding the number of the row, the highest number of a key is merged
+   */
+  public static final String ROW_NR_COLUMN = "PDI_ROW_NR";
+
+  private final Database database;
+  private final String schemaName;
+  private final String stagingTableName;
+  private final RowMetaInterface stagingRowMeta;
+  private final String mergeRowsQuery;
+  private final String mergeStatement;
+
+  private final List<Object[]> rows = new ArrayList<>();
+  private boolean stagingTablePrepared;
+  private boolean stagingTableCreated;
+
+  /**
+   * @param database         the connected database
+   * @param schemaName       the schema of the table and the staging table
+   * @param stagingTableName the staging table
+   * @param rowMeta          the layout of the rows, the value names are the columns. The key columns come first.
+   * @param mergeRowsQuery   the query on the staging table reading the rows to merge, in parentheses
+   * @param mergeStatement   the statement merging the rows of the query into the table
+   * @see #getMergeRowsQuery(DatabaseMeta, String, String[], String[])
+   */
+  public StagingMerge( Database database, String schemaName, String stagingTableName, RowMetaInterface rowMeta,
+                       String mergeRowsQuery, String mergeStatement ) {
+    this.database = database;
+    this.schemaName = schemaName;
+    this.stagingTableName = stagingTableName;
+    this.mergeRowsQuery = mergeRowsQuery;
+    this.mergeStatement = mergeStatement;
+
+    stagingRowMeta = rowMeta.clone();
+    stagingRowMeta.addValueMeta( new ValueMetaInteger( ROW_NR_COLUMN ) );
+  }
+
+  /**
+   * Adds a row to the next merge.
+   */
+  public void addRow( Object[] row ) {
+    Object[] stagingRow = new Object[ stagingRowMeta.size() ];
+    System.arraycopy( row, 0, stagingRow, 0, stagingRow.length - 1 );
+    stagingRow[ stagingRow.length - 1 ] = Long.valueOf( rows.size() );
+    rows.add( stagingRow );
+  }
+
+  /**
+   * @return the number of rows added since the last merge
+   */
+  public int getNrRows() {
+    return rows.size();
+  }
+
+  /**
+   * Counts the rows the last merge read from the staging table: the last row of every key and the rows with a null
+   * in the key.
+   */
+  public int countMergedRows() throws KettleDatabaseException {
+    RowMetaAndData count = database.getOneRow( "SELECT COUNT(*) FROM " + mergeRowsQuery + " stg" );
+    try {
+      return count == null ? 0 : (int) count.getInteger( 0, 0L );
+    } catch ( KettleValueException e ) {
+      throw new KettleDatabaseException( e );
+    }
+  }
+
+  /**
+   * Loads the collected rows into the staging table and merges them into the table, without a commit. The rows are
+   * gone afterwards, also if the merge fails.
+   *
+   * @return the number of rows the merge statement reports as changed
+   */
+  public int flush() throws KettleDatabaseException {
+    if ( rows.isEmpty() ) {
+      return 0;
+    }
+    try {
+      prepareStagingTable();
+      loadStagingTable();
+      PreparedStatement ps = database.prepareCachedSQL( mergeStatement );
+      return ps.executeUpdate();
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error merging staging table " + stagingTableName + " into the table", ex );
+    } finally {
+      rows.clear();
+    }
+  }
+
+  /**
+   * Drops the staging table if it was created here.
+   */
+  public void close() throws KettleDatabaseException {
+    if ( stagingTableCreated ) {
+      stagingTableCreated = false;
+      database.execStatement( "DROP TABLE " + getQuotedStagingTable() );
+    }
+  }
+
+  /**
+   * @return the merge statement
+   */
+  public String getMergeStatement() {
+    return mergeStatement;
+  }
+
+  /**
+   * Gets the query reading the rows to merge from the staging table: the row with the highest row number of every key
+   * and all the rows with a null in the key, which match nothing.
+   *
+   * @param stagingTable the quoted schema and staging table
+   * @param keyColumns   the quoted key columns
+   * @param columns      the quoted columns to read
+   * @return the query in parentheses, to follow with an alias
+   */
+  public static String getMergeRowsQuery( DatabaseMeta databaseMeta, String stagingTable, String[] keyColumns,
+                                          String[] columns ) {
+    String columnList = String.join( ", ", columns );
+    StringBuilder sql = new StringBuilder( 256 );
+    sql.append( "( SELECT " ).append( columnList ).append( " FROM ( SELECT " ).append( columnList )
+      .append( ", ROW_NUMBER() OVER ( PARTITION BY " ).append( String.join( ", ", keyColumns ) ).append( " ORDER BY " )
+      .append( databaseMeta.quoteField( ROW_NR_COLUMN ) ).append( " DESC ) pdi_rank FROM " ).append( stagingTable )
+      .append( " ) ranked WHERE pdi_rank = 1" );
+    for ( String keyColumn : keyColumns ) {
+      sql.append( " OR " ).append( keyColumn ).append( " IS NULL" );
+    }
+    return sql.append( " )" ).toString();
+  }
+
+  private void prepareStagingTable() throws KettleDatabaseException {
+    if ( !stagingTablePrepared && !database.checkTableExists( schemaName, stagingTableName ) ) {
+      DatabaseMeta databaseMeta = database.getDatabaseMeta();
+      RowMetaInterface columns = stagingRowMeta.clone();
+      for ( int i = 0; i < columns.size(); i++ ) {
+        columns.getValueMeta( i ).setName( databaseMeta.quoteField( stagingRowMeta.getValueMeta( i ).getName() ) );
+      }
+      database.execStatement( database.getCreateTableStatement( getQuotedStagingTable(), columns, null, false, null,
+        false ) );
+      stagingTableCreated = true;
+    } else {
+      database.truncateTable( schemaName, stagingTableName );
+    }
+    stagingTablePrepared = true;
+  }
+
+  private void loadStagingTable() throws KettleDatabaseException, SQLException {
+    DatabaseBulkWriter bulkWriter = database.getBulkWriter( schemaName, stagingTableName, stagingRowMeta );
+    if ( bulkWriter != null ) {
+      for ( Object[] row : rows ) {
+        bulkWriter.addRow( row );
+      }
+      bulkWriter.flush();
+      return;
+    }
+
+    MultiRowInsert multiRowInsert =
+      database.getMultiRowInsert( schemaName, stagingTableName, stagingRowMeta, database.getDatabaseMeta()
+        .getDatabaseInterface().getMaxInsertValuesRows() );
+    if ( multiRowInsert != null ) {
+      for ( Object[] row : rows ) {
+        multiRowInsert.addRow( row );
+      }
+      multiRowInsert.flush();
+      return;
+    }
+
+    boolean batch = database.getUseBatchInsert( true );
+    PreparedStatement ps =
+      database.prepareCachedSQL( database.getInsertStatement( schemaName, stagingTableName, stagingRowMeta ) );
+    for ( Object[] row : rows ) {
+      database.setValues( stagingRowMeta, row, ps );
+      if ( batch ) {
+        ps.addBatch();
+      } else {
+        ps.executeUpdate();
+      }
+    }
+    if ( batch ) {
+      ps.executeBatch();
+      ps.clearBatch();
+    }
+  }
+
+  private String getQuotedStagingTable() {
+    return database.getDatabaseMeta().getQuotedSchemaTableCombination( schemaName, stagingTableName );
+  }
+}
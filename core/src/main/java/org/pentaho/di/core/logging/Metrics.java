@@ -85,6 +85,15 @@ public class Metrics implements MetricsInterface {
   public static Metrics METRIC_DATABASE_GET_ROW_MAX_TIME = new Metrics(
     MetricsSnapshotType.MAX, "METRIC_DATABASE_GET_ROW_MAX_TIME", "Get row from DB (max time)" );
 
+  // Database lookup cache
+  //
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_HITS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_HITS", "Database lookup cache hits" );
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_MISSES = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_MISSES", "Database lookup cache misses" );
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS", "Database lookup cache evictions" );
+
   // Plugin registry...
   //
   public static Metrics METRIC_PLUGIN_REGISTRY_REGISTER_EXTENSIONS_START = new Metrics(
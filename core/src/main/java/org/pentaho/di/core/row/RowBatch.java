@@ -0,0 +1,627 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of rows stored column by column. Integer, Date and Timestamp fields are kept in <code>long[]</code> columns,
+ * Number fields in <code>double[]</code> columns and String fields as dictionary codes, each with a null bitmap, so
+ * reading and writing those values doesn't box them. Other data types and fields that don't use normal storage
+ * (lazy conversion, indexed) are kept as objects.<br>
+ * <br>
+ * A batch created with {@link #fromRows(RowMetaInterface, Object[][], int)} is a view on the legacy
+ * <code>Object[]</code> rows: a column is only converted when it's read for the first time and {@link #getRow(int)}
+ * hands back the original row as long as the batch wasn't modified. That makes it cheap to go back and forth between
+ * steps that use batches and steps that use rows.<br>
+ * <br>
+ * A batch is not thread safe.
+ *
+ * @since 11.1.0.0
+ */
+public class RowBatch {
+
+  /**
+   * The way the values of a column are stored in a batch.
+   */
+  public enum ColumnType {
+    /** Integer, Date (milliseconds since the epoch) and Timestamp (milliseconds plus nanoseconds) fields */
+    LONG,
+    /** Number fields */
+    DOUBLE,
+    /** String fields, stored as codes in a dictionary of the distinct values */
+    DICTIONARY,
+    /** Everything else, stored as objects */
+    OBJECT
+  }
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final RowMetaInterface rowMeta;
+  private final int nrColumns;
+  private final ColumnType[] columnTypes;
+  private final int[] valueTypes;
+
+  private int size;
+  private int capacity;
+
+  private long[][] longs;
+  private double[][] doubles;
+  private int[][] nanos;
+  private int[][] codes;
+  private Object[][] objects;
+  private long[][] nulls;
+
+  private List<List<String>> dictionaries;
+  private List<Map<String, Integer>> dictionaryIndexes;
+
+  /** The rows this batch was created from, null once the batch has been modified. */
+  private Object[][] sourceRows;
+
+  /** Which columns hold the converted values of the source rows. */
+  private boolean[] materialized;
+
+  /**
+   * Create a new empty batch.
+   *
+   * @param rowMeta
+   *          the layout of the rows
+   * @param capacity
+   *          the initial number of rows that fit in the batch, it grows when needed
+   */
+  public RowBatch( RowMetaInterface rowMeta, int capacity ) {
+    this.rowMeta = rowMeta;
+    this.nrColumns = rowMeta.size();
+    this.capacity = Math.max( 1, capacity );
+
+    columnTypes = new ColumnType[nrColumns];
+    valueTypes = new int[nrColumns];
+    for ( int i = 0; i < nrColumns; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      valueTypes[i] = valueMeta.getType();
+      columnTypes[i] = getColumnType( valueMeta );
+    }
+
+    longs = new long[nrColumns][];
+    doubles = new double[nrColumns][];
+    nanos = new int[nrColumns][];
+    codes = new int[nrColumns][];
+    objects = new Object[nrColumns][];
+    nulls = new long[nrColumns][];
+    dictionaries = new ArrayList<>( nrColumns );
+    dictionaryIndexes = new ArrayList<>( nrColumns );
+    for ( int i = 0; i < nrColumns; i++ ) {
+      dictionaries.add( null );
+      dictionaryIndexes.add( null );
+      allocateColumn( i );
+    }
+    materialized = new boolean[nrColumns];
+    Arrays.fill( materialized, true );
+  }
+
+  /**
+   * Create a new empty batch with a default capacity.
+   *
+   * @param rowMeta
+   *          the layout of the rows
+   */
+  public RowBatch( RowMetaInterface rowMeta ) {
+    this( rowMeta, DEFAULT_CAPACITY );
+  }
+
+  /**
+   * Wrap legacy rows in a batch. Columns are converted when they're first read.
+   *
+   * @param rowMeta
+   *          the layout of the rows
+   * @param rows
+   *          the rows, they are not copied
+   * @param count
+   *          the number of rows to use
+   * @return the new batch
+   */
+  public static RowBatch fromRows( RowMetaInterface rowMeta, Object[][] rows, int count ) {
+    RowBatch batch = new RowBatch( rowMeta, count );
+    batch.sourceRows = rows;
+    batch.size = count;
+    Arrays.fill( batch.materialized, false );
+    return batch;
+  }
+
+  /**
+   * @return the way the values of a field are stored in a batch
+   */
+  public static ColumnType getColumnType( ValueMetaInterface valueMeta ) {
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return ColumnType.OBJECT;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return ColumnType.LONG;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return ColumnType.DOUBLE;
+      case ValueMetaInterface.TYPE_STRING:
+        return ColumnType.DICTIONARY;
+      default:
+        return ColumnType.OBJECT;
+    }
+  }
+
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the way the values of a column are stored. A column of a batch created from rows is converted first: a
+   *         value of an unexpected class keeps the whole column as objects.
+   */
+  public ColumnType getColumnType( int columnNr ) {
+    materialize( columnNr );
+    return columnTypes[columnNr];
+  }
+
+  /**
+   * Append an empty row, all values are null.
+   *
+   * @return the number of the new row
+   */
+  public int addRow() {
+    prepareForUpdate();
+    ensureCapacity( size + 1 );
+    int rowNr = size++;
+    for ( int c = 0; c < nrColumns; c++ ) {
+      storeNull( c, rowNr );
+    }
+    return rowNr;
+  }
+
+  /**
+   * Append a legacy row, converting its values.
+   *
+   * @return the number of the new row
+   */
+  public int addRow( Object[] row ) {
+    int rowNr = addRow();
+    for ( int c = 0; c < nrColumns; c++ ) {
+      store( c, rowNr, row == null || c >= row.length ? null : row[c] );
+    }
+    return rowNr;
+  }
+
+  /**
+   * Get a row in the legacy format. This is the original row for a batch created from rows that hasn't been modified,
+   * otherwise a new row with boxed values.
+   */
+  public Object[] getRow( int rowNr ) {
+    if ( sourceRows != null ) {
+      return sourceRows[rowNr];
+    }
+    Object[] row = RowDataUtil.allocateRowData( nrColumns );
+    for ( int c = 0; c < nrColumns; c++ ) {
+      row[c] = getObject( rowNr, c );
+    }
+    return row;
+  }
+
+  /**
+   * @return all rows of the batch in the legacy format
+   */
+  public Object[][] toRows() {
+    Object[][] rows = new Object[size][];
+    for ( int r = 0; r < size; r++ ) {
+      rows[r] = getRow( r );
+    }
+    return rows;
+  }
+
+  public boolean isNull( int rowNr, int columnNr ) {
+    materialize( columnNr );
+    return ( nulls[columnNr][rowNr >>> 6] & ( 1L << rowNr ) ) != 0;
+  }
+
+  /**
+   * @return the value of an Integer field, or the milliseconds since the epoch of a Date or Timestamp field. 0 when the
+   *         value is null.
+   */
+  public long getLong( int rowNr, int columnNr ) {
+    materialize( columnNr );
+    checkColumnType( columnNr, ColumnType.LONG );
+    return longs[columnNr][rowNr];
+  }
+
+  /**
+   * @return the value of a Number field, 0 when the value is null.
+   */
+  public double getDouble( int rowNr, int columnNr ) {
+    materialize( columnNr );
+    checkColumnType( columnNr, ColumnType.DOUBLE );
+    return doubles[columnNr][rowNr];
+  }
+
+  /**
+   * @return the nanoseconds of a Timestamp field, 0 for other fields
+   */
+  public int getNanos( int rowNr, int columnNr ) {
+    materialize( columnNr );
+    checkColumnType( columnNr, ColumnType.LONG );
+    return nanos[columnNr] == null ? 0 : nanos[columnNr][rowNr];
+  }
+
+  /**
+   * @return the dictionary code of a String field, -1 when the value is null.
+   */
+  public int getStringCode( int rowNr, int columnNr ) {
+    materialize( columnNr );
+    checkColumnType( columnNr, ColumnType.DICTIONARY );
+    return codes[columnNr][rowNr];
+  }
+
+  /**
+   * @return the distinct values of a String field, indexed by dictionary code
+   */
+  public List<String> getDictionary( int columnNr ) {
+    materialize( columnNr );
+    checkColumnType( columnNr, ColumnType.DICTIONARY );
+    return dictionaries.get( columnNr );
+  }
+
+  public String getString( int rowNr, int columnNr ) {
+    int code = getStringCode( rowNr, columnNr );
+    return code < 0 ? null : dictionaries.get( columnNr ).get( code );
+  }
+
+  /**
+   * Get a value as the object a legacy row would hold, boxing it when needed.
+   */
+  public Object getObject( int rowNr, int columnNr ) {
+    if ( sourceRows != null && !materialized[columnNr] ) {
+      Object[] row = sourceRows[rowNr];
+      return row == null || columnNr >= row.length ? null : row[columnNr];
+    }
+    if ( isNull( rowNr, columnNr ) ) {
+      return null;
+    }
+    switch ( columnTypes[columnNr] ) {
+      case LONG:
+        long value = longs[columnNr][rowNr];
+        switch ( valueTypes[columnNr] ) {
+          case ValueMetaInterface.TYPE_DATE:
+            return new Date( value );
+          case ValueMetaInterface.TYPE_TIMESTAMP:
+            Timestamp timestamp = new Timestamp( value );
+            timestamp.setNanos( nanos[columnNr][rowNr] );
+            return timestamp;
+          default:
+            return value;
+        }
+      case DOUBLE:
+        return doubles[columnNr][rowNr];
+      case DICTIONARY:
+        return dictionaries.get( columnNr ).get( codes[columnNr][rowNr] );
+      default:
+        return objects[columnNr][rowNr];
+    }
+  }
+
+  public void setNull( int rowNr, int columnNr ) {
+    prepareForUpdate();
+    storeNull( columnNr, rowNr );
+  }
+
+  /**
+   * Set the value of an Integer field, or the milliseconds since the epoch of a Date or Timestamp field.
+   */
+  public void setLong( int rowNr, int columnNr, long value ) {
+    checkColumnType( columnNr, ColumnType.LONG );
+    prepareForUpdate();
+    longs[columnNr][rowNr] = value;
+    if ( nanos[columnNr] != null ) {
+      nanos[columnNr][rowNr] = (int) ( Math.floorMod( value, 1000L ) * 1000000L );
+    }
+    clearNullBit( columnNr, rowNr );
+  }
+
+  /**
+   * Set the value of a Timestamp field.
+   */
+  public void setTimestamp( int rowNr, int columnNr, long millis, int nanoseconds ) {
+    setLong( rowNr, columnNr, millis );
+    if ( nanos[columnNr] != null ) {
+      nanos[columnNr][rowNr] = nanoseconds;
+    }
+  }
+
+  public void setDouble( int rowNr, int columnNr, double value ) {
+    checkColumnType( columnNr, ColumnType.DOUBLE );
+    prepareForUpdate();
+    doubles[columnNr][rowNr] = value;
+    clearNullBit( columnNr, rowNr );
+  }
+
+  public void setString( int rowNr, int columnNr, String value ) {
+    checkColumnType( columnNr, ColumnType.DICTIONARY );
+    prepareForUpdate();
+    if ( value == null ) {
+      setNull( rowNr, columnNr );
+    } else {
+      codes[columnNr][rowNr] = encode( columnNr, value );
+      clearNullBit( columnNr, rowNr );
+    }
+  }
+
+  /**
+   * Set a value from the object a legacy row would hold, unboxing it when needed.
+   */
+  public void setObject( int rowNr, int columnNr, Object value ) {
+    prepareForUpdate();
+    store( columnNr, rowNr, value );
+  }
+
+  /**
+   * Wrap other legacy rows in this batch, reusing its columns. Columns are converted when they're first read.
+   *
+   * @param rows
+   *          the rows, with the layout of this batch. They are not copied.
+   * @param count
+   *          the number of rows to use
+   */
+  public void setRows( Object[][] rows, int count ) {
+    clear();
+    for ( int c = 0; c < nrColumns; c++ ) {
+      // A column that had to fall back to objects for the previous rows gets another chance
+      //
+      ColumnType columnType = getColumnType( rowMeta.getValueMeta( c ) );
+      if ( columnTypes[c] != columnType ) {
+        columnTypes[c] = columnType;
+        objects[c] = null;
+        allocateColumn( c );
+      }
+    }
+    ensureCapacity( count );
+    sourceRows = rows;
+    size = count;
+    Arrays.fill( materialized, false );
+  }
+
+  /**
+   * Remove all rows, keeping the allocated columns.
+   */
+  public void clear() {
+    size = 0;
+    sourceRows = null;
+    for ( int c = 0; c < nrColumns; c++ ) {
+      materialized[c] = true;
+      if ( dictionaries.get( c ) != null ) {
+        dictionaries.get( c ).clear();
+        dictionaryIndexes.get( c ).clear();
+      }
+      if ( objects[c] != null ) {
+        Arrays.fill( objects[c], null );
+      }
+    }
+  }
+
+  private void allocateColumn( int c ) {
+    nulls[c] = new long[( capacity + 63 ) >>> 6];
+    switch ( columnTypes[c] ) {
+      case LONG:
+        longs[c] = new long[capacity];
+        if ( valueTypes[c] == ValueMetaInterface.TYPE_TIMESTAMP ) {
+          nanos[c] = new int[capacity];
+        }
+        break;
+      case DOUBLE:
+        doubles[c] = new double[capacity];
+        break;
+      case DICTIONARY:
+        codes[c] = new int[capacity];
+        if ( dictionaries.get( c ) == null ) {
+          dictionaries.set( c, new ArrayList<>() );
+          dictionaryIndexes.set( c, new HashMap<>() );
+        }
+        break;
+      default:
+        objects[c] = new Object[capacity];
+        break;
+    }
+  }
+
+  private void ensureCapacity( int minCapacity ) {
+    if ( minCapacity <= capacity ) {
+      return;
+    }
+    capacity = Math.max( minCapacity, capacity * 2 );
+    for ( int c = 0; c < nrColumns; c++ ) {
+      nulls[c] = Arrays.copyOf( nulls[c], ( capacity + 63 ) >>> 6 );
+      if ( longs[c] != null ) {
+        longs[c] = Arrays.copyOf( longs[c], capacity );
+      }
+      if ( nanos[c] != null ) {
+        nanos[c] = Arrays.copyOf( nanos[c], capacity );
+      }
+      if ( doubles[c] != null ) {
+        doubles[c] = Arrays.copyOf( doubles[c], capacity );
+      }
+      if ( codes[c] != null ) {
+        codes[c] = Arrays.copyOf( codes[c], capacity );
+      }
+      if ( objects[c] != null ) {
+        objects[c] = Arrays.copyOf( objects[c], capacity );
+      }
+    }
+  }
+
+  /**
+   * Once a batch is modified its rows can no longer be handed back as the source rows, so every column has to hold its
+   * own values.
+   */
+  private void prepareForUpdate() {
+    if ( sourceRows != null ) {
+      for ( int c = 0; c < nrColumns; c++ ) {
+        materialize( c );
+      }
+      sourceRows = null;
+    }
+  }
+
+  private void materialize( int c ) {
+    if ( materialized[c] ) {
+      return;
+    }
+    materialized[c] = true;
+    for ( int r = 0; r < size; r++ ) {
+      Object[] row = sourceRows[r];
+      store( c, r, row == null || c >= row.length ? null : row[c] );
+    }
+  }
+
+  private void store( int c, int r, Object value ) {
+    if ( value == null ) {
+      storeNull( c, r );
+      return;
+    }
+    switch ( columnTypes[c] ) {
+      case LONG:
+        if ( valueTypes[c] == ValueMetaInterface.TYPE_INTEGER && value instanceof Long ) {
+          longs[c][r] = (Long) value;
+        } else if ( valueTypes[c] != ValueMetaInterface.TYPE_INTEGER && value instanceof Date ) {
+          longs[c][r] = ( (Date) value ).getTime();
+          if ( nanos[c] != null ) {
+            nanos[c][r] = value instanceof Timestamp
+              ? ( (Timestamp) value ).getNanos() : (int) ( Math.floorMod( longs[c][r], 1000L ) * 1000000L );
+          }
+        } else {
+          storeAsObject( c, r, value );
+          return;
+        }
+        break;
+      case DOUBLE:
+        if ( value instanceof Double ) {
+          doubles[c][r] = (Double) value;
+        } else {
+          storeAsObject( c, r, value );
+          return;
+        }
+        break;
+      case DICTIONARY:
+        if ( value instanceof String ) {
+          codes[c][r] = encode( c, (String) value );
+        } else {
+          storeAsObject( c, r, value );
+          return;
+        }
+        break;
+      default:
+        objects[c][r] = value;
+        break;
+    }
+    clearNullBit( c, r );
+  }
+
+  /**
+   * A value that isn't of the class the field's data type calls for can't go in a primitive column. Keep the column as
+   * objects instead, exactly like a legacy row would.
+   */
+  private void storeAsObject( int c, int r, Object value ) {
+    if ( columnTypes[c] != ColumnType.OBJECT ) {
+      Object[] values = new Object[capacity];
+      // While the column is being converted from the source rows only the rows before this one hold a value
+      //
+      int stored = sourceRows != null ? r : size;
+      for ( int i = 0; i < stored; i++ ) {
+        values[i] = getObject( i, c );
+      }
+      columnTypes[c] = ColumnType.OBJECT;
+      objects[c] = values;
+      longs[c] = null;
+      nanos[c] = null;
+      doubles[c] = null;
+      codes[c] = null;
+      dictionaries.set( c, null );
+      dictionaryIndexes.set( c, null );
+    }
+    objects[c][r] = value;
+    clearNullBit( c, r );
+  }
+
+  /**
+   * The columns are reused for the rows of the next batch, so the value a null replaces has to be reset as well.
+   */
+  private void storeNull( int c, int r ) {
+    setNullBit( c, r );
+    switch ( columnTypes[c] ) {
+      case LONG:
+        longs[c][r] = 0L;
+        if ( nanos[c] != null ) {
+          nanos[c][r] = 0;
+        }
+        break;
+      case DOUBLE:
+        doubles[c][r] = 0.0;
+        break;
+      case DICTIONARY:
+        codes[c][r] = -1;
+        break;
+      default:
+        objects[c][r] = null;
+        break;
+    }
+  }
+
+  private int encode( int c, String value ) {
+    Map<String, Integer> index = dictionaryIndexes.get( c );
+    Integer code = index.get( value );
+    if ( code == null ) {
+      List<String> dictionary = dictionaries.get( c );
+      code = dictionary.size();
+      dictionary.add( value );
+      index.put( value, code );
+    }
+    return code;
+  }
+
+  private void setNullBit( int c, int r ) {
+    nulls[c][r >>> 6] |= 1L << r;
+  }
+
+  private void clearNullBit( int c, int r ) {
+    nulls[c][r >>> 6] &= ~( 1L << r );
+  }
+
+  private void checkColumnType( int columnNr, ColumnType type ) {
+    if ( columnTypes[columnNr] != type ) {
+      throw new IllegalStateException( "Field '" + rowMeta.getValueMeta( columnNr ).getName() + "' is stored as "
+        + columnTypes[columnNr] + ", not as " + type );
+    }
+  }
+}
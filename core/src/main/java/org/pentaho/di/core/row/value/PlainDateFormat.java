@@ -0,0 +1,304 @@
+//CHECKSTYLE:FileLength:OFF
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses dates for the numeric date masks, such as yyyy/MM/dd HH:mm:ss.SSS or yyyyMMdd, without a
+ * SimpleDateFormat. It's made from a SimpleDateFormat with a Gregorian calendar and gives the same results as that
+ * format for what it covers: the fields yyyy, MM, dd, HH, mm, ss and SSS, each at most once, with the literals
+ * " -/:.,_" in between, for the years 1600 to 9999. A text is only parsed if it has exactly the digits and literals of
+ * the mask and a valid date and time, away from a change of the time zone offset. The methods return null or -1 for
+ * anything else, that has to go through the SimpleDateFormat.<br>
+ * <br>
+ * An instance doesn't change, it can be used by more threads.
+ */
+public class PlainDateFormat {
+
+  private static final String LITERALS = " -/:.,_";
+  private static final String FIELDS = "yMdHmsS";
+  private static final long MILLIS_PER_DAY = 86400000L;
+  private static final int MIN_YEAR = 1600;
+  private static final int MAX_YEAR = 9999;
+
+  // Every position of the text has the letter of its field or the literal in it
+  //
+  private final char[] pattern;
+  private final String literals;
+  private final TimeZone timeZone;
+  private final long gregorianChange;
+
+  private PlainDateFormat( char[] pattern, String literals, TimeZone timeZone, long gregorianChange ) {
+    this.pattern = pattern;
+    this.literals = literals;
+    this.timeZone = timeZone;
+    this.gregorianChange = gregorianChange;
+  }
+
+  /**
+   * @param format the date format to replace
+   * @return the plain date format for the date format or null if its mask or calendar aren't covered
+   */
+  public static PlainDateFormat getInstance( SimpleDateFormat format ) {
+    if ( format == null || format.getCalendar().getClass() != GregorianCalendar.class ) {
+      return null;
+    }
+    NumberFormat numberFormat = format.getNumberFormat();
+    if ( !( numberFormat instanceof DecimalFormat )
+      || ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() != '0' ) {
+      return null;
+    }
+
+    char[] pattern = format.toPattern().toCharArray();
+    StringBuilder literals = new StringBuilder();
+    StringBuilder fields = new StringBuilder();
+    for ( int i = 0; i < pattern.length; ) {
+      char c = pattern[ i ];
+      int count = 1;
+      while ( i + count < pattern.length && pattern[ i + count ] == c ) {
+        count++;
+      }
+      if ( LITERALS.indexOf( c ) >= 0 ) {
+        if ( literals.indexOf( String.valueOf( c ) ) < 0 ) {
+          literals.append( c );
+        }
+      } else if ( getWidth( c ) == count && fields.indexOf( String.valueOf( c ) ) < 0 ) {
+        fields.append( c );
+      } else {
+        return null;
+      }
+      i += count;
+    }
+    GregorianCalendar calendar = (GregorianCalendar) format.getCalendar();
+    return new PlainDateFormat( pattern, literals.toString(), (TimeZone) format.getTimeZone().clone(),
+      calendar.getGregorianChange().getTime() );
+  }
+
+  private static int getWidth( char field ) {
+    switch ( field ) {
+      case 'y':
+        return 4;
+      case 'S':
+        return 3;
+      default:
+        return FIELDS.indexOf( field ) >= 0 ? 2 : -1;
+    }
+  }
+
+  /**
+   * @return the length of the text of every date
+   */
+  public int getLength() {
+    return pattern.length;
+  }
+
+  /**
+   * @return the literals of the mask, the text of a date has these and the digits 0 to 9
+   */
+  public String getLiterals() {
+    return literals;
+  }
+
+  /**
+   * Formats a date.
+   *
+   * @param date the date to format
+   * @return the text or null if the date has to be formatted by the date format
+   */
+  public String format( Date date ) {
+    byte[] buffer = new byte[ pattern.length ];
+    int length = format( date.getTime(), buffer, 0 );
+    return length < 0 ? null : new String( buffer, 0, length, StandardCharsets.ISO_8859_1 );
+  }
+
+  /**
+   * Writes the text of a date as ASCII bytes.
+   *
+   * @param time   the milliseconds since 1970-01-01 00:00:00 UTC of the date
+   * @param buffer the buffer to write in, with room for the text
+   * @param offset the position in the buffer to write at
+   * @return the number of bytes written or -1 if the date has to be formatted by the date format
+   */
+  public int format( long time, byte[] buffer, int offset ) {
+    if ( time < gregorianChange ) {
+      return -1;
+    }
+    long local = time + timeZone.getOffset( time );
+    long days = Math.floorDiv( local, MILLIS_PER_DAY );
+    int millisOfDay = (int) Math.floorMod( local, MILLIS_PER_DAY );
+
+    // The civil date of the days since 1970-01-01 in the proleptic Gregorian calendar
+    //
+    long z = days + 719468;
+    long era = Math.floorDiv( z, 146097 );
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = ( dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096 ) / 365;
+    long dayOfYear = dayOfEra - ( 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 );
+    long mp = ( 5 * dayOfYear + 2 ) / 153;
+    int day = (int) ( dayOfYear - ( 153 * mp + 2 ) / 5 + 1 );
+    int month = (int) ( mp < 10 ? mp + 3 : mp - 9 );
+    long year = yearOfEra + era * 400 + ( month <= 2 ? 1 : 0 );
+    if ( year < MIN_YEAR || year > MAX_YEAR ) {
+      return -1;
+    }
+
+    for ( int i = 0; i < pattern.length; ) {
+      switch ( pattern[ i ] ) {
+        case 'y':
+          i = writeDigits( buffer, offset, i, (int) year, 4 );
+          break;
+        case 'M':
+          i = writeDigits( buffer, offset, i, month, 2 );
+          break;
+        case 'd':
+          i = writeDigits( buffer, offset, i, day, 2 );
+          break;
+        case 'H':
+          i = writeDigits( buffer, offset, i, millisOfDay / 3600000, 2 );
+          break;
+        case 'm':
+          i = writeDigits( buffer, offset, i, millisOfDay / 60000 % 60, 2 );
+          break;
+        case 's':
+          i = writeDigits( buffer, offset, i, millisOfDay / 1000 % 60, 2 );
+          break;
+        case 'S':
+          i = writeDigits( buffer, offset, i, millisOfDay % 1000, 3 );
+          break;
+        default:
+          buffer[ offset + i ] = (byte) pattern[ i ];
+          i++;
+          break;
+      }
+    }
+    return pattern.length;
+  }
+
+  private static int writeDigits( byte[] buffer, int offset, int index, int value, int digits ) {
+    for ( int i = offset + index + digits - 1; i >= offset + index; i-- ) {
+      buffer[ i ] = (byte) ( '0' + value % 10 );
+      value /= 10;
+    }
+    return index + digits;
+  }
+
+  /**
+   * Parses a date. The fields that aren't in the mask are those of 1970-01-01 00:00:00.000, like the date format does.
+   *
+   * @param string the text to parse
+   * @return the date or null if the text has to be parsed by the date format
+   */
+  public Date parse( String string ) {
+    if ( string.length() != pattern.length ) {
+      return null;
+    }
+    int year = 1970;
+    int month = 1;
+    int day = 1;
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int millis = 0;
+    for ( int i = 0; i < pattern.length; ) {
+      char c = pattern[ i ];
+      int width = getWidth( c );
+      if ( width < 0 ) {
+        if ( string.charAt( i ) != c ) {
+          return null;
+        }
+        i++;
+        continue;
+      }
+      int value = 0;
+      for ( int end = i + width; i < end; i++ ) {
+        char digit = string.charAt( i );
+        if ( digit < '0' || digit > '9' ) {
+          return null;
+        }
+        value = value * 10 + ( digit - '0' );
+      }
+      switch ( c ) {
+        case 'y':
+          year = value;
+          break;
+        case 'M':
+          month = value;
+          break;
+        case 'd':
+          day = value;
+          break;
+        case 'H':
+          hour = value;
+          break;
+        case 'm':
+          minute = value;
+          break;
+        case 's':
+          second = value;
+          break;
+        default:
+          millis = value;
+          break;
+      }
+    }
+    if ( year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > getDaysInMonth( year, month )
+      || hour > 23 || minute > 59 || second > 59 ) {
+      return null;
+    }
+
+    // The days since 1970-01-01 of the civil date in the proleptic Gregorian calendar
+    //
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv( y, 400 );
+    long yearOfEra = y - era * 400;
+    long dayOfYear = ( 153 * ( month > 2 ? month - 3 : month + 9 ) + 2 ) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    long days = era * 146097 + dayOfEra - 719468;
+    long local = days * MILLIS_PER_DAY + ( ( hour * 60L + minute ) * 60 + second ) * 1000 + millis;
+
+    // Only where the offset of the time zone is the same for a day before and after, in a gap or an overlap the
+    // calendar decides
+    //
+    int offset = timeZone.getOffset( local - timeZone.getRawOffset() );
+    long time = local - offset;
+    if ( time < gregorianChange
+      || timeZone.getOffset( time ) != offset
+      || timeZone.getOffset( time - MILLIS_PER_DAY ) != offset
+      || timeZone.getOffset( time + MILLIS_PER_DAY ) != offset ) {
+      return null;
+    }
+    return new Date( time );
+  }
+
+  private static int getDaysInMonth( int year, int month ) {
+    switch ( month ) {
+      case 2:
+        return ( year % 4 == 0 && year % 100 != 0 ) || year % 400 == 0 ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+//CHECKSTYLE:FileLength:OFF
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats and parses integers and decimals for the plain number masks, such as the default ones, without a
+ * DecimalFormat. It's made from a DecimalFormat and gives the same results as that format for what it covers: integers
+ * without grouping, fraction or affixes other than the minus sign, and strings of digits with an optional minus sign
+ * and decimal separator. The methods return null or -1 for anything else, that has to go through the DecimalFormat.
+ * <br>
+ * An instance doesn't change, it can be used by more threads.
+ */
+public class PlainNumberFormat {
+
+  /**
+   * The longest text of an integer without padding: the minus sign and 19 digits.
+   */
+  public static final int MAX_INTEGER_LENGTH = 20;
+
+  // The powers of 10 a double has exactly, a decimal with up to 15 digits divided by one of these is rounded right
+  //
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+  private static final int MAX_NUMBER_DIGITS = 15;
+  private static final int MAX_INTEGER_DIGITS = 18;
+  private static final int MAX_PADDING = 32;
+
+  private final char decimalSeparator;
+  private final int minIntegerDigits;
+  private final boolean formatsIntegers;
+
+  private PlainNumberFormat( char decimalSeparator, int minIntegerDigits, boolean formatsIntegers ) {
+    this.decimalSeparator = decimalSeparator;
+    this.minIntegerDigits = minIntegerDigits;
+    this.formatsIntegers = formatsIntegers;
+  }
+
+  /**
+   * @param format the decimal format to replace
+   * @return the plain number format for the decimal format or null if it has affixes, a multiplier, an exponent or
+   *         digits other than 0 to 9
+   */
+  public static PlainNumberFormat getInstance( DecimalFormat format ) {
+    if ( format == null ) {
+      return null;
+    }
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    if ( format.getMultiplier() != 1
+      || format.isParseBigDecimal()
+      || format.isParseIntegerOnly()
+      || format.toPattern().indexOf( 'E' ) >= 0
+      || symbols.getZeroDigit() != '0'
+      || symbols.getDecimalSeparator() == symbols.getGroupingSeparator()
+      || ( symbols.getDecimalSeparator() >= '0' && symbols.getDecimalSeparator() <= '9' )
+      || symbols.getDecimalSeparator() == '-'
+      || !format.getPositivePrefix().isEmpty()
+      || !format.getPositiveSuffix().isEmpty()
+      || !"-".equals( format.getNegativePrefix() )
+      || !format.getNegativeSuffix().isEmpty() ) {
+      return null;
+    }
+    boolean formatsIntegers = !( format.isGroupingUsed() && format.getGroupingSize() > 0 )
+      && format.getMinimumFractionDigits() == 0
+      && !format.isDecimalSeparatorAlwaysShown()
+      && format.getMinimumIntegerDigits() <= MAX_PADDING
+      && format.getMaximumIntegerDigits() >= 19;
+    return new PlainNumberFormat( symbols.getDecimalSeparator(), Math.max( format.getMinimumIntegerDigits(), 1 ),
+      formatsIntegers );
+  }
+
+  /**
+   * @return true if integers are formatted by this format
+   */
+  public boolean isFormattingIntegers() {
+    return formatsIntegers;
+  }
+
+  /**
+   * @return the length of the longest text of an integer
+   */
+  public int getMaxIntegerLength() {
+    return Math.max( minIntegerDigits + 1, MAX_INTEGER_LENGTH );
+  }
+
+  /**
+   * Formats an integer.
+   *
+   * @param value the integer to format
+   * @return the text or null if the integers have to be formatted by the decimal format
+   */
+  public String format( long value ) {
+    if ( !formatsIntegers ) {
+      return null;
+    }
+    if ( minIntegerDigits <= 1 ) {
+      return Long.toString( value );
+    }
+    byte[] buffer = new byte[ getMaxIntegerLength() ];
+    int length = format( value, buffer, 0 );
+    return new String( buffer, 0, length, StandardCharsets.ISO_8859_1 );
+  }
+
+  /**
+   * Writes the text of an integer as ASCII bytes.
+   *
+   * @param value  the integer to format
+   * @param buffer the buffer to write in, with room for the longest text
+   * @param offset the position in the buffer to write at
+   * @return the number of bytes written or -1 if the integers have to be formatted by the decimal format
+   */
+  public int format( long value, byte[] buffer, int offset ) {
+    if ( !formatsIntegers ) {
+      return -1;
+    }
+
+    // Negative, to write Long.MIN_VALUE as well
+    //
+    long n = value < 0 ? value : -value;
+    int digits = 1;
+    for ( long rest = n; rest <= -10; rest /= 10 ) {
+      digits++;
+    }
+    int sign = value < 0 ? 1 : 0;
+    int length = sign + Math.max( digits, minIntegerDigits );
+    int position = offset + length;
+    for ( int i = 0; i < digits; i++ ) {
+      buffer[ --position ] = (byte) ( '0' - n % 10 );
+      n /= 10;
+    }
+    while ( position > offset + sign ) {
+      buffer[ --position ] = '0';
+    }
+    if ( sign > 0 ) {
+      buffer[ offset ] = '-';
+    }
+    return length;
+  }
+
+  /**
+   * Parses an integer of up to 18 digits with an optional minus sign.
+   *
+   * @param string the text to parse, trimmed
+   * @return the integer or null if the text has to be parsed by the decimal format
+   */
+  public Long parseInteger( String string ) {
+    int length = string.length();
+    int i = length > 0 && string.charAt( 0 ) == '-' ? 1 : 0;
+    if ( length == i || length - i > MAX_INTEGER_DIGITS ) {
+      return null;
+    }
+    long value = 0;
+    for ( int position = i; position < length; position++ ) {
+      char c = string.charAt( position );
+      if ( c < '0' || c > '9' ) {
+        return null;
+      }
+      value = value * 10 + ( c - '0' );
+    }
+    return i > 0 ? -value : value;
+  }
+
+  /**
+   * Parses a decimal of up to 15 digits with an optional minus sign and decimal separator.
+   *
+   * @param string the text to parse, trimmed
+   * @return the decimal or null if the text has to be parsed by the decimal format
+   */
+  public Double parseNumber( String string ) {
+    int length = string.length();
+    int i = length > 0 && string.charAt( 0 ) == '-' ? 1 : 0;
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for ( int position = i; position < length; position++ ) {
+      char c = string.charAt( position );
+      if ( c >= '0' && c <= '9' ) {
+        if ( ++digits > MAX_NUMBER_DIGITS ) {
+          return null;
+        }
+        mantissa = mantissa * 10 + ( c - '0' );
+        if ( fractionDigits >= 0 ) {
+          fractionDigits++;
+        }
+      } else if ( c == decimalSeparator && fractionDigits < 0 && digits > 0 ) {
+        fractionDigits = 0;
+      } else {
+        return null;
+      }
+    }
+    if ( digits == 0 || fractionDigits == 0 ) {
+      return null;
+    }
+    double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[ fractionDigits ] : mantissa;
+    return i > 0 ? -value : value;
+  }
+}
@@ -152,6 +152,14 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  // The plain formats that convert the common masks without the date and decimal formats, by the format they were
+  // made from. Null if the mask of that format isn't covered.
+  //
+  private SimpleDateFormat plainDateFormatSource;
+  private PlainDateFormat plainDateFormat;
+  private DecimalFormat plainNumberFormatSource;
+  private PlainNumberFormat plainNumberFormat;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -432,6 +440,10 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.plainDateFormatSource = null;
+      valueMeta.plainDateFormat = null;
+      valueMeta.plainNumberFormatSource = null;
+      valueMeta.plainNumberFormat = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -898,7 +910,15 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
-    return getDateFormat().format( date );
+    SimpleDateFormat format = getDateFormat();
+    PlainDateFormat plainFormat = getPlainDateFormat( format );
+    if ( plainFormat != null ) {
+      String string = plainFormat.format( date );
+      if ( string != null ) {
+        return string;
+      }
+    }
+    return format.format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( COMPATIBLE_DATE_FORMAT_PATTERN );
@@ -920,8 +940,17 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      SimpleDateFormat format = getDateFormat( TYPE_DATE );
+      PlainDateFormat plainFormat = getPlainDateFormat( format );
+      if ( plainFormat != null ) {
+        Date date = plainFormat.parse( string );
+        if ( date != null ) {
+          return date;
+        }
+      }
+
       ParsePosition pp = new ParsePosition( 0 );
-      Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
+      Date result = format.parse( string, pp );
       if ( pp.getErrorIndex() >= 0 ) {
         // error happen
         throw new ParseException( string, pp.getErrorIndex() );
@@ -1017,6 +1046,14 @@ public class ValueMetaBase implements ValueMetaInterface {
 
     try {
       DecimalFormat format = getDecimalFormat( false );
+      PlainNumberFormat plainFormat = getPlainNumberFormat( format );
+      if ( plainFormat != null ) {
+        Double number = plainFormat.parseNumber( string );
+        if ( number != null ) {
+          return number;
+        }
+      }
+
       Number number;
       if ( lenientStringToNumber ) {
         number = format.parse( string );
@@ -1140,6 +1177,28 @@ public class ValueMetaBase implements ValueMetaInterface {
     return decimalFormat;
   }
 
+  /**
+   * @return the plain format that replaces a date format for the common masks or null if its mask isn't covered
+   */
+  private PlainDateFormat getPlainDateFormat( SimpleDateFormat format ) {
+    if ( format != plainDateFormatSource ) {
+      plainDateFormat = PlainDateFormat.getInstance( format );
+      plainDateFormatSource = format;
+    }
+    return plainDateFormat;
+  }
+
+  /**
+   * @return the plain format that replaces a decimal format for the common masks or null if its mask isn't covered
+   */
+  private PlainNumberFormat getPlainNumberFormat( DecimalFormat format ) {
+    if ( format != plainNumberFormatSource ) {
+      plainNumberFormat = PlainNumberFormat.getInstance( format );
+      plainNumberFormatSource = format;
+    }
+    return plainNumberFormat;
+  }
+
   @Override
   public String getFormatMask() {
     return getMask( getType() );
@@ -1306,7 +1365,12 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
-      return getDecimalFormat( false ).format( integer );
+      DecimalFormat format = getDecimalFormat( false );
+      PlainNumberFormat plainFormat = getPlainNumberFormat( format );
+      if ( plainFormat != null && plainFormat.isFormattingIntegers() ) {
+        return plainFormat.format( integer );
+      }
+      return format.format( integer );
     } catch ( Exception e ) {
       throw new KettleValueException( toString() + " : couldn't convert Long to String ", e );
     }
@@ -1329,12 +1393,21 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      DecimalFormat format = getDecimalFormat( false );
+      PlainNumberFormat plainFormat = getPlainNumberFormat( format );
+      if ( plainFormat != null ) {
+        Long integer = plainFormat.parseInteger( string );
+        if ( integer != null ) {
+          return integer;
+        }
+      }
+
       Number number;
       if ( lenientStringToNumber ) {
-        number = getDecimalFormat( false ).parse( string );
+        number = format.parse( string );
       } else {
         ParsePosition parsePosition = new ParsePosition( 0 );
-        number = getDecimalFormat( false ).parse( string, parsePosition );
+        number = format.parse( string, parsePosition );
 
         if ( parsePosition.getIndex() < string.length() ) {
           throw new KettleValueException( toString()
@@ -4721,6 +4794,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     this.ignoreWhitespace = ignoreWhitespace;
   }
 
+  /**
+   * @return the comparator replacing the comparison of the data type, or null if there is none
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
   @Override
   public void drawValue( PrimitiveGCInterface gc, Object value ) throws KettleValueException {
     // Just draw the string by default.
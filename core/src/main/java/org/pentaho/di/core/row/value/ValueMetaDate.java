@@ -16,6 +16,7 @@ package org.pentaho.di.core.row.value;
 import java.util.Date;
 
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
 
@@ -56,4 +57,32 @@ public class ValueMetaDate extends ValueMetaBase implements ValueMetaInterface {
   public String getFormatMask() {
     return getDateFormatMask();
   }
+
+  /**
+   * Read a value from a batch without creating a Date when the field is stored in a primitive column.
+   *
+   * @return the milliseconds since the epoch, 0 when the value is null: use {@link RowBatch#isNull(int, int)} to tell
+   *         the difference
+   */
+  public long getTime( RowBatch batch, int rowNr, int columnNr ) throws KettleValueException {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      return batch.getLong( rowNr, columnNr );
+    }
+    Date value = getDate( batch.getObject( rowNr, columnNr ) );
+    return value == null ? 0L : value.getTime();
+  }
+
+  /**
+   * Write a value to a batch without creating a Date when the field is stored in a primitive column.
+   *
+   * @param time
+   *          the milliseconds since the epoch
+   */
+  public void setTime( RowBatch batch, int rowNr, int columnNr, long time ) {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      batch.setLong( rowNr, columnNr, time );
+    } else {
+      batch.setObject( rowNr, columnNr, new Date( time ) );
+    }
+  }
 }
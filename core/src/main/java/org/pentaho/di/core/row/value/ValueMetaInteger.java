@@ -14,6 +14,7 @@
 package org.pentaho.di.core.row.value;
 
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
 
@@ -45,4 +46,28 @@ public class ValueMetaInteger extends ValueMetaBase implements ValueMetaInterfac
   public String getFormatMask() {
     return getIntegerFormatMask();
   }
+
+  /**
+   * Read a value from a batch without boxing it when the field is stored in a primitive column.
+   *
+   * @return the value, 0 when it is null: use {@link RowBatch#isNull(int, int)} to tell the difference
+   */
+  public long getLong( RowBatch batch, int rowNr, int columnNr ) throws KettleValueException {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      return batch.getLong( rowNr, columnNr );
+    }
+    Long value = getInteger( batch.getObject( rowNr, columnNr ) );
+    return value == null ? 0L : value;
+  }
+
+  /**
+   * Write a value to a batch without boxing it when the field is stored in a primitive column.
+   */
+  public void setLong( RowBatch batch, int rowNr, int columnNr, long value ) {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      batch.setLong( rowNr, columnNr, value );
+    } else {
+      batch.setObject( rowNr, columnNr, value );
+    }
+  }
 }
@@ -14,6 +14,7 @@
 package org.pentaho.di.core.row.value;
 
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
 
@@ -45,4 +46,28 @@ public class ValueMetaNumber extends ValueMetaBase implements ValueMetaInterface
   public String getFormatMask() {
     return getNumberFormatMask();
   }
+
+  /**
+   * Read a value from a batch without boxing it when the field is stored in a primitive column.
+   *
+   * @return the value, 0 when it is null: use {@link RowBatch#isNull(int, int)} to tell the difference
+   */
+  public double getDouble( RowBatch batch, int rowNr, int columnNr ) throws KettleValueException {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.DOUBLE ) {
+      return batch.getDouble( rowNr, columnNr );
+    }
+    Double value = getNumber( batch.getObject( rowNr, columnNr ) );
+    return value == null ? 0.0 : value;
+  }
+
+  /**
+   * Write a value to a batch without boxing it when the field is stored in a primitive column.
+   */
+  public void setDouble( RowBatch batch, int rowNr, int columnNr, double value ) {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.DOUBLE ) {
+      batch.setDouble( rowNr, columnNr, value );
+    } else {
+      batch.setObject( rowNr, columnNr, value );
+    }
+  }
 }
@@ -20,6 +20,7 @@ import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleEOFException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.timestamp.SimpleTimestampFormat;
 import org.pentaho.di.core.util.EnvUtil;
@@ -703,4 +704,40 @@ public class ValueMetaTimestamp extends ValueMetaDate {
   public Class<?> getNativeDataTypeClass() throws KettleValueException {
     return Timestamp.class;
   }
+
+  /**
+   * Read the nanoseconds of a value from a batch, see {@link #getTime(RowBatch, int, int)} for the rest of it.
+   *
+   * @return the nanoseconds, 0 when the value is null
+   */
+  public int getNanos( RowBatch batch, int rowNr, int columnNr ) throws KettleValueException {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      return batch.getNanos( rowNr, columnNr );
+    }
+    Timestamp value = getTimestamp( batch.getObject( rowNr, columnNr ) );
+    return value == null ? 0 : value.getNanos();
+  }
+
+  @Override
+  public void setTime( RowBatch batch, int rowNr, int columnNr, long time ) {
+    setTimestamp( batch, rowNr, columnNr, time, (int) ( Math.floorMod( time, 1000L ) * 1000000L ) );
+  }
+
+  /**
+   * Write a value to a batch without creating a Timestamp when the field is stored in a primitive column.
+   *
+   * @param time
+   *          the milliseconds since the epoch
+   * @param nanos
+   *          the nanoseconds, replacing the fraction of a second of the milliseconds
+   */
+  public void setTimestamp( RowBatch batch, int rowNr, int columnNr, long time, int nanos ) {
+    if ( batch.getColumnType( columnNr ) == RowBatch.ColumnType.LONG ) {
+      batch.setTimestamp( rowNr, columnNr, time, nanos );
+    } else {
+      Timestamp timestamp = new Timestamp( time );
+      timestamp.setNanos( nanos );
+      batch.setObject( rowNr, columnNr, timestamp );
+    }
+  }
 }
@@ -16,15 +16,19 @@ package org.pentaho.di.core;
 import com.google.common.collect.Lists;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaDate;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -276,4 +280,67 @@ public class ConditionTest {
 
   }
 
+  @Test
+  public void testBatchEvaluationMatchesRowEvaluation() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    Object[][] rows = new Object[][] {
+      { 1L, 1.5, new Date( 1000L ), "a" },
+      { 2L, null, new Date( 2000L ), "b" },
+      { null, 2.5, null, null },
+      { 3L, -1.0, new Date( 3000L ), "c" },
+      { 2L, 2.0, new Date( 2000L ), "b" } };
+
+    ValueMetaAndData two = new ValueMetaAndData( new ValueMetaInteger( "two" ), 2L );
+    ValueMetaAndData twoAsString = new ValueMetaAndData( new ValueMetaString( "two" ), "2" );
+    ValueMetaAndData date = new ValueMetaAndData( new ValueMetaDate( "date" ), new Date( 2000L ) );
+
+    List<Condition> conditions = new ArrayList<>();
+    for ( int function = Condition.FUNC_EQUAL; function <= Condition.FUNC_LARGER_EQUAL; function++ ) {
+      conditions.add( new Condition( "id", function, null, two ) );
+      conditions.add( new Condition( "amount", function, null, twoAsString ) );
+      conditions.add( new Condition( true, "date", function, null, date ) );
+    }
+    conditions.add( new Condition( "id", Condition.FUNC_NULL, null, null ) );
+    conditions.add( new Condition( true, "amount", Condition.FUNC_NULL, null, null ) );
+    conditions.add( new Condition( "date", Condition.FUNC_NOT_NULL, null, null ) );
+    Condition composite = new Condition();
+    composite.addCondition( new Condition( "id", Condition.FUNC_LARGER_EQUAL, null, two ) );
+    composite.addCondition( new Condition( Condition.OPERATOR_AND_NOT, "amount", Condition.FUNC_NULL, null, null ) );
+    composite.addCondition( new Condition( Condition.OPERATOR_XOR, "date", Condition.FUNC_SMALLER, null, date ) );
+    conditions.add( composite );
+
+    for ( Condition condition : conditions ) {
+      assertTrue( condition.toString(), condition.isVectorizable( rowMeta ) );
+      boolean[] result = new boolean[rows.length];
+      condition.evaluate( RowBatch.fromRows( rowMeta, rows, rows.length ), result );
+      for ( int i = 0; i < rows.length; i++ ) {
+        assertEquals( condition + " on row " + i, condition.evaluate( rowMeta, rows[i] ), result[i] );
+      }
+    }
+  }
+
+  @Test
+  public void testBatchEvaluationFallsBackToRowEvaluation() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    Object[][] rows = new Object[][] { { 1L, "abc" }, { 2L, "bcd" }, { 3L, null } };
+
+    Condition condition = new Condition();
+    condition.addCondition( new Condition( "id", Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( new ValueMetaInteger( "one" ), 1L ) ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_AND, "name", Condition.FUNC_CONTAINS, null,
+      new ValueMetaAndData( new ValueMetaString( "b" ), "b" ) ) );
+    assertFalse( condition.isVectorizable( rowMeta ) );
+
+    boolean[] result = new boolean[rows.length];
+    condition.evaluate( RowBatch.fromRows( rowMeta, rows, rows.length ), result );
+    assertFalse( result[0] );
+    assertTrue( result[1] );
+    assertFalse( result[2] );
+  }
 }
@@ -58,4 +58,15 @@ public class QueueRowSetTest {
     rowSet.clear();
     assertEquals( 0, rowSet.size() );
   }
+
+  @Test
+  public void testPutRowsAndGetRows() throws Exception {
+    Object[] row2 = new Object[]{};
+    assertEquals( 2, rowSet.putRows( new RowMeta(), new Object[][] { row, row2 }, 2 ) );
+    Object[][] rows = rowSet.getRows( 5 );
+    assertEquals( 2, rows.length );
+    assertSame( row, rows[0] );
+    assertSame( row2, rows[1] );
+    assertNull( rowSet.getRows( 5 ) );
+  }
 }
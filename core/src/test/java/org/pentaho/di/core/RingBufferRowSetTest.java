@@ -0,0 +1,198 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferRowSetTest {
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testBasicCreation() {
+    RowSet set = new RingBufferRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertEquals( RingBufferRowSet.WaitStrategy.PARK, ( (RingBufferRowSet) set ).getWaitStrategy() );
+  }
+
+  @Test
+  public void testFifoAndCapacity() {
+    RowSet set = new RingBufferRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertTrue( set.putRow( rm, new Object[] { 1L } ) );
+    assertTrue( set.putRow( rm, new Object[] { 2L } ) );
+    assertTrue( set.putRow( rm, new Object[] { 3L } ) );
+    assertEquals( 3, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    // A capacity of 3 is honoured even though the backing array is rounded up to 4
+    assertFalse( set.putRowWait( rm, new Object[] { 4L }, 1, TimeUnit.MILLISECONDS ) );
+
+    assertEquals( 1L, set.getRow()[0] );
+    assertTrue( set.putRow( rm, new Object[] { 4L } ) );
+    assertEquals( 2L, set.getRowImmediate()[0] );
+    assertEquals( 3L, set.getRowWait( 1, TimeUnit.MILLISECONDS )[0] );
+    assertEquals( 4L, set.getRow()[0] );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testPutRowsAndGetRows() {
+    RowSet set = new RingBufferRowSet( 5 );
+    RowMetaInterface rm = createRowMetaInterface();
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+
+    assertEquals( 3, set.putRows( rm, rows, 3 ) );
+    assertEquals( 3, set.size() );
+
+    Object[][] got = set.getRows( 2 );
+    assertEquals( 2, got.length );
+    assertEquals( 1L, got[0][0] );
+    assertEquals( 2L, got[1][0] );
+
+    // wraps around the end of the backing array
+    assertEquals( 4, set.putRows( rm, rows, 4 ) );
+    got = set.getRows( 100 );
+    assertEquals( 5, got.length );
+    assertEquals( 3L, got[0][0] );
+    assertEquals( 4L, got[4][0] );
+    assertNull( set.getRows( 100 ) );
+  }
+
+  @Test
+  public void testPutRowsStopsWhenFull() {
+    RowSet set = new RingBufferRowSet( 2 );
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L } };
+
+    assertEquals( 2, set.putRows( createRowMetaInterface(), rows, 3 ) );
+    assertEquals( 2, set.size() );
+  }
+
+  @Test
+  public void testNullRowIsRefused() {
+    RowSet set = new RingBufferRowSet( 3 );
+    assertFalse( set.putRow( createRowMetaInterface(), null ) );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testDoneDoesNotWaitForTimeout() {
+    RowSet set = new RingBufferRowSet( 3, RingBufferRowSet.WaitStrategy.YIELD );
+    set.putRow( createRowMetaInterface(), new Object[] { 1L } );
+    set.setDone();
+
+    assertTrue( set.isDone() );
+    assertEquals( 1L, set.getRowWait( 1, TimeUnit.DAYS )[0] );
+    long start = System.nanoTime();
+    assertNull( set.getRowWait( 1, TimeUnit.DAYS ) );
+    assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 10 ) );
+  }
+
+  @Test
+  public void testClear() {
+    RowSet set = new RingBufferRowSet( 2 );
+    set.putRow( createRowMetaInterface(), new Object[] { 1L } );
+    set.setDone();
+    set.clear();
+
+    assertEquals( 0, set.size() );
+    assertFalse( set.isDone() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testNames() {
+    RowSet set = new RingBufferRowSet( 3 );
+
+    set.setThreadNameFromToCopy( "from", 2, "to", 3 );
+
+    assertEquals( "from", set.getOriginStepName() );
+    assertEquals( 2, set.getOriginStepCopy() );
+    assertEquals( "to", set.getDestinationStepName() );
+    assertEquals( 3, set.getDestinationStepCopy() );
+    assertEquals( "from.2 - to.3", set.getName() );
+  }
+
+  @Test
+  public void testWaitStrategyByCode() {
+    assertEquals( RingBufferRowSet.WaitStrategy.SPIN, RingBufferRowSet.WaitStrategy.getWaitStrategyByCode( "spin" ) );
+    assertEquals( RingBufferRowSet.WaitStrategy.PARK, RingBufferRowSet.WaitStrategy.getWaitStrategyByCode( null ) );
+    assertEquals( RingBufferRowSet.WaitStrategy.PARK, RingBufferRowSet.WaitStrategy.getWaitStrategyByCode( "x" ) );
+  }
+
+  /**
+   * One producer and one consumer thread pass rows through a small buffer: no row may be lost, duplicated or
+   * reordered.
+   */
+  @Test
+  public void testProducerConsumerKeepsOrder() throws Exception {
+    for ( RingBufferRowSet.WaitStrategy strategy : RingBufferRowSet.WaitStrategy.values() ) {
+      final int nrRows = 200000;
+      final RowSet set = new RingBufferRowSet( 7, strategy );
+      final RowMetaInterface rm = createRowMetaInterface();
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+
+      Thread producer = new Thread( () -> {
+        for ( long i = 0; i < nrRows; i++ ) {
+          Object[] row = new Object[] { i };
+          while ( !set.putRow( rm, row ) ) {
+            if ( error.get() != null ) {
+              return;
+            }
+          }
+        }
+        set.setDone();
+      } );
+      producer.start();
+
+      try {
+        long expected = 0;
+        Object[] row = set.getRow();
+        while ( row != null || !set.isDone() || set.size() > 0 ) {
+          if ( row != null ) {
+            assertEquals( expected++, row[0] );
+          }
+          row = set.getRow();
+        }
+        assertEquals( nrRows, expected );
+      } catch ( Throwable t ) {
+        error.set( t );
+        throw t;
+      } finally {
+        producer.join();
+      }
+    }
+  }
+}
@@ -14,8 +14,17 @@
 package org.pentaho.di.core;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -23,16 +32,41 @@ import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
- * Test class for the basic functionality of RowSet.
+ * Test class for the basic functionality of RowSet. Every row set a transformation can use between two steps has to
+ * pass it.
  *
  * @author Sven Boden
  */
+@RunWith( Parameterized.class )
 public class RowSetTest {
   @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
 
+  private final IntFunction<RowSet> rowSetFactory;
+
+  public RowSetTest( String name, IntFunction<RowSet> rowSetFactory ) {
+    this.rowSetFactory = rowSetFactory;
+  }
+
+  @Parameters( name = "{0}" )
+  public static Collection<Object[]> rowSets() {
+    List<Object[]> rowSets = new ArrayList<>();
+    rowSets.add( new Object[] { "BlockingRowSet", (IntFunction<RowSet>) BlockingRowSet::new } );
+    for ( RingBufferRowSet.WaitStrategy strategy : RingBufferRowSet.WaitStrategy.values() ) {
+      rowSets.add( new Object[] { "RingBufferRowSet " + strategy.getCode(),
+        (IntFunction<RowSet>) size -> new RingBufferRowSet( size, strategy ) } );
+    }
+    return rowSets;
+  }
+
+  private RowSet createRowSet( int maxSize ) {
+    return rowSetFactory.apply( maxSize );
+  }
+
   public RowMetaInterface createRowMetaInterface() {
     RowMetaInterface rm = new RowMeta();
 
@@ -50,7 +84,7 @@ public class RowSetTest {
    */
   @Test
   public void testBasicCreation() {
-    RowSet set = new BlockingRowSet( 10 );
+    RowSet set = createRowSet( 10 );
 
     assertTrue( !set.isDone() );
     // TODO assertTrue(set.isEmpty());
@@ -63,7 +97,7 @@ public class RowSetTest {
    */
   @Test
   public void testFuntionality1() {
-    RowSet set = new BlockingRowSet( 3 );
+    RowSet set = createRowSet( 3 );
 
     RowMetaInterface rm = createRowMetaInterface();
 
@@ -166,7 +200,7 @@ public class RowSetTest {
    */
   @Test
   public void testNames() {
-    RowSet set = new BlockingRowSet( 3 );
+    RowSet set = createRowSet( 3 );
 
     set.setThreadNameFromToCopy( "from", 2, "to", 3 );
 
@@ -177,4 +211,87 @@ public class RowSetTest {
     assertEquals( set.toString(), set.getName() );
     assertEquals( "from.2 - to.3", set.getName() );
   }
+
+  /**
+   * Chunked transfer test.
+   */
+  @Test
+  public void testGetRows() {
+    RowSet set = createRowSet( 5 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L } };
+    assertEquals( 3, set.putRows( rm, rows, 3 ) );
+
+    Object[][] got = set.getRows( 2 );
+    assertEquals( 2, got.length );
+    assertEquals( 1L, got[0][0] );
+    assertEquals( 2L, got[1][0] );
+    got = set.getRows( 2 );
+    assertEquals( 1, got.length );
+    assertEquals( 3L, got[0][0] );
+    assertEquals( 0, set.size() );
+  }
+
+  /**
+   * A full row set refuses a row once the timeout passes, an empty one returns no row.
+   */
+  @Test
+  public void testTimeouts() {
+    RowSet set = createRowSet( 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertNull( set.getRowImmediate() );
+    assertNull( set.getRowWait( 10, TimeUnit.MILLISECONDS ) );
+    assertTrue( set.putRowWait( rm, new Object[] { 1L }, 10, TimeUnit.MILLISECONDS ) );
+    assertTrue( set.putRowWait( rm, new Object[] { 2L }, 10, TimeUnit.MILLISECONDS ) );
+    assertFalse( set.putRowWait( rm, new Object[] { 3L }, 10, TimeUnit.MILLISECONDS ) );
+    assertEquals( 2, set.size() );
+    assertEquals( 1L, set.getRowWait( 10, TimeUnit.MILLISECONDS )[0] );
+    assertEquals( 2L, set.getRowImmediate()[0] );
+    assertNull( set.getRowWait( 10, TimeUnit.MILLISECONDS ) );
+  }
+
+  /**
+   * The rows put before the row set is done are still read after it.
+   */
+  @Test
+  public void testDone() {
+    RowSet set = createRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    set.putRow( rm, new Object[] { 1L } );
+    set.putRow( rm, new Object[] { 2L } );
+    set.setDone();
+
+    assertTrue( set.isDone() );
+    assertEquals( 2, set.size() );
+    assertEquals( 1L, set.getRowWait( 10, TimeUnit.MILLISECONDS )[0] );
+    assertEquals( 2L, set.getRow()[0] );
+    assertNull( set.getRowWait( 10, TimeUnit.MILLISECONDS ) );
+    assertTrue( set.isDone() );
+    assertEquals( 0, set.size() );
+  }
+
+  /**
+   * Clearing a row set drops its rows and makes it usable again.
+   */
+  @Test
+  public void testClear() {
+    RowSet set = createRowSet( 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    set.putRow( rm, new Object[] { 1L } );
+    set.putRow( rm, new Object[] { 2L } );
+    set.setDone();
+    set.clear();
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+    assertTrue( set.putRow( rm, new Object[] { 3L } ) );
+    assertTrue( set.putRow( rm, new Object[] { 4L } ) );
+    assertEquals( 3L, set.getRow()[0] );
+    assertEquals( 4L, set.getRow()[0] );
+  }
 }
@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkWriteStrategyTest {
+
+  @Test
+  public void writesQuotedCsvWithNullsApart() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "ratio" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "total" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "active" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "created" ) );
+
+    Timestamp created = Timestamp.valueOf( "2024-03-01 10:15:30.5" );
+    assertEquals( "\"say \"\"hi\"\", bye\",\"42\",\"0.5\",\"12345678901234567890.10\",\"true\",\""
+        + created + "\"\n",
+      write( new PostgreSQLBulkWriteStrategy(), rowMeta,
+        "say \"hi\", bye", 42L, 0.5, new BigDecimal( "12345678901234567890.10" ), true, created ) );
+
+    // An empty string is quoted, a null isn't
+    //
+    assertEquals( "\"\",,,,,\n",
+      write( new PostgreSQLBulkWriteStrategy(), rowMeta, "", null, null, null, null, null ) );
+    assertEquals( "\"\",NULL,NULL,NULL,\"0\",NULL\n",
+      write( new MySQLBulkWriteStrategy(), rowMeta, "", null, null, null, false, null ) );
+  }
+
+  @Test
+  public void writesNumbersWithoutExponents() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaNumber( "ratio" ) );
+    assertEquals( "\"0.00000015\"\n", write( new PostgreSQLBulkWriteStrategy(), rowMeta, 1.5E-7 ) );
+    assertEquals( "\"12345678900000000000\"\n", write( new PostgreSQLBulkWriteStrategy(), rowMeta, 1.23456789E19 ) );
+  }
+
+  @Test
+  public void failsALoadWithWarningsOnMySQL() throws Exception {
+    Statement statement = mock( Statement.class );
+    ResultSet warnings = mock( ResultSet.class );
+    when( statement.executeQuery( "SHOW WARNINGS" ) ).thenReturn( warnings );
+    when( warnings.next() ).thenReturn( true, true, false );
+    when( warnings.getString( 1 ) ).thenReturn( "Note", "Warning" );
+    when( warnings.getInt( 2 ) ).thenReturn( 1366 );
+    when( warnings.getString( 3 ) ).thenReturn( "Incorrect integer value: 'x' for column 'id' at row 1" );
+    try {
+      MySQLBulkWriteStrategy.checkWarnings( statement, "orders" );
+      fail( "A load with warnings should fail" );
+    } catch ( KettleDatabaseException e ) {
+      assertTrue( e.getMessage().contains( "Warning 1366: Incorrect integer value" ) );
+    }
+
+    when( warnings.next() ).thenReturn( true, false );
+    when( warnings.getString( 1 ) ).thenReturn( "Note" );
+    MySQLBulkWriteStrategy.checkWarnings( statement, "orders" );
+  }
+
+  @Test
+  public void supportsPlainValueTypesOnly() {
+    Database database = mock( Database.class );
+    when( database.getConnection() ).thenReturn( mock( Connection.class ) );
+    CsvBulkWriteStrategy strategy = new CsvBulkWriteStrategy( "" ) {
+      @Override
+      public long load( Database database, String schemaName, String tableName, RowMetaInterface rowMeta,
+                        java.io.InputStream data ) {
+        return 0;
+      }
+    };
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    assertTrue( strategy.supports( database, rowMeta ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "picture" ) );
+    assertFalse( strategy.supports( database, rowMeta ) );
+  }
+
+  @Test
+  public void needsTheDriverOfTheDatabase() {
+    Database database = mock( Database.class );
+    when( database.getConnection() ).thenReturn( mock( Connection.class ) );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    assertFalse( new PostgreSQLBulkWriteStrategy().supports( database, rowMeta ) );
+  }
+
+  @Test
+  public void needsLocalFilesAllowedOnMySQL() {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.environmentSubstitute( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    when( databaseMeta.getExtraOptions() ).thenReturn( Collections.emptyMap() );
+    assertFalse( MySQLBulkWriteStrategy.isLocalInfileAllowed( databaseMeta ) );
+
+    when( databaseMeta.getExtraOptions() ).thenReturn( Collections.singletonMap( "MYSQL.allowLoadLocalInfile", "true" ) );
+    assertTrue( MySQLBulkWriteStrategy.isLocalInfileAllowed( databaseMeta ) );
+    when( databaseMeta.getExtraOptions() ).thenReturn( Collections.singletonMap( "MARIADB.allowLocalInfile", "TRUE" ) );
+    assertTrue( MySQLBulkWriteStrategy.isLocalInfileAllowed( databaseMeta ) );
+  }
+
+  @Test
+  public void redshiftHasNoBulkWrite() {
+    assertNull( new RedshiftDatabaseMeta().getBulkWriteStrategy() );
+    assertTrue( new PostgreSQLDatabaseMeta().getBulkWriteStrategy() instanceof PostgreSQLBulkWriteStrategy );
+    assertTrue( new MySQLDatabaseMeta().getBulkWriteStrategy() instanceof MySQLBulkWriteStrategy );
+    assertNull( new H2DatabaseMeta().getBulkWriteStrategy() );
+  }
+
+  private String write( CsvBulkWriteStrategy strategy, RowMetaInterface rowMeta, Object... row ) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    strategy.writeRow( rowMeta, row, out );
+    return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+  }
+}
@@ -50,6 +50,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
@@ -73,9 +74,12 @@ import org.pentaho.di.core.exception.KettleDatabaseBatchException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 import org.springframework.mock.jndi.SimpleNamingContextBuilder;
@@ -956,6 +960,127 @@ public class DatabaseTest {
     verify( db, times( 1 ) ).getTableFieldsMetaByDbMeta( any(), any() );
   }
 
+  @Test
+  public void testGetInsertStatementWithMoreRows() {
+    when( dbMetaMock.getQuotedSchemaTableCombination( null, "orders" ) ).thenReturn( "orders" );
+    when( dbMetaMock.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    Database db = new Database( log, dbMetaMock );
+
+    assertEquals( "INSERT INTO orders (id, name) VALUES ( ?,  ?)",
+      db.getInsertStatement( null, "orders", ordersRow() ) );
+    assertEquals( "INSERT INTO orders (id, name) VALUES ( ?,  ?), ( ?,  ?), ( ?,  ?)",
+      db.getInsertStatement( null, "orders", ordersRow(), 3 ) );
+  }
+
+  @Test
+  public void testGetInsertValuesRowsIsCappedByTheDatabase() {
+    when( databaseInterface.getMaxInsertValuesRows() ).thenReturn( 1000 );
+    when( databaseInterface.getMaxStatementParameters() ).thenReturn( 2000 );
+    Database db = new Database( log, dbMetaMock );
+
+    assertEquals( 100, db.getInsertValuesRows( ordersRow(), 100 ) );
+    assertEquals( 1000, db.getInsertValuesRows( ordersRow(), 5000 ) );
+
+    // 2000 parameters hold 666 rows of 3 values
+    RowMetaInterface wideRow = ordersRow();
+    wideRow.addValueMeta( new ValueMetaNumber( "total" ) );
+    assertEquals( 666, db.getInsertValuesRows( wideRow, 5000 ) );
+
+    when( databaseInterface.getMaxInsertValuesRows() ).thenReturn( 1 );
+    assertEquals( 1, db.getInsertValuesRows( ordersRow(), 100 ) );
+    assertNull( db.getMultiRowInsert( null, "orders", ordersRow(), 100 ) );
+  }
+
+  @Test
+  public void testSetValuesOfMoreRows() throws Exception {
+    when( dbMetaMock.supportsSetLong() ).thenReturn( true );
+    Database db = new Database( log, dbMetaMock );
+    db.setValuesMultiRow( ordersRow(), Arrays.asList( new Object[] { 1L, "a" }, new Object[] { 2L, "b" } ), ps );
+
+    verify( ps ).setLong( 1, 1L );
+    verify( ps ).setString( 2, "a" );
+    verify( ps ).setLong( 3, 2L );
+    verify( ps ).setString( 4, "b" );
+  }
+
+  @Test
+  public void testPrepareCachedSQLReusesTheStatements() throws Exception {
+    Connection connection = mock( Connection.class );
+    when( connection.prepareStatement( anyString() ) ).thenAnswer( invocation -> mock( PreparedStatement.class ) );
+    when( dbMetaMock.stripCR( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    Database db = new Database( log, dbMetaMock );
+    db.setConnection( connection );
+    db.setVariable( Const.KETTLE_PREPARED_STATEMENT_CACHE_SIZE, "2" );
+
+    PreparedStatement first = db.prepareCachedSQL( "SELECT 1" );
+    assertTrue( first == db.prepareCachedSQL( "SELECT 1" ) );
+    PreparedStatement second = db.prepareCachedSQL( "SELECT 2" );
+    assertTrue( first == db.prepareCachedSQL( "SELECT 1" ) );
+
+    // The least recently used statement falls out and is closed
+    db.prepareCachedSQL( "SELECT 3" );
+    verify( second ).close();
+    verify( first, never() ).close();
+    assertFalse( second == db.prepareCachedSQL( "SELECT 2" ) );
+
+    // A closed statement is prepared again
+    db.closePreparedStatement( first );
+    assertFalse( first == db.prepareCachedSQL( "SELECT 1" ) );
+  }
+
+  @Test
+  public void testPrepareCachedSQLWithoutCache() throws Exception {
+    Connection connection = mock( Connection.class );
+    when( connection.prepareStatement( anyString() ) ).thenAnswer( invocation -> mock( PreparedStatement.class ) );
+    when( dbMetaMock.stripCR( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    Database db = new Database( log, dbMetaMock );
+    db.setConnection( connection );
+    db.setVariable( Const.KETTLE_PREPARED_STATEMENT_CACHE_SIZE, "0" );
+
+    assertFalse( db.prepareCachedSQL( "SELECT 1" ) == db.prepareCachedSQL( "SELECT 1" ) );
+  }
+
+  @Test
+  public void testMultiRowInsert() throws Exception {
+    Connection connection = mock( Connection.class );
+    PreparedStatement full = mock( PreparedStatement.class );
+    PreparedStatement rest = mock( PreparedStatement.class );
+    when( connection.prepareStatement( "INSERT INTO orders (id, name) VALUES ( ?,  ?), ( ?,  ?)" ) ).thenReturn( full );
+    when( connection.prepareStatement( "INSERT INTO orders (id, name) VALUES ( ?,  ?)" ) ).thenReturn( rest );
+    when( dbMetaMock.stripCR( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    when( dbMetaMock.getQuotedSchemaTableCombination( null, "orders" ) ).thenReturn( "orders" );
+    when( dbMetaMock.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    when( databaseInterface.getMaxInsertValuesRows() ).thenReturn( 1000 );
+    when( databaseInterface.getMaxStatementParameters() ).thenReturn( 2000 );
+    when( dbMetaMock.supportsSetLong() ).thenReturn( true );
+    Database db = new Database( log, dbMetaMock );
+    db.setConnection( connection );
+
+    MultiRowInsert insert = db.getMultiRowInsert( null, "orders", ordersRow(), 2 );
+    assertEquals( 0, insert.addRow( new Object[] { 1L, "a" } ) );
+    assertEquals( 2, insert.addRow( new Object[] { 2L, "b" } ) );
+    assertEquals( 0, insert.addRow( new Object[] { 3L, "c" } ) );
+    assertEquals( 1, insert.getNrRows() );
+    assertEquals( 2, insert.addRow( new Object[] { 4L, "d" } ) );
+    assertEquals( 0, insert.getNrRows() );
+    assertEquals( 0, insert.flush() );
+    verify( full, times( 2 ) ).executeUpdate();
+    verify( connection, times( 1 ) ).prepareStatement( anyString() );
+
+    // The rows left over go in a statement of their own
+    insert.addRow( new Object[] { 5L, "e" } );
+    assertEquals( 1, insert.flush() );
+    verify( rest ).setLong( 1, 5L );
+    verify( rest ).executeUpdate();
+  }
+
+  private RowMetaInterface ordersRow() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
   public static class MockDriver implements Driver {
     public static Connection conn;
 
@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.sql.PreparedStatement;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StagingMergeTest {
+
+  private static final String[] KEYS = { "id" };
+  private static final String[] UPDATES = { "name" };
+  private static final String[] INSERTS = { "id", "name", "created" };
+
+  @Test
+  public void mergesWithTheStandardStatement() {
+    assertEquals( "MERGE INTO customers tgt USING customers_stg stg ON ( tgt.id = stg.id )"
+        + " WHEN MATCHED THEN UPDATE SET name = stg.name"
+        + " WHEN NOT MATCHED THEN INSERT ( id, name, created ) VALUES ( stg.id, stg.name, stg.created )",
+      new OracleDatabaseMeta().getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, INSERTS ) );
+    assertEquals( "MERGE INTO customers tgt USING customers_stg stg ON ( tgt.id = stg.id )"
+        + " WHEN MATCHED THEN UPDATE SET name = stg.name;",
+      new MSSQLServerDatabaseMeta().getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, null ) );
+
+    // Nothing to update and nothing to insert is nothing to merge
+    //
+    assertNull( new H2DatabaseMeta().getMergeStatement( "customers", "customers_stg", KEYS, new String[ 0 ], null ) );
+  }
+
+  @Test
+  public void upsertsWithTheStatementsOfTheDialect() {
+    PostgreSQLDatabaseMeta postgreSQL = new PostgreSQLDatabaseMeta();
+    assertEquals( "INSERT INTO customers ( id, name, created ) SELECT id, name, created FROM customers_stg stg"
+        + " ON CONFLICT ( id ) DO UPDATE SET name = EXCLUDED.name",
+      postgreSQL.getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, INSERTS ) );
+    assertEquals( "INSERT INTO customers ( id, name, created ) SELECT id, name, created FROM customers_stg stg"
+        + " ON CONFLICT ( id ) DO NOTHING",
+      postgreSQL.getMergeStatement( "customers", "customers_stg", KEYS, new String[ 0 ], INSERTS ) );
+    assertEquals( "UPDATE customers tgt SET name = stg.name FROM customers_stg stg WHERE tgt.id = stg.id",
+      postgreSQL.getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, null ) );
+
+    MySQLDatabaseMeta mySQL = new MySQLDatabaseMeta();
+    assertEquals( "INSERT INTO customers ( id, name, created ) SELECT id, name, created FROM customers_stg stg"
+        + " ON DUPLICATE KEY UPDATE name = VALUES( name )",
+      mySQL.getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, INSERTS ) );
+    assertEquals( "UPDATE customers tgt JOIN customers_stg stg ON tgt.id = stg.id SET tgt.name = stg.name",
+      mySQL.getMergeStatement( "customers", "customers_stg", KEYS, UPDATES, null ) );
+
+    // No unique indexes to resolve a conflict on
+    //
+    assertNull( new GreenplumDatabaseMeta().getMergeStatement( "customers", "customers_stg", KEYS, UPDATES,
+      INSERTS ) );
+    assertNull( new RedshiftDatabaseMeta().getMergeStatement( "customers", "customers_stg", KEYS, UPDATES,
+      INSERTS ) );
+  }
+
+  @Test
+  public void mergesTheLastRowOfAKey() {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+    assertEquals( "( SELECT id, name FROM ( SELECT id, name, ROW_NUMBER() OVER ( PARTITION BY id ORDER BY PDI_ROW_NR"
+        + " DESC ) pdi_rank FROM customers_stg ) ranked WHERE pdi_rank = 1 OR id IS NULL )",
+      StagingMerge.getMergeRowsQuery( databaseMeta, "customers_stg", KEYS, new String[] { "id", "name" } ) );
+  }
+
+  @Test
+  public void stagesEveryRowWithItsNumber() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    PreparedStatement statement = mock( PreparedStatement.class );
+    when( statement.executeUpdate() ).thenReturn( 2 );
+    Database database = mock( Database.class );
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.getDatabaseInterface() ).thenReturn( new OracleDatabaseMeta() );
+    when( database.getDatabaseMeta() ).thenReturn( databaseMeta );
+    when( database.checkTableExists( any(), eq( "customers_stg" ) ) ).thenReturn( true );
+    when( database.getInsertStatement( any(), eq( "customers_stg" ), any( RowMetaInterface.class ) ) )
+      .thenReturn( "INSERT INTO customers_stg" );
+    when( database.prepareCachedSQL( anyString() ) ).thenReturn( statement );
+
+    StagingMerge merge = new StagingMerge( database, null, "customers_stg", rowMeta, "( SELECT * FROM customers_stg )",
+      "MERGE" );
+    merge.addRow( new Object[] { 1L, "first" } );
+    merge.addRow( new Object[] { 2L, "second" } );
+    merge.addRow( new Object[] { 1L, "renamed" } );
+    assertEquals( 3, merge.getNrRows() );
+
+    // The rows with the same key are all staged, the merge statement picks the last one
+    //
+    assertEquals( 2, merge.flush() );
+    ArgumentCaptor<RowMetaInterface> stagingRowMeta = ArgumentCaptor.forClass( RowMetaInterface.class );
+    verify( database ).setValues( stagingRowMeta.capture(), eq( new Object[] { 1L, "first", 0L } ), eq( statement ) );
+    verify( database ).setValues( any( RowMetaInterface.class ), eq( new Object[] { 2L, "second", 1L } ),
+      eq( statement ) );
+    verify( database ).setValues( any( RowMetaInterface.class ), eq( new Object[] { 1L, "renamed", 2L } ),
+      eq( statement ) );
+    assertEquals( StagingMerge.ROW_NR_COLUMN, stagingRowMeta.getValue().getValueMeta( 2 ).getName() );
+    verify( database ).truncateTable( null, "customers_stg" );
+    assertEquals( 0, merge.getNrRows() );
+
+    // An existing staging table stays
+    //
+    merge.close();
+    verify( database, never() ).execStatement( anyString() );
+  }
+}
@@ -0,0 +1,259 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowBatchTest {
+
+  private RowMetaInterface rowMeta;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+  }
+
+  private static Timestamp timestamp( long time, int nanos ) {
+    Timestamp timestamp = new Timestamp( time );
+    timestamp.setNanos( nanos );
+    return timestamp;
+  }
+
+  @Test
+  public void testColumnTypes() {
+    RowBatch batch = new RowBatch( rowMeta );
+    assertEquals( RowBatch.ColumnType.LONG, batch.getColumnType( 0 ) );
+    assertEquals( RowBatch.ColumnType.DOUBLE, batch.getColumnType( 1 ) );
+    assertEquals( RowBatch.ColumnType.LONG, batch.getColumnType( 2 ) );
+    assertEquals( RowBatch.ColumnType.LONG, batch.getColumnType( 3 ) );
+    assertEquals( RowBatch.ColumnType.DICTIONARY, batch.getColumnType( 4 ) );
+    assertEquals( RowBatch.ColumnType.OBJECT, batch.getColumnType( 5 ) );
+
+    ValueMetaInterface lazy = new ValueMetaInteger( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertEquals( RowBatch.ColumnType.OBJECT, RowBatch.getColumnType( lazy ) );
+  }
+
+  @Test
+  public void testAddRowAndGetRow() {
+    Object[] row1 = new Object[] { 1L, 1.5, new Date( 1000L ), timestamp( 2000L, 123456789 ), "a", BigDecimal.ONE };
+    Object[] row2 = new Object[] { null, null, null, null, null, null };
+    Object[] row3 = new Object[] { -5L, -0.5, new Date( -1000L ), timestamp( 3000L, 1 ), "a", BigDecimal.TEN };
+
+    RowBatch batch = new RowBatch( rowMeta, 1 );
+    batch.addRow( row1 );
+    batch.addRow( row2 );
+    batch.addRow( row3 );
+    assertEquals( 3, batch.size() );
+
+    assertEquals( 1L, batch.getLong( 0, 0 ) );
+    assertEquals( 1.5, batch.getDouble( 0, 1 ), 0.0 );
+    assertEquals( 1000L, batch.getLong( 0, 2 ) );
+    assertEquals( 2123L, batch.getLong( 0, 3 ) );
+    assertEquals( 123456789, batch.getNanos( 0, 3 ) );
+    assertEquals( "a", batch.getString( 0, 4 ) );
+    assertEquals( batch.getStringCode( 0, 4 ), batch.getStringCode( 2, 4 ) );
+    assertEquals( Arrays.asList( "a" ), batch.getDictionary( 4 ) );
+    for ( int c = 0; c < rowMeta.size(); c++ ) {
+      assertFalse( batch.isNull( 0, c ) );
+      assertTrue( batch.isNull( 1, c ) );
+    }
+    assertEquals( -1, batch.getStringCode( 1, 4 ) );
+
+    Object[] copy = batch.getRow( 0 );
+    assertNotSame( row1, copy );
+    for ( int c = 0; c < row1.length; c++ ) {
+      assertEquals( row1[c], copy[c] );
+    }
+    assertEquals( Timestamp.class, copy[3].getClass() );
+    assertEquals( Date.class, copy[2].getClass() );
+    for ( Object value : Arrays.copyOf( batch.getRow( 1 ), rowMeta.size() ) ) {
+      assertNull( value );
+    }
+    assertEquals( 3, batch.toRows().length );
+  }
+
+  @Test
+  public void testFromRowsKeepsSourceRows() {
+    Object[][] rows = new Object[][] {
+      { 1L, 1.5, new Date( 1000L ), null, "a", null },
+      { 2L, null, new Date( 2000L ), null, "b", null } };
+    RowBatch batch = RowBatch.fromRows( rowMeta, rows, rows.length );
+
+    assertEquals( 2, batch.size() );
+    assertEquals( 2L, batch.getLong( 1, 0 ) );
+    assertTrue( batch.isNull( 1, 1 ) );
+    assertSame( rows[0], batch.getRow( 0 ) );
+    assertSame( rows[1], batch.toRows()[1] );
+
+    // Once modified the rows are built from the columns
+    //
+    batch.setLong( 1, 0, 42L );
+    batch.setDouble( 1, 1, 4.2 );
+    Object[] row = batch.getRow( 1 );
+    assertNotSame( rows[1], row );
+    assertEquals( 42L, row[0] );
+    assertEquals( 4.2, row[1] );
+    assertEquals( new Date( 2000L ), row[2] );
+    assertEquals( "b", row[4] );
+    assertEquals( 2L, rows[1][0] );
+  }
+
+  @Test
+  public void testSetters() {
+    RowBatch batch = new RowBatch( rowMeta );
+    int rowNr = batch.addRow();
+    for ( int c = 0; c < rowMeta.size(); c++ ) {
+      assertTrue( batch.isNull( rowNr, c ) );
+    }
+
+    batch.setLong( rowNr, 0, 7L );
+    batch.setDouble( rowNr, 1, 0.25 );
+    batch.setLong( rowNr, 2, 5000L );
+    batch.setTimestamp( rowNr, 3, 6000L, 999 );
+    batch.setString( rowNr, 4, "x" );
+    batch.setObject( rowNr, 5, BigDecimal.TEN );
+    assertArrayEquals( new Object[] { 7L, 0.25, new Date( 5000L ), timestamp( 6000L, 999 ), "x", BigDecimal.TEN },
+      Arrays.copyOf( batch.getRow( rowNr ), rowMeta.size() ) );
+
+    batch.setNull( rowNr, 0 );
+    batch.setString( rowNr, 4, null );
+    assertTrue( batch.isNull( rowNr, 0 ) );
+    assertTrue( batch.isNull( rowNr, 4 ) );
+    assertNull( batch.getObject( rowNr, 0 ) );
+
+    batch.clear();
+    assertEquals( 0, batch.size() );
+  }
+
+  @Test
+  public void testUnexpectedValueClassKeepsColumnAsObjects() {
+    Object[][] rows = new Object[][] { { 1L }, { "two" }, { 3L } };
+    RowMetaInterface integerMeta = new RowMeta();
+    integerMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    RowBatch batch = RowBatch.fromRows( integerMeta, rows, rows.length );
+
+    assertEquals( 1L, batch.getObject( 0, 0 ) );
+    assertFalse( batch.isNull( 2, 0 ) );
+    assertEquals( RowBatch.ColumnType.OBJECT, batch.getColumnType( 0 ) );
+    assertEquals( 1L, batch.getObject( 0, 0 ) );
+    assertEquals( "two", batch.getObject( 1, 0 ) );
+    assertEquals( 3L, batch.getObject( 2, 0 ) );
+  }
+
+  @Test
+  public void testSetRowsReusesTheBatch() {
+    RowMetaInterface integerMeta = new RowMeta();
+    integerMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    RowBatch batch = RowBatch.fromRows( integerMeta, new Object[][] { { 1L }, { "two" } }, 2 );
+    assertEquals( RowBatch.ColumnType.OBJECT, batch.getColumnType( 0 ) );
+
+    Object[][] rows = new Object[][] { { 3L }, { null }, { 5L } };
+    batch.setRows( rows, rows.length );
+    assertEquals( 3, batch.size() );
+    assertEquals( RowBatch.ColumnType.LONG, batch.getColumnType( 0 ) );
+    assertEquals( 3L, batch.getLong( 0, 0 ) );
+    assertTrue( batch.isNull( 1, 0 ) );
+    assertEquals( 5L, batch.getLong( 2, 0 ) );
+    assertSame( rows[2], batch.getRow( 2 ) );
+  }
+
+  @Test
+  public void testClearedBatchKeepsNoValuesForNullRows() {
+    RowBatch batch = new RowBatch( rowMeta );
+    batch.addRow( new Object[] { 1L, 2.5, new Date( 3L ), timestamp( 4L, 5 ), "six", null } );
+    batch.clear();
+
+    int rowNr = batch.addRow();
+    assertEquals( 0L, batch.getLong( rowNr, 0 ) );
+    assertEquals( 0.0, batch.getDouble( rowNr, 1 ), 0.0 );
+    assertEquals( 0, batch.getNanos( rowNr, 3 ) );
+    assertEquals( -1, batch.getStringCode( rowNr, 4 ) );
+    assertNull( batch.getString( rowNr, 4 ) );
+
+    batch.clear();
+    rowNr = batch.addRow( new Object[] { null, null, null, null, null, null } );
+    assertEquals( 0L, batch.getLong( rowNr, 0 ) );
+    assertEquals( -1, batch.getStringCode( rowNr, 4 ) );
+  }
+
+  @Test
+  public void testSetTimeKeepsTheMilliseconds() throws Exception {
+    RowBatch batch = new RowBatch( rowMeta );
+    int rowNr = batch.addRow();
+    ValueMetaTimestamp timestampMeta = (ValueMetaTimestamp) rowMeta.getValueMeta( 3 );
+
+    timestampMeta.setTime( batch, rowNr, 3, -1L );
+    assertEquals( -1L, timestampMeta.getTime( batch, rowNr, 3 ) );
+    assertEquals( new Timestamp( -1L ).getNanos(), timestampMeta.getNanos( batch, rowNr, 3 ) );
+  }
+
+  @Test
+  public void testValueMetaAccessors() throws Exception {
+    RowBatch batch = new RowBatch( rowMeta );
+    int rowNr = batch.addRow();
+    ValueMetaInteger integerMeta = (ValueMetaInteger) rowMeta.getValueMeta( 0 );
+    ValueMetaNumber numberMeta = (ValueMetaNumber) rowMeta.getValueMeta( 1 );
+    ValueMetaDate dateMeta = (ValueMetaDate) rowMeta.getValueMeta( 2 );
+    ValueMetaTimestamp timestampMeta = (ValueMetaTimestamp) rowMeta.getValueMeta( 3 );
+
+    integerMeta.setLong( batch, rowNr, 0, 12L );
+    numberMeta.setDouble( batch, rowNr, 1, 1.25 );
+    dateMeta.setTime( batch, rowNr, 2, 10000L );
+    timestampMeta.setTimestamp( batch, rowNr, 3, 20000L, 5 );
+
+    assertEquals( 12L, integerMeta.getLong( batch, rowNr, 0 ) );
+    assertEquals( 1.25, numberMeta.getDouble( batch, rowNr, 1 ), 0.0 );
+    assertEquals( 10000L, dateMeta.getTime( batch, rowNr, 2 ) );
+    assertEquals( 20000L, timestampMeta.getTime( batch, rowNr, 3 ) );
+    assertEquals( 5, timestampMeta.getNanos( batch, rowNr, 3 ) );
+
+    // Lazy conversion keeps the values as objects
+    //
+    ValueMetaInteger lazyInteger = new ValueMetaInteger( "integer" );
+    lazyInteger.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazyInteger.setStorageMetadata( new ValueMetaString( "integer" ) );
+    RowMetaInterface lazyMeta = new RowMeta();
+    lazyMeta.addValueMeta( lazyInteger );
+    RowBatch objects = RowBatch.fromRows( lazyMeta, new Object[][] { { "3".getBytes() } }, 1 );
+    assertEquals( RowBatch.ColumnType.OBJECT, objects.getColumnType( 0 ) );
+    assertEquals( 3L, lazyInteger.getLong( objects, 0, 0 ) );
+  }
+}
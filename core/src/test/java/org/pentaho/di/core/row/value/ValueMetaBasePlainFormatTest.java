@@ -0,0 +1,227 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Converts random values and texts with the plain formats and with the date and decimal formats they replace, the
+ * results have to be the same.
+ */
+public class ValueMetaBasePlainFormatTest {
+
+  private static final String[] DATE_MASKS = {
+    null, "yyyy-MM-dd", "yyyyMMdd", "dd/MM/yyyy HH:mm:ss", "MM-dd-yyyy HH:mm", "HH:mm:ss", "dd MMM yyyy" };
+  private static final String[] TIME_ZONES = {
+    "UTC", "Europe/Brussels", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe", "America/Sao_Paulo" };
+
+  private final Random random = new Random( 1 );
+
+  @Test
+  public void coversTheCommonMasks() {
+    assertNotNull( PlainNumberFormat.getInstance( new ValueMetaInteger( "id" ).getDecimalFormat( false ) ) );
+    assertNotNull( PlainNumberFormat.getInstance( new ValueMetaNumber( "amount" ).getDecimalFormat( false ) ) );
+    assertNotNull( PlainDateFormat.getInstance( new ValueMetaDate( "created" ).getDateFormat() ) );
+    assertNotNull( PlainDateFormat.getInstance( new SimpleDateFormat( "yyyy-MM-dd" ) ) );
+
+    assertNull( PlainNumberFormat.getInstance( new DecimalFormat( "#%" ) ) );
+    assertNull( PlainNumberFormat.getInstance( new DecimalFormat( "0.###E0" ) ) );
+    assertNull( PlainNumberFormat.getInstance( new DecimalFormat( "$#" ) ) );
+    assertNull( PlainDateFormat.getInstance( new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm" ) ) );
+    assertNull( PlainDateFormat.getInstance( new SimpleDateFormat( "yy-MM-dd" ) ) );
+    assertNull( PlainDateFormat.getInstance( new SimpleDateFormat( "EEE yyyy-MM-dd" ) ) );
+  }
+
+  @Test
+  public void formatsIntegersLikeTheDecimalFormat() throws Exception {
+    for ( String mask : new String[] { null, "#", "000000", "#,##0", "0.00" } ) {
+      ValueMetaInteger v = new ValueMetaInteger( "id" );
+      v.setConversionMask( mask );
+      DecimalFormat format = v.getDecimalFormat( false );
+      assertEquals( format.format( Long.MIN_VALUE ), v.convertIntegerToString( Long.MIN_VALUE ) );
+      assertEquals( format.format( Long.MAX_VALUE ), v.convertIntegerToString( Long.MAX_VALUE ) );
+      for ( int i = 0; i < 20000; i++ ) {
+        long value = random.nextLong() >> random.nextInt( 64 );
+        assertEquals( format.format( value ), v.convertIntegerToString( value ) );
+      }
+    }
+  }
+
+  @Test
+  public void parsesIntegersLikeTheDecimalFormat() throws Exception {
+    for ( String mask : new String[] { null, "#", "#,##0" } ) {
+      ValueMetaInteger v = new ValueMetaInteger( "id" );
+      v.setConversionMask( mask );
+      v.setLenientStringToNumber( false );
+      DecimalFormat format = (DecimalFormat) v.getDecimalFormat( false ).clone();
+      for ( int i = 0; i < 20000; i++ ) {
+        String string = randomNumber( '.', 18 );
+        Number expected = parse( format, string );
+        try {
+          Long actual = v.convertStringToInteger( string );
+          assertNotNull( string, expected );
+          assertEquals( string, expected.longValue(), actual.longValue() );
+        } catch ( KettleValueException e ) {
+          assertNull( string, expected );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parsesNumbersLikeTheDecimalFormat() throws Exception {
+    for ( String mask : new String[] { null, "#.##", "#,##0.00" } ) {
+      for ( String decimalSymbol : new String[] { ".", "," } ) {
+        ValueMetaNumber v = new ValueMetaNumber( "amount" );
+        v.setConversionMask( mask );
+        v.setDecimalSymbol( decimalSymbol );
+        v.setGroupingSymbol( ".".equals( decimalSymbol ) ? "," : "." );
+        v.setLenientStringToNumber( false );
+        DecimalFormat format = (DecimalFormat) v.getDecimalFormat( false ).clone();
+        DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+        for ( int i = 0; i < 20000; i++ ) {
+          String string = randomNumber( symbols.getDecimalSeparator(), 20 );
+          Number expected = parse( format, string );
+          try {
+            Double actual = v.convertStringToNumber( string );
+            assertNotNull( string, expected );
+            assertEquals( string, Double.doubleToLongBits( expected.doubleValue() ),
+              Double.doubleToLongBits( actual ) );
+          } catch ( KettleValueException e ) {
+            assertNull( string, expected );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void formatsDatesLikeTheDateFormat() throws Exception {
+    for ( String mask : DATE_MASKS ) {
+      for ( String timeZone : TIME_ZONES ) {
+        ValueMetaDate v = dateMeta( mask, timeZone, false );
+        SimpleDateFormat format = (SimpleDateFormat) v.getDateFormat().clone();
+        for ( int i = 0; i < 5000; i++ ) {
+          Date date = randomDate();
+          assertEquals( format.format( date ), v.convertDateToString( date ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parsesDatesLikeTheDateFormat() throws Exception {
+    for ( String mask : DATE_MASKS ) {
+      for ( String timeZone : TIME_ZONES ) {
+        for ( boolean lenient : new boolean[] { false, true } ) {
+          ValueMetaDate v = dateMeta( mask, timeZone, lenient );
+          SimpleDateFormat format = (SimpleDateFormat) v.getDateFormat().clone();
+          for ( int i = 0; i < 5000; i++ ) {
+            // A date, or a text with a digit changed that may not be one
+            //
+            String string = format.format( randomDate() );
+            if ( random.nextBoolean() ) {
+              char[] chars = string.toCharArray();
+              chars[ random.nextInt( chars.length ) ] = (char) ( '0' + random.nextInt( 10 ) );
+              string = new String( chars );
+            }
+            ParsePosition position = new ParsePosition( 0 );
+            Date expected = format.parse( string, position );
+            try {
+              Date actual = v.convertStringToDate( string );
+              assertEquals( string, expected, actual );
+            } catch ( KettleValueException e ) {
+              assertNull( string, expected );
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void leavesTheChangesOfTheTimeZoneOffsetToTheDateFormat() throws Exception {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd HH:mm" );
+    format.setTimeZone( TimeZone.getTimeZone( "Europe/Brussels" ) );
+    PlainDateFormat plainFormat = PlainDateFormat.getInstance( format );
+
+    // The clocks were put forward on 2024-03-31 02:00 and back on 2024-10-27 03:00
+    //
+    assertNull( plainFormat.parse( "2024-03-31 02:30" ) );
+    assertNull( plainFormat.parse( "2024-10-27 02:30" ) );
+    assertNull( plainFormat.parse( "2024-10-26 12:00" ) );
+    assertEquals( format.parse( "2024-10-25 12:00" ), plainFormat.parse( "2024-10-25 12:00" ) );
+  }
+
+  private ValueMetaDate dateMeta( String mask, String timeZone, boolean lenient ) {
+    ValueMetaDate v = new ValueMetaDate( "created" );
+    v.setConversionMask( mask );
+    v.setDateFormatTimeZone( TimeZone.getTimeZone( timeZone ) );
+    v.setDateFormatLenient( lenient );
+    return v;
+  }
+
+  /**
+   * @return a date from 1589 to 2350, mostly from 1875 to 2065
+   */
+  private Date randomDate() {
+    long range = random.nextInt( 4 ) == 0 ? 12000000000000L : 3000000000000L;
+    return new Date( (long) ( ( random.nextDouble() - 0.5 ) * 2 * range ) );
+  }
+
+  /**
+   * @return a number with up to the given number of digits, maybe a fraction, maybe with a character that isn't a digit
+   */
+  private String randomNumber( char decimalSeparator, int maxDigits ) {
+    StringBuilder number = new StringBuilder();
+    if ( random.nextInt( 10 ) == 0 ) {
+      number.append( '-' );
+    }
+    int digits = 1 + random.nextInt( random.nextBoolean() ? 6 : maxDigits );
+    for ( int i = 0; i < digits; i++ ) {
+      number.append( (char) ( '0' + random.nextInt( 10 ) ) );
+    }
+    if ( random.nextInt( 3 ) == 0 ) {
+      number.append( decimalSeparator );
+      for ( int i = random.nextInt( 8 ); i > 0; i-- ) {
+        number.append( (char) ( '0' + random.nextInt( 10 ) ) );
+      }
+    }
+    if ( random.nextInt( 20 ) == 0 ) {
+      number.insert( random.nextInt( number.length() + 1 ), random.nextBoolean() ? 'x' : ',' );
+    }
+    return number.toString();
+  }
+
+  /**
+   * @return the number the decimal format parses the whole text to or null
+   */
+  private Number parse( DecimalFormat format, String string ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Number number = format.parse( string, position );
+    return position.getIndex() < string.length() ? null : number;
+  }
+}
@@ -0,0 +1,39 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.compress.bgzf;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.pentaho.di.core.compress.CompressionInputStream;
+
+public class BGZFCompressionInputStream extends CompressionInputStream {
+
+  public BGZFCompressionInputStream( InputStream in, BGZFCompressionProvider provider ) throws IOException {
+    super( getDelegate( in, provider ), provider );
+  }
+
+  protected static BGZFInputStream getDelegate( InputStream in, BGZFCompressionProvider provider ) {
+    if ( in instanceof BGZFInputStream ) {
+      return (BGZFInputStream) in;
+    }
+    return new BGZFInputStream( in, provider.getNrThreads() );
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    return delegate.skip( n );
+  }
+}
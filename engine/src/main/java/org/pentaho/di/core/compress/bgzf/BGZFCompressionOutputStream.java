@@ -0,0 +1,35 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.compress.bgzf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.pentaho.di.core.compress.CompressionOutputStream;
+
+public class BGZFCompressionOutputStream extends CompressionOutputStream {
+
+  public BGZFCompressionOutputStream( OutputStream out, BGZFCompressionProvider provider ) throws IOException {
+    super( getDelegate( out, provider ), provider );
+  }
+
+  protected static BGZFOutputStream getDelegate( OutputStream out, BGZFCompressionProvider provider ) {
+    if ( out instanceof BGZFOutputStream ) {
+      return (BGZFOutputStream) out;
+    }
+    return new BGZFOutputStream( out, Deflater.DEFAULT_COMPRESSION, provider.getNrThreads() );
+  }
+}
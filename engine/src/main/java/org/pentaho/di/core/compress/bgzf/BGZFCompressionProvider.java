@@ -0,0 +1,74 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.compress.bgzf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * Block compressed gzip: files of independent gzip members, which can be inflated and deflated on more threads and
+ * read half way without inflating what comes before. Variable {@link Const#KETTLE_BGZF_THREADS} sets the number of
+ * threads.
+ */
+public class BGZFCompressionProvider implements CompressionProvider {
+
+  @Override
+  public BGZFCompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new BGZFCompressionInputStream( in, this );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  @Override
+  public BGZFCompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    return new BGZFCompressionOutputStream( out, this );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Block GZIP compression";
+  }
+
+  @Override
+  public String getName() {
+    return "BGZF";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "gz";
+  }
+
+  /**
+   * @return the number of threads to inflate or deflate a file with
+   */
+  public int getNrThreads() {
+    int defaultThreads = Math.min( Runtime.getRuntime().availableProcessors(), 4 );
+    return Math.max( Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_BGZF_THREADS ), defaultThreads ), 1 );
+  }
+}
@@ -0,0 +1,301 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.compress.bgzf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a BGZF file: a series of gzip members of at most 64KB each, with the size of the compressed member in an
+ * extra field of the header. Since every block stands on its own the blocks are inflated on a pool of threads while
+ * the caller reads the previous ones. Any gzip reader reads these files as well, only serially.<br>
+ * <br>
+ * Skipping doesn't inflate whole blocks, their size is in the trailer. A reader that starts half way into a file only
+ * reads the compressed bytes up to there.
+ */
+public class BGZFInputStream extends InputStream {
+
+  /**
+   * The compressed bytes of a block with the checksum and size of its content.
+   */
+  private static class RawBlock {
+    private final byte[] data;
+    private final int crc;
+    private final int size;
+
+    RawBlock( byte[] data, int crc, int size ) {
+      this.data = data;
+      this.crc = crc;
+      this.size = size;
+    }
+
+    byte[] inflate() throws IOException {
+      byte[] content = new byte[ size ];
+      Inflater inflater = new Inflater( true );
+      try {
+        inflater.setInput( data );
+        int length = 0;
+        while ( length < size && !inflater.finished() ) {
+          int n = inflater.inflate( content, length, size - length );
+          if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+            break;
+          }
+          length += n;
+        }
+        if ( length != size ) {
+          throw new IOException( "Corrupt BGZF block, expected " + size + " bytes and found " + length );
+        }
+      } catch ( DataFormatException e ) {
+        throw new IOException( "Corrupt BGZF block", e );
+      } finally {
+        inflater.end();
+      }
+
+      CRC32 checksum = new CRC32();
+      checksum.update( content, 0, size );
+      if ( (int) checksum.getValue() != crc ) {
+        throw new IOException( "Corrupt BGZF block, the checksum doesn't match" );
+      }
+      return content;
+    }
+  }
+
+  private static final byte[] EMPTY = new byte[ 0 ];
+
+  private final InputStream in;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+  private final byte[] header = new byte[ 12 ];
+
+  private byte[] block = EMPTY;
+  private int blockPosition;
+  private boolean endOfInput;
+
+  public BGZFInputStream( InputStream in ) {
+    this( in, 1 );
+  }
+
+  /**
+   * @param in         the compressed file
+   * @param nrThreads  the number of threads to inflate the blocks with, 1 inflates them in the caller's thread
+   */
+  public BGZFInputStream( InputStream in, int nrThreads ) {
+    this.in = in;
+    if ( nrThreads > 1 ) {
+      this.maxInFlight = nrThreads * 2;
+      this.executor = Executors.newFixedThreadPool( nrThreads, runnable -> {
+        Thread thread = new Thread( runnable, "BGZF inflater" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    } else {
+      this.maxInFlight = 0;
+      this.executor = null;
+    }
+  }
+
+  /**
+   * @param header the first bytes of a file
+   * @param length the number of bytes read
+   * @return true if the file starts with a BGZF block: a gzip header with the BC extra field
+   */
+  public static boolean isBGZF( byte[] header, int length ) {
+    return length >= 16
+      && ( header[ 0 ] & 0xFF ) == 0x1F && ( header[ 1 ] & 0xFF ) == 0x8B && header[ 2 ] == 8
+      && ( header[ 3 ] & 0x04 ) != 0
+      && readShort( header, 10 ) >= 6
+      && header[ 12 ] == 'B' && header[ 13 ] == 'C' && readShort( header, 14 ) == 2;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while ( blockPosition >= block.length ) {
+      if ( !nextBlock() ) {
+        return -1;
+      }
+    }
+    return block[ blockPosition++ ] & 0xFF;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    while ( blockPosition >= block.length ) {
+      if ( !nextBlock() ) {
+        return -1;
+      }
+    }
+    int n = Math.min( len, block.length - blockPosition );
+    System.arraycopy( block, blockPosition, b, off, n );
+    blockPosition += n;
+    return n;
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    long skipped = 0L;
+    while ( skipped < n ) {
+      if ( blockPosition < block.length ) {
+        int step = (int) Math.min( n - skipped, block.length - blockPosition );
+        blockPosition += step;
+        skipped += step;
+      } else if ( inFlight.isEmpty() ) {
+        // The blocks we skip entirely are never inflated
+        //
+        RawBlock raw = readRawBlock();
+        if ( raw == null ) {
+          break;
+        }
+        if ( raw.size <= n - skipped ) {
+          skipped += raw.size;
+        } else {
+          block = raw.inflate();
+          blockPosition = 0;
+        }
+      } else if ( !nextBlock() ) {
+        break;
+      }
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return block.length - blockPosition;
+  }
+
+  private boolean nextBlock() throws IOException {
+    if ( executor == null ) {
+      RawBlock raw = readRawBlock();
+      if ( raw == null ) {
+        return false;
+      }
+      block = raw.inflate();
+      blockPosition = 0;
+      return true;
+    }
+
+    // Keep the threads busy
+    //
+    while ( !endOfInput && inFlight.size() < maxInFlight ) {
+      RawBlock raw = readRawBlock();
+      if ( raw == null ) {
+        endOfInput = true;
+        break;
+      }
+      inFlight.add( executor.submit( raw::inflate ) );
+    }
+    Future<byte[]> next = inFlight.poll();
+    if ( next == null ) {
+      return false;
+    }
+    try {
+      block = next.get();
+      blockPosition = 0;
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    }
+  }
+
+  /**
+   * @return the next block or null at the end of the file
+   */
+  private RawBlock readRawBlock() throws IOException {
+    int first = in.read();
+    if ( first < 0 ) {
+      return null;
+    }
+    header[ 0 ] = (byte) first;
+    readFully( header, 1, header.length - 1 );
+    int extraLength = readShort( header, 10 );
+    if ( ( header[ 0 ] & 0xFF ) != 0x1F || ( header[ 1 ] & 0xFF ) != 0x8B || header[ 2 ] != 8
+      || ( header[ 3 ] & 0x04 ) == 0 ) {
+      throw new IOException( "Not a BGZF block, the gzip header has no extra field" );
+    }
+
+    // Find the BC field with the size of the block minus 1
+    //
+    byte[] extra = new byte[ extraLength ];
+    readFully( extra, 0, extraLength );
+    int blockSize = -1;
+    for ( int i = 0; i + 4 <= extraLength; ) {
+      int fieldLength = readShort( extra, i + 2 );
+      if ( extra[ i ] == 'B' && extra[ i + 1 ] == 'C' && fieldLength == 2 && i + 6 <= extraLength ) {
+        blockSize = readShort( extra, i + 4 ) + 1;
+      }
+      i += 4 + fieldLength;
+    }
+    if ( blockSize < 0 ) {
+      throw new IOException( "Not a BGZF block, the gzip header has no block size" );
+    }
+
+    int dataLength = blockSize - header.length - extraLength - 8;
+    if ( dataLength < 0 ) {
+      throw new IOException( "Corrupt BGZF block, the block size is " + blockSize );
+    }
+    byte[] data = new byte[ dataLength ];
+    readFully( data, 0, dataLength );
+    byte[] trailer = new byte[ 8 ];
+    readFully( trailer, 0, 8 );
+    return new RawBlock( data, readInt( trailer, 0 ), readInt( trailer, 4 ) );
+  }
+
+  private void readFully( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      int n = in.read( b, off, len );
+      if ( n < 0 ) {
+        throw new EOFException( "Unexpected end of the BGZF file" );
+      }
+      off += n;
+      len -= n;
+    }
+  }
+
+  static int readShort( byte[] b, int off ) {
+    return ( b[ off ] & 0xFF ) | ( b[ off + 1 ] & 0xFF ) << 8;
+  }
+
+  static int readInt( byte[] b, int off ) {
+    return readShort( b, off ) | readShort( b, off + 2 ) << 16;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+    in.close();
+  }
+}
@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.compress.bgzf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a BGZF file: the content is cut in blocks that are compressed as gzip members of at most 64KB each, with the
+ * size of the member in an extra field of the header. The blocks are deflated on a pool of threads and written in
+ * order. The file ends with an empty block, the end of file marker.
+ */
+public class BGZFOutputStream extends OutputStream {
+
+  /**
+   * The content of a block, small enough to fit in 64KB compressed even when it doesn't compress.
+   */
+  public static final int BLOCK_CONTENT_SIZE = 0xFF00;
+
+  static final int MAX_BLOCK_SIZE = 0x10000;
+
+  static final byte[] EOF_BLOCK = new byte[] {
+    0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0, 0x1B, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+  private final OutputStream out;
+  private final int level;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+  private byte[] buffer = new byte[ BLOCK_CONTENT_SIZE ];
+  private int count;
+  private boolean closed;
+
+  public BGZFOutputStream( OutputStream out ) {
+    this( out, Deflater.DEFAULT_COMPRESSION, 1 );
+  }
+
+  /**
+   * @param out       the file to write to
+   * @param level     the compression level
+   * @param nrThreads the number of threads to deflate the blocks with, 1 deflates them in the caller's thread
+   */
+  public BGZFOutputStream( OutputStream out, int level, int nrThreads ) {
+    this.out = out;
+    this.level = level;
+    if ( nrThreads > 1 ) {
+      this.maxInFlight = nrThreads * 2;
+      this.executor = Executors.newFixedThreadPool( nrThreads, runnable -> {
+        Thread thread = new Thread( runnable, "BGZF deflater" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    } else {
+      this.maxInFlight = 0;
+      this.executor = null;
+    }
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    buffer[ count++ ] = (byte) b;
+    if ( count == buffer.length ) {
+      writeBlock();
+    }
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      int n = Math.min( len, buffer.length - count );
+      System.arraycopy( b, off, buffer, count, n );
+      count += n;
+      off += n;
+      len -= n;
+      if ( count == buffer.length ) {
+        writeBlock();
+      }
+    }
+  }
+
+  /**
+   * Writes what is buffered as a block of its own.
+   */
+  @Override
+  public void flush() throws IOException {
+    writeBlock();
+    while ( !inFlight.isEmpty() ) {
+      writeOldest();
+    }
+    out.flush();
+  }
+
+  private void writeBlock() throws IOException {
+    if ( count == 0 ) {
+      return;
+    }
+    if ( executor == null ) {
+      out.write( deflate( buffer, count, level ) );
+    } else {
+      byte[] content = buffer;
+      int length = count;
+      inFlight.add( executor.submit( () -> deflate( content, length, level ) ) );
+      buffer = new byte[ BLOCK_CONTENT_SIZE ];
+      if ( inFlight.size() >= maxInFlight ) {
+        writeOldest();
+      }
+    }
+    count = 0;
+  }
+
+  private void writeOldest() throws IOException {
+    try {
+      out.write( inFlight.remove().get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( ExecutionException e ) {
+      throw new IOException( e.getCause() );
+    }
+  }
+
+  /**
+   * @return the gzip member with the deflated content
+   */
+  static byte[] deflate( byte[] content, int length, int level ) {
+    byte[] block = new byte[ MAX_BLOCK_SIZE ];
+    int dataLength = deflate( content, length, level, block );
+    if ( dataLength < 0 ) {
+      // Content that doesn't compress is stored as it is, that always fits
+      //
+      dataLength = deflate( content, length, Deflater.NO_COMPRESSION, block );
+    }
+    int blockSize = 18 + dataLength + 8;
+
+    // The header with the BC extra field holding the size of the block minus 1
+    //
+    block[ 0 ] = 0x1F;
+    block[ 1 ] = (byte) 0x8B;
+    block[ 2 ] = 8;
+    block[ 3 ] = 4;
+    block[ 9 ] = (byte) 0xFF;
+    block[ 10 ] = 6;
+    block[ 12 ] = 'B';
+    block[ 13 ] = 'C';
+    block[ 14 ] = 2;
+    writeShort( block, 16, blockSize - 1 );
+
+    CRC32 checksum = new CRC32();
+    checksum.update( content, 0, length );
+    writeInt( block, 18 + dataLength, (int) checksum.getValue() );
+    writeInt( block, 22 + dataLength, length );
+    return Arrays.copyOf( block, blockSize );
+  }
+
+  /**
+   * @return the number of deflated bytes after the header or -1 if they don't fit in the block
+   */
+  private static int deflate( byte[] content, int length, int level, byte[] block ) {
+    Deflater deflater = new Deflater( level, true );
+    try {
+      deflater.setInput( content, 0, length );
+      deflater.finish();
+      int limit = block.length - 18 - 8;
+      int dataLength = 0;
+      while ( !deflater.finished() && dataLength < limit ) {
+        dataLength += deflater.deflate( block, 18 + dataLength, limit - dataLength );
+      }
+      return deflater.finished() ? dataLength : -1;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeShort( byte[] b, int off, int value ) {
+    b[ off ] = (byte) value;
+    b[ off + 1 ] = (byte) ( value >>> 8 );
+  }
+
+  private static void writeInt( byte[] b, int off, int value ) {
+    writeShort( b, off, value );
+    writeShort( b, off + 2, value >>> 16 );
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+      out.write( EOF_BLOCK );
+      out.close();
+    } finally {
+      if ( executor != null ) {
+        executor.shutdownNow();
+      }
+    }
+  }
+}
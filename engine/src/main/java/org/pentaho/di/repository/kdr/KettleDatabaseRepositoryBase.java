@@ -436,6 +436,8 @@ public abstract class KettleDatabaseRepositoryBase extends AbstractRepository {
   public static final String TRANS_ATTRIBUTE_LOG_SIZE_LIMIT = "LOG_SIZE_LIMIT";
   public static final String TRANS_ATTRIBUTE_LOG_INTERVAL = "LOG_INTERVAL";
   public static final String TRANS_ATTRIBUTE_TRANSFORMATION_TYPE = "TRANSFORMATION_TYPE";
+  public static final String TRANS_ATTRIBUTE_ROWSET_TYPE = "ROWSET_TYPE";
+  public static final String TRANS_ATTRIBUTE_ROWSET_WAIT_STRATEGY = "ROWSET_WAIT_STRATEGY";
   public static final String TRANS_ATTRIBUTE_SLEEP_TIME_EMPTY = "SLEEP_TIME_EMPTY";
   public static final String TRANS_ATTRIBUTE_SLEEP_TIME_FULL = "SLEEP_TIME_FULL";
   public static final String TRANS_ATTRIBUTE_DATA_SERVICE_NAME = "DATA_SERVICE_NAME";
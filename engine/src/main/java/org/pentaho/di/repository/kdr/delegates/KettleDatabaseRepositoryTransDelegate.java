@@ -25,6 +25,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.NotePadMeta;
 import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -49,6 +50,7 @@ import org.pentaho.di.repository.kdr.KettleDatabaseRepository;
 import org.pentaho.di.trans.TransDependency;
 import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransMeta.RowSetType;
 import org.pentaho.di.trans.TransMeta.TransformationType;
 import org.pentaho.di.trans.step.StepErrorMeta;
 import org.pentaho.di.trans.step.StepMeta;
@@ -790,6 +792,10 @@ public class KettleDatabaseRepositoryTransDelegate extends KettleDatabaseReposit
             transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_LOG_INTERVAL ) );
         transMeta.setTransformationType( TransformationType.getTransformationTypeByCode( getTransAttributeString(
           transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_TRANSFORMATION_TYPE ) ) );
+        transMeta.setRowSetType( RowSetType.getRowSetTypeByCode( getTransAttributeString(
+          transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_ROWSET_TYPE ) ) );
+        transMeta.setRowSetWaitStrategy( RingBufferRowSet.WaitStrategy.getWaitStrategyByCode( getTransAttributeString(
+          transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_ROWSET_WAIT_STRATEGY ) ) );
         transMeta.setSleepTimeEmpty( (int) getTransAttributeInteger(
           transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_SLEEP_TIME_EMPTY ) );
         transMeta.setSleepTimeFull( (int) getTransAttributeInteger(
@@ -1361,6 +1367,12 @@ public class KettleDatabaseRepositoryTransDelegate extends KettleDatabaseReposit
     repository.connectionDelegate.insertTransAttribute(
       transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_TRANSFORMATION_TYPE, 0, transMeta
         .getTransformationType().getCode() );
+    repository.connectionDelegate.insertTransAttribute(
+      transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_ROWSET_TYPE, 0, transMeta
+        .getRowSetType().getCode() );
+    repository.connectionDelegate.insertTransAttribute(
+      transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_ROWSET_WAIT_STRATEGY, 0, transMeta
+        .getRowSetWaitStrategy().getCode() );
 
     repository.connectionDelegate.insertTransAttribute(
       transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_SLEEP_TIME_EMPTY, transMeta
@@ -27,6 +27,7 @@ import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
@@ -977,9 +978,14 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 // Currently there are stalling problems when dealing with small
                 // amounts of rows.
                 //
+                // Every rowset allocated here connects exactly one source step copy with one target step copy,
+                // so the single-producer/single-consumer ring buffer can be used when it was selected.
+                //
                 Boolean batchingRowSet =
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
+                if ( transMeta.getRowSetType() == TransMeta.RowSetType.RingBuffer ) {
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset(), transMeta.getRowSetWaitStrategy() );
+                } else if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
@@ -31,6 +31,7 @@ import org.pentaho.di.core.ProgressMonitorListener;
 import org.pentaho.di.core.Props;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.attributes.AttributesUtil;
@@ -406,6 +407,84 @@ public class TransMeta extends AbstractMeta
   /** The transformation type. */
   protected TransformationType transformationType;
 
+  /**
+   * The RowSetType enum describes the kind of buffer used between step copies in a normal transformation.
+   */
+  public enum RowSetType {
+
+    /** A lock based blocking queue (the default). */
+    Blocking( "Blocking", BaseMessages.getString( PKG, "TransMeta.RowSetType.Blocking" ) ),
+
+      /** A lock-free single-producer/single-consumer ring buffer. */
+      RingBuffer( "RingBuffer", BaseMessages.getString( PKG, "TransMeta.RowSetType.RingBuffer" ) );
+
+    /** The code corresponding to the row set type. */
+    private final String code;
+
+    /** The description of the row set type. */
+    private final String description;
+
+    RowSetType( String code, String description ) {
+      this.code = code;
+      this.description = description;
+    }
+
+    /**
+     * Gets the code corresponding to the row set type.
+     *
+     * @return the code
+     */
+    public String getCode() {
+      return code;
+    }
+
+    /**
+     * Gets the description of the row set type.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+      return description;
+    }
+
+    /**
+     * Gets the row set type by code.
+     *
+     * @param rowSetTypeCode
+     *          the row set type code
+     * @return the row set type by code, Blocking if the code is unknown
+     */
+    public static RowSetType getRowSetTypeByCode( String rowSetTypeCode ) {
+      if ( rowSetTypeCode != null ) {
+        for ( RowSetType type : values() ) {
+          if ( type.code.equalsIgnoreCase( rowSetTypeCode ) ) {
+            return type;
+          }
+        }
+      }
+      return Blocking;
+    }
+
+    /**
+     * Gets the row set types descriptions.
+     *
+     * @return the row set types descriptions
+     */
+    public static String[] getRowSetTypesDescriptions() {
+      String[] desc = new String[values().length];
+      for ( int i = 0; i < values().length; i++ ) {
+        desc[i] = values()[i].getDescription();
+      }
+      return desc;
+    }
+  }
+
+  /** The type of row set used between step copies. */
+  protected RowSetType rowSetType;
+
+  /** The way ring buffer row sets wait for room or rows. */
+  protected RingBufferRowSet.WaitStrategy rowSetWaitStrategy;
+
   // //////////////////////////////////////////////////////////////////////////
 
   /** A list of localized strings corresponding to string descriptions of the undo/redo actions. */
@@ -750,6 +829,8 @@ public class TransMeta extends AbstractMeta
     loopCache = new HashMap<>();
     previousStepCache = new HashMap<>();
     transformationType = TransformationType.Normal;
+    rowSetType = RowSetType.Blocking;
+    rowSetWaitStrategy = RingBufferRowSet.WaitStrategy.PARK;
 
     log = LogChannel.GENERAL;
   }
@@ -2557,6 +2638,8 @@ public class TransMeta extends AbstractMeta
     retval.append( "    " ).append( XMLHandler.closeTag( "maxdate" ) ).append( Const.CR );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "size_rowset", sizeRowset ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "rowset_type", rowSetType.getCode() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "rowset_wait_strategy", rowSetWaitStrategy.getCode() ) );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_empty", sleepTimeEmpty ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_full", sleepTimeFull ) );
@@ -3669,6 +3752,9 @@ public class TransMeta extends AbstractMeta
 
         String srowset = XMLHandler.getTagValue( infonode, "size_rowset" );
         sizeRowset = Const.toInt( srowset, Const.ROWS_IN_ROWSET );
+        rowSetType = RowSetType.getRowSetTypeByCode( XMLHandler.getTagValue( infonode, "rowset_type" ) );
+        rowSetWaitStrategy = RingBufferRowSet.WaitStrategy.getWaitStrategyByCode(
+            XMLHandler.getTagValue( infonode, "rowset_wait_strategy" ) );
         sleepTimeEmpty =
             Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_empty" ), Const.TIMEOUT_GET_MILLIS );
         sleepTimeFull = Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_full" ), Const.TIMEOUT_PUT_MILLIS );
@@ -6570,6 +6656,44 @@ public class TransMeta extends AbstractMeta
     this.transformationType = transformationType;
   }
 
+  /**
+   * Gets the type of row set used between step copies in a normal transformation.
+   *
+   * @return the rowSetType
+   */
+  public RowSetType getRowSetType() {
+    return rowSetType;
+  }
+
+  /**
+   * Sets the type of row set used between step copies in a normal transformation.
+   *
+   * @param rowSetType
+   *          the rowSetType to set
+   */
+  public void setRowSetType( RowSetType rowSetType ) {
+    this.rowSetType = rowSetType;
+  }
+
+  /**
+   * Gets the wait strategy used by ring buffer row sets.
+   *
+   * @return the rowSetWaitStrategy
+   */
+  public RingBufferRowSet.WaitStrategy getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * Sets the wait strategy used by ring buffer row sets.
+   *
+   * @param rowSetWaitStrategy
+   *          the rowSetWaitStrategy to set
+   */
+  public void setRowSetWaitStrategy( RingBufferRowSet.WaitStrategy rowSetWaitStrategy ) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy;
+  }
+
   /**
    * Utility method to write the XML of this transformation to a file, mostly for testing purposes.
    *
@@ -6748,6 +6872,8 @@ public class TransMeta extends AbstractMeta
         .append( this.getName() )
         .append( this.getTransformationType() )
         .append( this.getSizeRowset() )
+        .append( this.getRowSetType() )
+        .append( this.getRowSetWaitStrategy() )
         .append( this.getSleepTimeEmpty() )
         .append( this.getSleepTimeFull() )
         .append( this.isUsingUniqueConnections() )
@@ -340,6 +340,10 @@ public class TransSplitter {
     // Priority management
     transMeta.setUsingThreadPriorityManagment( originalTransformation.isUsingThreadPriorityManagment() );
 
+    // Row set buffers
+    transMeta.setRowSetType( originalTransformation.getRowSetType() );
+    transMeta.setRowSetWaitStrategy( originalTransformation.getRowSetWaitStrategy() );
+
     // Unique connections
     transMeta.setUsingUniqueConnections( originalTransformation.isUsingUniqueConnections() );
 
@@ -29,9 +29,11 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -54,6 +56,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -158,7 +161,25 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /*
+   * The status counters are updated for every row by the step thread and read at any time by status polling (Spoon,
+   * Carte, performance monitoring). They are volatile and updated with atomic field updaters, so neither side takes a
+   * lock and a read always sees a complete value.
+   */
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_READ =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesRead" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_WRITTEN =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesWritten" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_INPUT =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesInput" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_OUTPUT =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesOutput" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_UPDATED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesUpdated" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_SKIPPED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesSkipped" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_REJECTED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesRejected" );
 
   /**
    * nr of lines read from previous step(s)
@@ -166,7 +187,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesRead()}, {@link #incrementLinesRead()}, or {@link #decrementLinesRead()}
    */
   @Deprecated
-  public long linesRead;
+  public volatile long linesRead;
 
   /**
    * nr of lines written to next step(s)
@@ -174,7 +195,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesWritten()}, {@link #incrementLinesWritten()}, or {@link #decrementLinesWritten()}
    */
   @Deprecated
-  public long linesWritten;
+  public volatile long linesWritten;
 
   /**
    * nr of lines read from file or database
@@ -182,7 +203,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesInput()} or {@link #incrementLinesInput()}
    */
   @Deprecated
-  public long linesInput;
+  public volatile long linesInput;
 
   /**
    * nr of lines written to file or database
@@ -190,7 +211,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesOutput()} or {@link #incrementLinesOutput()}
    */
   @Deprecated
-  public long linesOutput;
+  public volatile long linesOutput;
 
   /**
    * nr of updates in a database table or file
@@ -198,7 +219,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesUpdated()} or {@link #incrementLinesUpdated()}
    */
   @Deprecated
-  public long linesUpdated;
+  public volatile long linesUpdated;
 
   /**
    * nr of lines skipped
@@ -206,15 +227,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesSkipped()} or {@link #incrementLinesSkipped()}
    */
   @Deprecated
-  public long linesSkipped;
+  public volatile long linesSkipped;
 
   /**
-   * total sleep time in ns caused by an empty input buffer (previous step is slow)
+   * nr of lines rejected to an error handling step
    *
    * @deprecated use {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
    */
   @Deprecated
-  public long linesRejected;
+  public volatile long linesRejected;
 
   private boolean distributed;
 
@@ -366,6 +387,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private static int NR_OF_ROWS_IN_BLOCK = 500;
 
+  /**
+   * The default maximum number of rows a step asks for with {@link #getRows(int)}.
+   */
+  public static final int ROW_BATCH_SIZE = 500;
+
   private int blockPointer;
 
   /**
@@ -479,15 +505,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
+    linesRead = 0L; // Keep some statistics!
+    linesWritten = 0L;
+    linesUpdated = 0L;
+    linesSkipped = 0L;
+    linesRejected = 0L;
+    linesInput = 0L;
+    linesOutput = 0L;
 
     inputRowSets = null;
     outputRowSets = null;
@@ -905,9 +929,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return linesRead;
   }
 
   /**
@@ -916,9 +938,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    return LINES_READ.incrementAndGet( this );
+  }
+
+  /**
+   * Adds to the number of lines read from previous steps
+   *
+   * @param lines the number of lines to add
+   */
+  private void addLinesRead( long lines ) {
+    LINES_READ.addAndGet( this, lines );
   }
 
   /**
@@ -927,18 +956,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    return LINES_READ.decrementAndGet( this );
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    linesRead = newLinesReadValue;
   }
 
   /**
@@ -946,9 +971,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return linesInput;
   }
 
   /**
@@ -957,18 +980,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    return LINES_INPUT.incrementAndGet( this );
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    linesInput = newLinesInputValue;
   }
 
   /**
@@ -976,9 +995,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return linesOutput;
   }
 
   /**
@@ -987,18 +1004,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    return LINES_OUTPUT.incrementAndGet( this );
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    linesOutput = newLinesOutputValue;
   }
 
   /**
@@ -1006,9 +1019,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return linesWritten;
   }
 
   /**
@@ -1017,9 +1028,16 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    return LINES_WRITTEN.incrementAndGet( this );
+  }
+
+  /**
+   * Adds to the number of lines written to next steps
+   *
+   * @param lines the number of lines to add
+   */
+  private void addLinesWritten( long lines ) {
+    LINES_WRITTEN.addAndGet( this, lines );
   }
 
   /**
@@ -1028,18 +1046,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    return LINES_WRITTEN.decrementAndGet( this );
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    linesWritten = newLinesWrittenValue;
   }
 
   /**
@@ -1047,9 +1061,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return linesUpdated;
   }
 
   /**
@@ -1058,18 +1070,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    return LINES_UPDATED.incrementAndGet( this );
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    linesUpdated = newLinesUpdatedValue;
   }
 
   /**
@@ -1077,9 +1085,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return linesRejected;
   }
 
   /**
@@ -1088,9 +1094,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    return LINES_REJECTED.incrementAndGet( this );
   }
 
   /**
@@ -1098,18 +1102,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    linesRejected = newLinesRejectedValue;
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return linesSkipped;
   }
 
   /**
@@ -1118,18 +1118,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    return LINES_SKIPPED.incrementAndGet( this );
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    linesSkipped = newLinesSkippedValue;
   }
 
   /*
@@ -1245,6 +1241,35 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  /**
+   * putRows is the chunked variant of {@link #putRow(RowMetaInterface, Object[])}: the first count rows are sent on
+   * exactly as if putRow() was called for each of them in order. When every row goes to a single output rowset
+   * without listeners or partitioning, the chunk is handed over at once and the synchronization cost is paid once per
+   * chunk instead of once per row.
+   *
+   * @param rowMeta The row meta-data of all the rows
+   * @param rows    The rows to put to the destination rowset(s)
+   * @param count   The number of rows to put
+   * @throws KettleStepException
+   */
+  public void putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    if ( count <= 0 ) {
+      return;
+    }
+    verifyFieldNamesAndTypes( rowMeta );
+    RowHandler handler = getRowHandler();
+    if ( handler instanceof DefaultRowHandler ) {
+      handlePutRows( rowMeta, rows, count );
+    } else {
+      handler.putRows( rowMeta, rows, count );
+    }
+  }
+
+  private void verifyFieldNamesAndTypes( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1258,7 +1283,30 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
+  }
+
+  private void handlePutRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    // Anything that needs to see the rows one at a time (listeners, partitioning, distribution over several rowsets,
+    // pausing, ...) keeps going through putRow().
+    //
+    boolean chunked = count > 1 && checkTransRunning && !paused.get() && !stopped.get()
+      && rowListeners.isEmpty() && !terminator && rowDistribution == null
+      && repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE;
+    if ( chunked ) {
+      outputRowSetsLock.readLock().lock();
+      try {
+        if ( outputRowSets.size() == 1 ) {
+          addLinesWritten( putRowsToRowSet( outputRowSets.get( 0 ), rowMeta, rows, count ) );
+          return;
+        }
+      } finally {
+        outputRowSetsLock.readLock().unlock();
+      }
+    }
+
+    for ( int i = 0; i < count; i++ ) {
+      putRow( rowMeta, rows[i] );
+    }
   }
 
   private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
@@ -1597,6 +1645,48 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Puts the rows in a row set, waiting for room until the step stops. A row set takes no null rows, so they are
+   * skipped.
+   *
+   * @return the number of rows put
+   */
+  private int putRowsToRowSet( RowSet rs, RowMetaInterface rowMeta, Object[][] rows, int count ) {
+    RowMetaInterface toBeSent;
+    RowMetaInterface metaFromRs = rs.getRowMeta();
+    if ( metaFromRs == null ) {
+      // RowSet is not initialised so far
+      toBeSent = rowMeta.clone();
+    } else {
+      // use the existing
+      toBeSent = metaFromRs;
+    }
+
+    Object[][] remaining = rows;
+    int todo = count;
+    for ( int i = 0; i < count; i++ ) {
+      if ( rows[i] == null ) {
+        remaining = Arrays.stream( rows, 0, count ).filter( Objects::nonNull ).toArray( Object[][]::new );
+        todo = remaining.length;
+        break;
+      }
+    }
+
+    int written = 0;
+    while ( todo > 0 ) {
+      int put = rs.putRows( toBeSent, remaining, todo );
+      written += put;
+      if ( put < todo ) {
+        if ( isStopped() && !safeStopped.get() ) {
+          return written;
+        }
+        remaining = Arrays.copyOfRange( remaining, put, todo );
+      }
+      todo -= put;
+    }
+    return written;
+  }
+
   /**
    * putRowTo is used to put a row in a certain specific RowSet.
    *
@@ -1819,6 +1909,107 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
 
+  /**
+   * getRows is the chunked variant of {@link #getRow()}: it returns up to max rows in the order getRow() would have
+   * returned them. It waits for the first row just like getRow() and then only takes the rows that are already
+   * available, so it doesn't add latency. When there is a single input rowset without row listeners, the chunk is
+   * taken from the rowset at once instead of row by row.
+   *
+   * @param max the maximum number of rows to return
+   * @return between 1 and max rows, or null if there is no more input to be expected.
+   * @throws KettleException
+   */
+  public Object[][] getRows( int max ) throws KettleException {
+    RowHandler handler = getRowHandler();
+    if ( handler instanceof DefaultRowHandler ) {
+      return handleGetRows( max );
+    } else {
+      return handler.getRows( max );
+    }
+  }
+
+  /**
+   * getRowBatch returns the rows of {@link #getRows(int)} as a columnar batch. Rowsets carry Object[] rows, so this is
+   * where a step that works on batches meets the steps around it: the batch wraps the rows and only converts the
+   * columns that are read.
+   *
+   * @param max the maximum number of rows to return
+   * @return a batch of between 1 and max rows using the input row metadata, or null if there is no more input to be
+   *         expected.
+   * @throws KettleException
+   */
+  public RowBatch getRowBatch( int max ) throws KettleException {
+    Object[][] rows = getRows( max );
+    if ( rows == null ) {
+      return null;
+    }
+    return RowBatch.fromRows( getInputRowMeta(), rows, rows.length );
+  }
+
+  /**
+   * getRowBatch returns the rows of {@link #getRows(int)} in a batch of the step, so that its columns are allocated
+   * only once.
+   *
+   * @param max   the maximum number of rows to return
+   * @param batch the batch to fill again, with the layout of the input rows. Null to create one.
+   * @return the batch with between 1 and max rows, or null if there is no more input to be expected.
+   * @throws KettleException
+   */
+  public RowBatch getRowBatch( int max, RowBatch batch ) throws KettleException {
+    if ( batch == null ) {
+      return getRowBatch( max );
+    }
+    Object[][] rows = getRows( max );
+    if ( rows == null ) {
+      return null;
+    }
+    batch.setRows( rows, rows.length );
+    return batch;
+  }
+
+  /**
+   * putRowBatch sends the rows of a batch on with {@link #putRows(RowMetaInterface, Object[][], int)}. Rows of a batch
+   * that wasn't modified are passed on as they are, the others are converted back to Object[] rows.
+   *
+   * @param batch the rows to put to the destination rowset(s)
+   * @throws KettleStepException
+   */
+  public void putRowBatch( RowBatch batch ) throws KettleStepException {
+    putRows( batch.getRowMeta(), batch.toRows(), batch.size() );
+  }
+
+  private Object[][] handleGetRows( int max ) throws KettleException {
+    RowSet inputRowSet = null;
+    if ( max > 1 && checkTransRunning && !paused.get() && !stopped.get() && rowListeners.isEmpty()
+      && !trans.isSafeModeEnabled() ) {
+      inputRowSetsLock.readLock().lock();
+      try {
+        if ( inputRowSets.size() == 1 ) {
+          inputRowSet = inputRowSets.get( 0 );
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
+      }
+    }
+
+    if ( inputRowSet != null ) {
+      Object[][] rows = inputRowSet.getRows( max );
+      if ( rows != null && rows.length > 0 ) {
+        addLinesRead( rows.length );
+        if ( inputRowMeta == null ) {
+          inputRowMeta = inputRowSet.getRowMeta();
+        }
+        verifyRejectionRates();
+        return rows;
+      }
+    }
+
+    // Nothing available right now, several input rowsets, ... : getRow() knows how to deal with all of that
+    //
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
   private Object[] handleGetRow() throws KettleException {
 
     // Are we pausing the step? If so, stall forever...
@@ -3380,22 +3571,20 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    long li = getLinesInput();
+    long lo = getLinesOutput();
+    long lr = getLinesRead();
+    long lw = getLinesWritten();
+    long lu = getLinesUpdated();
+    long lj = getLinesRejected();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
     }
   }
 
@@ -3730,6 +3919,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Same as {@link #checkFeedback(long)} for steps that process rows in chunks: checks whether a feedback line was
+   * passed between the two line numbers.
+   *
+   * @param previousLines the line number before the chunk was processed
+   * @param lines         the line number after the chunk was processed
+   * @return true if feedback should be given
+   */
+  protected boolean checkFeedback( long previousLines, long lines ) {
+    long feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown()
+      && ( lines > 0 ) && ( feedbackSize > 0 )
+      && ( lines / feedbackSize ) != ( previousLines / feedbackSize );
+  }
+
   /**
    * @return the rowMeta
    */
@@ -4398,6 +4602,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       handlePutRow( rowMeta, row );
     }
 
+    @Override public Object[][] getRows( int max ) throws KettleException {
+      return handleGetRows( max );
+    }
+
+    @Override public void putRows( RowMetaInterface rowMeta, Object[][] rows, int count )
+      throws KettleStepException {
+      handlePutRows( rowMeta, rows, count );
+    }
+
     @Override public void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                                     String fieldNames, String errorCodes ) throws KettleStepException {
       handlePutError( rowMeta, row, nrErrors, errorDescriptions, fieldNames, errorCodes );
@@ -0,0 +1,345 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.job.JobAdapter;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
+
+/**
+ * Shares the read-only caches of lookup steps by name, so that the copies of a step and the executions of a
+ * sub-transformation load the same data once. A cache is shared within a scope: the transformation at the top of the
+ * sub-transformations, the job at the top or the whole JVM. The caches of a transformation or a job go away when it
+ * finishes.<br>
+ * <br>
+ * The caches are counted while steps use them. A cache expires after its time to live, and once the caches hold more
+ * than the memory limit ({@link Const#KETTLE_LOOKUP_CACHE_MEMORY_LIMIT}) the unused ones are removed, the oldest first.
+ */
+public class LookupCacheRegistry {
+
+  public enum Scope {
+    NONE, TRANS, JOB, JVM;
+
+    /**
+     * @return the scope of a variable value, NONE when it's empty or unknown
+     */
+    public static Scope getScope( String name ) {
+      if ( !Utils.isEmpty( name ) ) {
+        for ( Scope scope : values() ) {
+          if ( scope.name().equalsIgnoreCase( name.trim() ) ) {
+            return scope;
+          }
+        }
+      }
+      return NONE;
+    }
+  }
+
+  /**
+   * Loads the data of a cache, it's called once for all the steps sharing it.
+   */
+  public interface Loader<T> {
+    T load() throws KettleException;
+  }
+
+  private static final LookupCacheRegistry INSTANCE = new LookupCacheRegistry();
+
+  private final Map<Object, Map<String, Entry<?>>> scopes = new IdentityHashMap<>();
+  private long memoryUsed;
+
+  @VisibleForTesting
+  LongSupplier clock = System::currentTimeMillis;
+
+  @VisibleForTesting
+  LongSupplier memoryLimit =
+    () -> Const.toLong( EnvUtil.getSystemProperty( Const.KETTLE_LOOKUP_CACHE_MEMORY_LIMIT ), 0L ) * 1024 * 1024;
+
+  public static LookupCacheRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the object the caches of a scope belong to, null for no sharing
+   */
+  public Object getScopeOwner( Scope scope, Trans trans ) {
+    if ( scope == Scope.NONE || trans == null ) {
+      return null;
+    }
+    if ( scope == Scope.JVM ) {
+      return this;
+    }
+
+    // Climb to the top, through transformations executed by transformations or jobs
+    //
+    Trans topTrans = trans;
+    Job topJob = null;
+    for ( Object parent = trans; parent != null; ) {
+      if ( parent instanceof Trans ) {
+        topTrans = (Trans) parent;
+        parent = topTrans.getParentTrans() != null ? topTrans.getParentTrans() : topTrans.getParentJob();
+      } else {
+        topJob = (Job) parent;
+        parent = topJob.getParentJob() != null ? topJob.getParentJob() : topJob.getParentTrans();
+      }
+    }
+    if ( scope == Scope.JOB && topJob != null ) {
+      return topJob;
+    }
+    return topTrans;
+  }
+
+  /**
+   * Gets the cache of a name in a scope, loading it when it isn't there or it's expired. The steps sharing a cache
+   * wait until it's loaded. Every reference has to be released.
+   *
+   * @param owner      the owner of the scope, see {@link #getScopeOwner}
+   * @param name       the name of the cache, which tells what data it holds
+   * @param timeToLive the milliseconds after which the cache is loaded again, 0 to keep it
+   * @param loader     loads the data when needed
+   * @param sizeOf     estimates the memory of the data in bytes
+   */
+  public <T> Reference<T> acquire( Object owner, String name, long timeToLive, Loader<T> loader,
+                                   ToLongFunction<T> sizeOf ) throws KettleException {
+    Entry<T> entry;
+    boolean newScope = false;
+    synchronized ( this ) {
+      Map<String, Entry<?>> entries = scopes.get( owner );
+      if ( entries == null ) {
+        entries = new HashMap<>();
+        scopes.put( owner, entries );
+        newScope = true;
+      }
+      @SuppressWarnings( "unchecked" )
+      Entry<T> existing = (Entry<T>) entries.get( name );
+      entry = existing;
+      if ( entry != null && entry.isExpired( clock.getAsLong() ) ) {
+        unregister( entry );
+        entries.remove( name );
+        entry = null;
+      }
+      if ( entry == null ) {
+        entry = new Entry<>( owner, name, timeToLive );
+        entries.put( name, entry );
+      }
+      entry.references++;
+    }
+    if ( newScope ) {
+      // Outside of the registry, the listeners of a transformation are called in a lock of their own
+      //
+      removeWhenFinished( owner );
+    }
+
+    // Load outside of the registry, the other steps sharing the cache wait for it
+    //
+    boolean loaded = false;
+    synchronized ( entry ) {
+      if ( !entry.loaded ) {
+        try {
+          entry.value = loader.load();
+        } catch ( KettleException | RuntimeException e ) {
+          release( entry );
+          throw e;
+        }
+        long size = sizeOf.applyAsLong( entry.value );
+        synchronized ( this ) {
+          entry.size = size;
+          entry.loadedAt = clock.getAsLong();
+          entry.loaded = true;
+          if ( entry.registered ) {
+            memoryUsed += size;
+          }
+          removeUnused();
+        }
+        loaded = true;
+      }
+    }
+    return new Reference<>( this, entry, !loaded );
+  }
+
+  private synchronized void release( Entry<?> entry ) {
+    entry.references--;
+    if ( !entry.loaded && entry.registered && entry.references == 0 ) {
+      // The load failed, the next step tries again
+      //
+      unregister( entry );
+      Map<String, Entry<?>> entries = scopes.get( entry.owner );
+      if ( entries != null ) {
+        entries.remove( entry.name );
+      }
+    }
+    removeUnused();
+  }
+
+  /**
+   * Removes the expired caches nobody uses, then the oldest unused ones while the caches hold more than the limit.
+   */
+  private void removeUnused() {
+    long now = clock.getAsLong();
+    long limit = memoryLimit.getAsLong();
+    List<Entry<?>> unused = new ArrayList<>();
+    for ( Map<String, Entry<?>> entries : scopes.values() ) {
+      for ( Iterator<Entry<?>> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+        Entry<?> entry = iterator.next();
+        if ( entry.references > 0 || !entry.loaded ) {
+          continue;
+        }
+        if ( entry.isExpired( now ) ) {
+          unregister( entry );
+          iterator.remove();
+        } else if ( limit > 0 ) {
+          unused.add( entry );
+        }
+      }
+    }
+
+    if ( limit > 0 && memoryUsed > limit ) {
+      unused.sort( Comparator.comparingLong( entry -> entry.loadedAt ) );
+      for ( Iterator<Entry<?>> iterator = unused.iterator(); iterator.hasNext() && memoryUsed > limit; ) {
+        Entry<?> entry = iterator.next();
+        unregister( entry );
+        scopes.get( entry.owner ).remove( entry.name );
+      }
+    }
+  }
+
+  private void unregister( Entry<?> entry ) {
+    if ( entry.registered && entry.loaded ) {
+      memoryUsed -= entry.size;
+    }
+    entry.registered = false;
+  }
+
+  /**
+   * Removes the caches of a scope, the steps still using one keep it until they release it.
+   */
+  public synchronized void removeScope( Object owner ) {
+    Map<String, Entry<?>> entries = scopes.remove( owner );
+    if ( entries != null ) {
+      for ( Entry<?> entry : entries.values() ) {
+        unregister( entry );
+      }
+    }
+  }
+
+  private void removeWhenFinished( Object owner ) {
+    if ( owner instanceof Trans ) {
+      ( (Trans) owner ).addTransListener( new TransAdapter() {
+        @Override
+        public void transFinished( Trans trans ) {
+          removeScope( trans );
+        }
+      } );
+    } else if ( owner instanceof Job ) {
+      ( (Job) owner ).addJobListener( new JobAdapter() {
+        @Override
+        public void jobFinished( Job job ) {
+          removeScope( job );
+        }
+      } );
+    }
+  }
+
+  /**
+   * @return the estimated bytes of the caches in the registry
+   */
+  public synchronized long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  /**
+   * @return the number of caches in the registry
+   */
+  public synchronized int size() {
+    int size = 0;
+    for ( Map<String, Entry<?>> entries : scopes.values() ) {
+      size += entries.size();
+    }
+    return size;
+  }
+
+  private static class Entry<T> {
+    final Object owner;
+    final String name;
+    final long timeToLive;
+
+    // The value is guarded by the entry, the rest by the registry
+    //
+    T value;
+    boolean loaded;
+    long loadedAt;
+    long size;
+    int references;
+    boolean registered = true;
+
+    Entry( Object owner, String name, long timeToLive ) {
+      this.owner = owner;
+      this.name = name;
+      this.timeToLive = timeToLive;
+    }
+
+    boolean isExpired( long now ) {
+      return loaded && timeToLive > 0 && now - loadedAt >= timeToLive;
+    }
+  }
+
+  /**
+   * A cache a step uses, until it releases it.
+   */
+  public static class Reference<T> {
+    private final LookupCacheRegistry registry;
+    private final Entry<T> entry;
+    private final boolean shared;
+    private boolean released;
+
+    Reference( LookupCacheRegistry registry, Entry<T> entry, boolean shared ) {
+      this.registry = registry;
+      this.entry = entry;
+      this.shared = shared;
+    }
+
+    public T get() {
+      return entry.value;
+    }
+
+    /**
+     * @return true if the cache was loaded before, by another step or execution
+     */
+    public boolean isShared() {
+      return shared;
+    }
+
+    public void release() {
+      if ( !released ) {
+        released = true;
+        registry.release( entry );
+      }
+    }
+  }
+}
@@ -41,6 +41,23 @@ public interface RowHandler {
   void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                  String fieldNames, String errorCodes ) throws KettleStepException;
 
+  /**
+   * Gets up to max rows, by default one row at a time through {@link #getRow()}.
+   */
+  default Object[][] getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
+  /**
+   * Puts the first count rows, by default one row at a time through {@link #putRow(RowMetaInterface, Object[])}.
+   */
+  default void putRows( RowMetaInterface rowMeta, Object[][] rows, int count ) throws KettleStepException {
+    for ( int i = 0; i < count; i++ ) {
+      putRow( rowMeta, rows[i] );
+    }
+  }
+
   default void putRowTo( RowMetaInterface rowMeta, Object[] row, RowSet rowSet )
     throws KettleStepException {
     throw new UnsupportedOperationException(
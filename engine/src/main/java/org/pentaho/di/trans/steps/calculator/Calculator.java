@@ -19,7 +19,9 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileNotFoundException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -62,8 +64,8 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    RowBatch batch = getRowBatch( ROW_BATCH_SIZE, data.getBatch() ); // get rows, set busy!
+    if ( batch == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -144,38 +146,290 @@ public class Calculator extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[i] = tempIndexes.get( i );
       }
-    }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+      if ( isVectorizable() ) {
+        RowMetaInterface resultRowMeta = new RowMeta();
+        for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+          resultRowMeta.addValueMeta( data.getCalcRowMeta().getValueMeta( getInputRowMeta().size() + i ) );
+        }
+        data.setResultBatch( new RowBatch( resultRowMeta, ROW_BATCH_SIZE ) );
+      }
     }
+    data.setBatch( batch );
 
-    try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+    long previousLinesRead = getLinesRead() - batch.size();
+    if ( data.getResultBatch() != null && !log.isRowLevel() && isVectorizable( batch ) ) {
+      putRows( data.getOutputRowMeta(), calcFields( batch ), batch.size() );
+      if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+        }
+      }
+      return true;
+    }
 
+    Object[][] rows = batch.toRows();
+    Object[][] outputRows = new Object[rows.length][];
+    int nrOutputRows = 0;
+    for ( Object[] r : rows ) {
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+          + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
       }
-      if ( checkFeedback( getLinesRead() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+
+      try {
+        outputRows[nrOutputRows] = calcFields( getInputRowMeta(), r );
+        nrOutputRows++;
+
+        if ( log.isRowLevel() ) {
+          logRowlevel( "Wrote row #" + ( getLinesWritten() + nrOutputRows ) + " : "
+            + getInputRowMeta().getString( r ) );
+        }
+      } catch ( KettleFileNotFoundException e ) {
+        if ( meta.isFailIfNoFile() ) {
+          // The rows calculated before the failing one are still sent on
+          //
+          putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+          logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+          setErrors( getErrors() + 1 );
+          return false;
         }
+      } catch ( KettleException e ) {
+        putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+        logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
+        throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
+      }
+    }
+    putRows( data.getOutputRowMeta(), outputRows, nrOutputRows ); // copy rows to possible alternate rowset(s).
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The calculations can be done on the primitive columns of a batch when every one of them is simple arithmetic on
+   * Integer fields or on Number fields giving a field of the same type, so no conversions are involved. Integer
+   * division and remainder are left out: they fail on a zero divisor.
+   */
+  private boolean isVectorizable() {
+    RowMetaInterface calcRowMeta = data.getCalcRowMeta();
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      int type = calcRowMeta.getValueMeta( getInputRowMeta().size() + i ).getType();
+      if ( type != ValueMetaInterface.TYPE_INTEGER && type != ValueMetaInterface.TYPE_NUMBER ) {
+        return false;
+      }
+
+      switch ( fn.getCalcType() ) {
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+        case CalculatorMetaFunction.CALC_SQUARE:
+        case CalculatorMetaFunction.CALC_ABS:
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+        case CalculatorMetaFunction.CALC_NVL:
+          break;
+        case CalculatorMetaFunction.CALC_DIVIDE:
+        case CalculatorMetaFunction.CALC_REMAINDER:
+          if ( type != ValueMetaInterface.TYPE_NUMBER ) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+      if ( !hasType( indexes.indexA, type ) ) {
+        return false;
+      }
+      if ( usesB( fn.getCalcType() ) && ( Utils.isEmpty( fn.getFieldB() ) || !hasType( indexes.indexB, type ) ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean usesB( int calcType ) {
+    return calcType != CalculatorMetaFunction.CALC_COPY_OF_FIELD && calcType != CalculatorMetaFunction.CALC_SQUARE
+      && calcType != CalculatorMetaFunction.CALC_ABS;
+  }
+
+  private boolean hasType( int index, int type ) {
+    if ( index < 0 ) {
+      return false;
+    }
+    ValueMetaInterface valueMeta = data.getCalcRowMeta().getValueMeta( index );
+    return valueMeta.getType() == type && valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL;
+  }
+
+  /**
+   * @return true if the input fields the calculations use hold their values in primitive columns
+   */
+  private boolean isVectorizable( RowBatch batch ) {
+    int inputSize = batch.getRowMeta().size();
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      if ( !isPrimitive( batch, indexes.indexA, inputSize ) ) {
+        return false;
       }
-    } catch ( KettleFileNotFoundException e ) {
-      if ( meta.isFailIfNoFile() ) {
-        logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
-        setErrors( getErrors() + 1 );
+      if ( usesB( meta.getCalculation()[i].getCalcType() ) && !isPrimitive( batch, indexes.indexB, inputSize ) ) {
         return false;
       }
-    } catch ( KettleException e ) {
-      logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
-      throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
     }
     return true;
   }
 
+  private boolean isPrimitive( RowBatch batch, int index, int inputSize ) {
+    if ( index < 0 || index >= inputSize ) {
+      return true;
+    }
+    RowBatch.ColumnType columnType = batch.getColumnType( index );
+    return columnType == RowBatch.ColumnType.LONG || columnType == RowBatch.ColumnType.DOUBLE;
+  }
+
+  /**
+   * Does the calculations of {@link #isVectorizable()} column by column on the primitive values of a batch. The
+   * results go in a batch of the calculated fields, an argument is read from there when it's a calculated field.
+   *
+   * @param batch
+   *          the input rows
+   * @return the rows including the calculations, excluding the temporary values
+   */
+  private Object[][] calcFields( RowBatch batch ) {
+    int inputSize = batch.getRowMeta().size();
+    int nrRows = batch.size();
+    RowBatch results = data.getResultBatch();
+    results.clear();
+    for ( int r = 0; r < nrRows; r++ ) {
+      results.addRow();
+    }
+
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      int calcType = meta.getCalculation()[i].getCalcType();
+      int indexA = data.getFieldIndexes()[i].indexA;
+      int indexB = data.getFieldIndexes()[i].indexB;
+      RowBatch batchA = indexA < inputSize ? batch : results;
+      int columnA = indexA < inputSize ? indexA : indexA - inputSize;
+      RowBatch batchB = indexB < inputSize ? batch : results;
+      int columnB = indexB < inputSize ? indexB : indexB - inputSize;
+
+      if ( results.getColumnType( i ) == RowBatch.ColumnType.LONG ) {
+        for ( int r = 0; r < nrRows; r++ ) {
+          boolean nullA = batchA.isNull( r, columnA );
+          long a = batchA.getLong( r, columnA );
+          switch ( calcType ) {
+            case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+              if ( !nullA ) {
+                results.setLong( r, i, a );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_SQUARE:
+              if ( !nullA ) {
+                results.setLong( r, i, a * a );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_ABS:
+              if ( !nullA ) {
+                // The same as ValueDataUtil.abs(), which goes through a double
+                results.setLong( r, i, Math.abs( (long) (double) a ) );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_NVL:
+              if ( !nullA ) {
+                results.setLong( r, i, a );
+              } else if ( !batchB.isNull( r, columnB ) ) {
+                results.setLong( r, i, batchB.getLong( r, columnB ) );
+              }
+              break;
+            default:
+              if ( !nullA && !batchB.isNull( r, columnB ) ) {
+                long b = batchB.getLong( r, columnB );
+                switch ( calcType ) {
+                  case CalculatorMetaFunction.CALC_ADD:
+                    results.setLong( r, i, a + b );
+                    break;
+                  case CalculatorMetaFunction.CALC_SUBTRACT:
+                    results.setLong( r, i, a - b );
+                    break;
+                  default:
+                    results.setLong( r, i, a * b );
+                    break;
+                }
+              }
+              break;
+          }
+        }
+      } else {
+        for ( int r = 0; r < nrRows; r++ ) {
+          boolean nullA = batchA.isNull( r, columnA );
+          double a = batchA.getDouble( r, columnA );
+          switch ( calcType ) {
+            case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+              if ( !nullA ) {
+                results.setDouble( r, i, a );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_SQUARE:
+              if ( !nullA ) {
+                results.setDouble( r, i, a * a );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_ABS:
+              if ( !nullA ) {
+                results.setDouble( r, i, Math.abs( a ) );
+              }
+              break;
+            case CalculatorMetaFunction.CALC_NVL:
+              if ( !nullA ) {
+                results.setDouble( r, i, a );
+              } else if ( !batchB.isNull( r, columnB ) ) {
+                results.setDouble( r, i, batchB.getDouble( r, columnB ) );
+              }
+              break;
+            default:
+              if ( !nullA && !batchB.isNull( r, columnB ) ) {
+                double b = batchB.getDouble( r, columnB );
+                switch ( calcType ) {
+                  case CalculatorMetaFunction.CALC_ADD:
+                    results.setDouble( r, i, a + b );
+                    break;
+                  case CalculatorMetaFunction.CALC_SUBTRACT:
+                    results.setDouble( r, i, a - b );
+                    break;
+                  case CalculatorMetaFunction.CALC_MULTIPLY:
+                    results.setDouble( r, i, a * b );
+                    break;
+                  case CalculatorMetaFunction.CALC_DIVIDE:
+                    results.setDouble( r, i, a / b );
+                    break;
+                  default:
+                    results.setDouble( r, i, a % b );
+                    break;
+                }
+              }
+              break;
+          }
+        }
+      }
+    }
+
+    // Only now the values are boxed, for the rows that go to the next steps
+    //
+    Object[][] outputRows = new Object[nrRows][];
+    for ( int r = 0; r < nrRows; r++ ) {
+      Object[] calcData = RowDataUtil.resizeArray( batch.getRow( r ), data.getCalcRowMeta().size() );
+      for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+        calcData[inputSize + i] = results.getObject( r, i );
+      }
+      outputRows[r] = RowDataUtil.removeItems( calcData, data.getTempIndexes() );
+    }
+    return outputRows;
+  }
+
   /**
    * @param inputRowMeta
    *          the input row metadata
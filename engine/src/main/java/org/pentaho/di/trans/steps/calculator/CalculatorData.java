@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.calculator;
 
 import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
@@ -37,6 +38,9 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
+  private RowBatch batch;
+  private RowBatch resultBatch;
+
   public CalculatorData() {
     super();
     resultMetaMapping = new HashMap<Integer, ValueMetaInterface>();
@@ -74,6 +78,29 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  /**
+   * @return the batch the input rows are read in, its columns are reused
+   */
+  public RowBatch getBatch() {
+    return batch;
+  }
+
+  public void setBatch( RowBatch batch ) {
+    this.batch = batch;
+  }
+
+  /**
+   * @return the batch the calculated fields are stored in when the calculations are done column by column, null when
+   *         they're done row by row
+   */
+  public RowBatch getResultBatch() {
+    return resultBatch;
+  }
+
+  public void setResultBatch( RowBatch resultBatch ) {
+    this.resultBatch = resultBatch;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the next of a few bytes, the delimiter, the enclosure and the line ends, in a byte array. It reads the array a
+ * word of 8 bytes at a time and tests all the bytes of the word at once, with the bit tricks of SIMD within a
+ * register: a byte equal to the one we look for is zero after an xor and a zero byte lights up its high bit.<br>
+ * <br>
+ * This only works for single byte encodings, in a double byte encoding the bytes we look for are part of other
+ * characters as well.
+ */
+public class ByteScanner {
+
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle( long[].class, ByteOrder.LITTLE_ENDIAN );
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+  private final byte[] bytes;
+  private final long[] patterns;
+
+  /**
+   * @param bytes the bytes to look for
+   */
+  public ByteScanner( byte... bytes ) {
+    this.bytes = bytes.clone();
+    this.patterns = new long[ bytes.length ];
+    for ( int i = 0; i < bytes.length; i++ ) {
+      patterns[ i ] = ( bytes[ i ] & 0xFFL ) * ONES;
+    }
+  }
+
+  /**
+   * @param source the bytes to look in
+   * @param from   the first position to look at
+   * @param to     the position after the last one to look at
+   * @return the position of the first of the bytes we look for or the given end if there is none
+   */
+  public int indexOf( byte[] source, int from, int to ) {
+    int position = from;
+    for ( ; position + Long.BYTES <= to; position += Long.BYTES ) {
+      long word = (long) LONGS.get( source, position );
+      long found = 0L;
+      for ( long pattern : patterns ) {
+        found |= zeroBytes( word ^ pattern );
+      }
+      if ( found != 0L ) {
+        // Little endian: the first byte in the array is the lowest byte of the word
+        //
+        return position + ( Long.numberOfTrailingZeros( found ) >>> 3 );
+      }
+    }
+    for ( ; position < to; position++ ) {
+      for ( byte b : bytes ) {
+        if ( source[ position ] == b ) {
+          return position;
+        }
+      }
+    }
+    return to;
+  }
+
+  /**
+   * @return the word with the high bit of every zero byte set and all other bits cleared. Unlike the shorter
+   *         ( x - 0x01.. ) &amp; ~x &amp; 0x80.. there are no false hits after a zero byte.
+   */
+  static long zeroBytes( long word ) {
+    long sum = ( word & LOW_SEVEN_BITS ) + LOW_SEVEN_BITS;
+    return ~( sum | word | LOW_SEVEN_BITS );
+  }
+}
@@ -19,6 +19,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -93,6 +96,16 @@ public class CsvInput extends BaseStep implements StepInterface {
       //
       data.parallel = meta.isRunningInParallel() && data.totalNumberOfSteps > 1;
 
+      // A single step copy can parse the files with more threads, memory mapped and split on new lines.
+      // That takes a single byte new line and no new lines in the fields.
+      //
+      data.parseThreads = Const.toInt( environmentSubstitute( meta.getParseThreads() ), 1 );
+      if ( data.parseThreads > 1 && ( data.parallel || meta.isNewlinePossibleInFields()
+        || data.encodingType != EncodingType.SINGLE ) ) {
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.ParseThreadsNotPossible" ) );
+        data.parseThreads = 1;
+      }
+
       // The conversion logic for when the lazy conversion is turned of is simple:
       // Pretend it's a lazy conversion object anyway and get the native type during conversion.
       //
@@ -142,7 +155,7 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+      Object[] outputRowData = data.mappedReader != null ? readMappedRow() : readOneRow( false, false );
       // no more input to be expected...
       if ( outputRowData == null ) {
         if ( openNextFile() ) {
@@ -308,6 +321,14 @@ public class CsvInput extends BaseStep implements StepInterface {
       logError( "Error closing file input stream", e );
     }
 
+    try {
+      if ( data.mappedReader != null ) {
+        data.mappedReader.close();
+      }
+    } catch ( Exception e ) {
+      logError( "Error closing memory mapped file", e );
+    }
+
     super.dispose( smi, sdi );
   }
 
@@ -341,13 +362,22 @@ public class CsvInput extends BaseStep implements StepInterface {
 
       int bomSize = getBOMSize( vfsFilename );
 
-      data.fis = new FileInputStream( vfsFilename );
-      if ( 0 != bomSize ) {
-        data.fis.skip( bomSize );
-      }
+      if ( data.parseThreads > 1 ) {
+        FileChannel channel = FileChannel.open( Paths.get( vfsFilename ), StandardOpenOption.READ );
+        data.mappedReader =
+          new MappedCsvReader( channel, bomSize, data.fieldsMapping, data.outputRowMeta.size(), data.convertRowMeta,
+            meta.isLazyConversionActive(), data.delimiter, data.enclosure, MappedCsvReader.DEFAULT_CHUNK_SIZE,
+            MappedCsvReader.DEFAULT_WINDOW_SIZE );
+        data.mappedReader.start( getStepname() + " parser", data.parseThreads, !meta.isUnorderedOutput() );
+      } else {
+        data.fis = new FileInputStream( vfsFilename );
+        if ( 0 != bomSize ) {
+          data.fis.skip( bomSize );
+        }
 
-      data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+        data.fc = data.fis.getChannel();
+        data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+      }
 
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
@@ -395,7 +425,11 @@ public class CsvInput extends BaseStep implements StepInterface {
       if ( meta.isHeaderPresent() ) {
         // Standard flat file : skip header
         if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
-          readOneRow( true, false ); // skip this row.
+          if ( data.mappedReader != null ) {
+            data.mappedReader.skipLine();
+          } else {
+            readOneRow( true, false ); // skip this row.
+          }
           logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
           if ( data.fieldsMapping.size() == 0 ) {
             return false;
@@ -549,6 +583,46 @@ public class CsvInput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Takes the next row parsed by the threads of the memory mapped file and adds the filename and the row number.
+   *
+   * @return a row of data or null at the end of the file
+   */
+  private Object[] readMappedRow() throws KettleException {
+    Object[] outputRowData;
+    KettleConversionException conversionException = null;
+    try {
+      outputRowData = data.mappedReader.getRow();
+    } catch ( KettleConversionException e ) {
+      outputRowData = e.getRowData();
+      conversionException = e;
+    }
+    if ( outputRowData == null ) {
+      return null;
+    }
+
+    if ( meta.isIncludingFilename() && !Utils.isEmpty( meta.getFilenameField() ) ) {
+      if ( meta.isLazyConversionActive() ) {
+        outputRowData[ data.filenameFieldIndex ] = data.binaryFilename;
+      } else {
+        outputRowData[ data.filenameFieldIndex ] = data.filenames[ data.filenr - 1 ];
+      }
+    }
+
+    if ( data.isAddingRowNumber ) {
+      outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+    }
+
+    incrementLinesInput();
+
+    if ( conversionException != null ) {
+      throw new KettleConversionException(
+        "There were " + conversionException.getCauses().size() + " conversion errors on line " + getLinesInput(),
+        conversionException.getCauses(), conversionException.getFields(), outputRowData );
+    }
+    return outputRowData;
+  }
+
   /**
    * Read a single row of data from the file...
    *
@@ -664,7 +738,7 @@ public class CsvInput extends BaseStep implements StepInterface {
               enclosureFound = true;
               boolean keepGoing;
               do {
-                if ( data.moveEndBufferPointer() ) {
+                if ( data.moveEndBufferPointerInEnclosure() ) {
                   enclosureFound = false;
                   break;
                 }
@@ -699,7 +773,7 @@ public class CsvInput extends BaseStep implements StepInterface {
               ignoreEnclosuresInField = true;
             }
           } else {
-            if ( data.moveEndBufferPointer() ) {
+            if ( data.moveEndBufferPointerInField() ) {
               endOfBuffer = true;
               break;
             }
@@ -715,21 +789,23 @@ public class CsvInput extends BaseStep implements StepInterface {
         // data.byteBuffer[data.startBuffer]
         //
 
-        byte[] field = data.getField( delimiterFound, enclosureFound, newLineFound, endOfBuffer );
-
-        // Did we have any escaped characters in there?
-        //
-        if ( escapedEnclosureFound > 0 ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Escaped enclosures found in " + new String( field ) );
-          }
-          field = data.removeEscapedEnclosures( field, escapedEnclosureFound );
-        }
-
         final int currentFieldIndex = outputIndex++;
         final int actualFieldIndex = data.fieldsMapping.fieldMetaIndex( currentFieldIndex );
         if ( actualFieldIndex != FieldsMapping.FIELD_DOES_NOT_EXIST ) {
           if ( !skipRow ) {
+            // Only the fields we pass on are copied out of the buffer
+            //
+            byte[] field = data.getField( delimiterFound, enclosureFound, newLineFound, endOfBuffer );
+
+            // Did we have any escaped characters in there?
+            //
+            if ( escapedEnclosureFound > 0 ) {
+              if ( log.isRowLevel() ) {
+                logRowlevel( "Escaped enclosures found in " + new String( field ) );
+              }
+              field = data.removeEscapedEnclosures( field, escapedEnclosureFound );
+            }
+
             if ( meta.isLazyConversionActive() ) {
               outputRowData[actualFieldIndex] = field;
             } else {
@@ -947,6 +1023,16 @@ public class CsvInput extends BaseStep implements StepInterface {
         }
       }
 
+      // In a single byte encoding the bytes in between the delimiters and line ends are skipped a word at a time.
+      // An enclosure only counts at the start of a field, the field scanner doesn't need to stop at one.
+      //
+      if ( data.encodingType == EncodingType.SINGLE && data.delimiter.length > 0 ) {
+        data.fieldScanner = new ByteScanner( data.delimiter[ 0 ], (byte) '\r', (byte) '\n' );
+        if ( data.enclosure != null ) {
+          data.enclosureScanner = new ByteScanner( data.enclosure[ 0 ] );
+        }
+      }
+
       switch ( data.encodingType ) {
         case DOUBLE_BIG_ENDIAN:
           data.crLfMatcher = new MultiByteBigCrLfMatcher();
@@ -71,9 +71,14 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   public PatternMatcherInterface delimiterMatcher;
   public PatternMatcherInterface enclosureMatcher;
   public CrLfMatcherInterface crLfMatcher;
+  public ByteScanner fieldScanner;
+  public ByteScanner enclosureScanner;
 
   public FieldsMapping fieldsMapping;
 
+  public int parseThreads;
+  public MappedCsvReader mappedReader;
+
   /**
    * Data class for CsvInput step
    *
@@ -192,6 +197,40 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     return moveEndBufferPointer( true );
   }
 
+  /**
+   * Moves the endBuffer pointer by one and then past the bytes that can't start a delimiter, an enclosure or a line
+   * end, a word at a time. Without a scanner it only moves by one.
+   *
+   * @return true if we reached the end of the byte buffer.
+   * @throws IOException
+   *           In case we get an error reading from the input file.
+   */
+  boolean moveEndBufferPointerInField() throws IOException {
+    return moveEndBufferPointerTo( fieldScanner );
+  }
+
+  /**
+   * Moves the endBuffer pointer by one and then up to the next enclosure, a word at a time. Without a scanner it only
+   * moves by one.
+   *
+   * @return true if we reached the end of the byte buffer.
+   * @throws IOException
+   *           In case we get an error reading from the input file.
+   */
+  boolean moveEndBufferPointerInEnclosure() throws IOException {
+    return moveEndBufferPointerTo( enclosureScanner );
+  }
+
+  private boolean moveEndBufferPointerTo( ByteScanner scanner ) throws IOException {
+    if ( scanner == null || endBuffer + 1 >= bufferSize ) {
+      return moveEndBufferPointer();
+    }
+    int next = scanner.indexOf( byteBuffer, endBuffer + 1, bufferSize );
+    totalBytesRead += next - endBuffer;
+    endBuffer = next;
+    return resizeBufferIfNeeded();
+  }
+
   void moveEndBufferPointerXTimes( int xTimes ) throws IOException {
     for ( int i = 0; i < xTimes; i++ ) {
       moveEndBufferPointer( true );
@@ -259,6 +298,10 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   void closeFile() throws KettleException {
     try {
+      if ( mappedReader != null ) {
+        mappedReader.close();
+        mappedReader = null;
+      }
       if ( fc != null ) {
         fc.close();
       }
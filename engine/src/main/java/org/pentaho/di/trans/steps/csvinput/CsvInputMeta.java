@@ -101,6 +101,10 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
 
   private boolean newlinePossibleInFields;
 
+  private String parseThreads;
+
+  private boolean unorderedOutput;
+
   public CsvInputMeta() {
     super(); // allocate BaseStepMeta
     allocate( 0 );
@@ -159,6 +163,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       }
       fileFormat = XMLHandler.getTagValue( stepnode, getXmlCode( "FORMAT" ) );
       encoding = XMLHandler.getTagValue( stepnode, getXmlCode( "ENCODING" ) );
+      parseThreads = XMLHandler.getTagValue( stepnode, getXmlCode( "PARSE_THREADS" ) );
+      unorderedOutput = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, getXmlCode( "UNORDERED_OUTPUT" ) ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, getXmlCode( "FIELDS" ) );
       int nrfields = XMLHandler.countNodes( fields, getXmlCode( "FIELD" ) );
@@ -213,6 +219,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       XMLHandler.addTagValue( getXmlCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "FORMAT" ), fileFormat ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "ENCODING" ), encoding ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "PARSE_THREADS" ), parseThreads ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "UNORDERED_OUTPUT" ), unorderedOutput ) );
 
     retval.append( "    " ).append( XMLHandler.openTag( getXmlCode( "FIELDS" ) ) ).append( Const.CR );
     for ( int i = 0; i < inputFields.length; i++ ) {
@@ -262,6 +270,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
         rep.getStepAttributeBoolean( id_step, 0, getRepCode( "NEWLINE_POSSIBLE" ), !runningInParallel );
       fileFormat = rep.getStepAttributeString( id_step, getRepCode( "FORMAT" ) );
       encoding = rep.getStepAttributeString( id_step, getRepCode( "ENCODING" ) );
+      parseThreads = rep.getStepAttributeString( id_step, getRepCode( "PARSE_THREADS" ) );
+      unorderedOutput = rep.getStepAttributeBoolean( id_step, getRepCode( "UNORDERED_OUTPUT" ) );
 
       int nrfields = rep.countNrStepAttributes( id_step, getRepCode( "FIELD_NAME" ) );
 
@@ -308,6 +318,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           id_transformation, id_step, getRepCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "FORMAT" ), fileFormat );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "ENCODING" ), encoding );
+      rep.saveStepAttribute( id_transformation, id_step, getRepCode( "PARSE_THREADS" ), parseThreads );
+      rep.saveStepAttribute( id_transformation, id_step, getRepCode( "UNORDERED_OUTPUT" ), unorderedOutput );
 
       for ( int i = 0; i < inputFields.length; i++ ) {
         TextFileInputField field = inputFields[i];
@@ -852,6 +864,10 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           fileFormat = (String) entry.getValue();
         } else if ( attr.getKey().equals( "ENCODING" ) ) {
           encoding = (String) entry.getValue();
+        } else if ( attr.getKey().equals( "PARSE_THREADS" ) ) {
+          parseThreads = (String) entry.getValue();
+        } else if ( attr.getKey().equals( "UNORDERED_OUTPUT" ) ) {
+          unorderedOutput = (Boolean) entry.getValue();
         } else {
           throw new RuntimeException( "Unhandled metadata injection of attribute: "
             + attr.toString() + " - " + attr.getDescription() );
@@ -934,6 +950,36 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     this.newlinePossibleInFields = newlinePossibleInFields;
   }
 
+  /**
+   * @return the number of threads to parse a single file with, memory mapped. Empty or 1 reads it in the step thread.
+   */
+  public String getParseThreads() {
+    return parseThreads;
+  }
+
+  /**
+   * @param parseThreads
+   *          the number of threads to parse a single file with
+   */
+  public void setParseThreads( String parseThreads ) {
+    this.parseThreads = parseThreads;
+  }
+
+  /**
+   * @return true if the rows parsed by more threads may come out of the order of the file
+   */
+  public boolean isUnorderedOutput() {
+    return unorderedOutput;
+  }
+
+  /**
+   * @param unorderedOutput
+   *          true if the rows parsed by more threads may come out of the order of the file
+   */
+  public void setUnorderedOutput( boolean unorderedOutput ) {
+    this.unorderedOutput = unorderedOutput;
+  }
+
   @Override
   public FileObject getHeaderFileObject( final TransMeta transMeta ) {
     final String filename = transMeta.environmentSubstitute( getFilename() );
@@ -0,0 +1,445 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.exception.KettleConversionException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Reads a single CSV file with more threads. The file is memory mapped in large windows, a window is split in chunks
+ * ending on a new line and the chunks are parsed at the same time on a pool of threads. The rows come back either in
+ * the order of the file or in the order the chunks are parsed.<br>
+ * <br>
+ * Splitting on new lines means there can't be new lines in the fields, the same as for the parallel reading of the
+ * step copies. The file has to be in a single byte encoding, or UTF-8, so a new line is a byte of its own.
+ */
+public class MappedCsvReader {
+
+  public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+  public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024 * 1024;
+
+  /**
+   * The rows of a chunk in the order of the lines, with the conversion errors by row index.
+   */
+  static class Chunk {
+    final List<Object[]> rows = new ArrayList<>();
+    Map<Integer, KettleConversionException> errors;
+  }
+
+  /**
+   * Parses chunks in a thread. The value metadata converts values with formats of its own, every thread gets a copy.
+   */
+  private class Parser {
+    private final RowMetaInterface convertRowMeta;
+    private byte[] bytes = new byte[ 0 ];
+
+    Parser() {
+      this.convertRowMeta = lazyConversion ? null : MappedCsvReader.this.convertRowMeta.clone();
+    }
+
+    Chunk parse( ByteBuffer buffer ) {
+      int length = buffer.remaining();
+      if ( bytes.length < length ) {
+        bytes = new byte[ length ];
+      }
+      buffer.get( bytes, 0, length );
+
+      Chunk chunk = new Chunk();
+      int position = 0;
+      while ( position < length ) {
+        position = parseLine( chunk, position, length );
+      }
+      return chunk;
+    }
+
+    /**
+     * @return the position of the next line
+     */
+    private int parseLine( Chunk chunk, int position, int length ) {
+      Object[] row = RowDataUtil.allocateRowData( outputSize );
+      List<Exception> conversionExceptions = null;
+      List<ValueMetaInterface> exceptionFields = null;
+
+      int fieldNr = 0;
+      boolean endOfLine = false;
+      while ( !endOfLine ) {
+        int fieldStart = position;
+        int fieldEnd = -1;
+        int escapedEnclosures = 0;
+
+        // An enclosed field runs to the next enclosure that isn't doubled, doubled ones are escaped. There are no new
+        // lines in the fields, a missing enclosure ends at the end of the line.
+        //
+        if ( enclosure != null && matches( bytes, position, length, enclosure ) ) {
+          position += enclosure.length;
+          fieldStart = position;
+          while ( true ) {
+            position = enclosureScanner.indexOf( bytes, position, length );
+            if ( position >= length || isNewline( bytes[ position ] ) ) {
+              break;
+            }
+            if ( matches( bytes, position, length, enclosure ) ) {
+              if ( !matches( bytes, position + enclosure.length, length, enclosure ) ) {
+                break;
+              }
+              escapedEnclosures++;
+              position += 2 * enclosure.length;
+            } else {
+              position++;
+            }
+          }
+          fieldEnd = Math.min( position, length );
+          position = Math.min( position + enclosure.length, length );
+        }
+
+        // Whatever follows up to the delimiter or the end of the line
+        //
+        while ( true ) {
+          position = fieldScanner.indexOf( bytes, position, length );
+          if ( position >= length || isNewline( bytes[ position ] ) || matches( bytes, position, length, delimiter ) ) {
+            break;
+          }
+          position++;
+        }
+        if ( fieldEnd < 0 ) {
+          fieldEnd = position;
+        }
+
+        int fieldIndex = fieldsMapping.fieldMetaIndex( fieldNr++ );
+        if ( fieldIndex != FieldsMapping.FIELD_DOES_NOT_EXIST ) {
+          byte[] field = getField( fieldStart, fieldEnd, escapedEnclosures );
+          if ( lazyConversion ) {
+            row[ fieldIndex ] = field;
+          } else {
+            ValueMetaInterface sourceValueMeta = convertRowMeta.getValueMeta( fieldIndex );
+            try {
+              row[ fieldIndex ] = sourceValueMeta.convertBinaryStringToNativeType( field );
+            } catch ( KettleValueException e ) {
+              if ( conversionExceptions == null ) {
+                conversionExceptions = new ArrayList<>();
+                exceptionFields = new ArrayList<>();
+              }
+              conversionExceptions.add( e );
+              exceptionFields.add( sourceValueMeta );
+            }
+          }
+        }
+
+        if ( position >= length ) {
+          endOfLine = true;
+        } else if ( isNewline( bytes[ position ] ) ) {
+          endOfLine = true;
+          position = skipNewline( bytes, position, length );
+        } else {
+          position += delimiter.length;
+        }
+      }
+
+      if ( conversionExceptions != null ) {
+        if ( chunk.errors == null ) {
+          chunk.errors = new HashMap<>();
+        }
+        chunk.errors.put( chunk.rows.size(), new KettleConversionException( "There were "
+          + conversionExceptions.size() + " conversion errors", conversionExceptions, exceptionFields, row ) );
+      }
+      chunk.rows.add( row );
+      return position;
+    }
+
+    private byte[] getField( int fieldStart, int fieldEnd, int escapedEnclosures ) {
+      if ( escapedEnclosures == 0 ) {
+        byte[] field = new byte[ Math.max( fieldEnd - fieldStart, 0 ) ];
+        System.arraycopy( bytes, fieldStart, field, 0, field.length );
+        return field;
+      }
+
+      // [abcd "" defg] --> [abcd " defg]
+      //
+      byte[] field = new byte[ fieldEnd - fieldStart - escapedEnclosures * enclosure.length ];
+      int index = 0;
+      int i = fieldStart;
+      while ( i < fieldEnd ) {
+        if ( matches( bytes, i, fieldEnd, enclosure ) && matches( bytes, i + enclosure.length, fieldEnd, enclosure ) ) {
+          System.arraycopy( bytes, i, field, index, enclosure.length );
+          index += enclosure.length;
+          i += 2 * enclosure.length;
+        } else {
+          field[ index++ ] = bytes[ i++ ];
+        }
+      }
+      return field;
+    }
+  }
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final FieldsMapping fieldsMapping;
+  private final int outputSize;
+  private final RowMetaInterface convertRowMeta;
+  private final boolean lazyConversion;
+  private final byte[] delimiter;
+  private final byte[] enclosure;
+  private final ByteScanner fieldScanner;
+  private final ByteScanner enclosureScanner;
+  private final int chunkSize;
+  private final int windowSize;
+
+  private long position;
+  private ByteBuffer window;
+  private long windowStart;
+
+  private boolean ordered;
+  private int maxInFlight;
+  private ExecutorService executor;
+  private ThreadLocal<Parser> parsers;
+  private final Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+  private CompletionService<Chunk> completionService;
+  private int nrInFlight;
+
+  private Chunk chunk;
+  private int rowIndex;
+
+  /**
+   * @param channel        the file to read
+   * @param startPosition  the position to start reading at, after a byte order mark
+   * @param fieldsMapping  the fields of the file to put in the rows
+   * @param outputSize     the size of the rows
+   * @param convertRowMeta the binary string layout of the rows to convert the fields with
+   * @param lazyConversion true to leave the fields binary strings
+   * @param delimiter      the delimiter between the fields
+   * @param enclosure      the enclosure around the fields or null
+   * @param chunkSize      the number of bytes to parse at once
+   * @param windowSize     the number of bytes to map at once, large files are mapped window by window
+   */
+  public MappedCsvReader( FileChannel channel, long startPosition, FieldsMapping fieldsMapping, int outputSize,
+                          RowMetaInterface convertRowMeta, boolean lazyConversion, byte[] delimiter,
+                          byte[] enclosure, int chunkSize, int windowSize ) throws IOException {
+    this.channel = channel;
+    this.fileSize = channel.size();
+    this.position = startPosition;
+    this.fieldsMapping = fieldsMapping;
+    this.outputSize = outputSize;
+    this.convertRowMeta = convertRowMeta;
+    this.lazyConversion = lazyConversion;
+    this.delimiter = delimiter;
+    this.enclosure = enclosure;
+    this.fieldScanner = new ByteScanner( delimiter[ 0 ], (byte) '\r', (byte) '\n' );
+    this.enclosureScanner = enclosure == null ? null : new ByteScanner( enclosure[ 0 ], (byte) '\r', (byte) '\n' );
+    this.windowSize = windowSize;
+    this.chunkSize = Math.max( Math.min( chunkSize, windowSize / 2 ), 1 );
+  }
+
+  /**
+   * Skips the first line, the header.
+   */
+  public void skipLine() throws KettleException {
+    split( 0 );
+  }
+
+  /**
+   * Starts parsing the chunks.
+   *
+   * @param threadName the name of the threads
+   * @param nrThreads  the number of threads to parse with
+   * @param ordered    true to give the rows back in the order of the file
+   */
+  public void start( String threadName, int nrThreads, boolean ordered ) {
+    this.ordered = ordered;
+    this.maxInFlight = nrThreads * 2;
+    executor = Executors.newFixedThreadPool( nrThreads, runnable -> {
+      Thread thread = new Thread( runnable, threadName );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    parsers = ThreadLocal.withInitial( Parser::new );
+    if ( !ordered ) {
+      completionService = new ExecutorCompletionService<>( executor );
+    }
+  }
+
+  /**
+   * @return the next row or null if the file is read
+   * @throws KettleConversionException for a row with fields that couldn't be converted, the row is in the exception
+   */
+  public Object[] getRow() throws KettleException {
+    while ( chunk == null || rowIndex >= chunk.rows.size() ) {
+      chunk = nextChunk();
+      rowIndex = 0;
+      if ( chunk == null ) {
+        return null;
+      }
+    }
+    int index = rowIndex++;
+    KettleConversionException error = chunk.errors == null ? null : chunk.errors.get( index );
+    if ( error != null ) {
+      throw error;
+    }
+    return chunk.rows.get( index );
+  }
+
+  private Chunk nextChunk() throws KettleException {
+    // Keep the threads busy
+    //
+    while ( ( ordered ? inFlight.size() : nrInFlight ) < maxInFlight ) {
+      ByteBuffer buffer = split( chunkSize );
+      if ( buffer == null ) {
+        break;
+      }
+      if ( ordered ) {
+        inFlight.add( executor.submit( () -> parsers.get().parse( buffer ) ) );
+      } else {
+        completionService.submit( () -> parsers.get().parse( buffer ) );
+        nrInFlight++;
+      }
+    }
+
+    try {
+      if ( ordered ) {
+        Future<Chunk> next = inFlight.poll();
+        return next == null ? null : next.get();
+      }
+      if ( nrInFlight == 0 ) {
+        return null;
+      }
+      nrInFlight--;
+      return completionService.take().get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( e.getCause() );
+    }
+  }
+
+  /**
+   * Cuts off the next chunk: the given number of bytes and the rest of the line. A window is mapped again at the
+   * chunk when the line runs past its end.
+   *
+   * @return the chunk or null at the end of the file
+   */
+  ByteBuffer split( int size ) throws KettleException {
+    try {
+      if ( position >= fileSize ) {
+        return null;
+      }
+      if ( window == null || position - windowStart + size > window.limit() ) {
+        mapWindow();
+      }
+      while ( true ) {
+        int from = (int) ( position - windowStart );
+        int limit = window.limit();
+        boolean lastWindow = windowStart + limit >= fileSize;
+        int end = findLineEnd( window, Math.min( from + size, limit ), limit, lastWindow );
+        if ( end < 0 ) {
+          if ( from == 0 ) {
+            throw new KettleFileException( "Unable to find the end of the line at byte " + position
+              + ", a line can't be longer than " + windowSize + " bytes" );
+          }
+          mapWindow();
+          continue;
+        }
+        ByteBuffer buffer = window.duplicate();
+        buffer.limit( end );
+        buffer.position( from );
+        position = windowStart + end;
+        return buffer.slice();
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Exception mapping the file", e );
+    }
+  }
+
+  private void mapWindow() throws IOException {
+    windowStart = position;
+    window = channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( windowSize, fileSize - position ) );
+  }
+
+  /**
+   * @return the position after the first new line from the given position, -1 if the window ends before a new line
+   */
+  static int findLineEnd( ByteBuffer buffer, int from, int limit, boolean lastWindow ) {
+    // A carriage return needs the next byte in the window to see if a line feed follows
+    //
+    int searchLimit = lastWindow ? limit : limit - 1;
+    for ( int i = from; i < searchLimit; i++ ) {
+      byte b = buffer.get( i );
+      if ( isNewline( b ) ) {
+        return b == '\r' && i + 1 < limit && buffer.get( i + 1 ) == '\n' ? i + 2 : i + 1;
+      }
+    }
+    return lastWindow ? limit : -1;
+  }
+
+  private static boolean isNewline( byte b ) {
+    return b == '\n' || b == '\r';
+  }
+
+  private static int skipNewline( byte[] bytes, int position, int length ) {
+    if ( bytes[ position ] == '\r' && position + 1 < length && bytes[ position + 1 ] == '\n' ) {
+      return position + 2;
+    }
+    return position + 1;
+  }
+
+  private static boolean matches( byte[] bytes, int position, int length, byte[] pattern ) {
+    if ( position + pattern.length > length ) {
+      return false;
+    }
+    for ( int i = 0; i < pattern.length; i++ ) {
+      if ( bytes[ position + i ] != pattern[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops the threads and closes the file.
+   */
+  public void close() throws IOException {
+    if ( executor != null ) {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    window = null;
+    channel.close();
+  }
+}
@@ -0,0 +1,379 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseInterface;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Looks up the keys of many rows with one query, {@code WHERE key IN ( ?, ?, ... )} or an OR of the key conditions
+ * when there are more key fields. The rows wait in a batch until it holds enough distinct keys, and are put in the
+ * order they came in once the batch is looked up.<br>
+ * <br>
+ * Batches can be looked up ahead on a connection of their own while the step keeps reading rows, which turns the
+ * latency of the database into throughput.<br>
+ * <br>
+ * The rows found are matched to the keys on the key values the table returns, converted to the types of the keys
+ * looked up. A key without a match has no row in the table, unless it's a string or a floating point number: the
+ * database can compare those differently (padded CHAR values, case or accent insensitive collations, REAL columns).
+ * The step looks those up on their own, once per batch.
+ */
+public class BatchLookup {
+
+  /** The rows found in the cache don't add keys to a batch, this bounds the number of rows waiting in one */
+  static final int MAX_ROWS_PER_KEY = 10;
+
+  private final Database db;
+  private final String sql;
+  private final int batchSize;
+  private final int nrValues;
+  private final boolean failingOnMultipleResults;
+  private final ExecutorService executor;
+
+  private RowMetaInterface paramsMeta;
+  private PreparedStatement statement;
+
+  /**
+   * @param db                       the connection the batches are looked up on
+   * @param sql                      the query of a full batch, see {@link #getSQL}
+   * @param batchSize                the number of distinct keys in a batch
+   * @param nrValues                 the number of values returned, the key fields of the table follow them
+   * @param failingOnMultipleResults true to fail when a key finds more than one row
+   * @param lookAhead                true to look up the batches in a thread of their own
+   */
+  public BatchLookup( Database db, String sql, int batchSize, int nrValues, boolean failingOnMultipleResults,
+                      boolean lookAhead ) {
+    this.db = db;
+    this.sql = sql;
+    this.batchSize = batchSize;
+    this.nrValues = nrValues;
+    this.failingOnMultipleResults = failingOnMultipleResults;
+    this.executor = lookAhead ? Executors.newSingleThreadExecutor( runnable -> {
+      Thread thread = new Thread( runnable, "Database lookup batches" );
+      thread.setDaemon( true );
+      return thread;
+    } ) : null;
+  }
+
+  /**
+   * Builds the query of a batch: the values returned, then the key fields of the table to tell the keys apart.
+   */
+  public static String getSQL( DatabaseMeta databaseMeta, String schemaTable, String[] keyFields,
+                               String[] returnFields, String[] renames, String orderBy, int batchSize ) {
+    StringBuilder sql = new StringBuilder( "SELECT " );
+    for ( int i = 0; i < returnFields.length; i++ ) {
+      sql.append( databaseMeta.quoteField( returnFields[ i ] ) );
+      if ( renames != null && renames[ i ] != null && !returnFields[ i ].equalsIgnoreCase( renames[ i ] ) ) {
+        sql.append( " AS " ).append( databaseMeta.quoteField( renames[ i ] ) );
+      }
+      sql.append( ", " );
+    }
+    for ( int i = 0; i < keyFields.length; i++ ) {
+      if ( i > 0 ) {
+        sql.append( ", " );
+      }
+      sql.append( databaseMeta.quoteField( keyFields[ i ] ) );
+    }
+    sql.append( " FROM " ).append( schemaTable ).append( " WHERE " );
+
+    if ( keyFields.length == 1 ) {
+      sql.append( databaseMeta.quoteField( keyFields[ 0 ] ) ).append( " IN ( " );
+      for ( int b = 0; b < batchSize; b++ ) {
+        sql.append( b > 0 ? ", ?" : "?" );
+      }
+      sql.append( " )" );
+    } else {
+      for ( int b = 0; b < batchSize; b++ ) {
+        sql.append( b > 0 ? " OR ( " : "( " );
+        for ( int i = 0; i < keyFields.length; i++ ) {
+          if ( i > 0 ) {
+            sql.append( " AND " );
+          }
+          sql.append( databaseMeta.quoteField( keyFields[ i ] ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+    }
+
+    if ( !Utils.isEmpty( orderBy ) ) {
+      sql.append( " ORDER BY " ).append( orderBy );
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the batch size asked for, reduced to what one query of the database can take: the parameters of a
+   *         statement, and the values of an IN list with one key field
+   */
+  public static int getBatchSize( DatabaseInterface databaseInterface, int nrKeyFields, int batchSize ) {
+    int nrParameters = Math.max( 1, nrKeyFields );
+    batchSize = Math.min( batchSize, databaseInterface.getMaxStatementParameters() / nrParameters );
+    if ( nrKeyFields == 1 ) {
+      batchSize = Math.min( batchSize, databaseInterface.getMaxInListSize() );
+    }
+    return batchSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Starts to look up a batch, in the thread of its own or right away.
+   *
+   * @param lookupMeta the meta of the keys, the same for every batch
+   */
+  public void submit( Batch batch, RowMetaInterface lookupMeta ) throws KettleException {
+    if ( paramsMeta == null ) {
+      paramsMeta = new RowMeta();
+      for ( int b = 0; b < batchSize; b++ ) {
+        for ( int i = 0; i < lookupMeta.size(); i++ ) {
+          paramsMeta.addValueMeta( lookupMeta.getValueMeta( i ).clone() );
+        }
+      }
+    }
+    if ( batch.keys.isEmpty() ) {
+      // Every row was found in the cache
+      return;
+    }
+    if ( executor == null ) {
+      lookup( batch, lookupMeta );
+    } else {
+      batch.future = executor.submit( () -> {
+        lookup( batch, lookupMeta );
+        return null;
+      } );
+    }
+  }
+
+  /**
+   * Waits until a batch is looked up.
+   */
+  public void await( Batch batch ) throws KettleException {
+    if ( batch.future == null ) {
+      return;
+    }
+    try {
+      batch.future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleException ) {
+        throw (KettleException) e.getCause();
+      }
+      throw new KettleException( e.getCause() );
+    } finally {
+      batch.future = null;
+    }
+  }
+
+  private void lookup( Batch batch, RowMetaInterface lookupMeta ) throws KettleException {
+    int nrKeys = lookupMeta.size();
+    Object[] params = new Object[ batchSize * nrKeys ];
+    int index = 0;
+    Object[] key = null;
+    for ( RowMetaAndData distinctKey : batch.keys ) {
+      key = distinctKey.getData();
+      System.arraycopy( key, 0, params, index, nrKeys );
+      index += nrKeys;
+    }
+    // A batch that isn't full looks up its last key again, so every batch shares one statement
+    //
+    while ( index < params.length ) {
+      System.arraycopy( key, 0, params, index, nrKeys );
+      index += nrKeys;
+    }
+
+    if ( statement == null ) {
+      statement = db.prepareSQL( sql );
+    }
+    try ( ResultSet resultSet = db.openQuery( statement, paramsMeta, params ) ) {
+      RowMetaInterface rowMeta = db.getReturnRowMeta();
+      for ( Object[] row = db.getRow( resultSet ); row != null; row = db.getRow( resultSet ) ) {
+        // The key fields of the table can have other types than the keys looked up
+        //
+        Object[] found = new Object[ nrKeys ];
+        for ( int i = 0; i < nrKeys; i++ ) {
+          found[ i ] = lookupMeta.getValueMeta( i ).convertData( rowMeta.getValueMeta( nrValues + i ),
+            row[ nrValues + i ] );
+        }
+        Object[] values = Arrays.copyOf( row, nrValues );
+        Object[] previous = batch.rows.putIfAbsent( toKey( lookupMeta, found ), values );
+        if ( previous != null && failingOnMultipleResults ) {
+          throw new KettleDatabaseException(
+            "Only 1 row was expected as a result of a lookup, and at least 2 were found!" );
+        }
+      }
+      batch.returnRowMeta = rowMeta;
+      batch.checkingMisses = isComparedDifferently( lookupMeta, rowMeta );
+    } catch ( SQLException e ) {
+      throw new KettleDatabaseException( "Error looking up a batch of rows in database", e );
+    }
+  }
+
+  /**
+   * @return true if the database can find a row for a key of a string or a floating point number with key values that
+   *         aren't equal to the key looked up
+   */
+  private boolean isComparedDifferently( RowMetaInterface lookupMeta, RowMetaInterface rowMeta ) {
+    for ( int i = 0; i < lookupMeta.size(); i++ ) {
+      if ( isComparedDifferently( lookupMeta.getValueMeta( i ) )
+        || isComparedDifferently( rowMeta.getValueMeta( nrValues + i ) ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isComparedDifferently( ValueMetaInterface valueMeta ) {
+    return valueMeta == null || valueMeta.isString() || valueMeta.getType() == ValueMetaInterface.TYPE_NUMBER;
+  }
+
+  /**
+   * Normalizes the values of a key the database compares as equal, but Java doesn't: big numbers with another scale.
+   */
+  static RowMetaAndData toKey( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+    Object[] key = lookupRow;
+    for ( int i = 0; i < lookupRow.length; i++ ) {
+      if ( lookupRow[ i ] instanceof BigDecimal ) {
+        if ( key == lookupRow ) {
+          key = lookupRow.clone();
+        }
+        key[ i ] = ( (BigDecimal) lookupRow[ i ] ).stripTrailingZeros();
+      }
+    }
+    return new RowMetaAndData( lookupMeta, key );
+  }
+
+  /**
+   * Stops looking up batches and closes the statement, the connection belongs to the step.
+   */
+  public void close() throws KettleDatabaseException {
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+    if ( statement != null ) {
+      db.closePreparedStatement( statement );
+      statement = null;
+    }
+  }
+
+  /**
+   * The rows waiting for the values of their keys.
+   */
+  public static class Batch {
+    private final List<Object[]> inputRows = new ArrayList<>();
+    private final List<Object[]> lookupRows = new ArrayList<>();
+    private final List<Object[]> cachedRows = new ArrayList<>();
+    private final Set<RowMetaAndData> keys = new LinkedHashSet<>();
+    private final Map<RowMetaAndData, Object[]> rows = new HashMap<>();
+    private final Set<RowMetaAndData> missing = new HashSet<>();
+    private boolean checkingMisses;
+    private RowMetaInterface returnRowMeta;
+    private Future<?> future;
+
+    /**
+     * @param cached the values found in the cache, null to look the key up
+     */
+    public void add( RowMetaInterface lookupMeta, Object[] inputRow, Object[] lookupRow, Object[] cached ) {
+      inputRows.add( inputRow );
+      lookupRows.add( lookupRow );
+      cachedRows.add( cached );
+      if ( cached == null ) {
+        keys.add( toKey( lookupMeta, lookupRow ) );
+      }
+    }
+
+    public int size() {
+      return inputRows.size();
+    }
+
+    public int getNrKeys() {
+      return keys.size();
+    }
+
+    public Object[] getInputRow( int index ) {
+      return inputRows.get( index );
+    }
+
+    public Object[] getLookupRow( int index ) {
+      return lookupRows.get( index );
+    }
+
+    public Object[] getCachedRow( int index ) {
+      return cachedRows.get( index );
+    }
+
+    /**
+     * @return true if the key was looked up with this batch, found or not
+     */
+    public boolean contains( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+      return keys.contains( toKey( lookupMeta, lookupRow ) );
+    }
+
+    /**
+     * @return a copy of the values found for a key, null if no row returned has this key
+     */
+    public Object[] getRow( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+      Object[] row = rows.get( toKey( lookupMeta, lookupRow ) );
+      return row == null ? null : row.clone();
+    }
+
+    /**
+     * @return true if a key looked up with this batch has no row in the table: no row returned has this key and
+     *         either the key compares in the database like it does in Java, or a lookup of its own found nothing
+     */
+    public boolean isMissing( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+      RowMetaAndData key = toKey( lookupMeta, lookupRow );
+      return !rows.containsKey( key ) && ( !checkingMisses || missing.contains( key ) );
+    }
+
+    /**
+     * Remembers that a lookup of its own found no row for a key, so other rows with the key don't look it up again.
+     */
+    public void addMissing( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+      missing.add( toKey( lookupMeta, lookupRow ) );
+    }
+
+    public RowMetaInterface getReturnRowMeta() {
+      return returnRowMeta;
+    }
+  }
+}
@@ -13,19 +13,23 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang.ArrayUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -38,6 +42,7 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.LookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -70,8 +75,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = createLookupRow( inputRowMeta, row );
+
+    // First, check if we looked up before
+    Object[] cached = meta.isCached() ? data.cache.getRowFromCache( data.lookupMeta, lookupRow ) : null;
+
+    return lookupValues( inputRowMeta, row, lookupRow, cached );
+  }
 
+  /**
+   * Converts the key fields of an input row to the values looked up.
+   */
+  private Object[] createLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -110,33 +125,57 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cacheNow = false;
-    boolean cacheHit = false;
+  /**
+   * Adds the values of a lookup row to an input row, from the cache, a batch looked up before or the database.
+   *
+   * @param cached the values found in the cache or null
+   */
+  private synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow,
+                                              Object[] cached ) throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
+    Object[] add = cached;
+    boolean cacheNow = false;
+    boolean cacheHit = cached != null;
+    Object[] tableKeys = null;
+    RowMetaInterface returnRowMeta = null;
 
     if ( add == null && ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) ) {
       // do not go to the database when all rows are in (exception LIKE operator)
-      if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
-          + meta.getStreamKeyField1().length
-          + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
-          + data.lookupMeta.getString( lookupRow ) );
+      if ( data.lookedUpBatch != null ) {
+        // The key was looked up with the other keys of its batch
+        add = data.lookedUpBatch.getRow( data.lookupMeta, lookupRow );
+        returnRowMeta = data.lookedUpBatch.getReturnRowMeta();
       }
+      // A key the batch didn't find is missing from the table, unless the database compares it differently
+      //
+      boolean missing =
+        add == null && data.lookedUpBatch != null && data.lookedUpBatch.isMissing( data.lookupMeta, lookupRow );
+      if ( add == null && !missing ) {
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
+            + meta.getStreamKeyField1().length
+            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
+            + data.lookupMeta.getString( lookupRow ) );
+        }
+
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        returnRowMeta = data.db.getReturnRowMeta();
 
-      data.db.setValuesLookup( data.lookupMeta, lookupRow );
-      add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        if ( add == null && data.lookedUpBatch != null ) {
+          data.lookedUpBatch.addMissing( data.lookupMeta, lookupRow );
+        }
+      }
       cacheNow = true;
+
+      if ( add != null && data.cachingTableKeys ) {
+        tableKeys = splitTableKeys( add );
+        add = Arrays.copyOf( add, data.returnMeta.size() );
+      }
     }
 
 
@@ -180,7 +219,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         // that should not be a problem.
         //
         for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
+          ValueMetaInterface returned = returnRowMeta.getValueMeta( i );
           ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
           if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
@@ -194,8 +233,15 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
     //
-    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals ) {
-      data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
+    if ( meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() ) {
+      if ( data.allEquals ) {
+        data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
+      } else if ( tableKeys != null ) {
+        // Only the table rows are cached with other conditions, a lookup that found nothing tells nothing about
+        // the next one
+        //
+        data.cache.storeRowInCache( meta, data.tableKeyMeta, tableKeys, add );
+      }
     }
 
     for ( int i = 0; i < data.returnMeta.size(); i++ ) {
@@ -205,6 +251,22 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return outputRow;
   }
 
+  /**
+   * Takes the key fields of the table, fetched after the return values, from a row the database returned.
+   */
+  private Object[] splitTableKeys( Object[] row ) {
+    int nrValues = data.returnMeta.size();
+    int nrKeys = meta.getTableKeyField().length;
+    if ( data.tableKeyMeta == null ) {
+      RowMetaInterface returnRowMeta = data.db.getReturnRowMeta();
+      data.tableKeyMeta = new RowMeta();
+      for ( int i = 0; i < nrKeys; i++ ) {
+        data.tableKeyMeta.addValueMeta( returnRowMeta.getValueMeta( nrValues + i ).clone() );
+      }
+    }
+    return Arrays.copyOfRange( row, nrValues, nrValues + nrKeys );
+  }
+
   @VisibleForTesting
   boolean isTimelessMask( String dateMask ) {
     if ( dateMask == null ) {
@@ -346,6 +408,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchLookup != null && !putBatches( 0 ) ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -361,10 +426,24 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
         metaStore );
 
+      // With other conditions than "=" the values looked up don't identify the table row, so the key fields of the
+      // table are fetched as well to cache the row for every lookup it matches. With an ORDER BY or a check for
+      // multiple results the answer depends on rows the cache can't see, so those lookups always go to the database.
+      //
+      data.cachingTableKeys = meta.isCached() && !meta.isLoadingAllDataInCache() && !data.allEquals
+        && RangeCache.isCacheable( data.conditions ) && Utils.isEmpty( meta.getOrderByClause() )
+        && !meta.isFailingOnMultipleResults();
+      String[] gets = meta.getReturnValueField();
+      String[] rename = meta.getReturnValueNewName();
+      if ( data.cachingTableKeys ) {
+        gets = ArrayUtils.addAll( gets, meta.getTableKeyField() );
+        rename = Arrays.copyOf( rename, gets.length );
+      }
+
       data.db.setLookup(
         environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ),
-        meta.getTableKeyField(), meta.getKeyCondition(), meta.getReturnValueField(),
-        meta.getReturnValueNewName(), meta.getOrderByClause(), meta.isFailingOnMultipleResults()
+        meta.getTableKeyField(), meta.getKeyCondition(), gets, rename, meta.getOrderByClause(),
+        meta.isFailingOnMultipleResults()
       );
 
       // lookup the values!
@@ -404,7 +483,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        data.cache = newCache();
       }
 
       determineFieldsTypesQueryingDb();
@@ -417,9 +496,11 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
-      if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
-        loadAllTableDataIntoTheCache();
+      if ( meta.isCached() && meta.isLoadingAllDataInCache() && !acquireSharedCache() ) {
+        loadAllTableDataIntoTheCache( data );
       }
+
+      data.batchLookup = newBatchLookup();
     }
 
     if ( log.isRowLevel() ) {
@@ -427,41 +508,278 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchLookup != null ) {
+      return addToBatch( r );
+    }
+
     try {
       // add new lookup values to the row
-      Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      putLookedUpRow( r, lookupValues( getInputRowMeta(), r ) );
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
 
-      if ( outputRow != null ) {
-        // copy row to output rowset(s);
-        putRow( data.outputRowMeta, outputRow );
+    return true;
+  }
 
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
-            + getInputRowMeta().getString( r ) );
-        }
+  private void putLookedUpRow( Object[] r, Object[] outputRow ) throws KettleException {
+    if ( outputRow != null ) {
+      // copy row to output rowset(s);
+      putRow( data.outputRowMeta, outputRow );
 
-        long linesRead = getLinesRead();
-        if ( checkFeedback( linesRead ) ) {
-          logBasic( "linenr " + linesRead );
-        }
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+          + getInputRowMeta().getString( r ) );
+      }
+
+      long linesRead = getLinesRead();
+      if ( checkFeedback( linesRead ) ) {
+        logBasic( "linenr " + linesRead );
+      }
+    }
+  }
+
+  /**
+   * @return false if the step stops
+   */
+  private boolean handleLookupError( Object[] r, KettleException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
+      return true;
+    }
+    logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+      + e.getMessage() );
+    setErrors( 1 );
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Creates the lookup of batches of keys when a batch size is set and every condition is "=".
+   *
+   * @return null to look up every row on its own
+   */
+  private BatchLookup newBatchLookup() throws KettleException {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_DATABASE_LOOKUP_BATCH_SIZE, "" ), 0 );
+    if ( batchSize <= 1 || ( meta.isCached() && meta.isLoadingAllDataInCache() ) ) {
+      return null;
+    }
+    for ( int condition : data.conditions ) {
+      if ( condition != DatabaseLookupMeta.CONDITION_EQ ) {
+        return null;
       }
+    }
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    batchSize = BatchLookup.getBatchSize( dbMeta.getDatabaseInterface(), meta.getTableKeyField().length, batchSize );
+    if ( batchSize <= 1 ) {
+      return null;
+    }
+
+    // Looking ahead takes a connection of its own, which a transaction can't share
+    //
+    int lookAhead = Const.toInt( getVariable( Const.KETTLE_DATABASE_LOOKUP_BATCH_PREFETCH, "" ), 0 );
+    if ( getTransMeta().isUsingUniqueConnections() ) {
+      lookAhead = 0;
+    }
+    Database db = data.db;
+    if ( lookAhead > 0 ) {
+      data.batchDb = getDatabase( meta.getDatabaseMeta() );
+      connectDatabase( data.batchDb );
+      db = data.batchDb;
+    }
+    data.batchLookAhead = Math.max( 0, lookAhead );
+    data.batch = new BatchLookup.Batch();
+    data.batches = new ArrayDeque<>();
+
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookup", batchSize, data.batchLookAhead ) );
+    }
+    String sql = BatchLookup.getSQL( dbMeta, dbMeta.getQuotedSchemaTableCombination(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) ),
+      meta.getTableKeyField(), meta.getReturnValueField(), meta.getReturnValueNewName(), meta.getOrderByClause(),
+      batchSize );
+    return new BatchLookup( db, sql, batchSize, meta.getReturnValueField().length,
+      meta.isFailingOnMultipleResults(), lookAhead > 0 );
+  }
+
+  /**
+   * Adds a row to the batch, which is looked up when it holds enough distinct keys.
+   *
+   * @return false if the step stops
+   */
+  private boolean addToBatch( Object[] r ) throws KettleException {
+    try {
+      Object[] lookupRow = createLookupRow( getInputRowMeta(), r );
+      Object[] cached = meta.isCached() ? data.cache.getRowFromCache( data.lookupMeta, lookupRow ) : null;
+      data.batch.add( data.lookupMeta, r, lookupRow, cached );
     } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
-      } else {
-        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
-          + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      return handleLookupError( r, e );
+    }
+
+    int batchSize = data.batchLookup.getBatchSize();
+    if ( data.batch.getNrKeys() >= batchSize || data.batch.size() >= batchSize * BatchLookup.MAX_ROWS_PER_KEY ) {
+      return putBatches( data.batchLookAhead );
+    }
+    return true;
+  }
+
+  /**
+   * Submits the batch and puts the rows of the batches looked up, until no more than {@code lookAhead} batches are
+   * being looked up.
+   *
+   * @return false if the step stops
+   */
+  private boolean putBatches( int lookAhead ) throws KettleException {
+    if ( data.batch.size() > 0 ) {
+      data.batchLookup.submit( data.batch, data.lookupMeta );
+      data.batches.add( data.batch );
+      data.batch = new BatchLookup.Batch();
+    }
+
+    while ( data.batches.size() > lookAhead ) {
+      BatchLookup.Batch batch = data.batches.poll();
+      data.batchLookup.await( batch );
+      data.lookedUpBatch = batch;
+      try {
+        for ( int i = 0; i < batch.size(); i++ ) {
+          Object[] r = batch.getInputRow( i );
+          try {
+            putLookedUpRow( r,
+              lookupValues( getInputRowMeta(), r, batch.getLookupRow( i ), batch.getCachedRow( i ) ) );
+          } catch ( KettleException e ) {
+            if ( !handleLookupError( r, e ) ) {
+              return false;
+            }
+          }
+        }
+      } finally {
+        data.lookedUpBatch = null;
       }
     }
+    return true;
+  }
 
+  /**
+   * Creates the cache of the lookups. When all data is loaded there is nothing to evict and the rows are kept in the
+   * order of the table. The table rows found with other conditions than "=" are kept in a range cache, otherwise the
+   * eviction policy and the memory budget come from variables.
+   */
+  @VisibleForTesting
+  DatabaseLookupData.Cache newCache() {
+    if ( meta.isLoadingAllDataInCache() ) {
+      return DefaultCache.newCache( data, meta.getCacheSize() );
+    }
+
+    if ( data.cachingTableKeys ) {
+      return new RangeCache( data, meta.getCacheSize() );
+    }
+
+    String policyName = Const.NVL( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_POLICY ), "" ).trim();
+    if ( "FIFO".equalsIgnoreCase( policyName ) ) {
+      return DefaultCache.newCache( data, meta.getCacheSize() );
+    }
+    EvictingCache.Policy policy = EvictingCache.Policy.LRU;
+    try {
+      if ( !Utils.isEmpty( policyName ) ) {
+        policy = EvictingCache.Policy.valueOf( policyName.toUpperCase() );
+      }
+    } catch ( IllegalArgumentException e ) {
+      logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.UnknownCachePolicy", policyName ) );
+    }
+    long memoryLimit = Const.toLong( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_MEMORY_LIMIT, "" ), 0L );
+    return EvictingCache.newCache( data, meta.getCacheSize(), memoryLimit * 1024 * 1024, policy );
+  }
+
+  private void logCacheStatistics( EvictingCache cache ) {
+    if ( log.isDetailed() ) {
+      long lookups = cache.getHits() + cache.getMisses();
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheStatistics", cache.getPolicy(),
+        cache.getHits(), cache.getMisses(), cache.getEvictions(),
+        lookups == 0 ? 0L : Math.round( 100.0 * cache.getHits() / lookups ), cache.size() ) );
+    }
+    if ( log.isGatheringMetrics() ) {
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_HITS, getStepname(), cache.getHits() );
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_MISSES, getStepname(), cache.getMisses() );
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS, getStepname(), cache.getEvictions() );
+    }
+  }
+
+  /**
+   * Shares the cache of all table data with the other step copies and executions in the scope the variables set. The
+   * first one loads it, the others wait for it.
+   *
+   * @return false if the cache isn't shared
+   */
+  private boolean acquireSharedCache() throws KettleException {
+    LookupCacheRegistry registry = LookupCacheRegistry.getInstance();
+    Object owner = registry.getScopeOwner(
+      LookupCacheRegistry.Scope.getScope( getVariable( Const.KETTLE_LOOKUP_CACHE_SCOPE ) ), getTrans() );
+    if ( owner == null || data.hasDBCondition ) {
+      // With a LIKE condition the cache is changed while it's used
+      return false;
+    }
+
+    long timeToLive = Const.toLong( getVariable( Const.KETTLE_LOOKUP_CACHE_TTL, "" ), 0L ) * 1000;
+    AtomicLong size = new AtomicLong();
+    data.sharedCache = registry.acquire( owner, getSharedCacheName(), timeToLive, () -> {
+      // The cache outlives this step, it only keeps what it reads of the step data
+      //
+      DatabaseLookupData cacheData = newSharedCacheData();
+      data.cache = DefaultCache.newCache( cacheData, meta.getCacheSize() );
+      size.set( loadAllTableDataIntoTheCache( cacheData ) );
+      return data.cache;
+    }, cache -> size.get() );
+    data.cache = data.sharedCache.get();
+
+    if ( log.isDetailed() && data.sharedCache.isShared() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.UsingSharedCache", meta.getTablename() ) );
+    }
     return true;
   }
 
-  private void loadAllTableDataIntoTheCache() throws KettleException {
+  /**
+   * @return the data a shared cache reads while looking up: the conditions and the layout of the keys. The cache
+   *         doesn't keep the data of the step that loaded it.
+   */
+  private DatabaseLookupData newSharedCacheData() {
+    DatabaseLookupData cacheData = new DatabaseLookupData();
+    cacheData.allEquals = data.allEquals;
+    cacheData.conditions = data.conditions.clone();
+    cacheData.hasDBCondition = data.hasDBCondition;
+    cacheData.lookupMeta = data.lookupMeta.clone();
+    return cacheData;
+  }
+
+  /**
+   * @return a name for everything that makes up the data of the cache and the way it's looked up: the database, the
+   *         table, the fields, the types of the stream keys and the cache size
+   */
+  private String getSharedCacheName() {
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    StringBuilder keyTypes = new StringBuilder();
+    for ( int i = 0; i < meta.getStreamKeyField1().length; i++ ) {
+      for ( int keynr : new int[] { data.keynrs[ i ], data.keynrs2[ i ] } ) {
+        if ( keynr >= 0 ) {
+          ValueMetaInterface input = getInputRowMeta().getValueMeta( keynr );
+          keyTypes.append( input.getTypeDesc() ).append( ' ' ).append( Const.NVL( input.getConversionMask(), "" ) )
+            .append( ',' );
+        }
+      }
+    }
+    return String.join( "|", getClass().getName(), dbMeta.getName(), environmentSubstitute( dbMeta.getHostname() ),
+      environmentSubstitute( dbMeta.getDatabasePortNumberString() ), environmentSubstitute( dbMeta.getDatabaseName() ),
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ),
+      String.join( ",", meta.getTableKeyField() ), String.join( ",", meta.getKeyCondition() ),
+      String.join( ",", meta.getReturnValueField() ), Const.NVL( meta.getOrderByClause(), "" ), keyTypes,
+      Integer.toString( meta.getCacheSize() ) );
+  }
+
+  /**
+   * @param cacheData the step data the cache reads while looking up
+   * @return the estimated memory of the cache in bytes
+   */
+  private long loadAllTableDataIntoTheCache( DatabaseLookupData cacheData ) throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
     try ( Database db = getDatabase( dbMeta ) ) {
@@ -498,19 +816,20 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       //
 
       if ( data.allEquals ) {
-        putToDefaultCache( db, sql.toString() );
+        return putToDefaultCache( db, sql.toString() );
       } else {
-        putToReadOnlyCache( db, db.getRows( sql.toString(), 0 ) );
+        return putToReadOnlyCache( db, db.getRows( sql.toString(), 0 ), cacheData );
       }
     } catch ( Exception e ) {
       throw new KettleException( e );
     }
   }
 
-  private void putToDefaultCache( Database db, String sql ) throws KettleDatabaseException {
+  private long putToDefaultCache( Database db, String sql ) throws KettleDatabaseException {
     final int keysAmount = meta.getStreamKeyField1().length;
     AtomicReference<RowMetaInterface> prototype = new AtomicReference<>();
     AtomicBoolean firstRow = new AtomicBoolean( true );
+    AtomicLong size = new AtomicLong();
 
     db.forEachRow( sql, 0, row -> {
       if ( firstRow.get() ) {
@@ -518,11 +837,12 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         prototype.set( copyValueMetasFrom( db.getReturnRowMeta(), keysAmount ) );
         firstRow.set( false );
       }
-      putRowToDefaultCache( prototype.get(), keysAmount, row );
+      size.addAndGet( putRowToDefaultCache( prototype.get(), keysAmount, row ) );
     } );
+    return size.get();
   }
 
-  private void putRowToDefaultCache( RowMetaInterface keyMeta, int keysAmount, Object[] row ) {
+  private long putRowToDefaultCache( RowMetaInterface keyMeta, int keysAmount, Object[] row ) {
     // Copy the data into 2 parts: key and value...
     //
     int index = 0;
@@ -540,6 +860,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     //
     data.cache.storeRowInCache( meta, keyMeta, keyData, valueData );
     incrementLinesInput();
+    return EvictingCache.estimateSize( keyData ) + EvictingCache.estimateSize( valueData ) + EvictingCache.ENTRY_SIZE;
   }
 
   private RowMetaInterface copyValueMetasFrom( RowMetaInterface source, int n ) {
@@ -552,8 +873,8 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return result;
   }
 
-  private void putToReadOnlyCache( Database db, List<Object[]> rows ) {
-    ReadAllCache.Builder cacheBuilder = new ReadAllCache.Builder( data, rows.size() );
+  private long putToReadOnlyCache( Database db, List<Object[]> rows, DatabaseLookupData cacheData ) {
+    ReadAllCache.Builder cacheBuilder = new ReadAllCache.Builder( cacheData, rows.size() );
 
     // all keys have the same row meta,
     // it is useless to re-create it each time
@@ -564,6 +885,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     // Copy the data into 2 parts: key and value...
     //
     final int valuesAmount = data.returnMeta.size();
+    long size = 0L;
     for ( Object[] row : rows ) {
       Object[] keyData = new Object[ keysAmount ];
       System.arraycopy( row, 0, keyData, 0, keysAmount );
@@ -573,8 +895,10 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       cacheBuilder.add( keyData, valueData );
       incrementLinesInput();
+      size += EvictingCache.estimateSize( row );
     }
     data.cache = cacheBuilder.build();
+    return size;
   }
 
   /**
@@ -641,12 +965,31 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     meta = (DatabaseLookupMeta) smi;
     data = (DatabaseLookupData) sdi;
 
+    if ( data.batchLookup != null ) {
+      try {
+        data.batchLookup.close();
+      } catch ( KettleDatabaseException e ) {
+        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR0005.UnableToCloseBatchLookup" ), e );
+      }
+      data.batchLookup = null;
+    }
+    if ( data.batchDb != null ) {
+      data.batchDb.close();
+    }
     if ( data.db != null ) {
       data.db.close();
     }
 
+    if ( data.cache instanceof EvictingCache ) {
+      logCacheStatistics( (EvictingCache) data.cache );
+    }
+
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
+    if ( data.sharedCache != null ) {
+      data.sharedCache.release();
+      data.sharedCache = null;
+    }
     data.cache = null;
 
     super.dispose( smi, sdi );
@@ -13,10 +13,13 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.Deque;
+
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.LookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 /**
@@ -40,6 +43,21 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** The lookups fetch the key fields of the table row too, to cache rows found with other conditions than "=" */
+  public boolean cachingTableKeys;
+  public RowMetaInterface tableKeyMeta;
+
+  /** Looks up the keys of many rows with one query, null to look up every row on its own */
+  public BatchLookup batchLookup;
+  public Database batchDb;
+  public int batchLookAhead;
+  public BatchLookup.Batch batch;
+  public Deque<BatchLookup.Batch> batches;
+  public BatchLookup.Batch lookedUpBatch;
+
+  /** The cache of all table data shared with other step copies, null for a cache of this copy */
+  public LookupCacheRegistry.Reference<Cache> sharedCache;
+
   public DatabaseLookupData() {
     super();
 
@@ -0,0 +1,425 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lookup cache bounded by a number of rows and/or an estimated heap size, evicting by recency (LRU) or by frequency
+ * and recency (W-TinyLFU).<br>
+ * <br>
+ * With W-TinyLFU new entries go to a small LRU window. An entry falling out of the window only makes it into the main
+ * area if its key was looked up more often than the key of the entry it would push out. The lookup frequencies are
+ * kept in a count-min sketch that ages periodically, so the hot keys stay cached while a scan of cold keys doesn't
+ * flush them.<br>
+ * <br>
+ * Only lookups with equality conditions are cached: the step doesn't store the results of the others.
+ */
+public class EvictingCache implements DatabaseLookupData.Cache {
+
+  public enum Policy {
+    LRU, TINY_LFU
+  }
+
+  /** Estimated heap usage of an entry, besides the key and value data */
+  static final int ENTRY_SIZE = 128;
+
+  /** The share of the capacity of the window of W-TinyLFU, in percent */
+  private static final int WINDOW_PERCENT = 1;
+
+  /** The share of the capacity of the main area of W-TinyLFU for entries that were hit in there, in percent */
+  private static final int PROTECTED_PERCENT = 80;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  public static EvictingCache newCache( DatabaseLookupData data, int cacheSize, long memoryLimit, Policy policy ) {
+    return new EvictingCache( data, cacheSize, memoryLimit, policy );
+  }
+
+  private final DatabaseLookupData data;
+  private final Policy policy;
+  private final int maxRows;
+  private final long maxWeight;
+
+  /** Entries are weighed in bytes with a memory limit, in rows without */
+  private final boolean weighBytes;
+
+  private final Map<Node, Node> map;
+  private final Node probe;
+
+  /** The LRU list of every area, the head is the most recently used entry */
+  private final Node[] heads = new Node[3];
+  private final long[] weights = new long[3];
+  private final long windowMaxWeight;
+  private final long protectedMaxWeight;
+
+  private final FrequencySketch sketch;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  EvictingCache( DatabaseLookupData data, int cacheSize, long memoryLimit, Policy policy ) {
+    this.data = data;
+    this.maxRows = Math.max( 0, cacheSize );
+    this.maxWeight = memoryLimit > 0 ? memoryLimit : maxRows;
+    this.weighBytes = memoryLimit > 0;
+    this.map = new HashMap<>();
+    this.probe = new Node();
+
+    // Without any bound there is nothing to evict
+    //
+    this.policy = maxWeight > 0 ? policy : Policy.LRU;
+    if ( this.policy == Policy.TINY_LFU ) {
+      windowMaxWeight = Math.max( 1L, maxWeight * WINDOW_PERCENT / 100 );
+      protectedMaxWeight = ( maxWeight - windowMaxWeight ) * PROTECTED_PERCENT / 100;
+      int expectedRows = maxRows > 0 ? maxRows : (int) Math.min( Integer.MAX_VALUE, maxWeight / ENTRY_SIZE );
+      sketch = new FrequencySketch( expectedRows );
+    } else {
+      windowMaxWeight = 0L;
+      protectedMaxWeight = 0L;
+      sketch = null;
+    }
+  }
+
+  @Override
+  public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
+    if ( !data.allEquals ) {
+      // Nothing is stored for the other conditions, every lookup goes to the database
+      return null;
+    }
+
+    probe.keyMeta = lookupMeta;
+    probe.keyData = lookupRow;
+    probe.hash = lookupMeta.hashCode( lookupRow );
+    Node node;
+    try {
+      node = map.get( probe );
+    } finally {
+      probe.keyMeta = null;
+      probe.keyData = null;
+    }
+    if ( sketch != null ) {
+      sketch.increment( probe.hash );
+    }
+
+    if ( node == null ) {
+      misses++;
+      return null;
+    }
+    hits++;
+    onHit( node );
+    return node.value;
+  }
+
+  @Override
+  public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
+                               Object[] add ) {
+    Node node = new Node();
+    node.keyMeta = lookupMeta;
+    node.keyData = lookupRow;
+    node.value = add;
+    try {
+      node.hash = lookupMeta.hashCode( lookupRow );
+    } catch ( KettleValueException e ) {
+      throw new RuntimeException( "Unable to calculate the hash code of a lookup key", e );
+    }
+    if ( map.putIfAbsent( node, node ) != null ) {
+      // The first value stored for a key is kept
+      return;
+    }
+    node.weight = weighBytes ? estimateSize( lookupRow ) + estimateSize( add ) + ENTRY_SIZE : 1L;
+
+    // LRU only uses the window list
+    //
+    link( node, WINDOW );
+    if ( policy == Policy.TINY_LFU ) {
+      while ( weights[WINDOW] > windowMaxWeight ) {
+        Node candidate = heads[WINDOW].prev;
+        unlink( candidate );
+        link( candidate, PROBATION );
+        evictFromMain( candidate );
+      }
+    }
+    while ( isOverflowing() ) {
+      if ( heads[PROBATION] != null ) {
+        evict( heads[PROBATION].prev );
+      } else if ( heads[WINDOW] != null ) {
+        evict( heads[WINDOW].prev );
+      } else {
+        evict( heads[PROTECTED].prev );
+      }
+    }
+  }
+
+  private boolean isOverflowing() {
+    if ( maxWeight <= 0 || map.isEmpty() ) {
+      return false;
+    }
+    return weights[WINDOW] + weights[PROBATION] + weights[PROTECTED] > maxWeight
+      || ( weighBytes && maxRows > 0 && map.size() > maxRows );
+  }
+
+  /**
+   * Keeps the main area of W-TinyLFU within its capacity, the candidate coming from the window competes with the least
+   * recently used entries of the probation area.
+   */
+  private void evictFromMain( Node candidate ) {
+    long mainMaxWeight = maxWeight - windowMaxWeight;
+    while ( weights[PROBATION] + weights[PROTECTED] > mainMaxWeight ) {
+      Node victim = heads[PROBATION].prev;
+      if ( victim == candidate ) {
+        // The candidate is the only entry on probation
+        victim = heads[PROTECTED] != null ? heads[PROTECTED].prev : null;
+        if ( victim == null ) {
+          evict( candidate );
+          return;
+        }
+      }
+      if ( sketch.frequency( candidate.hash ) > sketch.frequency( victim.hash ) ) {
+        evict( victim );
+      } else {
+        evict( candidate );
+        return;
+      }
+    }
+  }
+
+  private void onHit( Node node ) {
+    if ( policy == Policy.TINY_LFU && node.queue != WINDOW ) {
+      unlink( node );
+      link( node, PROTECTED );
+      while ( weights[PROTECTED] > protectedMaxWeight && heads[PROTECTED].prev != node ) {
+        Node demoted = heads[PROTECTED].prev;
+        unlink( demoted );
+        link( demoted, PROBATION );
+      }
+    } else if ( heads[node.queue] != node ) {
+      int queue = node.queue;
+      unlink( node );
+      link( node, queue );
+    }
+  }
+
+  private void evict( Node node ) {
+    unlink( node );
+    map.remove( node );
+    evictions++;
+  }
+
+  /**
+   * Adds a node at the head of the circular list of an area.
+   */
+  private void link( Node node, int queue ) {
+    Node head = heads[queue];
+    if ( head == null ) {
+      node.next = node;
+      node.prev = node;
+    } else {
+      node.next = head;
+      node.prev = head.prev;
+      head.prev.next = node;
+      head.prev = node;
+    }
+    heads[queue] = node;
+    node.queue = queue;
+    weights[queue] += node.weight;
+  }
+
+  private void unlink( Node node ) {
+    int queue = node.queue;
+    if ( node.next == node ) {
+      heads[queue] = null;
+    } else {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      if ( heads[queue] == node ) {
+        heads[queue] = node.next;
+      }
+    }
+    node.next = null;
+    node.prev = null;
+    node.queue = -1;
+    weights[queue] -= node.weight;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return the estimated heap usage of the entries in bytes
+   */
+  public long getEstimatedSize() {
+    if ( weighBytes ) {
+      return weights[WINDOW] + weights[PROBATION] + weights[PROTECTED];
+    }
+    long size = 0L;
+    for ( Node node : map.keySet() ) {
+      size += estimateSize( node.keyData ) + estimateSize( node.value ) + ENTRY_SIZE;
+    }
+    return size;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  static long estimateSize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for ( Object value : row ) {
+      if ( value instanceof String ) {
+        size += 40L + 2L * ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += 64L;
+      } else if ( value instanceof Date ) {
+        size += 24L;
+      } else if ( value != null ) {
+        size += 16L;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * A cache entry, also used as the key of the map. The probe node is filled in for every lookup so looking up a key
+   * doesn't allocate anything.
+   */
+  private static class Node {
+    RowMetaInterface keyMeta;
+    Object[] keyData;
+    int hash;
+    Object[] value;
+    long weight;
+    int queue = -1;
+    Node prev;
+    Node next;
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+      if ( this == obj ) {
+        return true;
+      }
+      Node other = (Node) obj;
+      if ( hash != other.hash || keyData.length != other.keyData.length ) {
+        return false;
+      }
+      try {
+        return keyMeta.compare( keyData, other.keyData ) == 0;
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( "Unable to compare lookup keys because of a data conversion problem", e );
+      }
+    }
+  }
+
+  /**
+   * Count-min sketch of 4-bit counters, the frequencies of the keys looked up. All counters are halved once the number
+   * of increments reaches 10 times the expected number of entries, so old popularity fades away.
+   */
+  static class FrequencySketch {
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch( int expectedRows ) {
+      int length = Integer.highestOneBit( Math.max( 16, Math.min( expectedRows, 1 << 24 ) ) - 1 ) << 1;
+      table = new long[length];
+      tableMask = length - 1;
+      sampleSize = (int) Math.min( Integer.MAX_VALUE, 10L * Math.max( 16, expectedRows ) );
+    }
+
+    int frequency( int hash ) {
+      int frequency = Integer.MAX_VALUE;
+      for ( int i = 0; i < 4; i++ ) {
+        int index = indexOf( hash, i );
+        int shift = offsetOf( hash, i ) << 2;
+        frequency = Math.min( frequency, (int) ( ( table[index] >>> shift ) & 0xfL ) );
+      }
+      return frequency;
+    }
+
+    void increment( int hash ) {
+      boolean added = false;
+      for ( int i = 0; i < 4; i++ ) {
+        int index = indexOf( hash, i );
+        int shift = offsetOf( hash, i ) << 2;
+        long mask = 0xfL << shift;
+        if ( ( table[index] & mask ) != mask ) {
+          table[index] += 1L << shift;
+          added = true;
+        }
+      }
+      if ( added && ++size >= sampleSize ) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      for ( int i = 0; i < table.length; i++ ) {
+        table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+      }
+      size /= 2;
+    }
+
+    private int indexOf( int hash, int i ) {
+      long h = ( hash + SEEDS[i] ) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & tableMask;
+    }
+
+    /**
+     * @return the counter of the 16 in a table entry
+     */
+    private static int offsetOf( int hash, int i ) {
+      int h = hash * 0x9e3779b9;
+      return ( h >>> ( 28 - ( i << 2 ) ) ) & 0xf;
+    }
+  }
+}
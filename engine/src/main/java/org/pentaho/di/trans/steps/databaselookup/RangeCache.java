@@ -0,0 +1,393 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A cache of table rows for lookups with other conditions than equality, e.g. the validity range of a slowly changing
+ * dimension: {@code key = ? AND date_from <= ? AND date_to > ?}. Instead of the values looked up, it keeps the key
+ * fields of the table rows the database returned, so a row is found again for any lookup it matches.<br>
+ * <br>
+ * The rows are partitioned by the fields compared with "=" and every partition is sorted on the first field compared
+ * with a range ({@code <, <=, >, >=, BETWEEN}). A lookup goes to its partition, looks up the range in the sorted rows
+ * and checks the other conditions on the rows in there, nearest first. When the cache is full the oldest row is
+ * evicted.
+ */
+public class RangeCache implements DatabaseLookupData.Cache {
+
+  private final int[] conditions;
+  private final int maxRows;
+
+  /** The position of the (first) value looked up of every condition, -1 for none */
+  private final int[] lookupIndexes;
+
+  /** The position of the second value looked up of every condition, for BETWEEN */
+  private final int[] lookupIndexes2;
+
+  /** The key fields compared with "=" */
+  private final int[] eqColumns;
+
+  /** The key field the partitions are sorted on, -1 if there is no range condition */
+  private final int sortedColumn;
+
+  private RowMetaInterface keysMeta;
+
+  private final Map<PartitionKey, Partition> partitions = new HashMap<>();
+  private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+  private final PartitionKey probe = new PartitionKey();
+
+  RangeCache( DatabaseLookupData data, int cacheSize ) {
+    this.conditions = data.conditions;
+    this.maxRows = Math.max( 0, cacheSize );
+
+    lookupIndexes = new int[conditions.length];
+    lookupIndexes2 = new int[conditions.length];
+    List<Integer> eq = new ArrayList<>();
+    int sorted = -1;
+    int lookupIndex = 0;
+    for ( int i = 0; i < conditions.length; i++ ) {
+      lookupIndexes[i] = data.keynrs[i] >= 0 ? lookupIndex++ : -1;
+      lookupIndexes2[i] = data.keynrs2[i] >= 0 ? lookupIndex++ : -1;
+      if ( conditions[i] == DatabaseLookupMeta.CONDITION_EQ ) {
+        eq.add( i );
+      } else if ( sorted < 0 && isRangeCondition( conditions[i] ) ) {
+        sorted = i;
+      }
+    }
+    eqColumns = new int[eq.size()];
+    for ( int i = 0; i < eqColumns.length; i++ ) {
+      eqColumns[i] = eq.get( i );
+    }
+    sortedColumn = sorted;
+  }
+
+  /**
+   * @return true if the rows of a lookup with these conditions can be cached as table rows
+   */
+  public static boolean isCacheable( int[] conditions ) {
+    for ( int condition : conditions ) {
+      if ( condition < 0 || condition == DatabaseLookupMeta.CONDITION_LIKE ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isRangeCondition( int condition ) {
+    switch ( condition ) {
+      case DatabaseLookupMeta.CONDITION_LT:
+      case DatabaseLookupMeta.CONDITION_LE:
+      case DatabaseLookupMeta.CONDITION_GT:
+      case DatabaseLookupMeta.CONDITION_GE:
+      case DatabaseLookupMeta.CONDITION_BETWEEN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
+    if ( keysMeta == null ) {
+      return null;
+    }
+
+    Object[] eqValues = new Object[eqColumns.length];
+    for ( int i = 0; i < eqColumns.length; i++ ) {
+      eqValues[i] = getLookupValue( lookupMeta, lookupRow, lookupIndexes[eqColumns[i]], eqColumns[i] );
+      if ( eqValues[i] == null ) {
+        // Nothing is equal to null
+        return null;
+      }
+    }
+    probe.values = eqValues;
+    probe.hash = Arrays.deepHashCode( eqValues );
+    Partition partition = partitions.get( probe );
+    probe.values = null;
+    if ( partition == null ) {
+      return null;
+    }
+
+    for ( List<Entry> bucket : getCandidates( partition, lookupMeta, lookupRow ) ) {
+      for ( Entry entry : bucket ) {
+        if ( matches( entry.keys, lookupMeta, lookupRow ) ) {
+          return entry.value;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the rows within the range of the sorted key field, the nearest to the value looked up first
+   */
+  private Iterable<List<Entry>> getCandidates( Partition partition, RowMetaInterface lookupMeta, Object[] lookupRow )
+    throws KettleValueException {
+    if ( partition.sorted == null ) {
+      return Collections.singletonList( partition.unsorted );
+    }
+
+    Object value = getLookupValue( lookupMeta, lookupRow, lookupIndexes[sortedColumn], sortedColumn );
+    if ( value == null ) {
+      return Collections.emptyList();
+    }
+    NavigableMap<Object, List<Entry>> sorted = partition.sorted;
+    switch ( conditions[sortedColumn] ) {
+      case DatabaseLookupMeta.CONDITION_LT:
+        return sorted.headMap( value, false ).descendingMap().values();
+      case DatabaseLookupMeta.CONDITION_LE:
+        return sorted.headMap( value, true ).descendingMap().values();
+      case DatabaseLookupMeta.CONDITION_GT:
+        return sorted.tailMap( value, false ).values();
+      case DatabaseLookupMeta.CONDITION_GE:
+        return sorted.tailMap( value, true ).values();
+      default:
+        // BETWEEN
+        Object value2 = getLookupValue( lookupMeta, lookupRow, lookupIndexes2[sortedColumn], sortedColumn );
+        if ( value2 == null || sorted.comparator().compare( value, value2 ) > 0 ) {
+          return Collections.emptyList();
+        }
+        return sorted.subMap( value, true, value2, true ).values();
+    }
+  }
+
+  /**
+   * @return a value looked up, converted to the data type of the key field in the table
+   */
+  private Object getLookupValue( RowMetaInterface lookupMeta, Object[] lookupRow, int lookupIndex, int column )
+    throws KettleValueException {
+    if ( lookupIndex < 0 ) {
+      return null;
+    }
+    ValueMetaInterface valueMeta = lookupMeta.getValueMeta( lookupIndex );
+    ValueMetaInterface keyMeta = keysMeta.getValueMeta( column );
+    Object value = lookupRow[lookupIndex];
+    if ( valueMeta.getType() == keyMeta.getType() ) {
+      return valueMeta.convertToNormalStorageType( value );
+    }
+    return keyMeta.convertData( valueMeta, value );
+  }
+
+  /**
+   * Checks the conditions a partition and its sorting don't cover yet, like the database would.
+   */
+  private boolean matches( Object[] keys, RowMetaInterface lookupMeta, Object[] lookupRow )
+    throws KettleValueException {
+    for ( int i = 0; i < conditions.length; i++ ) {
+      int condition = conditions[i];
+      if ( condition == DatabaseLookupMeta.CONDITION_EQ || i == sortedColumn ) {
+        continue;
+      }
+      ValueMetaInterface keyMeta = keysMeta.getValueMeta( i );
+      Object keyData = keys[i];
+      if ( condition == DatabaseLookupMeta.CONDITION_IS_NULL ) {
+        if ( !keyMeta.isNull( keyData ) ) {
+          return false;
+        }
+        continue;
+      }
+      if ( condition == DatabaseLookupMeta.CONDITION_IS_NOT_NULL ) {
+        if ( keyMeta.isNull( keyData ) ) {
+          return false;
+        }
+        continue;
+      }
+
+      // A comparison with null is never true
+      //
+      Object value = getLookupValue( lookupMeta, lookupRow, lookupIndexes[i], i );
+      if ( value == null || keyMeta.isNull( keyData ) ) {
+        return false;
+      }
+      int cmp = keyMeta.compare( keyData, value );
+      boolean match;
+      switch ( condition ) {
+        case DatabaseLookupMeta.CONDITION_NE:
+          match = cmp != 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_LT:
+          match = cmp < 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_LE:
+          match = cmp <= 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_GT:
+          match = cmp > 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_GE:
+          match = cmp >= 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_BETWEEN:
+          Object value2 = getLookupValue( lookupMeta, lookupRow, lookupIndexes2[i], i );
+          match = cmp >= 0 && value2 != null && keyMeta.compare( keyData, value2 ) <= 0;
+          break;
+        default:
+          match = false;
+          break;
+      }
+      if ( !match ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stores a table row the database returned.
+   *
+   * @param lookupMeta the meta of the key fields of the table
+   * @param lookupRow  the key fields of the table row, in the order of the conditions
+   * @param add        the values returned
+   */
+  @Override
+  public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
+                               Object[] add ) {
+    if ( keysMeta == null ) {
+      keysMeta = lookupMeta.clone();
+    }
+    if ( sortedColumn >= 0 && lookupRow[sortedColumn] == null ) {
+      // No range holds a null, the row can't be found
+      return;
+    }
+
+    PartitionKey partitionKey = new PartitionKey();
+    partitionKey.values = new Object[eqColumns.length];
+    for ( int i = 0; i < eqColumns.length; i++ ) {
+      partitionKey.values[i] = lookupRow[eqColumns[i]];
+    }
+    partitionKey.hash = Arrays.deepHashCode( partitionKey.values );
+    Partition partition = partitions.get( partitionKey );
+    if ( partition == null ) {
+      partition = new Partition( partitionKey );
+      partitions.put( partitionKey, partition );
+    }
+
+    List<Entry> bucket = partition.getBucket( lookupRow, true );
+    for ( Entry entry : bucket ) {
+      if ( Arrays.deepEquals( entry.keys, lookupRow ) ) {
+        // The row is cached already
+        return;
+      }
+    }
+    Entry entry = new Entry( partition, lookupRow, add );
+    bucket.add( entry );
+    entries.add( entry );
+
+    if ( maxRows > 0 && entries.size() > maxRows ) {
+      evict( entries.poll() );
+    }
+  }
+
+  private void evict( Entry entry ) {
+    Partition partition = entry.partition;
+    List<Entry> bucket = partition.getBucket( entry.keys, false );
+    bucket.remove( entry );
+    if ( bucket.isEmpty() && partition.sorted != null ) {
+      partition.sorted.remove( entry.keys[sortedColumn] );
+    }
+    if ( partition.isEmpty() ) {
+      partitions.remove( partition.key );
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private static class Entry {
+    final Partition partition;
+    final Object[] keys;
+    final Object[] value;
+
+    Entry( Partition partition, Object[] keys, Object[] value ) {
+      this.partition = partition;
+      this.keys = keys;
+      this.value = value;
+    }
+  }
+
+  private class Partition {
+    final PartitionKey key;
+    final TreeMap<Object, List<Entry>> sorted;
+    final List<Entry> unsorted;
+
+    Partition( PartitionKey key ) {
+      this.key = key;
+      if ( sortedColumn >= 0 ) {
+        final ValueMetaInterface sortedMeta = keysMeta.getValueMeta( sortedColumn );
+        sorted = new TreeMap<>( ( o1, o2 ) -> {
+          try {
+            return sortedMeta.compare( o1, o2 );
+          } catch ( KettleValueException e ) {
+            throw new RuntimeException( e );
+          }
+        } );
+        unsorted = null;
+      } else {
+        sorted = null;
+        unsorted = new ArrayList<>();
+      }
+    }
+
+    List<Entry> getBucket( Object[] keys, boolean create ) {
+      if ( sorted == null ) {
+        return unsorted;
+      }
+      List<Entry> bucket = sorted.get( keys[sortedColumn] );
+      if ( bucket == null ) {
+        bucket = new ArrayList<>( 1 );
+        if ( create ) {
+          sorted.put( keys[sortedColumn], bucket );
+        }
+      }
+      return bucket;
+    }
+
+    boolean isEmpty() {
+      return sorted == null ? unsorted.isEmpty() : sorted.isEmpty();
+    }
+  }
+
+  /**
+   * The values of the key fields compared with "=", the probe key is reused for every lookup.
+   */
+  private static class PartitionKey {
+    Object[] values;
+    int hash;
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+      return this == obj || Arrays.deepEquals( values, ( (PartitionKey) obj ).values );
+    }
+  }
+}
@@ -13,8 +13,6 @@
 
 package org.pentaho.di.trans.steps.delete;
 
-import java.sql.SQLException;
-
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -200,14 +198,10 @@ public class Delete extends BaseDatabaseStep implements StepInterface {
       }
     }
 
-    try {
-      if ( log.isDetailed() ) {
-        logDetailed( "Setting delete preparedStatement to [" + sql + "]" );
-      }
-      data.prepStatementDelete = data.db.getConnection().prepareStatement( databaseMeta.stripCR( sql ) );
-    } catch ( SQLException ex ) {
-      throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", ex );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting delete preparedStatement to [" + sql + "]" );
     }
+    data.prepStatementDelete = data.db.prepareCachedSQL( sql );
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -13,12 +13,18 @@
 
 package org.pentaho.di.trans.steps.dimensionlookup;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 
@@ -26,19 +32,30 @@ import org.pentaho.di.core.row.ValueMetaInterface;
  * This class will act as a special purpose dimension Cache. The idea here is to not only cache the last version of a
  * dimension entry, but all versions. So basically, the entry key is the natural key as well as the from-to date range.
  *
- * The way to achieve that result is to keep a sorted list in memory. Because we want as few conversion errors as
- * possible, we'll use the same row as we get from the database.
+ * The natural keys are hashed, every key holds the list of its versions ordered by the start of the date range. A
+ * lookup finds the versions of the key and then the version of the date with a binary search. Because we want as few
+ * conversion errors as possible, we'll use the same rows as we get from the database.
+ *
+ * The methods of the sorted list this cache used to be are kept as deprecated adapters on top of the index.
  *
  * @author matt
  *
  */
 public class DimensionCache implements Comparator<Object[]> {
   private RowMetaInterface rowMeta;
-  private List<Object[]> rowCache;
   private int[] keyIndexes;
   private int fromDateIndex;
   private int toDateIndex;
 
+  private RowMetaInterface keyRowMeta;
+  private Map<RowMetaAndData, List<Object[]>> versions = new HashMap<>();
+  private int size;
+
+  /**
+   * All the rows sorted on the natural key and the start of the date range, for the deprecated methods
+   */
+  private List<Object[]> rowCache;
+
   /**
    * Create a new dimension cache object
    *
@@ -59,124 +76,300 @@ public class DimensionCache implements Comparator<Object[]> {
   }
 
   /**
-   * Add a row to the back of the list
+   * Add a version of a dimension entry, after the versions starting at the same date or before.
    *
    * @param row
    *          the row to add
    */
   public void addRow( Object[] row ) {
-    rowCache.add( row );
+    rowCache = null;
+    RowMetaAndData key = getKey( row );
+    List<Object[]> rows = versions.get( key );
+    if ( rows == null ) {
+      // Most entries only have one version
+      //
+      versions.put( key, Collections.singletonList( row ) );
+    } else {
+      if ( !( rows instanceof ArrayList ) ) {
+        rows = new ArrayList<>( rows );
+        versions.put( key, rows );
+      }
+      try {
+        Date fromDate = rowMeta.getDate( row, fromDateIndex );
+        int index = rows.size();
+        while ( index > 0 && compareFromDate( rows.get( index - 1 ), fromDate ) > 0 ) {
+          index--;
+        }
+        rows.add( index, row );
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( e );
+      }
+    }
+    size++;
+  }
+
+  /**
+   * Insert a row into the list on a certain index
+   *
+   * @param index
+   *          ignored, the versions are kept ordered by the start of the date range
+   * @param row
+   *          the row to add
+   * @deprecated use {@link #addRow(Object[])}
+   */
+  @Deprecated
+  public void addRow( int index, Object[] row ) {
+    addRow( row );
   }
 
   /**
    * Get a row from the cache on a certain index
    *
    * @param index
-   *          the index to look for
+   *          the index to look for, in the rows sorted on the natural key and the start of the date range
    * @return the row on the specified index
+   * @deprecated use {@link #lookupVersion(Object[])} or {@link #getRows(Object[])}
    */
+  @Deprecated
   public Object[] getRow( int index ) {
-    return rowCache.get( index );
+    return getRowCache().get( index );
   }
 
   /**
-   * Insert a row into the list on a certain index
+   * Keeps the latest version of a dimension entry only, the one with the highest version number. This pre-loads the
+   * versions an update compares the rows with, without keeping the others in memory.
    *
-   * @param index
-   *          the index on which the row should be inserted
    * @param row
    *          the row to add
+   * @param versionIndex
+   *          the field index of the version number
    */
-  public void addRow( int index, Object[] row ) {
-    rowCache.add( index, row );
+  public void addLatestRow( Object[] row, int versionIndex ) throws KettleValueException {
+    rowCache = null;
+    RowMetaAndData key = getKey( row );
+    List<Object[]> rows = versions.get( key );
+    if ( rows == null ) {
+      versions.put( key, Collections.singletonList( row ) );
+      size++;
+    } else {
+      ValueMetaInterface versionMeta = rowMeta.getValueMeta( versionIndex );
+      if ( versionMeta.compare( row[ versionIndex ], rows.get( 0 )[ versionIndex ] ) > 0 ) {
+        versions.put( key, Collections.singletonList( row ) );
+      }
+    }
   }
 
   /**
-   * Looks up a row in the (sorted) cache.
+   * Replaces a version of a dimension entry by a row with the same natural key and date range.
+   *
+   * @param row
+   *          the row in the cache
+   * @param newRow
+   *          the row to replace it with
+   * @return true if the row was found and replaced
+   */
+  public boolean replaceRow( Object[] row, Object[] newRow ) {
+    rowCache = null;
+    RowMetaAndData key = getKey( row );
+    List<Object[]> rows = versions.get( key );
+    if ( rows != null ) {
+      for ( int i = 0; i < rows.size(); i++ ) {
+        if ( rows.get( i ) == row ) {
+          if ( rows instanceof ArrayList ) {
+            rows.set( i, newRow );
+          } else {
+            versions.put( key, Collections.singletonList( newRow ) );
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes all the rows from the cache.
+   */
+  public void clear() {
+    versions.clear();
+    size = 0;
+    rowCache = null;
+  }
+
+  /**
+   * Looks up a row in the cache.
    *
    * @param lookupRowData
    *          The data of the lookup row. Make sure that on the index of the from date, you put the lookup date.
+   * @return the version of the natural key valid on the lookup date or null if there is none in the cache
    * @throws a
    *           KettleException in case there are conversion errors during the lookup of the row
    */
-  public int lookupRow( Object[] lookupRowData ) throws KettleException {
+  public Object[] lookupVersion( Object[] lookupRowData ) throws KettleException {
     try {
-      // First perform the lookup!
+      List<Object[]> rows = versions.get( getKey( lookupRowData ) );
+      if ( rows == null ) {
+        return null;
+      }
+      Date lookupDate = rowMeta.getDate( lookupRowData, fromDateIndex );
+
+      // Find the last version starting on or before the lookup date...
       //
-      int index = Collections.binarySearch( rowCache, lookupRowData, this );
-      if ( index < 0 ) {
-        // What we have now is the insertion point.
-        // Since we only compare on the start of the date range (see also: below in Compare.compare())
-        // we will usually get the insertion point of the row
-        // However, that insertion point is the actual row index IF the supplied lookup date (in the lookup row) is
-        // between
-        //
-        // This row at the insertion point where the natural keys match and the start
-        //
-        int insertionPoint = -( index + 1 );
-        if ( insertionPoint < rowCache.size() - 1 ) {
-          // Get the row in question
-          //
-          Object[] row = rowCache.get( insertionPoint );
-
-          // See if the natural key matches...
-          //
-          int cmp = rowMeta.compare( row, lookupRowData, keyIndexes );
-          if ( cmp == 0 ) {
-            // The natural keys match, now see if the lookup date (lookupRowData[fromDateIndex]) is between
-            // row[fromDateIndex] and row[toDateIndex]
-            //
-            Date fromDate = rowMeta.getDate( row, fromDateIndex );
-            Date toDate = rowMeta.getDate( row, toDateIndex );
-            Date lookupDate = rowMeta.getDate( lookupRowData, fromDateIndex );
-
-            if ( fromDate == null && toDate != null ) {
-              // This is the case where the fromDate is null and the toDate is not.
-              // This is a special case where null as a start date means -Infinity
-              //
-              if ( toDate.compareTo( lookupDate ) > 0 ) {
-                return insertionPoint; // found the key!!
-              } else {
-                // This should never happen, it's a flaw in the data or the binary search algorithm...
-                // TODO: print the row perhaps?
-                //
-                throw new KettleException(
-                  "Key sorting problem detected during row cache lookup: the lookup date of "
-                    + "the row retrieved is higher than or equal to the end of the date range." );
-              }
-            } else if ( fromDate != null && toDate == null ) {
-              // This is the case where the toDate is null and the fromDate is not.
-              // This is a special case where null as an end date means +Infinity
-              //
-              if ( fromDate.compareTo( lookupDate ) <= 0 ) {
-                return insertionPoint; // found the key!!
-              } else {
-                // This should never happen, it's a flaw in the data or the binary search algorithm...
-                // TODO: print the row perhaps?
-                //
-                throw new KettleException(
-                  "Key sorting problem detected during row cache lookup: the lookup date of the row "
-                    + "retrieved is lower than or equal to the start of the date range." );
-              }
-            } else {
-              // Both dates are available: simply see if the lookup date falls in between...
-              //
-              if ( fromDate.compareTo( lookupDate ) <= 0 && toDate.compareTo( lookupDate ) > 0 ) {
-                return insertionPoint;
-              }
-              // Else this is a cache miss.
-            }
-          }
+      Object[] row = null;
+      int low = 0;
+      int high = rows.size() - 1;
+      while ( low <= high ) {
+        int middle = ( low + high ) >>> 1;
+        if ( compareFromDate( rows.get( middle ), lookupDate ) <= 0 ) {
+          row = rows.get( middle );
+          low = middle + 1;
+        } else {
+          high = middle - 1;
         }
       }
-      return index;
+
+      // ... and see if it didn't end before. Null as an end date means +Infinity
+      //
+      if ( row != null ) {
+        Date toDate = rowMeta.getDate( row, toDateIndex );
+        if ( toDate == null || lookupDate == null || toDate.compareTo( lookupDate ) > 0 ) {
+          return row;
+        }
+      }
+      return null;
+    } catch ( RuntimeException e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Looks up a row in the (sorted) cache.
+   *
+   * @param lookupRowData
+   *          The data of the lookup row. Make sure that on the index of the from date, you put the lookup date.
+   * @return the index of the row in {@link #getRowCache()}, or a negative number if there is none in the cache
+   * @throws a
+   *           KettleException in case there are conversion errors during the lookup of the row
+   * @deprecated use {@link #lookupVersion(Object[])}, which returns the row
+   */
+  @Deprecated
+  public int lookupRow( Object[] lookupRowData ) throws KettleException {
+    Object[] row = lookupVersion( lookupRowData );
+    try {
+      int index = Collections.binarySearch( getRowCache(), row == null ? lookupRowData : row, this::compareVersions );
+      return row == null && index >= 0 ? -( index + 1 ) : index;
     } catch ( RuntimeException e ) {
       throw new KettleException( e );
     }
   }
 
+  /**
+   * Does nothing: the versions of a natural key are always ordered by the start of the date range.
+   *
+   * @deprecated the cache doesn't need sorting anymore
+   */
+  @Deprecated
   public void sortRows() {
-    Collections.sort( rowCache, this );
+  }
+
+  /**
+   * @return all the rows sorted on the natural key and the start of the date range, as a read-only list
+   * @deprecated use {@link #lookupVersion(Object[])} or {@link #getRows(Object[])}
+   */
+  @Deprecated
+  public List<Object[]> getRowCache() {
+    if ( rowCache == null ) {
+      List<Object[]> rows = new ArrayList<>( size );
+      for ( List<Object[]> keyVersions : versions.values() ) {
+        rows.addAll( keyVersions );
+      }
+      rows.sort( this::compareVersions );
+      rowCache = Collections.unmodifiableList( rows );
+    }
+    return rowCache;
+  }
+
+  /**
+   * Replaces the rows in the cache.
+   *
+   * @param rowCache
+   *          the rows to put in the cache
+   * @deprecated use {@link #clear()} and {@link #addRow(Object[])}
+   */
+  @Deprecated
+  public void setRowCache( List<Object[]> rowCache ) {
+    clear();
+    for ( Object[] row : rowCache ) {
+      addRow( row );
+    }
+  }
+
+  /**
+   * @param lookupRowData
+   *          a row with the natural key on the key indexes
+   * @return the versions of the natural key in the cache, ordered by the start of the date range. The list is empty
+   *         if the cache doesn't have the key.
+   */
+  public List<Object[]> getRows( Object[] lookupRowData ) {
+    List<Object[]> rows = versions.get( getKey( lookupRowData ) );
+    return rows == null ? Collections.<Object[]>emptyList() : Collections.unmodifiableList( rows );
+  }
+
+  /**
+   * @return true if the cache has a version of the natural key in the lookup row
+   */
+  public boolean containsKey( Object[] lookupRowData ) {
+    return versions.containsKey( getKey( lookupRowData ) );
+  }
+
+  /**
+   * @return the number of rows in the cache
+   */
+  public int size() {
+    return size;
+  }
+
+  private RowMetaAndData getKey( Object[] row ) {
+    if ( keyRowMeta == null ) {
+      keyRowMeta = new RowMeta();
+      for ( int keyIndex : keyIndexes ) {
+        keyRowMeta.addValueMeta( rowMeta.getValueMeta( keyIndex ) );
+      }
+    }
+    Object[] key = new Object[ keyIndexes.length ];
+    for ( int i = 0; i < keyIndexes.length; i++ ) {
+      key[ i ] = row[ keyIndexes[ i ] ];
+    }
+    return new RowMetaAndData( keyRowMeta, key );
+  }
+
+  /**
+   * Compares the start of the date range of a row with a date. Null as a start date means -Infinity.
+   */
+  private int compareFromDate( Object[] row, Date date ) throws KettleValueException {
+    Date fromDate = rowMeta.getDate( row, fromDateIndex );
+    if ( fromDate == null ) {
+      return date == null ? 0 : -1;
+    }
+    if ( date == null ) {
+      return 1;
+    }
+    return fromDate.compareTo( date );
+  }
+
+  /**
+   * Orders rows on the natural key and then on the start of the date range.
+   */
+  private int compareVersions( Object[] o1, Object[] o2 ) {
+    try {
+      int cmp = rowMeta.compare( o1, o2, keyIndexes );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+      return compareFromDate( o1, rowMeta.getDate( o2, fromDateIndex ) );
+    } catch ( KettleValueException e ) {
+      throw new RuntimeException( e );
+    }
   }
 
   /**
@@ -245,21 +438,7 @@ public class DimensionCache implements Comparator<Object[]> {
    */
   public void setRowMeta( RowMetaInterface rowMeta ) {
     this.rowMeta = rowMeta;
-  }
-
-  /**
-   * @return the rowCache
-   */
-  public List<Object[]> getRowCache() {
-    return rowCache;
-  }
-
-  /**
-   * @param rowCache
-   *          the rowCache to set
-   */
-  public void setRowCache( List<Object[]> rowCache ) {
-    this.rowCache = rowCache;
+    this.keyRowMeta = null;
   }
 
   /**
@@ -275,6 +454,7 @@ public class DimensionCache implements Comparator<Object[]> {
    */
   public void setKeyIndexes( int[] keyIndexes ) {
     this.keyIndexes = keyIndexes;
+    this.keyRowMeta = null;
   }
 
   /**
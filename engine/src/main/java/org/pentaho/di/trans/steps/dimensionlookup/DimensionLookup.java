@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.dimensionlookup;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -24,6 +25,7 @@ import java.util.List;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
@@ -103,6 +105,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
 
+      flushBatches();
       setOutputDone(); // signal end to receiver(s)
       return false;
     }
@@ -167,7 +170,9 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
       }
 
-      if ( !meta.isUpdate() && meta.isPreloadingCache() ) {
+      // An update pre-loads the current versions, which needs the date ranges of the cache
+      //
+      if ( meta.isPreloadingCache() && ( !meta.isUpdate() || meta.getCacheSize() >= 0 ) ) {
         preloadCache();
       } else {
         // Caching...
@@ -198,6 +203,16 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
       determineTechKeyCreation();
 
+      // New versions can wait in a batch when their technical key is known before the insert.
+      // A batch holds the versions of one commit.
+      //
+      data.batchSize = 0;
+      data.batchedRows = 0;
+      if ( meta.isUpdate() && !isAutoIncrement() && !data.db.isAutoCommit() && data.db.getUseBatchInsert( true )
+        && "Y".equalsIgnoreCase( getVariable( Const.KETTLE_DIMENSION_UPDATE_USE_BATCH, "N" ) ) ) {
+        data.batchSize = Math.max( 0, meta.getCommitSize() );
+      }
+
       data.notFoundTk = new Long( meta.getDatabaseMeta().getNotFoundTK( isAutoIncrement() ) );
       // if (meta.getKeyRename()!=null && meta.getKeyRename().length()>0) data.notFoundTk.setName(meta.getKeyRename());
 
@@ -260,45 +275,97 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
   /**
    * Pre-load the cache by reading the whole dimension table from disk...
    *
+   * A lookup reads all versions. An update only keeps the latest version of every entry, the one the rows are
+   * compared with: a natural key the cache doesn't know is a new dimension entry and isn't looked up in the database.
+   *
    * @throws KettleException in case there is a database or cache problem.
    */
   private void preloadCache() throws KettleException {
     try {
       DatabaseMeta databaseMeta = meta.getDatabaseMeta();
 
-      // tk, version, from, to, natural keys, retrieval fields...
-      //
-      String sql = "SELECT " + databaseMeta.quoteField( meta.getKeyField() );
-      // sql+=", "+databaseMeta.quoteField(meta.getVersionField());
-      for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
-        sql += ", " + meta.getKeyLookup()[ i ]; // the natural key field in the table
-      }
-      for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
-        sql += ", " + meta.getFieldLookup()[ i ]; // the extra fields to retrieve...
+      String sql;
+      if ( meta.isUpdate() ) {
+        // tk, version, fields to compare, from, to (the fields of a lookup), natural keys...
+        //
+        sql = getLookupSelect();
+        for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+          sql += ", " + databaseMeta.quoteField( meta.getKeyLookup()[ i ] ); // the natural key field in the table
+        }
+      } else {
+        // tk, version, from, to, natural keys, retrieval fields...
+        //
+        sql = "SELECT " + databaseMeta.quoteField( meta.getKeyField() );
+        // sql+=", "+databaseMeta.quoteField(meta.getVersionField());
+        for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+          sql += ", " + meta.getKeyLookup()[ i ]; // the natural key field in the table
+        }
+        for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
+          sql += ", " + meta.getFieldLookup()[ i ]; // the extra fields to retrieve...
+        }
+        sql += ", " + databaseMeta.quoteField( meta.getDateFrom() ); // extra info in cache
+        sql += ", " + databaseMeta.quoteField( meta.getDateTo() ); // extra info in cache
       }
-      sql += ", " + databaseMeta.quoteField( meta.getDateFrom() ); // extra info in cache
-      sql += ", " + databaseMeta.quoteField( meta.getDateTo() ); // extra info in cache
 
       sql += " FROM " + data.schemaTable;
       logDetailed( "Pre-loading cache by reading from database with: " + Const.CR + sql + Const.CR );
 
-      List<Object[]> rows = data.db.getRows( sql, -1 );
-      RowMetaInterface rowMeta = data.db.getReturnRowMeta();
+      ResultSet resultSet = data.db.openQuery( sql );
+      try {
+        // The rows are read with the metadata of the database, a copy of it describes the cached rows
+        //
+        RowMetaInterface rowMeta = data.db.getReturnRowMeta().clone();
 
-      data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
-      for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
-        data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
-      }
-      data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
-      data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+        data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
+        if ( meta.isUpdate() ) {
+          // The columns are known by position, a field to compare can have the name of a natural key
+          //
+          int index = 2;
+          data.preloadFieldIndexes = new int[ meta.getFieldLookup().length ];
+          for ( int i = 0; i < data.preloadFieldIndexes.length; i++ ) {
+            data.preloadFieldIndexes[ i ] = -1;
+            if ( !Utils.isEmpty( meta.getFieldLookup()[ i ] )
+              && !DimensionLookupMeta.isUpdateTypeWithoutArgument( meta.isUpdate(), meta.getFieldUpdate()[ i ] ) ) {
+              data.preloadFieldIndexes[ i ] = index++;
+            }
+          }
+          data.preloadFromDateIndex = index++;
+          data.preloadToDateIndex = index++;
+          for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
+            data.preloadKeyIndexes[ i ] = index++;
+          }
 
-      data.preloadCache =
-        new DimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex );
-      data.preloadCache.setRowCache( rows );
+          // The technical keys of new versions are integers, the cached ones are converted to them
+          //
+          if ( rowMeta.getValueMeta( 0 ).getType() != ValueMetaInterface.TYPE_INTEGER ) {
+            rowMeta.setValueMeta( 0, ValueMetaFactory.cloneValueMeta(
+              rowMeta.getValueMeta( 0 ), ValueMetaInterface.TYPE_INTEGER ) );
+          }
+        } else {
+          for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
+            data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
+          }
+          data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
+          data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+        }
 
-      logDetailed( "Sorting the cache rows..." );
-      data.preloadCache.sortRows();
-      logDetailed( "Sorting of cached rows finished." );
+        data.preloadCache =
+          new DimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex );
+
+        ValueMetaInterface tkMeta = data.db.getReturnRowMeta().getValueMeta( 0 );
+        for ( Object[] row = data.db.getRow( resultSet ); row != null; row = data.db.getRow( resultSet ) ) {
+          if ( meta.isUpdate() ) {
+            row[ 0 ] = rowMeta.getValueMeta( 0 ).convertData( tkMeta, row[ 0 ] );
+            data.preloadCache.addLatestRow( row, 1 );
+          } else {
+            data.preloadCache.addRow( row );
+          }
+        }
+        data.preloadComplete = true;
+        logDetailed( "Pre-loaded " + data.preloadCache.size() + " rows in the cache." );
+      } finally {
+        data.db.closeQuery( resultSet );
+      }
 
       // Also see what indexes to take to populate the lookup row...
       // We only ever compare indexes and the lookup date in the cache, the rest is not needed...
@@ -341,81 +408,30 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     //
     valueDate = determineDimensionUpdatedDate( row );
 
-    if ( !meta.isUpdate() && meta.isPreloadingCache() ) {
+    if ( data.preloadCache != null ) {
       // Obtain a result row from the pre-load cache...
       //
-      // Create a row to compare with
-      //
-      RowMetaInterface preloadRowMeta = data.preloadCache.getRowMeta();
-
       // In this case it's all the same. (simple)
       //
       data.returnRowMeta = data.preloadCache.getRowMeta();
-      lookupRowMeta = preloadRowMeta;
-      lookupRow = new Object[ preloadRowMeta.size() ];
-
-      // Assemble the lookup row, convert data if needed...
-      //
-      for ( int i = 0; i < data.preloadIndexes.size(); i++ ) {
-        int from = data.preloadIndexes.get( i ); // Input row index
-        int to = data.preloadCache.getKeyIndexes()[ i ]; // Lookup row index
-
-        // From data type...
-        //
-        ValueMetaInterface fromValueMeta = rowMeta.getValueMeta( from );
-
-        // to date type...
-        //
-        ValueMetaInterface toValueMeta = data.preloadCache.getRowMeta().getValueMeta( to );
+      lookupRowMeta = data.preloadCache.getRowMeta();
+      lookupRow = createPreloadLookupRow( rowMeta, row, valueDate );
 
-        // From value:
-        //
-        Object fromData = row[ from ];
-
-        // To value:
-        //
-        Object toData = toValueMeta.convertData( fromValueMeta, fromData );
-
-        // Set the key in the row...
-        //
-        lookupRow[ to ] = toData;
-      }
-
-      // Also set the lookup date on the "end of date range" (toDate) position
+      // Look up the row in the pre-load cache...
       //
-      lookupRow[ data.preloadFromDateIndex ] = valueDate;
+      returnRow = data.preloadCache.lookupVersion( lookupRow );
 
-      // Look up the row in the pre-load cache...
+      // An update only pre-loads the latest versions, an older one can be in the table
       //
-      int index = data.preloadCache.lookupRow( lookupRow );
-      if ( index >= 0 ) {
-        returnRow = data.preloadCache.getRow( index );
-      } else {
-        returnRow = null; // Nothing found!
+      if ( returnRow == null && meta.isUpdate()
+        && ( !data.preloadComplete || data.preloadCache.containsKey( lookupRow ) ) ) {
+        returnRow = lookupOlderVersion( rowMeta, row, lookupRow, valueDate );
       }
 
     } else {
-      lookupRow = new Object[ data.lookupRowMeta.size() ];
+      lookupRow = createLookupRow( rowMeta, row, valueDate );
       lookupRowMeta = data.lookupRowMeta;
 
-      // Construct the lookup row...
-      //
-      for ( int i = 0; i < meta.getKeyStream().length; i++ ) {
-        try {
-          lookupRow[ i ] = row[ data.keynrs[ i ] ];
-        } catch ( Exception e ) { // TODO : remove exception??
-          throw new KettleStepException(
-            BaseMessages
-              .getString(
-                PKG,
-                "DimensionLookup.Exception.ErrorDetectedInGettingKey", i + "", data.keynrs[ i ] + "/" + rowMeta.size(),
-                rowMeta.getString( row ) ) );
-        }
-      }
-
-      lookupRow[ meta.getKeyStream().length ] = valueDate; // ? >= date_from
-      lookupRow[ meta.getKeyStream().length + 1 ] = valueDate; // ? < date_to
-
       if ( isDebug() ) {
         logDebug( BaseMessages.getString( PKG, "DimensionLookup.Log.LookupRow" )
           + data.lookupRowMeta.getString( lookupRow ) );
@@ -432,11 +448,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       // Perform the lookup in the database...
       //
       if ( returnRow == null ) {
-        data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
-        returnRow = data.db.getLookup( data.prepStatementLookup );
-        data.returnRowMeta = data.db.getReturnRowMeta();
-
-        incrementLinesInput();
+        returnRow = lookupInDatabase( lookupRow );
 
         if ( returnRow != null && meta.getCacheSize() >= 0 ) {
           addToCache( lookupRow, returnRow );
@@ -684,7 +696,8 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
             incrementLinesUpdated();
 
             // We need to capture this change in the cache as well...
-            if ( meta.getCacheSize() >= 0 ) {
+            // (the pre-load cache is kept up to date by the update itself)
+            if ( data.preloadCache == null && meta.getCacheSize() >= 0 ) {
               Object[] values =
                 getCacheValues( rowMeta, row, technicalKey, valueVersion, valueDateFrom, valueDateTo );
               addToCache( lookupRow, values );
@@ -735,7 +748,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
           incrementLinesOutput();
 
           // We need to capture this change in the cache as well...
-          if ( meta.getCacheSize() >= 0 ) {
+          if ( data.preloadCache == null && meta.getCacheSize() >= 0 ) {
             Object[] values =
               getCacheValues( rowMeta, row, technicalKey, valueNewVersion, valueDateFrom, valueDateTo );
             addToCache( lookupRow, values );
@@ -815,6 +828,110 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     return outputRow;
   }
 
+  /**
+   * @return the row to look up in the pre-load cache: the natural key converted to the types of the table and the
+   *         lookup date on the index of the from date
+   */
+  private Object[] createPreloadLookupRow( RowMetaInterface rowMeta, Object[] row, Date valueDate )
+    throws KettleValueException {
+    RowMetaInterface preloadRowMeta = data.preloadCache.getRowMeta();
+    Object[] lookupRow = new Object[ preloadRowMeta.size() ];
+
+    // Assemble the lookup row, convert data if needed...
+    //
+    for ( int i = 0; i < data.preloadIndexes.size(); i++ ) {
+      int from = data.preloadIndexes.get( i ); // Input row index
+      int to = data.preloadCache.getKeyIndexes()[ i ]; // Lookup row index
+
+      // From data type...
+      //
+      ValueMetaInterface fromValueMeta = rowMeta.getValueMeta( from );
+
+      // to date type...
+      //
+      ValueMetaInterface toValueMeta = preloadRowMeta.getValueMeta( to );
+
+      // Set the key in the row...
+      //
+      lookupRow[ to ] = toValueMeta.convertData( fromValueMeta, row[ from ] );
+    }
+
+    // Also set the lookup date on the "start of date range" (fromDate) position
+    //
+    lookupRow[ data.preloadFromDateIndex ] = valueDate;
+
+    return lookupRow;
+  }
+
+  /**
+   * @return the row to look up in the database: the natural key followed by the lookup date twice
+   */
+  private Object[] createLookupRow( RowMetaInterface rowMeta, Object[] row, Date valueDate )
+    throws KettleStepException {
+    Object[] lookupRow = new Object[ data.lookupRowMeta.size() ];
+
+    // Construct the lookup row...
+    //
+    for ( int i = 0; i < meta.getKeyStream().length; i++ ) {
+      try {
+        lookupRow[ i ] = row[ data.keynrs[ i ] ];
+      } catch ( Exception e ) { // TODO : remove exception??
+        throw new KettleStepException(
+          BaseMessages
+            .getString(
+              PKG,
+              "DimensionLookup.Exception.ErrorDetectedInGettingKey", i + "", data.keynrs[ i ] + "/" + rowMeta.size(),
+              rowMeta.getString( row ) ) );
+      }
+    }
+
+    lookupRow[ meta.getKeyStream().length ] = valueDate; // ? >= date_from
+    lookupRow[ meta.getKeyStream().length + 1 ] = valueDate; // ? < date_to
+
+    return lookupRow;
+  }
+
+  private Object[] lookupInDatabase( Object[] lookupRow ) throws KettleDatabaseException {
+    // The new versions waiting in a batch have to be in the table first
+    //
+    flushBatches();
+
+    data.db.setValues( data.lookupRowMeta, lookupRow, data.prepStatementLookup );
+    Object[] returnRow = data.db.getLookup( data.prepStatementLookup );
+    data.returnRowMeta = data.db.getReturnRowMeta();
+
+    incrementLinesInput();
+
+    return returnRow;
+  }
+
+  /**
+   * Looks up a version the pre-load cache doesn't have in the database and adds it to the cache.
+   *
+   * @param preloadLookupRow the natural key in the layout of the pre-loaded rows
+   * @return the version in the layout of the pre-loaded rows or null if there is none
+   */
+  private Object[] lookupOlderVersion( RowMetaInterface rowMeta, Object[] row, Object[] preloadLookupRow,
+                                       Date valueDate ) throws KettleException {
+    Object[] returnRow = lookupInDatabase( createLookupRow( rowMeta, row, valueDate ) );
+    RowMetaInterface preloadRowMeta = data.preloadCache.getRowMeta();
+    RowMetaInterface databaseRowMeta = data.returnRowMeta;
+    data.returnRowMeta = preloadRowMeta;
+    if ( returnRow == null ) {
+      return null;
+    }
+
+    // The lookup returns the same fields as the pre-load, without the natural key at the end
+    //
+    Object[] cacheRow = Arrays.copyOf( returnRow, preloadRowMeta.size() );
+    cacheRow[ 0 ] = preloadRowMeta.getValueMeta( 0 ).convertData( databaseRowMeta.getValueMeta( 0 ), returnRow[ 0 ] );
+    for ( int keyIndex : data.preloadKeyIndexes ) {
+      cacheRow[ keyIndex ] = preloadLookupRow[ keyIndex ];
+    }
+    data.preloadCache.addRow( cacheRow );
+    return cacheRow;
+  }
+
   /**
    * table: dimension table keys[]: which dim-fields do we use to look up key? retval: name of the key to return
    * datefield: do we have a datefield? datefrom, dateto: date-range, if any.
@@ -835,29 +952,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
      * SELECT <tk>, <version>, ... , FROM <table> WHERE key1=keys[1] AND key2=keys[2] ... AND ( <datefrom> is null OR
      * <datefrom> <= <datefield> ) AND <dateto> >= <datefield>
      */
-    String sql =
-      "SELECT "
-        + databaseMeta.quoteField( meta.getKeyField() ) + ", "
-        + databaseMeta.quoteField( meta.getVersionField() );
-
-    if ( !Utils.isEmpty( meta.getFieldLookup() ) ) {
-      for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
-        // Don't retrieve the fields without input
-        if ( !Utils.isEmpty( meta.getFieldLookup()[ i ] )
-          && !DimensionLookupMeta.isUpdateTypeWithoutArgument( meta.isUpdate(), meta.getFieldUpdate()[ i ] ) ) {
-          sql += ", " + databaseMeta.quoteField( meta.getFieldLookup()[ i ] );
-
-          if ( !Utils.isEmpty( meta.getFieldStream()[ i ] )
-            && !meta.getFieldLookup()[ i ].equals( meta.getFieldStream()[ i ] ) ) {
-            sql += " AS " + databaseMeta.quoteField( meta.getFieldStream()[ i ] );
-          }
-        }
-      }
-    }
-    if ( meta.getCacheSize() >= 0 ) {
-      sql +=
-        ", " + databaseMeta.quoteField( meta.getDateFrom() ) + ", " + databaseMeta.quoteField( meta.getDateTo() );
-    }
+    String sql = getLookupSelect();
 
     sql += " FROM " + data.schemaTable + " WHERE ";
 
@@ -907,6 +1002,39 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     }
   }
 
+  /**
+   * @return the fields a lookup returns: the technical key, the version, the fields to compare or retrieve and the date
+   *         range when caching.
+   */
+  private String getLookupSelect() {
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+
+    String sql =
+      "SELECT "
+        + databaseMeta.quoteField( meta.getKeyField() ) + ", "
+        + databaseMeta.quoteField( meta.getVersionField() );
+
+    if ( !Utils.isEmpty( meta.getFieldLookup() ) ) {
+      for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
+        // Don't retrieve the fields without input
+        if ( !Utils.isEmpty( meta.getFieldLookup()[ i ] )
+          && !DimensionLookupMeta.isUpdateTypeWithoutArgument( meta.isUpdate(), meta.getFieldUpdate()[ i ] ) ) {
+          sql += ", " + databaseMeta.quoteField( meta.getFieldLookup()[ i ] );
+
+          if ( !Utils.isEmpty( meta.getFieldStream()[ i ] )
+            && !meta.getFieldLookup()[ i ].equals( meta.getFieldStream()[ i ] ) ) {
+            sql += " AS " + databaseMeta.quoteField( meta.getFieldStream()[ i ] );
+          }
+        }
+      }
+    }
+    if ( meta.getCacheSize() >= 0 ) {
+      sql +=
+        ", " + databaseMeta.quoteField( meta.getDateFrom() ) + ", " + databaseMeta.quoteField( meta.getDateTo() );
+    }
+    return sql;
+  }
+
   protected boolean isAutoIncrement() {
     return techKeyCreation == CREATION_METHOD_AUTOINC;
   }
@@ -1128,6 +1256,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
         throw new KettleStepException( BaseMessages.getString(
           PKG, "DimensionLookup.Exception.IllegalStartDateSelection", Integer.toString( data.startDateChoice ) ) );
     }
+    Object insertDateFrom = insertRow[ insertIndex - 1 ];
 
     insertRow[ insertIndex++ ] = dateTo;
 
@@ -1163,7 +1292,11 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
     // INSERT NEW VALUE!
     data.db.setValues( data.insertRowMeta, insertRow, data.prepStatementInsert );
-    data.db.insertRow( data.prepStatementInsert );
+    if ( data.batchSize > 0 ) {
+      data.db.insertRow( data.prepStatementInsert, true, false );
+    } else {
+      data.db.insertRow( data.prepStatementInsert );
+    }
 
     if ( isDebug() ) {
       logDebug( "Row inserted!" );
@@ -1183,6 +1316,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       }
     }
 
+    Object previousDateTo = null;
     if ( !newEntry ) { // we have to update the previous version in the dimension!
       /*
        * UPDATE d_customer SET dateto = val_datfrom , last_updated = <now> , last_version = false WHERE keylookup[] =
@@ -1235,6 +1369,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       }
 
       updateRow[ updateIndex++ ] = versionNr - 1;
+      previousDateTo = updateRow[ 0 ];
 
       if ( isRowLevel() ) {
         logRowlevel( "UPDATE using rupd=" + data.updateRowMeta.getString( updateRow ) );
@@ -1248,15 +1383,142 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       if ( isDebug() ) {
         logDebug( "Values set for update (" + data.updateRowMeta.size() + ")" );
       }
-      data.db.insertRow( data.prepStatementUpdate ); // do the actual update
+      if ( data.batchSize > 0 ) {
+        data.db.insertRow( data.prepStatementUpdate, true, false ); // after the inserts of the batch
+      } else {
+        data.db.insertRow( data.prepStatementUpdate ); // do the actual update
+      }
       if ( isDebug() ) {
         logDebug( "Row updated!" );
       }
     }
 
+    // A full batch is sent to the database and committed, once every commit size versions
+    //
+    if ( data.batchSize > 0 && ++data.batchedRows >= data.batchSize ) {
+      flushBatches();
+      data.db.commit();
+    }
+
+    if ( data.preloadCache != null ) {
+      cacheNewVersion( inputRowMeta, row, technicalKey, versionNr, insertDateFrom, dateTo, previousDateTo, newEntry );
+    }
+
     return technicalKey;
   }
 
+  /**
+   * Sends the new versions waiting in the batches to the database: the inserts first, then the updates ending the
+   * versions before them, which can be inserted in the same batch.
+   */
+  private void flushBatches() throws KettleDatabaseException {
+    if ( data.batchedRows == 0 ) {
+      return;
+    }
+    data.batchedRows = 0;
+    try {
+      data.prepStatementInsert.executeBatch();
+      data.prepStatementInsert.clearBatch();
+      data.prepStatementUpdate.executeBatch();
+      data.prepStatementUpdate.clearBatch();
+    } catch ( SQLException ex ) {
+      // The cache already holds the versions of the batch: drop it and look the versions up in the database again
+      //
+      if ( data.preloadCache != null ) {
+        data.preloadCache.clear();
+        data.preloadComplete = false;
+      }
+      throw Database.createKettleDatabaseBatchException( "Error inserting a batch of dimension entries into ["
+        + data.schemaTable + "]", ex );
+    }
+    if ( isDebug() ) {
+      logDebug( "Batch of dimension entries inserted!" );
+    }
+  }
+
+  /**
+   * Keeps the pre-load cache in line with an insert: adds the new version and ends the version before it.
+   */
+  private void cacheNewVersion( RowMetaInterface inputRowMeta, Object[] row, Long technicalKey, Long versionNr,
+                                Object dateFrom, Date dateTo, Object previousDateTo, boolean newEntry )
+    throws KettleException {
+    RowMetaInterface cacheRowMeta = data.preloadCache.getRowMeta();
+    Object[] keyRow = createPreloadLookupRow( inputRowMeta, row, null );
+    ValueMetaInterface dateMeta = new ValueMetaDate( meta.getDateTo() );
+
+    if ( !newEntry ) {
+      for ( Object[] version : data.preloadCache.getRows( keyRow ) ) {
+        if ( Long.valueOf( versionNr - 1 ).equals( cacheRowMeta.getInteger( version, 1 ) ) ) {
+          Object[] endedVersion = version.clone();
+          endedVersion[ data.preloadToDateIndex ] =
+            cacheRowMeta.getValueMeta( data.preloadToDateIndex ).convertData( dateMeta, previousDateTo );
+          data.preloadCache.replaceRow( version, endedVersion );
+          break;
+        }
+      }
+    }
+
+    if ( technicalKey == null ) {
+      // Without the technical key the new version can't be cached, it's looked up in the database
+      //
+      data.preloadComplete = false;
+      return;
+    }
+
+    Object[] cacheRow = new Object[ cacheRowMeta.size() ];
+    cacheRow[ 0 ] = technicalKey;
+    cacheRow[ 1 ] = cacheRowMeta.getValueMeta( 1 ).convertData( new ValueMetaInteger( meta.getVersionField() ),
+      versionNr );
+    setCachedFields( cacheRow, inputRowMeta, row, false );
+    cacheRow[ data.preloadFromDateIndex ] =
+      cacheRowMeta.getValueMeta( data.preloadFromDateIndex ).convertData( dateMeta, dateFrom );
+    cacheRow[ data.preloadToDateIndex ] =
+      cacheRowMeta.getValueMeta( data.preloadToDateIndex ).convertData( dateMeta, dateTo );
+    for ( int keyIndex : data.preloadKeyIndexes ) {
+      cacheRow[ keyIndex ] = keyRow[ keyIndex ];
+    }
+    data.preloadCache.addRow( cacheRow );
+  }
+
+  /**
+   * Copies the fields of an input row to a pre-loaded row, converted to the types of the table.
+   *
+   * @param punchThroughOnly true to copy the fields updated in all versions only
+   */
+  private void setCachedFields( Object[] cacheRow, RowMetaInterface inputRowMeta, Object[] row,
+                                boolean punchThroughOnly ) throws KettleValueException {
+    RowMetaInterface cacheRowMeta = data.preloadCache.getRowMeta();
+    for ( int i = 0; i < data.preloadFieldIndexes.length; i++ ) {
+      int cacheIndex = data.preloadFieldIndexes[ i ];
+      if ( cacheIndex < 0 || data.fieldnrs[ i ] < 0 ) {
+        continue;
+      }
+      if ( punchThroughOnly && meta.getFieldUpdate()[ i ] != DimensionLookupMeta.TYPE_UPDATE_DIM_PUNCHTHROUGH ) {
+        continue;
+      }
+      cacheRow[ cacheIndex ] = cacheRowMeta.getValueMeta( cacheIndex ).convertData(
+        inputRowMeta.getValueMeta( data.fieldnrs[ i ] ), row[ data.fieldnrs[ i ] ] );
+    }
+  }
+
+  /**
+   * Keeps the pre-load cache in line with an update of the fields of a dimension entry, one version or all of them.
+   *
+   * @param technicalKey the key of the version updated, null for all versions
+   */
+  private void cacheUpdatedFields( RowMetaInterface inputRowMeta, Object[] row, Long technicalKey )
+    throws KettleException {
+    RowMetaInterface cacheRowMeta = data.preloadCache.getRowMeta();
+    Object[] keyRow = createPreloadLookupRow( inputRowMeta, row, null );
+    for ( Object[] version : new ArrayList<>( data.preloadCache.getRows( keyRow ) ) ) {
+      if ( technicalKey == null || technicalKey.equals( cacheRowMeta.getInteger( version, 0 ) ) ) {
+        Object[] updatedVersion = version.clone();
+        setCachedFields( updatedVersion, inputRowMeta, row, technicalKey == null );
+        data.preloadCache.replaceRow( version, updatedVersion );
+      }
+    }
+  }
+
   @Override
   public boolean isRowLevel() {
     return log.isRowLevel();
@@ -1268,7 +1530,11 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
   }
 
   public void dimUpdate( RowMetaInterface rowMeta, Object[] row, Long dimkey, Date valueDate )
-    throws KettleDatabaseException {
+    throws KettleException {
+    // The entry can wait in a batch of new versions
+    //
+    flushBatches();
+
     if ( data.prepStatementDimensionUpdate == null ) {
       // first time: construct prepared statement
       //
@@ -1358,11 +1624,19 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
     data.db.setValues( data.dimensionUpdateRowMeta, dimensionUpdateRow, data.prepStatementDimensionUpdate );
     data.db.insertRow( data.prepStatementDimensionUpdate );
+
+    if ( data.preloadCache != null ) {
+      cacheUpdatedFields( rowMeta, row, dimkey );
+    }
   }
 
   // This updates all versions of a dimension entry.
   //
-  public void dimPunchThrough( RowMetaInterface rowMeta, Object[] row ) throws KettleDatabaseException {
+  public void dimPunchThrough( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    // The versions can wait in a batch of new versions
+    //
+    flushBatches();
+
     if ( data.prepStatementPunchThrough == null ) { // first time: construct prepared statement
       DatabaseMeta databaseMeta = meta.getDatabaseMeta();
       data.punchThroughRowMeta = new RowMeta();
@@ -1448,6 +1722,10 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     data.db.setValues( data.punchThroughRowMeta, punchThroughRow, data.prepStatementPunchThrough ); // set values for
     // update
     data.db.insertRow( data.prepStatementPunchThrough ); // do the actual punch through update
+
+    if ( data.preloadCache != null ) {
+      cacheUpdatedFields( rowMeta, row, null );
+    }
   }
 
   /**
@@ -1717,6 +1995,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       try {
         if ( !data.db.isAutoCommit() ) {
           if ( getErrors() == 0 ) {
+            flushBatches();
             data.db.commit();
           } else {
             data.db.rollback();
@@ -82,6 +82,26 @@ public class DimensionLookupData extends BaseDatabaseStepData implements StepDat
 
   public List<Integer> preloadIndexes;
 
+  /**
+   * The field indexes in the pre-loaded rows of the fields to compare when updating, -1 for the fields not read
+   */
+  public int[] preloadFieldIndexes;
+
+  /**
+   * True if the pre-load cache knows every dimension entry, so a natural key it doesn't have isn't in the table
+   */
+  public boolean preloadComplete;
+
+  /**
+   * The number of new versions inserted with one JDBC batch, the commit size, or 0 to insert them one by one
+   */
+  public int batchSize;
+
+  /**
+   * The number of new versions waiting in the batch of the insert statement
+   */
+  public int batchedRows;
+
   public List<Integer> lazyList;
 
   /**
@@ -39,16 +39,17 @@ public class DummyTrans extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-    Object[] r = getRow(); // get row, set busy!
+    Object[][] rows = getRows( ROW_BATCH_SIZE ); // get a chunk of rows, set busy!
     // no more input to be expected...
-    if ( r == null ) {
+    if ( rows == null ) {
       setOutputDone();
       return false;
     }
 
-    putRow( getInputRowMeta(), r ); // copy row to possible alternate rowset(s).
+    long previousLinesRead = getLinesRead() - rows.length;
+    putRows( getInputRowMeta(), rows, rows.length ); // copy rows to possible alternate rowset(s).
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "DummyTrans.Log.LineNumber" ) + getLinesRead() );
       }
@@ -132,7 +132,8 @@ public class ExecSQLRow extends BaseDatabaseStep implements StepInterface {
           logDebug( BaseMessages.getString( PKG, "ExecSQLRow.Log.ExecutingSQLScript" ) + Const.CR + sql );
         }
         if ( meta.IsSendOneStatement() ) {
-          data.result = data.db.execStatement( sql );
+          // The same statement over and over again is prepared once. A question mark isn't taken for a parameter.
+          data.result = data.db.execStatement( sql, null, null, sql.indexOf( '?' ) < 0 );
         } else {
           data.result = data.db.execStatements( sql );
         }
@@ -323,7 +323,7 @@ public abstract class BaseFileOutputMeta extends BaseFileMeta {
       if ( realExtension != null && realExtension.length() != 0 ) {
         retval += "." + realExtension;
       }
-      if ( "GZip".equals( meta.getFileCompression() ) ) {
+      if ( "GZip".equals( meta.getFileCompression() ) || "BGZF".equals( meta.getFileCompression() ) ) {
         retval += ".gz";
       }
     }
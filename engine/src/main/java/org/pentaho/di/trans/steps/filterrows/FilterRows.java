@@ -18,6 +18,7 @@ import java.util.List;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -59,14 +60,42 @@ public class FilterRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Evaluate the condition on a batch of rows at once when it compares primitive fields with constants, row by row
+   * otherwise.
+   */
+  private synchronized boolean[] keepRows( RowMetaInterface rowMeta, Object[][] rows ) throws KettleException {
+    boolean[] keep = new boolean[rows.length];
+    if ( !data.vectorized ) {
+      for ( int i = 0; i < rows.length; i++ ) {
+        keep[i] = keepRow( rowMeta, rows[i] );
+      }
+      return keep;
+    }
+
+    try {
+      if ( data.batch == null ) {
+        data.batch = RowBatch.fromRows( rowMeta, rows, rows.length );
+      } else {
+        data.batch.setRows( rows, rows.length );
+      }
+      meta.getCondition().evaluate( data.batch, keep );
+    } catch ( Exception e ) {
+      String message =
+        BaseMessages.getString( PKG, "FilterRows.Exception.UnexpectedErrorFoundInEvaluationFuction" );
+      logError( message );
+      logError( Const.getStackTracker( e ) );
+      throw new KettleException( message, e );
+    }
+    return keep;
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (FilterRowsMeta) smi;
     data = (FilterRowsData) sdi;
 
-    boolean keep;
-
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRows( ROW_BATCH_SIZE ); // Get next usable rows from input rowset(s)!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -82,6 +111,8 @@ public class FilterRows extends BaseStep implements StepInterface {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      data.vectorized = meta.getCondition().isVectorizable( getInputRowMeta() );
+
       // Cache the position of the RowSet for the output.
       //
       if ( data.chosesTargetSteps ) {
@@ -108,30 +139,41 @@ public class FilterRows extends BaseStep implements StepInterface {
       }
     }
 
-    keep = keepRow( getInputRowMeta(), r ); // Keep this row?
-    if ( !data.chosesTargetSteps ) {
-      if ( keep ) {
-        putRow( data.outputRowMeta, r ); // copy row to output rowset(s);
-      }
-    } else {
-      if ( keep ) {
-        if ( data.trueRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
-          }
-          putRowTo( data.outputRowMeta, r, data.trueRowSet );
+    long previousLinesRead = getLinesRead() - rows.length;
+    Object[][] keptRows = data.chosesTargetSteps ? null : new Object[rows.length][];
+    int nrKeptRows = 0;
+
+    boolean[] keep = keepRows( getInputRowMeta(), rows ); // Keep these rows?
+
+    for ( int i = 0; i < rows.length; i++ ) {
+      Object[] r = rows[i];
+      if ( !data.chosesTargetSteps ) {
+        if ( keep[i] ) {
+          keptRows[nrKeptRows++] = r;
         }
       } else {
-        if ( data.falseRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+        if ( keep[i] ) {
+          if ( data.trueRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.trueRowSet );
+          }
+        } else {
+          if ( data.falseRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.falseRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.falseRowSet );
         }
       }
     }
+    if ( !data.chosesTargetSteps ) {
+      putRows( data.outputRowMeta, keptRows, nrKeptRows ); // copy rows to output rowset(s);
+    }
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
       }
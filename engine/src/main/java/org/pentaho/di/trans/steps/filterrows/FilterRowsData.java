@@ -14,6 +14,7 @@
 package org.pentaho.di.trans.steps.filterrows;
 
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -32,6 +33,12 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public String trueStepname;
   public String falseStepname;
 
+  /** The condition can be evaluated on the columns of a batch of rows instead of row by row */
+  public boolean vectorized;
+
+  /** The batch the rows are evaluated in, its columns are reused */
+  public RowBatch batch;
+
   public FilterRowsData() {
     super();
   }
@@ -33,6 +33,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -84,6 +85,10 @@ public class GroupBy extends BaseStep implements StepInterface {
     meta = (GroupByMeta) smi;
     data = (GroupByData) sdi;
 
+    if ( !first && !data.newBatch && data.vectorized ) {
+      return processRowBatch();
+    }
+
     Object[] r = getRow(); // get row!
 
     if ( first ) {
@@ -176,6 +181,8 @@ public class GroupBy extends BaseStep implements StepInterface {
       // Initialize the group metadata
       //
       initGroupMeta( data.inputRowMeta );
+
+      data.vectorized = isVectorizable();
     }
 
     if ( first || data.newBatch ) {
@@ -264,6 +271,163 @@ public class GroupBy extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Does the same as {@link #processRow(StepMetaInterface, StepDataInterface)} for a batch of rows: the rows of a group
+   * in the batch are aggregated column by column on the primitive values. As in the row by row case the last row read
+   * is kept in previous and is only aggregated when the next row or the end of the input comes in.
+   */
+  private boolean processRowBatch() throws KettleException {
+    RowBatch batch = getRowBatch( ROW_BATCH_SIZE, data.batch );
+    if ( batch == null ) { // no more input to be expected...
+      handleLastOfGroup();
+      setOutputDone();
+      return false;
+    }
+    data.batch = batch;
+
+    long previousLinesRead = getLinesRead() - batch.size();
+    boolean primitive = isPrimitive( batch );
+    calcAggregate( data.previous );
+
+    Object[] previous = data.previous;
+    int groupStart = 0;
+    for ( int r = 0; r < batch.size(); r++ ) {
+      Object[] row = batch.getRow( r );
+      if ( !sameGroup( previous, row ) ) {
+        calcAggregate( batch, groupStart, r, primitive );
+        Object[] result = buildResult( previous );
+        if ( result != null ) {
+          putRow( data.groupAggMeta, result ); // copy row to possible alternate rowset(s).
+        }
+        newAggregate( row ); // Create a new group aggregate (init)
+        groupStart = r;
+      }
+      previous = row;
+    }
+    calcAggregate( batch, groupStart, batch.size() - 1, primitive );
+    data.previous = data.inputRowMeta.cloneRow( previous );
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "GroupBy.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Only the sums, averages and counts of Integer and Number fields are aggregated on the columns of a batch. The
+   * other aggregates and the ones that need every row (cumulative values, all rows passed on) go row by row.
+   */
+  private boolean isVectorizable() {
+    if ( meta.passAllRows() ) {
+      return false;
+    }
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      switch ( meta.getAggregateType()[ i ] ) {
+        case GroupByMeta.TYPE_GROUP_COUNT_ANY:
+          break;
+        case GroupByMeta.TYPE_GROUP_SUM:
+        case GroupByMeta.TYPE_GROUP_AVERAGE:
+        case GroupByMeta.TYPE_GROUP_COUNT_ALL:
+          if ( data.subjectnrs[ i ] < 0 ) {
+            return false;
+          }
+          ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+          if ( ( subjMeta.getType() != ValueMetaInterface.TYPE_INTEGER
+            && subjMeta.getType() != ValueMetaInterface.TYPE_NUMBER )
+            || subjMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the subject fields hold their values in primitive columns
+   */
+  private boolean isPrimitive( RowBatch batch ) {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      if ( meta.getAggregateType()[ i ] != GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        RowBatch.ColumnType columnType = batch.getColumnType( data.subjectnrs[ i ] );
+        if ( columnType != RowBatch.ColumnType.LONG && columnType != RowBatch.ColumnType.DOUBLE ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Aggregates the rows from (inclusive) to (exclusive) of a batch, with the same results as
+   * {@link #calcAggregate(Object[])} on every row: the values are added in the same order.
+   */
+  private void calcAggregate( RowBatch batch, int from, int to, boolean primitive ) throws KettleValueException {
+    if ( !primitive ) {
+      for ( int r = from; r < to; r++ ) {
+        calcAggregate( batch.getRow( r ) );
+      }
+      return;
+    }
+
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      int aggregateType = meta.getAggregateType()[ i ];
+      if ( aggregateType == GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        data.counts[ i ] += to - from;
+        continue;
+      }
+
+      int column = data.subjectnrs[ i ];
+      if ( aggregateType == GroupByMeta.TYPE_GROUP_COUNT_ALL ) {
+        for ( int r = from; r < to; r++ ) {
+          if ( !batch.isNull( r, column ) ) {
+            data.counts[ i ]++;
+          }
+        }
+        continue;
+      }
+
+      // A sum or an average
+      //
+      Object value = data.agg[ i ];
+      boolean hasValue = value != null;
+      long count = 0;
+      if ( batch.getColumnType( column ) == RowBatch.ColumnType.LONG ) {
+        long sum = hasValue ? (Long) value : 0L;
+        for ( int r = from; r < to; r++ ) {
+          if ( !batch.isNull( r, column ) ) {
+            sum = hasValue ? sum + batch.getLong( r, column ) : batch.getLong( r, column );
+            hasValue = true;
+            count++;
+          }
+        }
+        if ( hasValue ) {
+          data.agg[ i ] = sum;
+        }
+      } else {
+        double sum = hasValue ? (Double) value : 0.0;
+        for ( int r = from; r < to; r++ ) {
+          if ( !batch.isNull( r, column ) ) {
+            sum = hasValue ? sum + batch.getDouble( r, column ) : batch.getDouble( r, column );
+            hasValue = true;
+            count++;
+          }
+        }
+        if ( hasValue ) {
+          data.agg[ i ] = sum;
+        }
+      }
+      if ( aggregateType == GroupByMeta.TYPE_GROUP_AVERAGE ) {
+        data.counts[ i ] += count;
+      }
+    }
+  }
+
   private void handleLastOfGroup() throws KettleException {
     if ( meta.passAllRows() ) {
       // ALL ROWS
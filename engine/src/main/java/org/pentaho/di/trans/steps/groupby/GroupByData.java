@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -94,6 +95,16 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public boolean newBatch;
 
+  /**
+   * true if the aggregates are calculated on the columns of a batch of rows
+   */
+  public boolean vectorized;
+
+  /**
+   * the batch the input rows are read in, its columns are reused
+   */
+  public RowBatch batch;
+
   public GroupByData() {
     super();
 
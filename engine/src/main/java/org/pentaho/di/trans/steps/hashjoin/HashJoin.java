@@ -0,0 +1,540 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.Bucket;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.Key;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.Partition;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.SpillFile;
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
+
+/**
+ * Joins the main input with the rows of the build step, loaded in a hash table. The copies of the step share one
+ * table: they first build it together, then probe it in parallel.<br>
+ * <br>
+ * Build rows over the memory limit are spilled to disk a hash partition at a time (hybrid hash join). The main input
+ * rows of a spilled partition are written to disk as well and once all copies are done probing the spilled partitions
+ * are joined one by one, in chunks of build rows that fit in memory.
+ */
+public class HashJoin extends BaseStep implements StepInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private HashJoinMeta meta;
+  private HashJoinData data;
+
+  public HashJoin( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+    Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( first ) {
+      first = false;
+      if ( !buildTable() ) {
+        setOutputDone();
+        return false;
+      }
+    }
+
+    Object[] r = getRow();
+    if ( r == null ) {
+      finishJoin();
+      setOutputDone();
+      return false;
+    }
+
+    if ( data.probeRowMeta == null ) {
+      initProbe( getInputRowMeta() );
+      data.table.setProbeRowMeta( data.probeRowMeta );
+    }
+
+    probe( r );
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "HashJoin.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads the build rows into the shared table and waits for the other copies to do the same.
+   *
+   * @return false if the step was stopped
+   */
+  private boolean buildTable() throws KettleException {
+    data.table = getTable();
+    data.table.attach();
+
+    RowSet rowSet = findInputRowSet( data.infoStream.getStepname() );
+    if ( rowSet == null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindBuildStep",
+        data.infoStream.getStepname() ) );
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.ReadingBuildRows", data.infoStream.getStepname() ) );
+    }
+
+    // When the build step copies its rows to all step copies, the first copy builds the table on its own
+    //
+    boolean building = getCopy() == 0 || data.infoStream.getStepMeta().isDistributes();
+
+    Object[] row = getRowFrom( rowSet );
+    if ( row != null && building ) {
+      setBuildRowMeta( rowSet.getRowMeta() );
+    }
+    while ( row != null && !isStopped() ) {
+      if ( building && data.table.add( row ) ) {
+        int nrSpilled = data.table.spill( this );
+        if ( nrSpilled > 0 && log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.SpilledPartitions", nrSpilled,
+            data.table.getMemoryLimit() / ( 1024 * 1024 ) ) );
+        }
+      }
+      row = getRowFrom( rowSet );
+    }
+
+    data.table.buildDone();
+    try {
+      if ( !data.table.awaitBuilt( this ) || isStopped() ) {
+        return false;
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.InterruptedWhileWaiting" ), e );
+    }
+
+    // Without any build rows the layout comes from the build step
+    //
+    if ( data.table.getBuildRowMeta() == null ) {
+      setBuildRowMeta( getTransMeta().getStepFields( data.infoStream.getStepname() ) );
+    }
+    data.buildRowMeta = data.table.getBuildRowMeta();
+    return true;
+  }
+
+  private void setBuildRowMeta( RowMetaInterface buildRowMeta ) throws KettleStepException {
+    int[] buildKeyNrs = new int[meta.getBuildKeyFields().length];
+    RowMetaInterface keyMeta = new RowMeta();
+    for ( int i = 0; i < buildKeyNrs.length; i++ ) {
+      buildKeyNrs[i] = buildRowMeta.indexOfValue( meta.getBuildKeyFields()[i] );
+      if ( buildKeyNrs[i] < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindField",
+          meta.getBuildKeyFields()[i], data.infoStream.getStepname() ) );
+      }
+      ValueMetaInterface valueMeta = buildRowMeta.getValueMeta( buildKeyNrs[i] ).clone();
+      valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      keyMeta.addValueMeta( valueMeta );
+    }
+    data.table.setBuildRowMeta( buildRowMeta.clone(), keyMeta, buildKeyNrs );
+  }
+
+  /**
+   * @return the table of the first copy, all copies of a transformation share it
+   */
+  private HashJoinTable getTable() {
+    int nrCopies = getTrans().findStepInterfaces( getStepname() ).size();
+    if ( nrCopies <= 1 ) {
+      return new HashJoinTable( 1, data.buildOuter, data.memoryLimit );
+    }
+    HashJoinData firstData = (HashJoinData) getTrans().getStepDataInterface( getStepname(), 0 );
+    synchronized ( firstData ) {
+      if ( firstData.table == null ) {
+        firstData.table = new HashJoinTable( nrCopies, data.buildOuter, data.memoryLimit );
+      }
+      return firstData.table;
+    }
+  }
+
+  private void initProbe( RowMetaInterface probeRowMeta ) throws KettleException {
+    data.probeRowMeta = probeRowMeta;
+    data.keyNrs = new int[meta.getKeyFields().length];
+    for ( int i = 0; i < data.keyNrs.length; i++ ) {
+      data.keyNrs[i] = probeRowMeta.indexOfValue( meta.getKeyFields()[i] );
+      if ( data.keyNrs[i] < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindField",
+          meta.getKeyFields()[i], getStepname() ) );
+      }
+    }
+
+    data.outputRowMeta = probeRowMeta.clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(),
+      new RowMetaInterface[] { data.buildRowMeta.clone() }, null, this, repository, metaStore );
+  }
+
+  /**
+   * @return the fields of the main input, for a copy that didn't get any main input rows
+   */
+  private RowMetaInterface getProbeFields() throws KettleStepException {
+    if ( data.table.getProbeRowMeta() != null ) {
+      return data.table.getProbeRowMeta();
+    }
+    List<StepMeta> previousSteps = getTransMeta().findPreviousSteps( getStepMeta(), false );
+    if ( previousSteps.isEmpty() ) {
+      return new RowMeta();
+    }
+    return getTransMeta().getStepFields( previousSteps.get( 0 ) );
+  }
+
+  /**
+   * @return the key of a main input row converted to the data types of the build keys, null if a key value is null
+   */
+  private Key getProbeKey( Object[] row ) throws KettleValueException {
+    RowMetaInterface keyMeta = data.table.getKeyMeta();
+    Object[] keyData = new Object[data.keyNrs.length];
+    for ( int i = 0; i < data.keyNrs.length; i++ ) {
+      ValueMetaInterface probeMeta = data.probeRowMeta.getValueMeta( data.keyNrs[i] );
+      ValueMetaInterface buildMeta = keyMeta.getValueMeta( i );
+      Object value = row[data.keyNrs[i]];
+      if ( probeMeta.getType() == buildMeta.getType() ) {
+        keyData[i] = probeMeta.convertToNormalStorageType( value );
+      } else {
+        keyData[i] = buildMeta.convertData( probeMeta, value );
+      }
+      if ( keyData[i] == null ) {
+        return null;
+      }
+    }
+    return data.table.createKey( keyData );
+  }
+
+  private void probe( Object[] row ) throws KettleException {
+    Key key = getProbeKey( row );
+    if ( key == null ) {
+      // A null never matches
+      //
+      if ( data.probeOuter ) {
+        putJoinedRow( row, null );
+      }
+      return;
+    }
+
+    int partitionNr = key.getPartitionNr();
+    Partition partition = data.table.getPartition( partitionNr );
+    if ( partition.isSpilled() ) {
+      writeProbeRow( partitionNr, row );
+    } else if ( !join( row, partition.buckets.get( key ) ) && data.probeOuter ) {
+      putJoinedRow( row, null );
+    }
+  }
+
+  /**
+   * Passes on a main input row joined with all rows of a bucket.
+   *
+   * @return false if there is no bucket
+   */
+  private boolean join( Object[] row, Bucket bucket ) throws KettleStepException {
+    if ( bucket == null ) {
+      return false;
+    }
+    for ( int i = 0; i < bucket.size; i++ ) {
+      putJoinedRow( row, bucket.rows[i] );
+      if ( bucket.matched != null ) {
+        bucket.matched[i] = true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Passes on a joined row, a missing side is filled up with nulls.
+   */
+  private void putJoinedRow( Object[] probeRow, Object[] buildRow ) throws KettleStepException {
+    Object[] outputRow = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+    int probeSize = data.probeRowMeta.size();
+    if ( probeRow != null ) {
+      System.arraycopy( probeRow, 0, outputRow, 0, probeSize );
+    }
+    if ( buildRow != null ) {
+      System.arraycopy( buildRow, 0, outputRow, probeSize, data.buildRowMeta.size() );
+    }
+    putRow( data.outputRowMeta, outputRow );
+  }
+
+  private void putUnmatchedRows( Partition partition ) throws KettleStepException {
+    for ( Bucket bucket : partition.buckets.values() ) {
+      for ( int i = 0; i < bucket.size; i++ ) {
+        if ( !bucket.matched[i] ) {
+          putJoinedRow( null, bucket.rows[i] );
+        }
+      }
+    }
+    for ( Object[] row : partition.nullKeyRows ) {
+      putJoinedRow( null, row );
+    }
+  }
+
+  private void writeProbeRow( int partitionNr, Object[] row ) throws KettleException {
+    SpillFile probeFile = data.probeFiles[partitionNr];
+    if ( probeFile == null ) {
+      probeFile = openSpillFile();
+      data.probeFiles[partitionNr] = probeFile;
+    }
+    data.probeRowMeta.writeData( probeFile.output, row );
+    probeFile.rows++;
+  }
+
+  /**
+   * Hands over the main input rows written to disk and, once all copies are done probing, finishes partitions until
+   * all of them are done.
+   */
+  private void finishJoin() throws KettleException {
+    for ( SpillFile probeFile : data.probeFiles ) {
+      if ( probeFile != null ) {
+        closeSpillFile( probeFile );
+      }
+    }
+    data.table.probeDone( data.probeFiles );
+    data.probeFiles = new SpillFile[HashJoinTable.NR_PARTITIONS];
+
+    try {
+      if ( !data.table.awaitProbed( this ) ) {
+        return;
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.InterruptedWhileWaiting" ), e );
+    }
+
+    if ( data.probeRowMeta == null ) {
+      initProbe( getProbeFields() );
+    }
+
+    for ( int partitionNr = data.table.nextPartition(); partitionNr >= 0 && !isStopped();
+      partitionNr = data.table.nextPartition() ) {
+      Partition partition = data.table.getPartition( partitionNr );
+      if ( partition.isSpilled() ) {
+        joinSpilledPartition( partition );
+      } else {
+        if ( data.buildOuter ) {
+          putUnmatchedRows( partition );
+        }
+        partition.clear();
+      }
+    }
+  }
+
+  /**
+   * Joins the build rows of a spilled partition with the main input rows written for it. The build rows are read in
+   * chunks that fit in memory, the main input rows are read once for every chunk.
+   */
+  private void joinSpilledPartition( Partition partition ) throws KettleException {
+    SpillFile buildFile = partition.buildFile;
+    List<SpillFile> probeFiles = partition.probeFiles;
+    try {
+      closeSpillFile( buildFile );
+      long nrProbeRows = 0L;
+      for ( SpillFile probeFile : probeFiles ) {
+        nrProbeRows += probeFile.rows;
+      }
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.JoiningSpilledPartition", buildFile.rows,
+          nrProbeRows ) );
+      }
+      if ( nrProbeRows == 0L && !data.buildOuter ) {
+        return;
+      }
+
+      // The copies join spilled partitions at the same time
+      //
+      long chunkLimit = Math.max( 1L, data.table.getMemoryLimit() / data.table.getNrCopies() );
+      BitSet probeMatched = data.probeOuter ? new BitSet() : null;
+      try ( DataInputStream buildInput = openSpillInput( buildFile ) ) {
+        long nrBuildRowsRead = 0L;
+        do {
+          Partition chunk = new Partition();
+          while ( nrBuildRowsRead < buildFile.rows && chunk.memoryUsed < chunkLimit ) {
+            Object[] row = data.buildRowMeta.readData( buildInput );
+            nrBuildRowsRead++;
+            data.table.add( chunk, data.table.getBuildKey( row ), row );
+          }
+          joinChunk( chunk, probeFiles, probeMatched, nrBuildRowsRead == buildFile.rows );
+          if ( data.buildOuter ) {
+            putUnmatchedRows( chunk );
+          }
+        } while ( nrBuildRowsRead < buildFile.rows && !isStopped() );
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToReadTemporaryFile" ), e );
+      }
+    } finally {
+      deleteSpillFile( buildFile );
+      for ( SpillFile probeFile : probeFiles ) {
+        deleteSpillFile( probeFile );
+      }
+    }
+  }
+
+  /**
+   * Joins the main input rows of a spilled partition with a chunk of its build rows. Main input rows without a match
+   * in any of the chunks are passed on with the last chunk.
+   */
+  private void joinChunk( Partition chunk, List<SpillFile> probeFiles, BitSet probeMatched, boolean lastChunk )
+    throws KettleException {
+    int probeRowNr = 0;
+    for ( SpillFile probeFile : probeFiles ) {
+      try ( DataInputStream probeInput = openSpillInput( probeFile ) ) {
+        for ( long i = 0; i < probeFile.rows && !isStopped(); i++, probeRowNr++ ) {
+          Object[] row = data.probeRowMeta.readData( probeInput );
+          if ( join( row, chunk.buckets.get( getProbeKey( row ) ) ) ) {
+            if ( probeMatched != null ) {
+              probeMatched.set( probeRowNr );
+            }
+          } else if ( lastChunk && probeMatched != null && !probeMatched.get( probeRowNr ) ) {
+            putJoinedRow( row, null );
+          }
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToReadTemporaryFile" ), e );
+      }
+    }
+  }
+
+  SpillFile openSpillFile() throws KettleException {
+    SpillFile spillFile = new SpillFile();
+    try {
+      spillFile.file = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .createTempFile( "hashjoin", ".tmp", data.directory, this );
+      spillFile.output = new DataOutputStream( new SnappyOutputStream( new BufferedOutputStream(
+        KettleVFS.getInstance( getTransMeta().getBowl() ).getOutputStream( spillFile.file, false ) ) ) );
+    } catch ( Exception e ) {
+      deleteSpillFile( spillFile );
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToCreateTemporaryFile" ), e );
+    }
+    return spillFile;
+  }
+
+  private DataInputStream openSpillInput( SpillFile spillFile ) throws KettleException {
+    return new DataInputStream( new SnappyInputStream( new BufferedInputStream(
+      KettleVFS.getInputStream( spillFile.file ) ) ) );
+  }
+
+  private void closeSpillFile( SpillFile spillFile ) throws KettleException {
+    try {
+      if ( spillFile.output != null ) {
+        spillFile.output.close();
+        spillFile.output = null;
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToWriteTemporaryFile" ), e );
+    }
+  }
+
+  private void deleteSpillFile( SpillFile spillFile ) {
+    try {
+      if ( spillFile.output != null ) {
+        spillFile.output.close();
+        spillFile.output = null;
+      }
+      if ( spillFile.file != null ) {
+        spillFile.file.delete();
+      }
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "HashJoin.Exception.UnableToDeleteTemporaryFile", spillFile.file ), e );
+    }
+  }
+
+  @Override
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( super.init( smi, sdi ) ) {
+      int joinType = Const.indexOfString( meta.getJoinType(), HashJoinMeta.join_types );
+      if ( joinType < 0 ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.InvalidJoinType", meta.getJoinType() ) );
+        return false;
+      }
+      data.probeOuter = HashJoinMeta.probe_optionals[joinType];
+      data.buildOuter = HashJoinMeta.build_optionals[joinType];
+
+      if ( meta.getKeyFields().length == 0 || meta.getKeyFields().length != meta.getBuildKeyFields().length ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.InvalidKeys" ) );
+        return false;
+      }
+
+      data.infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
+      if ( data.infoStream.getStepMeta() == null ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.NoBuildStepSpecified" ) );
+        return false;
+      }
+
+      data.memoryLimit = Const.toLong( environmentSubstitute( meta.getMemoryLimit() ), 0L ) * 1024 * 1024;
+      data.directory = environmentSubstitute( meta.getDirectory() );
+      if ( Utils.isEmpty( data.directory ) ) {
+        data.directory = System.getProperty( "java.io.tmpdir" );
+      }
+      data.probeFiles = new SpillFile[HashJoinTable.NR_PARTITIONS];
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (HashJoinData) sdi;
+
+    // Remove the temporary files of a step that was stopped or failed, the last copy removes the shared ones
+    //
+    if ( data.probeFiles != null ) {
+      for ( SpillFile probeFile : data.probeFiles ) {
+        if ( probeFile != null ) {
+          deleteSpillFile( probeFile );
+        }
+      }
+      data.probeFiles = null;
+    }
+    if ( data.table != null && data.table.detach() ) {
+      for ( SpillFile spillFile : data.table.getSpillFiles() ) {
+        deleteSpillFile( spillFile );
+      }
+    }
+    data.table = null;
+
+    super.dispose( smi, sdi );
+  }
+}
@@ -0,0 +1,50 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.SpillFile;
+
+public class HashJoinData extends BaseStepData implements StepDataInterface {
+  public StreamInterface infoStream;
+
+  /** The main input rows without a matching build row are passed on */
+  public boolean probeOuter;
+
+  /** The build rows without a matching main input row are passed on */
+  public boolean buildOuter;
+
+  public long memoryLimit;
+  public String directory;
+
+  public RowMetaInterface probeRowMeta;
+  public RowMetaInterface buildRowMeta;
+  public RowMetaInterface outputRowMeta;
+
+  /** The key fields of the main input */
+  public int[] keyNrs;
+
+  /** The build table, shared by all copies. The table of the first copy is used by the others. */
+  HashJoinTable table;
+
+  /** The main input rows of this copy for the spilled partitions */
+  SpillFile[] probeFiles;
+
+  public HashJoinData() {
+    super();
+  }
+}
@@ -0,0 +1,411 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.util.List;
+
+import org.pentaho.di.core.CheckResult;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
+import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepIOMeta;
+import org.pentaho.di.trans.step.StepIOMetaInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.Stream;
+import org.pentaho.di.trans.step.errorhandling.StreamIcon;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface.StreamType;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+/**
+ * Joins the main input (the probe side) with the rows of an info step (the build side) that are loaded in a hash
+ * table. Neither input needs to be sorted. Build rows that don't fit in the memory limit are spilled to disk in hash
+ * partitions and joined partition by partition once all probe rows are read.
+ */
+@InjectionSupported( localizationPrefix = "HashJoin.Injection." )
+public class HashJoinMeta extends BaseStepMeta implements StepMetaInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  public static final String[] join_types = { "INNER", "LEFT OUTER", "RIGHT OUTER", "FULL OUTER" };
+
+  /** The main input rows without a matching build row are passed on */
+  public static final boolean[] probe_optionals = { false, true, false, true };
+
+  /** The build rows without a matching main input row are passed on */
+  public static final boolean[] build_optionals = { false, false, true, true };
+
+  public static final String DEFAULT_MEMORY_LIMIT = "512";
+
+  @Injection( name = "JOIN_TYPE" )
+  private String joinType;
+
+  /** The key fields of the main input */
+  @Injection( name = "KEY_FIELD" )
+  private String[] keyFields;
+
+  /** The key fields of the build step */
+  @Injection( name = "BUILD_KEY_FIELD" )
+  private String[] buildKeyFields;
+
+  /** The memory limit of the build rows in MB, empty or 0 for no limit */
+  @Injection( name = "MEMORY_LIMIT" )
+  private String memoryLimit;
+
+  /** The directory of the temporary files with the spilled rows */
+  @Injection( name = "DIRECTORY" )
+  private String directory;
+
+  public HashJoinMeta() {
+    super(); // allocate BaseStepMeta
+  }
+
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
+    readData( stepnode );
+  }
+
+  public void allocate( int nrKeys ) {
+    keyFields = new String[nrKeys];
+    buildKeyFields = new String[nrKeys];
+  }
+
+  @Override
+  public Object clone() {
+    HashJoinMeta retval = (HashJoinMeta) super.clone();
+    int nrKeys = keyFields.length;
+    retval.allocate( nrKeys );
+    System.arraycopy( keyFields, 0, retval.keyFields, 0, nrKeys );
+    System.arraycopy( buildKeyFields, 0, retval.buildKeyFields, 0, nrKeys );
+
+    StepIOMetaInterface stepIOMeta = new StepIOMeta( true, true, false, false, false, false );
+    for ( StreamInterface infoStream : getStepIOMeta().getInfoStreams() ) {
+      stepIOMeta.addStream( new Stream( infoStream ) );
+    }
+    retval.setStepIOMeta( stepIOMeta );
+
+    return retval;
+  }
+
+  private void readData( Node stepnode ) throws KettleXMLException {
+    try {
+      StreamInterface infoStream = getStepIOMeta().getInfoStreams().get( 0 );
+      infoStream.setSubject( XMLHandler.getTagValue( stepnode, "build_step" ) );
+
+      joinType = XMLHandler.getTagValue( stepnode, "join_type" );
+      memoryLimit = XMLHandler.getTagValue( stepnode, "memory_limit" );
+      directory = XMLHandler.getTagValue( stepnode, "directory" );
+
+      Node keys = XMLHandler.getSubNode( stepnode, "keys" );
+      int nrKeys = XMLHandler.countNodes( keys, "key" );
+
+      allocate( nrKeys );
+
+      for ( int i = 0; i < nrKeys; i++ ) {
+        Node knode = XMLHandler.getSubNodeByNr( keys, "key", i );
+        keyFields[i] = XMLHandler.getTagValue( knode, "name" );
+        buildKeyFields[i] = XMLHandler.getTagValue( knode, "build_name" );
+      }
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "HashJoinMeta.Exception.UnableToLoadStepInfo" ), e );
+    }
+  }
+
+  @Override
+  public void setDefault() {
+    joinType = join_types[0];
+    memoryLimit = DEFAULT_MEMORY_LIMIT;
+    directory = "%%java.io.tmpdir%%";
+    allocate( 0 );
+  }
+
+  @Override
+  public String getXML() {
+    StringBuilder retval = new StringBuilder();
+
+    StreamInterface infoStream = getStepIOMeta().getInfoStreams().get( 0 );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "build_step", infoStream.getStepname() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "join_type", joinType ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "memory_limit", memoryLimit ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "directory", directory ) );
+
+    retval.append( "    <keys>" ).append( Const.CR );
+    for ( int i = 0; i < keyFields.length; i++ ) {
+      retval.append( "      <key>" ).append( Const.CR );
+      retval.append( "        " ).append( XMLHandler.addTagValue( "name", keyFields[i] ) );
+      retval.append( "        " ).append( XMLHandler.addTagValue( "build_name", buildKeyFields[i] ) );
+      retval.append( "      </key>" ).append( Const.CR );
+    }
+    retval.append( "    </keys>" ).append( Const.CR );
+
+    return retval.toString();
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    try {
+      StreamInterface infoStream = getStepIOMeta().getInfoStreams().get( 0 );
+      infoStream.setSubject( rep.getStepAttributeString( id_step, "build_step" ) );
+
+      joinType = rep.getStepAttributeString( id_step, "join_type" );
+      memoryLimit = rep.getStepAttributeString( id_step, "memory_limit" );
+      directory = rep.getStepAttributeString( id_step, "directory" );
+
+      int nrKeys = rep.countNrStepAttributes( id_step, "key_name" );
+
+      allocate( nrKeys );
+
+      for ( int i = 0; i < nrKeys; i++ ) {
+        keyFields[i] = rep.getStepAttributeString( id_step, i, "key_name" );
+        buildKeyFields[i] = rep.getStepAttributeString( id_step, i, "key_build_name" );
+      }
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoinMeta.Exception.UnexpectedErrorReadingStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    try {
+      StreamInterface infoStream = getStepIOMeta().getInfoStreams().get( 0 );
+      rep.saveStepAttribute( id_transformation, id_step, "build_step", infoStream.getStepname() );
+      rep.saveStepAttribute( id_transformation, id_step, "join_type", joinType );
+      rep.saveStepAttribute( id_transformation, id_step, "memory_limit", memoryLimit );
+      rep.saveStepAttribute( id_transformation, id_step, "directory", directory );
+
+      for ( int i = 0; i < keyFields.length; i++ ) {
+        rep.saveStepAttribute( id_transformation, id_step, i, "key_name", keyFields[i] );
+        rep.saveStepAttribute( id_transformation, id_step, i, "key_build_name", buildKeyFields[i] );
+      }
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HashJoinMeta.Exception.UnableToSaveStepInfo" )
+        + id_step, e );
+    }
+  }
+
+  @Override
+  public void searchInfoAndTargetSteps( List<StepMeta> steps ) {
+    for ( StreamInterface stream : getStepIOMeta().getInfoStreams() ) {
+      stream.setStepMeta( StepMeta.findStep( steps, (String) stream.getSubject() ) );
+    }
+  }
+
+  @Override
+  public void getFields( Bowl bowl, RowMetaInterface r, String name, RowMetaInterface[] info, StepMeta nextStep,
+    VariableSpace space, Repository repository, IMetaStore metaStore ) throws KettleStepException {
+    // The fields of the build step follow the fields of the main input, duplicate names are renamed
+    //
+    if ( info != null && info.length == 1 && info[0] != null ) {
+      r.mergeRowMeta( info[0], name );
+    }
+  }
+
+  @Override
+  public void check( List<CheckResultInterface> remarks, TransMeta transMeta, StepMeta stepMeta,
+    RowMetaInterface prev, String[] input, String[] output, RowMetaInterface info, VariableSpace space,
+    Repository repository, IMetaStore metaStore ) {
+    CheckResult cr;
+
+    if ( Const.indexOfString( joinType, join_types ) < 0 ) {
+      cr = new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.InvalidJoinType", joinType ), stepMeta );
+      remarks.add( cr );
+    }
+
+    if ( keyFields.length == 0 ) {
+      cr = new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.NoKeysSpecified" ), stepMeta );
+      remarks.add( cr );
+    }
+
+    if ( prev != null && prev.size() > 0 ) {
+      checkKeyFields( remarks, stepMeta, prev, keyFields, "HashJoinMeta.CheckResult.KeyFieldsNotFound" );
+    } else {
+      cr = new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.CouldNotFindFieldsFromPreviousSteps" ), stepMeta );
+      remarks.add( cr );
+    }
+
+    StreamInterface infoStream = getStepIOMeta().getInfoStreams().get( 0 );
+    if ( infoStream.getStepMeta() == null ) {
+      cr = new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.BuildStepNotSelected" ), stepMeta );
+      remarks.add( cr );
+    } else if ( info != null && info.size() > 0 ) {
+      checkKeyFields( remarks, stepMeta, info, buildKeyFields, "HashJoinMeta.CheckResult.BuildKeyFieldsNotFound" );
+    } else {
+      cr = new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.BuildStepDoesNotExist", infoStream.getStepname() ), stepMeta );
+      remarks.add( cr );
+    }
+  }
+
+  private void checkKeyFields( List<CheckResultInterface> remarks, StepMeta stepMeta, RowMetaInterface row,
+    String[] fields, String errorKey ) {
+    StringBuilder missing = new StringBuilder();
+    for ( String field : fields ) {
+      if ( row.indexOfValue( field ) < 0 ) {
+        missing.append( "\t\t" ).append( field ).append( Const.CR );
+      }
+    }
+    if ( missing.length() > 0 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG, errorKey )
+        + Const.CR + Const.CR + missing, stepMeta ) );
+    } else {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_OK, BaseMessages.getString(
+        PKG, "HashJoinMeta.CheckResult.AllKeyFieldsFound" ), stepMeta ) );
+    }
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta tr,
+    Trans trans ) {
+    return new HashJoin( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  @Override
+  public StepDataInterface getStepData() {
+    return new HashJoinData();
+  }
+
+  @Override
+  public boolean excludeFromRowLayoutVerification() {
+    return true;
+  }
+
+  /**
+   * Returns the Input/Output metadata for this step. The build rows come from the info stream.
+   */
+  @Override
+  public StepIOMetaInterface getStepIOMeta() {
+    StepIOMetaInterface ioMeta = super.getStepIOMeta( false );
+    if ( ioMeta == null ) {
+
+      ioMeta = new StepIOMeta( true, true, false, false, false, false );
+
+      ioMeta.addStream( new Stream( StreamType.INFO, null, BaseMessages.getString(
+        PKG, "HashJoinMeta.InfoStream.Description" ), StreamIcon.INFO, null ) );
+      setStepIOMeta( ioMeta );
+    }
+
+    return ioMeta;
+  }
+
+  @Override
+  public void resetStepIoMeta() {
+    // Don't reset!
+  }
+
+  /**
+   * The build table is shared by the step copies, which wait for each other.
+   */
+  @Override
+  public TransformationType[] getSupportedTransformationTypes() {
+    return new TransformationType[] { TransformationType.Normal, };
+  }
+
+  /**
+   * The supported join types are INNER, LEFT OUTER, RIGHT OUTER and FULL OUTER, the main input is the left hand side
+   *
+   * @return The type of join
+   */
+  public String getJoinType() {
+    return joinType;
+  }
+
+  /**
+   * @param joinType The type of join, e.g. INNER/FULL OUTER
+   */
+  public void setJoinType( String joinType ) {
+    this.joinType = joinType;
+  }
+
+  /**
+   * @return Returns the key fields of the main input.
+   */
+  public String[] getKeyFields() {
+    return keyFields;
+  }
+
+  /**
+   * @param keyFields The key fields of the main input to set.
+   */
+  public void setKeyFields( String[] keyFields ) {
+    this.keyFields = keyFields;
+  }
+
+  /**
+   * @return Returns the key fields of the build step.
+   */
+  public String[] getBuildKeyFields() {
+    return buildKeyFields;
+  }
+
+  /**
+   * @param buildKeyFields The key fields of the build step to set.
+   */
+  public void setBuildKeyFields( String[] buildKeyFields ) {
+    this.buildKeyFields = buildKeyFields;
+  }
+
+  /**
+   * @return Returns the memory limit of the build rows in MB.
+   */
+  public String getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * @param memoryLimit The memory limit of the build rows in MB to set.
+   */
+  public void setMemoryLimit( String memoryLimit ) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * @return Returns the directory of the temporary files.
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory The directory of the temporary files to set.
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+}
@@ -0,0 +1,478 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.StepInterface;
+
+/**
+ * The build rows of a Hash Join step, shared by all copies of the step. The rows are hash partitioned on their key.
+ * While the table is built the largest partition is written to a temporary file every time the rows in memory go over
+ * the memory limit, the rows that arrive later for a spilled partition are appended to its file. Once all copies are
+ * done building the partitions in memory are only read, so the copies probe them without locking.<br>
+ * <br>
+ * When all copies are done probing they claim the partitions one by one: a partition in memory passes on its
+ * unmatched rows, a spilled partition is joined with the main input rows the copies wrote to disk for it.
+ */
+class HashJoinTable {
+  /**
+   * A power of two, the partition of a key is taken from its mixed hash code
+   */
+  static final int NR_PARTITIONS = 64;
+
+  /**
+   * Estimated heap usage of a key with its bucket and of a row, on top of the values. Used for the memory limit.
+   */
+  static final int KEY_SIZE = 120;
+  static final int ROW_SIZE = 24;
+
+  /**
+   * A temporary file with rows of one partition.
+   */
+  static class SpillFile {
+    FileObject file;
+    DataOutputStream output;
+    long rows;
+  }
+
+  /**
+   * The build rows of one key. The matched flags are only kept for joins that pass on unmatched build rows, copies
+   * set them without locking: a boolean is written on its own and only ever goes from false to true.
+   */
+  static class Bucket {
+    Object[][] rows = new Object[1][];
+    boolean[] matched;
+    int size;
+
+    Bucket( boolean trackMatches ) {
+      if ( trackMatches ) {
+        matched = new boolean[1];
+      }
+    }
+
+    void add( Object[] row ) {
+      if ( size == rows.length ) {
+        rows = Arrays.copyOf( rows, size * 2 );
+        if ( matched != null ) {
+          matched = Arrays.copyOf( matched, size * 2 );
+        }
+      }
+      rows[size++] = row;
+    }
+  }
+
+  static class Partition {
+    Map<Key, Bucket> buckets = new HashMap<>();
+
+    /** Build rows with a null in the key, they never match */
+    List<Object[]> nullKeyRows = new ArrayList<>();
+
+    long memoryUsed;
+
+    /** The build rows of a spilled partition */
+    SpillFile buildFile;
+
+    /** The main input rows of a spilled partition, a file for every copy that had rows for it */
+    List<SpillFile> probeFiles = new ArrayList<>();
+
+    boolean isSpilled() {
+      return buildFile != null;
+    }
+
+    void clear() {
+      buckets = new HashMap<>();
+      nullKeyRows = new ArrayList<>();
+      memoryUsed = 0L;
+    }
+  }
+
+  /**
+   * A join key, converted to the data types of the build keys in normal storage.
+   */
+  class Key {
+    private final Object[] keyData;
+    private final int hash;
+
+    Key( Object[] keyData ) throws KettleValueException {
+      this.keyData = keyData;
+      this.hash = keyMeta.hashCode( keyData );
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+      try {
+        return keyMeta.compare( keyData, ( (Key) obj ).keyData ) == 0;
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( e );
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    int getPartitionNr() {
+      return HashJoinTable.getPartitionNr( hash );
+    }
+  }
+
+  private final int nrCopies;
+  private final boolean trackMatches;
+  private final long memoryLimit;
+  private final Partition[] partitions = new Partition[NR_PARTITIONS];
+  private final AtomicLong memoryUsed = new AtomicLong();
+  private final CountDownLatch built;
+  private final CountDownLatch probed;
+  private final AtomicInteger nextPartition = new AtomicInteger();
+  private final AtomicInteger nrCopiesActive;
+  private final Object spillLock = new Object();
+
+  private RowMetaInterface buildRowMeta;
+  private RowMetaInterface probeRowMeta;
+  private RowMetaInterface keyMeta;
+  private int[] buildKeyNrs;
+
+  /**
+   * @param nrCopies the number of step copies that build and probe the table
+   * @param trackMatches true if the unmatched build rows are passed on
+   * @param memoryLimit the memory limit of the rows in memory in bytes, 0 for no limit
+   */
+  HashJoinTable( int nrCopies, boolean trackMatches, long memoryLimit ) {
+    this.nrCopies = nrCopies;
+    this.trackMatches = trackMatches;
+    this.memoryLimit = memoryLimit;
+    this.built = new CountDownLatch( nrCopies );
+    this.probed = new CountDownLatch( nrCopies );
+    this.nrCopiesActive = new AtomicInteger();
+    for ( int p = 0; p < NR_PARTITIONS; p++ ) {
+      partitions[p] = new Partition();
+    }
+  }
+
+  /**
+   * Sets the layout of the build rows, the first copy that reads a build row does this.
+   *
+   * @param keyMeta the build keys in normal storage
+   */
+  synchronized void setBuildRowMeta( RowMetaInterface buildRowMeta, RowMetaInterface keyMeta, int[] buildKeyNrs ) {
+    if ( this.buildRowMeta == null ) {
+      this.buildRowMeta = buildRowMeta;
+      this.keyMeta = keyMeta;
+      this.buildKeyNrs = buildKeyNrs;
+    }
+  }
+
+  synchronized RowMetaInterface getBuildRowMeta() {
+    return buildRowMeta;
+  }
+
+  synchronized RowMetaInterface getKeyMeta() {
+    return keyMeta;
+  }
+
+  /**
+   * Sets the layout of the main input rows written to disk, the first copy that reads a main input row does this.
+   */
+  synchronized void setProbeRowMeta( RowMetaInterface probeRowMeta ) {
+    if ( this.probeRowMeta == null ) {
+      this.probeRowMeta = probeRowMeta;
+    }
+  }
+
+  synchronized RowMetaInterface getProbeRowMeta() {
+    return probeRowMeta;
+  }
+
+  int[] getBuildKeyNrs() {
+    return buildKeyNrs;
+  }
+
+  boolean isTrackingMatches() {
+    return trackMatches;
+  }
+
+  long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  int getNrCopies() {
+    return nrCopies;
+  }
+
+  /**
+   * @return the key of a build row, null if one of the key values is null
+   */
+  Key getBuildKey( Object[] row ) throws KettleValueException {
+    Object[] keyData = new Object[buildKeyNrs.length];
+    for ( int i = 0; i < buildKeyNrs.length; i++ ) {
+      keyData[i] = buildRowMeta.getValueMeta( buildKeyNrs[i] ).convertToNormalStorageType( row[buildKeyNrs[i]] );
+      if ( keyData[i] == null ) {
+        return null;
+      }
+    }
+    return new Key( keyData );
+  }
+
+  /**
+   * @param keyData the key values, converted to the data types of the build keys
+   */
+  Key createKey( Object[] keyData ) throws KettleValueException {
+    return new Key( keyData );
+  }
+
+  /**
+   * Adds a build row, rows of a spilled partition are appended to its file.
+   *
+   * @return true if the rows in memory went over the memory limit
+   */
+  boolean add( Object[] row ) throws KettleException {
+    Key key = getBuildKey( row );
+    if ( key == null && !trackMatches ) {
+      // It never matches and it isn't passed on
+      return false;
+    }
+    int partitionNr = key == null ? getPartitionNr( System.identityHashCode( row ) ) : key.getPartitionNr();
+    Partition partition = partitions[partitionNr];
+    long size;
+    synchronized ( partition ) {
+      if ( partition.isSpilled() ) {
+        buildRowMeta.writeData( partition.buildFile.output, row );
+        partition.buildFile.rows++;
+        return false;
+      }
+      size = add( partition, key, row );
+    }
+    return memoryLimit > 0 && memoryUsed.addAndGet( size ) > memoryLimit;
+  }
+
+  /**
+   * Adds a build row to a partition in memory, the row is cut to the size of the build rows.
+   *
+   * @return the estimated heap usage of the row added
+   */
+  long add( Partition partition, Key key, Object[] row ) {
+    Object[] buildRow = row.length > buildRowMeta.size() ? Arrays.copyOf( row, buildRowMeta.size() ) : row;
+    long size = estimateRowSize( buildRow );
+    if ( key == null ) {
+      partition.nullKeyRows.add( buildRow );
+    } else {
+      Bucket bucket = partition.buckets.get( key );
+      if ( bucket == null ) {
+        bucket = new Bucket( trackMatches );
+        partition.buckets.put( key, bucket );
+        size += KEY_SIZE;
+      }
+      bucket.add( buildRow );
+    }
+    partition.memoryUsed += size;
+    return size;
+  }
+
+  /**
+   * Writes the largest partitions in memory to temporary files until the rows in memory are within the memory limit.
+   *
+   * @return the number of partitions written
+   */
+  int spill( HashJoin step ) throws KettleException {
+    int nrSpilled = 0;
+    synchronized ( spillLock ) {
+      while ( memoryUsed.get() > memoryLimit ) {
+        Partition largest = null;
+        for ( Partition partition : partitions ) {
+          if ( !partition.isSpilled() && partition.memoryUsed > 0
+            && ( largest == null || partition.memoryUsed > largest.memoryUsed ) ) {
+            largest = partition;
+          }
+        }
+        if ( largest == null ) {
+          break;
+        }
+        synchronized ( largest ) {
+          SpillFile buildFile = step.openSpillFile();
+          largest.buildFile = buildFile;
+          for ( Bucket bucket : largest.buckets.values() ) {
+            for ( int i = 0; i < bucket.size; i++ ) {
+              buildRowMeta.writeData( buildFile.output, bucket.rows[i] );
+            }
+            buildFile.rows += bucket.size;
+          }
+          for ( Object[] row : largest.nullKeyRows ) {
+            buildRowMeta.writeData( buildFile.output, row );
+          }
+          buildFile.rows += largest.nullKeyRows.size();
+          memoryUsed.addAndGet( -largest.memoryUsed );
+          largest.clear();
+        }
+        nrSpilled++;
+      }
+    }
+    return nrSpilled;
+  }
+
+  /**
+   * @return the estimated heap usage of a build row
+   */
+  long estimateRowSize( Object[] row ) {
+    long size = ROW_SIZE + 8L * row.length;
+    for ( int i = 0; i < buildRowMeta.size(); i++ ) {
+      size += estimateValueSize( row[i] );
+    }
+    return size;
+  }
+
+  /**
+   * @return the estimated heap usage of a value
+   */
+  static long estimateValueSize( Object value ) {
+    if ( value == null ) {
+      return 0L;
+    }
+    if ( value instanceof String ) {
+      return 40L + 2L * ( (String) value ).length();
+    }
+    if ( value instanceof byte[] ) {
+      return 16L + ( (byte[]) value ).length;
+    }
+    if ( value instanceof BigDecimal ) {
+      return 64L;
+    }
+    if ( value instanceof Date ) {
+      return 24L;
+    }
+    return 16L;
+  }
+
+  Partition getPartition( int partitionNr ) {
+    return partitions[partitionNr];
+  }
+
+  /**
+   * @return the partition of a hash code, its bits are mixed so similar keys don't end up in one partition
+   */
+  static int getPartitionNr( int hashCode ) {
+    int hash = hashCode;
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash & ( NR_PARTITIONS - 1 );
+  }
+
+  /**
+   * Tells the other copies this copy added all its build rows.
+   */
+  void buildDone() {
+    built.countDown();
+  }
+
+  /**
+   * Hands over the main input rows a copy wrote for the spilled partitions and tells the other copies this copy is
+   * done probing.
+   */
+  void probeDone( SpillFile[] probeFiles ) {
+    for ( int p = 0; p < NR_PARTITIONS; p++ ) {
+      if ( probeFiles[p] != null ) {
+        synchronized ( partitions[p] ) {
+          partitions[p].probeFiles.add( probeFiles[p] );
+        }
+      }
+    }
+    probed.countDown();
+  }
+
+  /**
+   * Waits until all copies added their build rows.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  boolean awaitBuilt( StepInterface step ) throws InterruptedException {
+    return await( built, step );
+  }
+
+  /**
+   * Waits until all copies are done probing.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  boolean awaitProbed( StepInterface step ) throws InterruptedException {
+    return await( probed, step );
+  }
+
+  private static boolean await( CountDownLatch latch, StepInterface step ) throws InterruptedException {
+    while ( !latch.await( 100, TimeUnit.MILLISECONDS ) ) {
+      if ( step.isStopped() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of the next partition to finish, -1 when all partitions are claimed
+   */
+  int nextPartition() {
+    int partition = nextPartition.getAndIncrement();
+    return partition < NR_PARTITIONS ? partition : -1;
+  }
+
+  /**
+   * Called by every copy that uses the table, before it is done building.
+   */
+  void attach() {
+    nrCopiesActive.incrementAndGet();
+  }
+
+  /**
+   * Called by every copy that uses the table when it is disposed.
+   *
+   * @return true for the last copy
+   */
+  boolean detach() {
+    return nrCopiesActive.decrementAndGet() == 0;
+  }
+
+  /**
+   * @return the temporary files of all partitions, used to clean up
+   */
+  synchronized List<SpillFile> getSpillFiles() {
+    List<SpillFile> files = new ArrayList<>();
+    for ( Partition partition : partitions ) {
+      synchronized ( partition ) {
+        if ( partition.buildFile != null ) {
+          files.add( partition.buildFile );
+        }
+        files.addAll( partition.probeFiles );
+      }
+    }
+    return files;
+  }
+}
@@ -13,18 +13,19 @@
 
 package org.pentaho.di.trans.steps.insertupdate;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.lang.ArrayUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.StagingMerge;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -173,6 +174,9 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) {
       // no more input to be expected...
+      if ( data.stagingMerge != null ) {
+        flushStagingMerge();
+      }
 
       setOutputDone();
       return false;
@@ -252,8 +256,6 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         }
       }
 
-      setLookup( getInputRowMeta() );
-
       data.insertRowMeta = new RowMeta();
 
       // Insert the update fields: just names. Type doesn't matter!
@@ -273,25 +275,35 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
             + insValue.getName() ); // TODO i18n
         }
       }
-      data.db.prepareInsert(
-        data.insertRowMeta, environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta
-          .getTableName() ) );
 
-      if ( !meta.isUpdateBypassed() ) {
-        List<String> updateColumns = new ArrayList<String>();
-        for ( int i = 0; i < meta.getUpdateFields().length; i++ ) {
-          if ( meta.getUpdateFields()[ i ].getUpdate().booleanValue() ) {
-            updateColumns.add( meta.getUpdateFields()[ i ].getUpdateLookup() );
+      data.stagingMerge = getStagingMerge();
+      if ( data.stagingMerge == null ) {
+        setLookup( getInputRowMeta() );
+
+        data.db.prepareInsert(
+          data.insertRowMeta, environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta
+            .getTableName() ) );
+
+        if ( !meta.isUpdateBypassed() ) {
+          List<String> updateColumns = new ArrayList<String>();
+          for ( int i = 0; i < meta.getUpdateFields().length; i++ ) {
+            if ( meta.getUpdateFields()[ i ].getUpdate().booleanValue() ) {
+              updateColumns.add( meta.getUpdateFields()[ i ].getUpdateLookup() );
+            }
           }
+          prepareUpdate( getInputRowMeta() );
         }
-        prepareUpdate( getInputRowMeta() );
       }
     }
 
     try {
-      lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
-      putRow( data.outputRowMeta, r ); // Nothing changed to the input, return the same row, pass a "cloned" metadata
-      // row.
+      if ( data.stagingMerge != null ) {
+        addToStagingMerge( r );
+      } else {
+        lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
+        putRow( data.outputRowMeta, r ); // Nothing changed to the input, return the same row, pass a "cloned"
+        // metadata row.
+      }
 
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
@@ -321,6 +333,115 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
 
 
 
+  /**
+   * Works out the set-based upsert through the staging table. It needs keys compared with =, the key columns among the
+   * inserted columns and no error handling, a failing merge can't tell the rows apart.
+   *
+   * @return the merge or null to look up and insert or update the rows one by one
+   */
+  private StagingMerge getStagingMerge() throws KettleException {
+    String stagingTable = environmentSubstitute( meta.getStagingTable() );
+    if ( Utils.isEmpty( stagingTable ) ) {
+      return null;
+    }
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTableNotPossible" ) );
+      return null;
+    }
+
+    // The key columns first, then the other inserted columns
+    //
+    RowMetaInterface stagingRowMeta = new RowMeta();
+    List<Integer> indexes = new ArrayList<>();
+    List<Boolean> update = new ArrayList<>();
+    InsertUpdateMeta.KeyField[] keyFields = meta.getKeyFields();
+    for ( InsertUpdateMeta.KeyField keyField : keyFields ) {
+      int index = getInputRowMeta().indexOfValue( keyField.getKeyStream() );
+      if ( !"=".equals( keyField.getKeyCondition() ) || index < 0
+        || stagingRowMeta.indexOfValue( keyField.getKeyLookup() ) >= 0 ) {
+        logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTableNotPossible" ) );
+        return null;
+      }
+      ValueMetaInterface keyValue = getInputRowMeta().getValueMeta( index ).clone();
+      keyValue.setName( keyField.getKeyLookup() );
+      stagingRowMeta.addValueMeta( keyValue );
+      indexes.add( index );
+      update.add( false );
+    }
+    boolean[] keyInserted = new boolean[ keyFields.length ];
+    for ( int i = 0; i < meta.getUpdateFields().length; i++ ) {
+      InsertUpdateMeta.UpdateField updateField = meta.getUpdateFields()[ i ];
+      int keyIndex = stagingRowMeta.indexOfValue( updateField.getUpdateLookup() );
+      if ( keyIndex >= 0 ) {
+        if ( indexes.get( keyIndex ) != data.valuenrs[ i ] ) {
+          logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTableNotPossible" ) );
+          return null;
+        }
+        keyInserted[ keyIndex ] = true;
+      } else {
+        stagingRowMeta.addValueMeta( data.insertRowMeta.getValueMeta( i ) );
+        indexes.add( data.valuenrs[ i ] );
+        update.add( !meta.isUpdateBypassed() && updateField.getUpdate().booleanValue() );
+      }
+    }
+    for ( boolean inserted : keyInserted ) {
+      if ( !inserted ) {
+        logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTableNotPossible" ) );
+        return null;
+      }
+    }
+
+    if ( getUniqueStepCountAcrossSlaves() > 1 ) {
+      stagingTable += "_" + getUniqueStepNrAcrossSlaves();
+    }
+    boolean[] updateColumns = ArrayUtils.toPrimitive( update.toArray( new Boolean[ 0 ] ) );
+    StagingMerge stagingMerge = data.db.getStagingMerge( environmentSubstitute( meta.getSchemaName() ),
+      environmentSubstitute( meta.getTableName() ), stagingTable, stagingRowMeta, keyFields.length, updateColumns,
+      true );
+    if ( stagingMerge == null ) {
+      logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTableNotSupported" ) );
+      return null;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "InsertUpdate.Log.StagingTable", stagingTable,
+        stagingMerge.getMergeStatement() ) );
+    }
+    data.stagingIndexes = ArrayUtils.toPrimitive( indexes.toArray( new Integer[ 0 ] ) );
+    data.commitSize = meta.getCommitSize( this );
+    return stagingMerge;
+  }
+
+  /**
+   * Adds a row to the staging table, the merge follows every commit size rows.
+   */
+  private void addToStagingMerge( Object[] r ) throws KettleException {
+    Object[] stagingRow = new Object[ data.stagingIndexes.length ];
+    for ( int i = 0; i < data.stagingIndexes.length; i++ ) {
+      stagingRow[ i ] = r[ data.stagingIndexes[ i ] ];
+    }
+    data.stagingMerge.addRow( stagingRow );
+    data.stagingRows.add( r );
+    incrementLinesInput();
+    if ( data.commitSize > 0 && data.stagingRows.size() >= data.commitSize ) {
+      flushStagingMerge();
+    }
+  }
+
+  /**
+   * Merges the staging table into the table and commits. The rows go further afterwards, every merged row counts as
+   * written: a merge doesn't tell the inserted rows from the updated ones.
+   */
+  private void flushStagingMerge() throws KettleException {
+    int nrRows = data.stagingMerge.getNrRows();
+    data.stagingMerge.flush();
+    data.db.commit();
+    setLinesOutput( getLinesOutput() + nrRows );
+    for ( Object[] row : data.stagingRows ) {
+      putRow( data.outputRowMeta, row );
+    }
+    data.stagingRows.clear();
+  }
+
   public void setLookup( RowMetaInterface rowMeta ) throws KettleDatabaseException {
     data.lookupParameterRowMeta = new RowMeta();
     data.lookupReturnRowMeta = new RowMeta();
@@ -382,14 +503,10 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
       sql += " ) ) ";
     }
 
-    try {
-      if ( log.isDetailed() ) {
-        logDetailed( "Setting preparedStatement to [" + sql + "]" );
-      }
-      data.prepStatementLookup = data.db.getConnection().prepareStatement( databaseMeta.stripCR( sql ) );
-    } catch ( SQLException ex ) {
-      throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", ex );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting preparedStatement to [" + sql + "]" );
     }
+    data.prepStatementLookup = data.db.prepareCachedSQL( sql );
   }
 
   // Lookup certain fields in a table
@@ -456,14 +573,10 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
       sql += " ) ) ";
     }
 
-    try {
-      if ( log.isDetailed() ) {
-        logDetailed( "Setting update preparedStatement to [" + sql + "]" );
-      }
-      data.prepStatementUpdate = data.db.getConnection().prepareStatement( databaseMeta.stripCR( sql ) );
-    } catch ( SQLException ex ) {
-      throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", ex );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting update preparedStatement to [" + sql + "]" );
     }
+    data.prepStatementUpdate = data.db.prepareCachedSQL( sql );
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -497,6 +610,9 @@ public class InsertUpdate extends BaseDatabaseStep implements StepInterface {
         }
         data.db.closeUpdate();
         data.db.closeInsert();
+        if ( data.stagingMerge != null ) {
+          data.stagingMerge.close();
+        }
       } catch ( KettleDatabaseException e ) {
         logError( BaseMessages.getString( PKG, "InsertUpdate.Log.UnableToCommitConnection" ) + e.toString() );
         setErrors( 1 );
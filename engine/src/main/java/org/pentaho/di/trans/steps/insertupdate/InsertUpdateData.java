@@ -13,11 +13,14 @@
 
 package org.pentaho.di.trans.steps.insertupdate;
 
+import org.pentaho.di.core.database.StagingMerge;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Stores data for the Insert/Update step.
@@ -43,6 +46,12 @@ public class InsertUpdateData extends BaseDatabaseStepData implements StepDataIn
   public RowMetaInterface lookupReturnRowMeta;
   public RowMetaInterface insertRowMeta;
 
+  /** The set-based upsert through the staging table, the stream indexes of its columns and the rows it holds */
+  public StagingMerge stagingMerge;
+  public int[] stagingIndexes;
+  public List<Object[]> stagingRows = new ArrayList<>();
+  public int commitSize;
+
   /**
    * Default constructor.
    */
@@ -100,6 +100,12 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
   @Injection( name = "DO_NOT" )
   private boolean updateBypassed;
 
+  /**
+   * The staging table to upsert the rows set-based through, empty to look up and write them one by one
+   */
+  @Injection( name = "STAGING_TABLE" )
+  private String stagingTable;
+
   @Injection( name = "CONNECTIONNAME", required = true )
   public void setConnection( String connectionName ) {
     databaseMeta = DatabaseMeta.findDatabase( databases, connectionName );
@@ -239,6 +245,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tableName = XMLHandler.getTagValue( stepnode, "lookup", "table" );
       updateBypassed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "update_bypassed" ) );
+      stagingTable = XMLHandler.getTagValue( stepnode, "staging_table" );
 
       Node lookup = XMLHandler.getSubNode( stepnode, "lookup" );
       nrkeys = XMLHandler.countNodes( lookup, "key" );
@@ -318,6 +325,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
         XMLHandler.addTagValue( "connection", databaseMeta == null ? "" : databaseMeta.getName() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "commit", commitSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "update_bypassed", updateBypassed ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "staging_table", stagingTable ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "table", tableName ) );
@@ -366,6 +374,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       schemaName = rep.getStepAttributeString( id_step, "schema" );
       tableName = rep.getStepAttributeString( id_step, "table" );
       updateBypassed = rep.getStepAttributeBoolean( id_step, "update_bypassed" );
+      stagingTable = rep.getStepAttributeString( id_step, "staging_table" );
 
       int nrkeys = rep.countNrStepAttributes( id_step, "key_field" );
       int nrvalues = rep.countNrStepAttributes( id_step, "value_name" );
@@ -399,6 +408,7 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
       rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
       rep.saveStepAttribute( id_transformation, id_step, "update_bypassed", updateBypassed );
+      rep.saveStepAttribute( id_transformation, id_step, "staging_table", stagingTable );
 
       for ( int i = 0; i < keyFields.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "key_name", keyFields[ i ].getKeyStream() );
@@ -794,6 +804,21 @@ public class InsertUpdateMeta extends BaseDatabaseStepMeta implements StepMetaIn
     this.updateBypassed = updateBypassed;
   }
 
+  /**
+   * @return the staging table to upsert the rows set-based through
+   */
+  public String getStagingTable() {
+    return stagingTable;
+  }
+
+  /**
+   * @param stagingTable the staging table to upsert the rows set-based through, empty to look up and write them one
+   *                     by one
+   */
+  public void setStagingTable( String stagingTable ) {
+    this.stagingTable = stagingTable;
+  }
+
   public RowMetaInterface getRequiredFields( VariableSpace space ) throws KettleException {
     String realSchemaName = space.environmentSubstitute( schemaName );
     String realTableName = space.environmentSubstitute( tableName );
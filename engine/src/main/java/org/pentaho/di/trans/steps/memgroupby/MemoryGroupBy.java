@@ -13,9 +13,17 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -34,15 +42,20 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransMeta.TransformationType;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.SpillPartition;
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -53,6 +66,21 @@ import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
 public class MemoryGroupBy extends BaseStep implements StepInterface {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /**
+   * The number of files the rows of the groups that don't fit in memory are hash partitioned over, a power of 2
+   */
+  static final int NR_SPILL_PARTITIONS = 16;
+
+  private static final String SPILL_DIRECTORY = "%%java.io.tmpdir%%";
+
+  // Estimated heap usage in bytes: a group costs its hash map entry, key and aggregate, every aggregation its
+  // value and counters. Median values, distinct values and concatenated strings grow with the rows of the group.
+  //
+  private static final long GROUP_SIZE = 160L;
+  private static final long AGGREGATION_SIZE = 48L;
+  private static final long LIST_VALUE_SIZE = 24L;
+  private static final long SET_VALUE_SIZE = 40L;
+
   private MemoryGroupByMeta meta;
 
   private MemoryGroupByData data;
@@ -78,6 +106,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( first ) {
       if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) ) {
+        if ( data.merging ) {
+          mergeCopies();
+        }
         setOutputDone();
         return false;
       }
@@ -88,6 +119,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       minNullIsValued = ValueMetaBase.convertStringToBoolean( val );
       compatibilityMode = ValueMetaBase.convertStringToBoolean(
         getVariable( Const.KETTLE_COMPATIBILITY_MEMORY_GROUP_BY_SUM_AVERAGE_RETURN_NUMBER_TYPE, "N" ) );
+      // Merging copies need all groups in memory
+      //
+      if ( !data.merging ) {
+        data.memoryLimit =
+          Const.toLong( getVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_LIMIT, "" ), 0L ) * 1024 * 1024;
+      }
 
       // What is the output looking like?
       //
@@ -169,7 +206,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     if ( r == null ) { // no more input to be expected... (or none received in the first place)
 
       updateValueMeta();
-      handleLastOfGroup();
+      if ( data.merging ) {
+        mergeCopies();
+      } else {
+        handleLastOfGroup();
+      }
 
       setOutputDone();
       return false;
@@ -192,6 +233,35 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   }
 
   private void handleLastOfGroup() throws KettleException {
+    putGroups();
+
+    // What if we always need to give back one row?
+    // This means we give back 0 for count all, count distinct, null for everything else
+    //
+    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = null;
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
+          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
+          outputRowData[index++] = Long.valueOf( 0L );
+        } else {
+          outputRowData[index++] = null;
+        }
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+
+    // Now the groups that didn't fit in memory
+    //
+    aggregateSpilledRows();
+  }
+
+  private void putGroups() throws KettleException {
     // Dump the content of the map...
     //
     for ( HashEntry entry : data.map.keySet() ) {
@@ -208,29 +278,305 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       }
       putRow( data.outputRowMeta, outputRowData );
     }
+  }
 
-    // What if we always need to give back one row?
-    // This means we give back 0 for count all, count distinct, null for everything else
+  /**
+   * Aggregates the spilled partitions one by one, a partition that still doesn't fit in memory is split up again on
+   * the next level. Every pass keeps at least one group in memory so this always comes to an end.
+   */
+  private void aggregateSpilledRows() throws KettleException {
+    closeSpillPartitions();
+    while ( !data.pendingPartitions.isEmpty() && !isStopped() ) {
+      SpillPartition partition = data.pendingPartitions.pop();
+      data.map.clear();
+      data.memoryUsed = 0L;
+      data.spillLevel = partition.level + 1;
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregatingSpilledRows", partition.rows,
+          partition.level ) );
+      }
+
+      try ( DataInputStream input = new DataInputStream( new SnappyInputStream( new BufferedInputStream(
+        KettleVFS.getInputStream( partition.file ) ) ) ) ) {
+        for ( long i = 0; i < partition.rows && !isStopped(); i++ ) {
+          addToAggregate( data.inputRowMeta.readData( input ) );
+        }
+      } catch ( IOException e ) {
+        throw new KettleException(
+          BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+      } finally {
+        deleteSpillFile( partition );
+      }
+
+      closeSpillPartitions();
+      putGroups();
+    }
+    data.map.clear();
+    data.memoryUsed = 0L;
+    data.spillLevel = 0;
+  }
+
+  /**
+   * Writes a row of a group that doesn't fit in memory to the spill partition of its group.
+   */
+  private void spillRow( HashEntry entry, Object[] r ) throws KettleException {
+    if ( data.spillPartitions == null ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.SpillingGroups", data.map.size(),
+          data.memoryLimit / ( 1024 * 1024 ), data.spillLevel ) );
+      }
+      data.spillPartitions = new SpillPartition[NR_SPILL_PARTITIONS];
+    }
+    int partitionNr = getSpillPartitionNr( entry.hashCode(), data.spillLevel );
+    SpillPartition partition = data.spillPartitions[partitionNr];
+    if ( partition == null ) {
+      partition = openSpillPartition( data.spillLevel );
+      data.spillPartitions[partitionNr] = partition;
+    }
+    data.inputRowMeta.writeData( partition.output, r );
+    partition.rows++;
+  }
+
+  /**
+   * @return the spill partition of a group, the level is mixed in so the rows of one partition spread over all the
+   *         partitions of the next level
+   */
+  static int getSpillPartitionNr( int hashCode, int level ) {
+    return mixHash( hashCode, level ) & ( NR_SPILL_PARTITIONS - 1 );
+  }
+
+  /**
+   * @return the hash code with its bits mixed, a different seed gives a different distribution
+   */
+  static int mixHash( int hashCode, int seed ) {
+    int hash = hashCode ^ ( seed * 0x9E3779B9 );
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private SpillPartition openSpillPartition( int level ) throws KettleException {
+    SpillPartition partition = new SpillPartition();
+    partition.level = level;
+    try {
+      partition.file = KettleVFS.getInstance( getTransMeta().getBowl() )
+        .createTempFile( "memgroupby", ".tmp", environmentSubstitute( SPILL_DIRECTORY ), this );
+      partition.output = new DataOutputStream( new SnappyOutputStream( new BufferedOutputStream(
+        KettleVFS.getInstance( getTransMeta().getBowl() ).getOutputStream( partition.file, false ) ) ) );
+    } catch ( Exception e ) {
+      deleteSpillFile( partition );
+      throw new KettleException( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToCreateTemporaryFile" ),
+        e );
+    }
+    return partition;
+  }
+
+  /**
+   * Closes the spill partitions being written and queues them up to be aggregated.
+   */
+  private void closeSpillPartitions() throws KettleException {
+    if ( data.spillPartitions == null ) {
+      return;
+    }
+    SpillPartition[] partitions = data.spillPartitions;
+    data.spillPartitions = null;
+    for ( SpillPartition partition : partitions ) {
+      if ( partition != null ) {
+        data.pendingPartitions.push( partition );
+        try {
+          partition.output.close();
+          partition.output = null;
+        } catch ( IOException e ) {
+          throw new KettleException(
+            BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToWriteTemporaryFile" ), e );
+        }
+      }
+    }
+  }
+
+  private void deleteSpillFile( SpillPartition partition ) {
+    try {
+      if ( partition.output != null ) {
+        partition.output.close();
+        partition.output = null;
+      }
+      if ( partition.file != null ) {
+        partition.file.delete();
+      }
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToDeleteTemporaryFile",
+        partition.file ), e );
+    }
+  }
+
+  /**
+   * Hands the groups of this copy over to the other copies of the step. Once all copies are done aggregating, the
+   * copies that received rows merge and write partitions of the groups until all of them are done.
+   */
+  private void mergeCopies() throws KettleException {
+    MemoryGroupByMerge merge = getMerge();
+    boolean hasGroups = !data.map.isEmpty();
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.MergingCopies", data.map.size() ) );
+    }
+
+    // The other copies read the groups handed over, this copy merges in a new map
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = null;
+    merge.addPartial( data.map );
+    data.map = new HashMap<>();
+    try {
+      if ( !merge.await( this ) ) {
+        return;
       }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
-          outputRowData[index++] = Long.valueOf( 0L );
-        } else {
-          outputRowData[index++] = null;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException(
+        BaseMessages.getString( PKG, "MemoryGroupBy.Exception.InterruptedWhileMergingCopies" ), e );
+    }
+
+    if ( merge.isEmpty() ) {
+      // Only one copy gives back a row when there are no groups at all
+      //
+      if ( getCopy() == 0 && meta.isAlwaysGivingBackOneRow() ) {
+        handleLastOfGroup();
+      }
+      return;
+    }
+    if ( !hasGroups ) {
+      return;
+    }
+
+    for ( int partition = merge.nextPartition(); partition >= 0 && !isStopped(); partition = merge.nextPartition() ) {
+      for ( List<Map.Entry<HashEntry, Aggregate>> groups : merge.getGroups( partition ) ) {
+        for ( Map.Entry<HashEntry, Aggregate> group : groups ) {
+          Aggregate aggregate = data.map.get( group.getKey() );
+          if ( aggregate == null ) {
+            data.map.put( group.getKey(), group.getValue() );
+          } else {
+            mergeAggregate( aggregate, group.getValue() );
+          }
         }
       }
-      putRow( data.outputRowMeta, outputRowData );
+      putGroups();
+      data.map.clear();
+    }
+  }
+
+  /**
+   * @return the merge shared by all copies of the step, kept by the first copy
+   */
+  private MemoryGroupByMerge getMerge() {
+    MemoryGroupByData firstData = (MemoryGroupByData) getTrans().getStepDataInterface( getStepname(), 0 );
+    synchronized ( firstData ) {
+      if ( firstData.merge == null ) {
+        firstData.merge = new MemoryGroupByMerge( getTrans().findStepInterfaces( getStepname() ).size() );
+      }
+      return firstData.merge;
+    }
+  }
+
+  /**
+   * Merges the aggregate of a group from another step copy into the aggregate of the same group of this copy. Used for
+   * junits in MemoryGroupByMergeTest
+   *
+   * @param aggregate
+   * @param other
+   * @throws KettleException
+   */
+  @SuppressWarnings( "unchecked" ) void mergeAggregate( Aggregate aggregate, Aggregate other ) throws KettleException {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+      Object value = aggregate.agg[i];
+      Object otherValue = other.agg[i];
+
+      switch ( meta.getAggregateType()[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+          ( (List<Double>) value ).addAll( (List<Double>) otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+          // Combine the counts, means and sums of squared differences of both parts (Chan et al.)
+          //
+          double n1 = aggregate.counts[i];
+          double n2 = other.counts[i];
+          double n = n1 + n2;
+          double delta = other.mean[i] - aggregate.mean[i];
+          aggregate.mean[i] = aggregate.mean[i] + delta * n2 / n;
+          aggregate.agg[i] = (Double) value + (Double) otherValue + delta * delta * n1 * n2 / n;
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+          aggregate.distinctObjs[i].addAll( other.distinctObjs[i] );
+          aggregate.counts[i] = aggregate.distinctObjs[i].size();
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean otherIsNull = valueMeta.isNull( otherValue );
+          boolean valueIsNull = valueMeta.isNull( value );
+          if ( minNullIsValued || ( !otherIsNull && !valueIsNull ) ) {
+            aggregate.agg[i] = valueMeta.compare( otherValue, value ) < 0 ? otherValue : value;
+          } else if ( valueIsNull && !otherIsNull ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( valueMeta.compare( otherValue, value ) > 0 ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        default:
+          throw new KettleException( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregateNotMergeable",
+            meta.getAggregateField()[i], MemoryGroupByMeta.getTypeDescLong( meta.getAggregateType()[i] ) ) );
+      }
     }
   }
 
+  /**
+   * @return the estimated heap usage of a new group and its aggregate
+   */
+  private long estimateGroupSize( Object[] groupData ) {
+    long size = GROUP_SIZE + AGGREGATION_SIZE * data.subjectnrs.length;
+    for ( Object value : groupData ) {
+      size += estimateValueSize( value );
+    }
+    return size;
+  }
+
+  /**
+   * @return the estimated heap usage of a value and its reference
+   */
+  static long estimateValueSize( Object value ) {
+    if ( value == null ) {
+      return 8L;
+    }
+    if ( value instanceof String ) {
+      return 48L + 2L * ( (String) value ).length();
+    }
+    if ( value instanceof byte[] ) {
+      return 24L + ( (byte[]) value ).length;
+    }
+    if ( value instanceof BigDecimal ) {
+      return 72L;
+    }
+    if ( value instanceof Date ) {
+      return 32L;
+    }
+    return 24L;
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -262,6 +608,14 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      // Once the memory budget is used up new groups are aggregated later on, the groups in memory keep on
+      // aggregating all their rows
+      //
+      if ( data.memoryLimit > 0 && data.memoryUsed >= data.memoryLimit && !data.map.isEmpty() ) {
+        spillRow( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
@@ -270,6 +624,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       // Store it in the map!
       //
       data.map.put( entry, aggregate );
+      data.memoryUsed += estimateGroupSize( groupData );
     }
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
@@ -292,6 +647,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
           if ( !subjMeta.isNull( subj ) ) {
             ( (List<Double>) aggregate.agg[i] ).add( subjMeta.getNumber( subj ) );
+            data.memoryUsed += LIST_VALUE_SIZE;
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
@@ -327,8 +683,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             if ( obj instanceof byte [] ) {
               obj = new String( (byte []) obj );
             }
-            if ( !aggregate.distinctObjs[i].contains( obj ) ) {
-              aggregate.distinctObjs[i].add( obj );
+            if ( aggregate.distinctObjs[i].add( obj ) ) {
+              data.memoryUsed += SET_VALUE_SIZE + estimateValueSize( obj );
             }
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
@@ -379,10 +735,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
           if ( !( subj == null ) ) {
             StringBuilder sb = (StringBuilder) value;
+            int length = sb.length();
             if ( sb.length() > 0 ) {
               sb.append( ", " );
             }
             sb.append( subjMeta.getString( subj ) );
+            data.memoryUsed += 2L * ( sb.length() - length );
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
@@ -392,10 +750,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
               separator = environmentSubstitute( meta.getValueField()[i] );
             }
             StringBuilder sb = (StringBuilder) value;
+            int length = sb.length();
             if ( sb.length() > 0 ) {
               sb.append( separator );
             }
             sb.append( subjMeta.getString( subj ) );
+            data.memoryUsed += 2L * ( sb.length() - length );
           }
           break;
         default:
@@ -575,6 +935,20 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+
+      // The copies of a single threaded transformation don't run at the same time, they can't wait on each other
+      //
+      data.merging = meta.isMergingCopies() && getStepMeta().getCopies() > 1
+        && getTransMeta().getTransformationType() == TransformationType.Normal;
+      if ( data.merging ) {
+        for ( int i = 0; i < meta.getAggregateType().length; i++ ) {
+          if ( !MemoryGroupByMeta.isMergeable( meta.getAggregateType()[i] ) ) {
+            logError( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregateNotMergeable",
+              meta.getAggregateField()[i], MemoryGroupByMeta.getTypeDescLong( meta.getAggregateType()[i] ) ) );
+            return false;
+          }
+        }
+      }
       return true;
     }
     return false;
@@ -582,6 +956,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (MemoryGroupByData) sdi;
+
+    // Remove the temporary files of a step that was stopped or failed while aggregating spilled rows
+    //
+    if ( data.spillPartitions != null ) {
+      for ( SpillPartition partition : data.spillPartitions ) {
+        if ( partition != null ) {
+          deleteSpillFile( partition );
+        }
+      }
+      data.spillPartitions = null;
+    }
+    while ( !data.pendingPartitions.isEmpty() ) {
+      deleteSpillFile( data.pendingPartitions.pop() );
+    }
+
     super.dispose( smi, sdi );
     ( (MemoryGroupByData) sdi ).clear();
   }
@@ -13,8 +13,12 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
+import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -66,6 +70,17 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
     }
   }
 
+  /**
+   * A temporary file with the input rows of groups that didn't fit in memory. The rows are hash partitioned on the
+   * group, the level tells how many times the partition was split up.
+   */
+  public static class SpillPartition {
+    public FileObject file;
+    public DataOutputStream output;
+    public int level;
+    public long rows;
+  }
+
   public HashMap<HashEntry, Aggregate> map;
 
   public RowMetaInterface aggMeta;
@@ -90,6 +105,16 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  public long memoryLimit;
+  public long memoryUsed;
+
+  public int spillLevel;
+  public SpillPartition[] spillPartitions;
+  public Deque<SpillPartition> pendingPartitions = new ArrayDeque<>();
+
+  public boolean merging;
+  MemoryGroupByMerge merge;
+
   public MemoryGroupByData() {
     super();
 
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+
+/**
+ * Collects the partial aggregates of the copies of a Memory Group By step that merges its copies. Every copy
+ * aggregates the rows it receives on its own and hands its groups over, hash partitioned on the group. Once all copies
+ * are done they claim the partitions one by one, so the groups of a partition are merged by a single copy and the
+ * copies merge in parallel.<br>
+ * <br>
+ * The groups handed over are only read from that point on.
+ */
+class MemoryGroupByMerge {
+  /**
+   * More partitions than copies so a copy that finishes early can take over work from the others
+   */
+  static final int PARTITIONS_PER_COPY = 4;
+
+  private static final int PARTITION_SEED = -1;
+
+  private final int nrPartitions;
+  private final List<List<Map.Entry<HashEntry, Aggregate>>[]> partials = new ArrayList<>();
+  private final CountDownLatch aggregated;
+  private final AtomicInteger nextPartition = new AtomicInteger();
+
+  /**
+   * @param nrCopies the number of step copies that hand over their groups
+   */
+  MemoryGroupByMerge( int nrCopies ) {
+    this.nrPartitions = nrCopies * PARTITIONS_PER_COPY;
+    this.aggregated = new CountDownLatch( nrCopies );
+  }
+
+  /**
+   * Hands over the groups of a copy that is done aggregating.
+   */
+  @SuppressWarnings( "unchecked" )
+  void addPartial( Map<HashEntry, Aggregate> groups ) {
+    List<Map.Entry<HashEntry, Aggregate>>[] partial = new List[nrPartitions];
+    for ( int p = 0; p < nrPartitions; p++ ) {
+      partial[p] = new ArrayList<>();
+    }
+    for ( Map.Entry<HashEntry, Aggregate> group : groups.entrySet() ) {
+      partial[getPartitionNr( group.getKey().hashCode() )].add( group );
+    }
+    synchronized ( partials ) {
+      partials.add( partial );
+    }
+    aggregated.countDown();
+  }
+
+  /**
+   * Waits until all copies handed over their groups.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  boolean await( StepInterface step ) throws InterruptedException {
+    while ( !aggregated.await( 100, TimeUnit.MILLISECONDS ) ) {
+      if ( step.isStopped() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if none of the copies has a group
+   */
+  boolean isEmpty() {
+    synchronized ( partials ) {
+      for ( List<Map.Entry<HashEntry, Aggregate>>[] partial : partials ) {
+        for ( List<Map.Entry<HashEntry, Aggregate>> groups : partial ) {
+          if ( !groups.isEmpty() ) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of the next partition to merge, -1 when all partitions are claimed
+   */
+  int nextPartition() {
+    int partition = nextPartition.getAndIncrement();
+    return partition < nrPartitions ? partition : -1;
+  }
+
+  /**
+   * @return the groups of all copies in a partition, a list for every copy
+   */
+  List<List<Map.Entry<HashEntry, Aggregate>>> getGroups( int partition ) {
+    List<List<Map.Entry<HashEntry, Aggregate>>> groups = new ArrayList<>();
+    synchronized ( partials ) {
+      for ( List<Map.Entry<HashEntry, Aggregate>>[] partial : partials ) {
+        groups.add( partial[partition] );
+      }
+    }
+    return groups;
+  }
+
+  private int getPartitionNr( int hashCode ) {
+    return Math.floorMod( MemoryGroupBy.mixHash( hashCode, PARTITION_SEED ), nrPartitions );
+  }
+}
@@ -138,6 +138,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  @Injection( name = "MERGINGCOPIES", group = "FIELDS" )
+  /** Flag to indicate that the copies of the step aggregate the rows they receive and merge their groups afterwards */
+  private boolean mergingCopies;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -281,6 +285,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+      mergingCopies = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "merge_copies" ) );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -437,6 +442,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "merge_copies", mergingCopies ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -486,6 +492,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+      mergingCopies = rep.getStepAttributeBoolean( id_step, "merge_copies" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -496,6 +503,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "merge_copies", mergingCopies );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -531,6 +539,18 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
           PKG, "MemoryGroupByMeta.CheckResult.NoInputError" ), stepMeta );
       remarks.add( cr );
     }
+
+    if ( mergingCopies ) {
+      for ( int i = 0; i < aggregateType.length; i++ ) {
+        if ( !isMergeable( aggregateType[i] ) ) {
+          cr =
+            new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+              PKG, "MemoryGroupByMeta.CheckResult.AggregateNotMergeable", aggregateField[i],
+              getTypeDescLong( aggregateType[i] ) ), stepMeta );
+          remarks.add( cr );
+        }
+      }
+    }
   }
 
   @Override
@@ -559,6 +579,45 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return true if the copies of the step aggregate the rows they receive and merge their groups afterwards
+   */
+  public boolean isMergingCopies() {
+    return mergingCopies;
+  }
+
+  /**
+   * @param mergingCopies
+   *          true to let the copies of the step aggregate the rows they receive and merge their groups afterwards
+   */
+  public void setMergingCopies( boolean mergingCopies ) {
+    this.mergingCopies = mergingCopies;
+  }
+
+  /**
+   * @param aggregateType
+   *          the type of aggregation
+   * @return true if the aggregates of a group from different step copies can be merged: the result doesn't depend on
+   *         the order of the rows
+   */
+  public static boolean isMergeable( int aggregateType ) {
+    switch ( aggregateType ) {
+      case TYPE_GROUP_SUM:
+      case TYPE_GROUP_AVERAGE:
+      case TYPE_GROUP_MEDIAN:
+      case TYPE_GROUP_PERCENTILE:
+      case TYPE_GROUP_MIN:
+      case TYPE_GROUP_MAX:
+      case TYPE_GROUP_COUNT_ALL:
+      case TYPE_GROUP_STANDARD_DEVIATION:
+      case TYPE_GROUP_COUNT_DISTINCT:
+      case TYPE_GROUP_COUNT_ANY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
@@ -13,13 +13,16 @@
 
 package org.pentaho.di.trans.steps.parallelgzipcsv;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.compress.bgzf.BGZFInputStream;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -183,7 +186,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
       try {
         long bytesSkipped = 0;
         while ( bytesSkipped < bytesToSkip ) {
-          long n = data.gzis.skip( bytesToSkip - bytesSkipped );
+          long n = data.getInputStream().skip( bytesToSkip - bytesSkipped );
           if ( n <= 0 ) {
             // EOF reached...
             //
@@ -279,7 +282,17 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[data.filenr].getBytes();
       }
 
-      data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      // A block compressed file (BGZF) skips the blocks the other step copies read without inflating them
+      //
+      InputStream in = new BufferedInputStream( data.fis, data.bufferSize );
+      if ( isBGZF( in ) ) {
+        logDetailed( "Reading block compressed file " + data.filenames[data.filenr] );
+        data.bgzfis = new BGZFInputStream( in );
+        data.gzis = null;
+      } else {
+        data.gzis = new GZIPInputStream( in, data.bufferSize );
+        data.bgzfis = null;
+      }
 
       clearBuffer();
       data.fileReadPosition = 0L;
@@ -323,7 +336,7 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
 
           long bytesSkipped = 0L;
           while ( bytesSkipped < bytesToSkip ) {
-            long n = data.gzis.skip( bytesToSkip - bytesSkipped );
+            long n = data.getInputStream().skip( bytesToSkip - bytesSkipped );
             if ( n <= 0 ) {
               // EOF in this file, can't read a block in this step copy
               data.eofReached = true;
@@ -384,6 +397,18 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
     }
   }
 
+  private static boolean isBGZF( InputStream in ) throws IOException {
+    byte[] header = new byte[ 16 ];
+    in.mark( header.length );
+    int length = 0;
+    int n;
+    while ( length < header.length && ( n = in.read( header, length, header.length - length ) ) > 0 ) {
+      length += n;
+    }
+    in.reset();
+    return BGZFInputStream.isBGZF( header, length );
+  }
+
   private void clearBuffer() {
     data.startBuffer = 0;
     data.endBuffer = 0;
@@ -730,8 +755,9 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
   public void closeFile() throws KettleException {
 
     try {
-      if ( data.gzis != null ) {
-        data.gzis.close();
+      InputStream in = data.getInputStream();
+      if ( in != null ) {
+        in.close();
       }
       if ( data.fis != null ) {
         incrementLinesUpdated();
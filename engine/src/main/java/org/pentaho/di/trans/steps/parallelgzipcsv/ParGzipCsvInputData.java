@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.GZIPInputStream;
 
+import org.pentaho.di.core.compress.bgzf.BGZFInputStream;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -47,6 +48,10 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
   public int filenameFieldIndex;
   public int rownumFieldIndex;
   public GZIPInputStream gzis;
+  /**
+   * The stream of a block compressed (BGZF) file, read instead of gzis.
+   */
+  public BGZFInputStream bgzfis;
   public int bufferSize;
   public byte[] delimiter;
   public byte[] enclosure;
@@ -97,6 +102,13 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
     return result;
   }
 
+  /**
+   * @return the stream inflating the current file
+   */
+  public InputStream getInputStream() {
+    return bgzfis != null ? bgzfis : gzis;
+  }
+
   /**
    * Read more data from our current file...
    *
@@ -138,7 +150,7 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
     int leftToRead = size;
     try {
       while ( bytesRead < size ) {
-        int n = gzis.read( byteBuffer, maxBuffer, leftToRead );
+        int n = getInputStream().read( byteBuffer, maxBuffer, leftToRead );
         if ( n < 0 ) {
           // EOF, nothing more to read in combination with the need to get more data means we're done.
           //
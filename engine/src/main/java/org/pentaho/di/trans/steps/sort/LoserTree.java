@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Comparator;
+
+/**
+ * A tournament tree of losers to merge k sorted sources. Every internal node remembers the source that lost the match
+ * played there, so replacing the value of the winning source only replays the matches on its path to the root: log2(k)
+ * comparisons for every merged value. An exhausted source has a null value, which loses from everything. When values
+ * are equal the source with the lowest number wins.
+ *
+ * @param <T> the type of the merged values
+ */
+class LoserTree<T> {
+  private final Comparator<T> comparator;
+  private final int size;
+  private final Object[] values;
+  private final int[] losers;
+  private int winner;
+
+  /**
+   * @param comparator the order of the sources
+   * @param heads the first value of each source, null for an empty source
+   */
+  LoserTree( Comparator<T> comparator, T[] heads ) {
+    this.comparator = comparator;
+    this.size = heads.length;
+    this.values = heads.clone();
+    this.losers = new int[Math.max( 1, size )];
+    this.winner = size == 0 ? -1 : build( 1 );
+  }
+
+  /**
+   * @return the smallest value of all the sources, null when all sources are exhausted
+   */
+  @SuppressWarnings( "unchecked" )
+  T peek() {
+    return winner < 0 ? null : (T) values[winner];
+  }
+
+  /**
+   * @return the number of the source the smallest value came from
+   */
+  int getWinner() {
+    return winner;
+  }
+
+  /**
+   * Replace the smallest value with the next value of the same source.
+   *
+   * @param next the next value, null when the source is exhausted
+   */
+  void replaceWinner( T next ) {
+    values[winner] = next;
+    int candidate = winner;
+    for ( int node = ( winner + size ) >>> 1; node >= 1; node >>>= 1 ) {
+      if ( less( losers[node], candidate ) ) {
+        int loser = candidate;
+        candidate = losers[node];
+        losers[node] = loser;
+      }
+    }
+    winner = candidate;
+  }
+
+  /**
+   * The sources are the leaves size to 2*size-1 of an implicit complete binary tree, nodes 1 to size-1 play a match.
+   *
+   * @return the winner of the sub-tree
+   */
+  private int build( int node ) {
+    if ( node >= size ) {
+      return node - size;
+    }
+    int left = build( 2 * node );
+    int right = build( 2 * node + 1 );
+    if ( less( right, left ) ) {
+      losers[node] = left;
+      return right;
+    } else {
+      losers[node] = right;
+      return left;
+    }
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private boolean less( int source1, int source2 ) {
+    T value1 = (T) values[source1];
+    T value2 = (T) values[source2];
+    if ( value1 == null ) {
+      return value2 == null && source1 < source2;
+    }
+    if ( value2 == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( value1, value2 );
+    return cmp < 0 || ( cmp == 0 && source1 < source2 );
+  }
+}
@@ -14,14 +14,20 @@
 package org.pentaho.di.trans.steps.sort;
 
 /**
- * Keeps track of which temporary file a row is coming from
+ * Keeps track of which temporary file a row is coming from, along with the normalized prefix of its sort key.
  */
 public class RowTempFile {
   public Object[] row;
   public int fileNumber;
+  public long keyPrefix;
 
   public RowTempFile( Object[] row, int fileNumber ) {
     this.row = row;
     this.fileNumber = fileNumber;
   }
+
+  public RowTempFile( Object[] row, int fileNumber, long keyPrefix ) {
+    this( row, fileNumber );
+    this.keyPrefix = keyPrefix;
+  }
 }
@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+/**
+ * Encodes the first sort key of a row in a normalized 64 bit prefix: when the prefixes of two rows differ, comparing
+ * them as unsigned longs gives the same order as {@link RowMetaInterface#compare(Object[], Object[], int[])}. Only
+ * rows with equal prefixes still need the full comparison, which saves most of the value metadata calls while
+ * sorting.<br>
+ * <br>
+ * The top bit tells null values apart so nulls sort first like they do in the value metadata. Integers and dates keep
+ * 63 bits of their value, numbers 63 bits of their IEEE 754 representation and strings their first 3 characters.
+ * Descending keys have their prefix inverted.
+ */
+class SortKeyPrefix {
+  private static final long NOT_NULL = 0x8000000000000000L;
+
+  private static final int INTEGER = 0;
+  private static final int NUMBER = 1;
+  private static final int DATE = 2;
+  private static final int STRING = 3;
+  private static final int BOOLEAN = 4;
+
+  private final ValueMetaInterface valueMeta;
+  private final int fieldNr;
+  private final int kind;
+  private final boolean descending;
+
+  private SortKeyPrefix( ValueMetaInterface valueMeta, int fieldNr, int kind ) {
+    this.valueMeta = valueMeta;
+    this.fieldNr = fieldNr;
+    this.kind = kind;
+    this.descending = valueMeta.isSortedDescending();
+  }
+
+  /**
+   * @return the prefix encoder for the first sort key, or null if its data type or sort options can't be encoded: a
+   *         collator, case insensitive or whitespace insensitive strings, a custom comparator, other data types, ...
+   */
+  static SortKeyPrefix create( RowMetaInterface rowMeta, int[] fieldNrs ) {
+    if ( fieldNrs == null || fieldNrs.length == 0 ) {
+      return null;
+    }
+    ValueMetaInterface valueMeta = rowMeta.getValueMeta( fieldNrs[0] );
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return null;
+    }
+    if ( valueMeta instanceof ValueMetaBase && ( (ValueMetaBase) valueMeta ).getComparator() != null ) {
+      return null;
+    }
+
+    // Subclasses can compare differently, only take the plain data types
+    //
+    Class<?> valueClass = valueMeta.getClass();
+    if ( valueClass == ValueMetaInteger.class ) {
+      return new SortKeyPrefix( valueMeta, fieldNrs[0], INTEGER );
+    }
+    if ( valueClass == ValueMetaNumber.class ) {
+      return new SortKeyPrefix( valueMeta, fieldNrs[0], NUMBER );
+    }
+    if ( valueClass == ValueMetaDate.class || valueClass == ValueMetaTimestamp.class ) {
+      return new SortKeyPrefix( valueMeta, fieldNrs[0], DATE );
+    }
+    if ( valueClass == ValueMetaBoolean.class ) {
+      return new SortKeyPrefix( valueMeta, fieldNrs[0], BOOLEAN );
+    }
+    if ( valueClass == ValueMetaString.class && valueMeta.isCollatorDisabled() && !valueMeta.isCaseInsensitive()
+      && !valueMeta.isIgnoreWhitespace() ) {
+      return new SortKeyPrefix( valueMeta, fieldNrs[0], STRING );
+    }
+    return null;
+  }
+
+  long prefix( Object[] row ) throws KettleValueException {
+    Object value = row[fieldNr];
+    long prefix;
+    if ( valueMeta.isNull( value ) ) {
+      prefix = 0L;
+    } else {
+      prefix = NOT_NULL | encode( value );
+    }
+    return descending ? ~prefix : prefix;
+  }
+
+  /**
+   * @return the value as 63 bits that order like the value as an unsigned number
+   */
+  private long encode( Object value ) throws KettleValueException {
+    switch ( kind ) {
+      case INTEGER:
+        return ( valueMeta.getInteger( value ) ^ Long.MIN_VALUE ) >>> 1;
+      case NUMBER:
+        long bits = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+        return ( bits < 0 ? ~bits : bits ^ Long.MIN_VALUE ) >>> 1;
+      case DATE:
+        return ( valueMeta.getDate( value ).getTime() ^ Long.MIN_VALUE ) >>> 1;
+      case BOOLEAN:
+        return valueMeta.getBoolean( value ) ? 1L : 0L;
+      default:
+        // 3 characters of 17 bits: 0 marks the end of the string so it sorts before any character
+        //
+        String string = valueMeta.getString( value );
+        long encoded = 0L;
+        for ( int i = 0; i < 3; i++ ) {
+          encoded = ( encoded << 17 ) | ( i < string.length() ? string.charAt( i ) + 1 : 0 );
+        }
+        return encoded;
+    }
+  }
+}
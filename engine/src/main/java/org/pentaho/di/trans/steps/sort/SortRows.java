@@ -20,13 +20,16 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -45,6 +48,8 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
 
 /**
  * Sort the rows in the input-streams based on certain criteria
@@ -55,6 +60,11 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class SortRows extends BaseStep implements StepInterface {
   private static Class<?> PKG = SortRows.class; // for i18n
 
+  /**
+   * Smaller buffers are sorted on the step thread: splitting them up costs more than it saves.
+   */
+  static final int PARALLEL_SORT_THRESHOLD = 10000;
+
   private SortRowsMeta meta;
   private SortRowsData data;
 
@@ -77,6 +87,9 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // Save row
     data.buffer.add( r );
+    if ( data.memoryLimit > 0 ) {
+      data.bufferMemory += estimateRowSize( r );
+    }
 
     // Check the free memory every 1000 rows...
     //
@@ -101,6 +114,7 @@ public class SortRows extends BaseStep implements StepInterface {
     doSort |=
         data.freeMemoryPctLimit > 0 && data.freeMemoryPct < data.freeMemoryPctLimit
             && data.buffer.size() >= data.minSortSize;
+    doSort |= data.memoryLimit > 0 && data.bufferMemory >= data.memoryLimit;
     if ( log.isDebug() ) {
       this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.StartDumpToDisk", data.freeMemoryPct, data.buffer
           .size() ) );
@@ -111,6 +125,31 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Estimates the bytes a row takes on the heap: the array with its references and the usual value classes. It doesn't
+   * have to be exact, only grow with the data so the buffer is bounded by memory rather than by a number of rows.
+   */
+  static long estimateRowSize( Object[] row ) {
+    long size = 16L + 8L * row.length;
+    for ( Object value : row ) {
+      if ( value == null ) {
+        continue;
+      }
+      if ( value instanceof String ) {
+        size += 40L + 2L * ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof Date ) {
+        size += 32L;
+      } else if ( value instanceof BigDecimal ) {
+        size += 40L + ( (BigDecimal) value ).unscaledValue().bitLength() / 8;
+      } else {
+        size += 16L;
+      }
+    }
+    return size;
+  }
+
   // dump sorted rows from in-memory buffer to fs file
   // clean current buffer
   void sortExternalRows() throws KettleException {
@@ -124,7 +163,7 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // Then write them to disk...
     DataOutputStream dos;
-    GZIPOutputStream gzos;
+    OutputStream compressedStream;
     int p;
 
     try {
@@ -136,11 +175,14 @@ public class SortRows extends BaseStep implements StepInterface {
       OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
         .getOutputStream( fileObject, false );
       if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
+        // Snappy compresses blocks an order of magnitude faster than gzip, which matters more than the file size
+        // for temporary files that are read back once
+        //
+        compressedStream = new SnappyOutputStream( new BufferedOutputStream( outputStream ) );
+        dos = new DataOutputStream( compressedStream );
       } else {
         dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
+        compressedStream = null;
       }
 
       // Just write the data, nothing else
@@ -197,11 +239,12 @@ public class SortRows extends BaseStep implements StepInterface {
 
       // Clear the list
       data.buffer.clear();
+      data.bufferMemory = 0;
 
       // Close temp-file
       dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
+      if ( compressedStream != null ) {
+        compressedStream.close(); // close compression stream
       }
       outputStream.close(); // close file stream
 
@@ -222,9 +265,9 @@ public class SortRows extends BaseStep implements StepInterface {
     data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
+  private DataInputStream getDataInputStream( InputStream compressedStream ) {
+    DataInputStream result = new DataInputStream( compressedStream );
+    data.compressedStreams.add( compressedStream );
     return result;
   }
 
@@ -241,6 +284,7 @@ public class SortRows extends BaseStep implements StepInterface {
       }
 
       try {
+        RowTempFile[] heads = new RowTempFile[data.files.size()];
         for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
           FileObject fileObject = data.files.get( f );
           String filename = KettleVFS.getFilename( fileObject );
@@ -251,7 +295,7 @@ public class SortRows extends BaseStep implements StepInterface {
           DataInputStream di;
           data.fis.add( fi );
           if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
+            di = getDataInputStream( new SnappyInputStream( new BufferedInputStream( fi ) ) );
           } else {
             di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
           }
@@ -268,12 +312,12 @@ public class SortRows extends BaseStep implements StepInterface {
           if ( buffersize > 0 ) {
             Object[] row = data.outputRowMeta.readData( di );
             data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
+            heads[f] = new RowTempFile( row, f, getKeyPrefix( row ) );
           }
         }
 
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
+        // The merge only compares the rows on the path of the file the smallest row came from
+        data.merge = new LoserTree<>( data.comparator, heads );
       } catch ( Exception e ) {
         logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
       }
@@ -291,7 +335,7 @@ public class SortRows extends BaseStep implements StepInterface {
     } else {
       // read from disk processing
 
-      if ( data.rowbuffer.size() == 0 ) {
+      if ( data.merge == null || data.merge.peek() == null ) {
         retval = null;
       } else {
         // We now have "filenr" rows waiting: which one is the smallest?
@@ -304,7 +348,7 @@ public class SortRows extends BaseStep implements StepInterface {
           }
         }
 
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
+        RowTempFile rowTempFile = data.merge.peek();
         retval = rowTempFile.row;
         int smallest = rowTempFile.fileNumber;
 
@@ -316,21 +360,16 @@ public class SortRows extends BaseStep implements StepInterface {
 
         try {
           Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
+          rowTempFile.row = row2;
+          rowTempFile.keyPrefix = getKeyPrefix( row2 );
+          data.merge.replaceWinner( rowTempFile );
         } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
+          InputStream compressedStream = ( data.compressFiles ) ? data.compressedStreams.get( smallest ) : null;
           try {
             di.close();
             fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
+            if ( compressedStream != null ) {
+              compressedStream.close();
             }
             file.delete();
           } catch ( IOException e ) {
@@ -340,22 +379,9 @@ public class SortRows extends BaseStep implements StepInterface {
             return null;
           }
 
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
+          // The file keeps its number, it just doesn't take part in the merge anymore
           //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
+          data.merge.replaceWinner( null );
         } catch ( SocketTimeoutException e ) {
           throw new KettleValueException( e ); // should never happen on local files
         }
@@ -411,7 +437,7 @@ public class SortRows extends BaseStep implements StepInterface {
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
         metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
+      data.comparator = new RowTempFileComparator( data.outputRowMeta, data.fieldnrs );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
@@ -431,6 +457,16 @@ public class SortRows extends BaseStep implements StepInterface {
         i++;
       }
       data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+      data.keyPrefix = SortKeyPrefix.create( data.outputRowMeta, data.fieldnrs );
+
+      // Converting a lazy or indexed key uses the formats and counters of its value metadata, they can't be shared
+      //
+      data.parallelSortKeys = true;
+      for ( int fieldnr : data.fieldnrs ) {
+        if ( data.outputRowMeta.getValueMeta( fieldnr ).getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+          data.parallelSortKeys = false;
+        }
+      }
     } // end if first
 
     // it is not first row and it is null
@@ -569,9 +605,17 @@ public class SortRows extends BaseStep implements StepInterface {
 
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
 
-    data.tempRows = new ArrayList<RowTempFile>();
-
     data.minSortSize = 5000;
+    data.memoryLimit = Const.toLong( getVariable( Const.KETTLE_SORT_ROWS_MEMORY_LIMIT, null ), 0L ) * 1024L * 1024L;
+
+    // The copies of the step sort at the same time, together they shouldn't use more threads than there are processors
+    //
+    int copies = Math.max( 1, getStepMeta().getCopies() );
+    int parallelism = Const.toInt( getVariable( Const.KETTLE_SORT_ROWS_PARALLELISM, null ),
+      Runtime.getRuntime().availableProcessors() / copies );
+    if ( parallelism > 1 ) {
+      data.sortPool = new ForkJoinPool( parallelism );
+    }
 
     return true;
   }
@@ -579,6 +623,10 @@ public class SortRows extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     clearBuffers();
+    if ( data.sortPool != null ) {
+      data.sortPool.shutdownNow();
+      data.sortPool = null;
+    }
     super.dispose( smi, sdi );
   }
 
@@ -586,8 +634,10 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // Clean out the sort buffer
     data.buffer.clear();
+    data.bufferMemory = 0;
     data.getBufferIndex = 0;
     data.rowbuffer.clear();
+    data.merge = null;
 
     // close any open DataInputStream objects
     if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
@@ -612,6 +662,14 @@ public class SortRows extends BaseStep implements StepInterface {
         logError( e.getLocalizedMessage(), e );
       }
     }
+
+    // The files are merged: a next group starts without any
+    //
+    data.files.clear();
+    data.fis.clear();
+    data.dis.clear();
+    data.compressedStreams.clear();
+    data.bufferSizes.clear();
   }
 
   /**
@@ -619,7 +677,17 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.keyPrefix != null ) {
+        prefixSort( elements );
+      } else if ( isParallelSort( elements.size() ) ) {
+        Object[][] rows = elements.toArray( new Object[elements.size()][] );
+        sort( rows, data.rowComparator );
+        for ( int i = 0; i < rows.length; i++ ) {
+          elements.set( i, rows[i] );
+        }
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -632,6 +700,50 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Sort on the normalized prefix of the first key, only rows with the same prefix are compared on their values. The
+   * sort is stable, so rows end up in the same order as with the row comparator.
+   */
+  private void prefixSort( List<Object[]> elements ) throws KettleException {
+    RowTempFile[] keyed = new RowTempFile[elements.size()];
+    for ( int i = 0; i < keyed.length; i++ ) {
+      Object[] row = elements.get( i );
+      keyed[i] = new RowTempFile( row, 0, data.keyPrefix.prefix( row ) );
+    }
+    sort( keyed, data.comparator );
+    for ( int i = 0; i < keyed.length; i++ ) {
+      elements.set( i, keyed[i].row );
+    }
+  }
+
+  private boolean isParallelSort( int size ) {
+    return data.sortPool != null && data.parallelSortKeys && size >= PARALLEL_SORT_THRESHOLD;
+  }
+
+  /**
+   * A stable sort, in parallel on the sort pool for large buffers. Arrays.parallelSort() splits the array in chunks,
+   * sorts them and merges them using the fork join pool it's called from. The comparators only read the rows and, with
+   * keys in normal storage, the value metadata, so they can be shared by the sorting threads.
+   */
+  private <T> void sort( T[] elements, Comparator<? super T> comparator ) throws KettleException {
+    if ( !isParallelSort( elements.length ) ) {
+      Arrays.sort( elements, comparator );
+      return;
+    }
+    try {
+      data.sortPool.submit( () -> Arrays.parallelSort( elements, comparator ) ).get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException e ) {
+      throw new KettleException( e.getCause() );
+    }
+  }
+
+  private long getKeyPrefix( Object[] row ) throws KettleValueException {
+    return data.keyPrefix == null ? 0L : data.keyPrefix.prefix( row );
+  }
+
   /**
    * Calling this method will alert the step that we finished passing records to the step. Specifically for steps like
    * "Sort Rows" it means that the buffered rows can be sorted and passed on.
@@ -680,13 +792,19 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
-  private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
+  private class RowTempFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
+    RowTempFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
       super( rowMeta, fieldNrs );
     }
 
     @Override
     public int compare( RowTempFile o1, RowTempFile o2 ) {
+      if ( data.keyPrefix != null ) {
+        int cmp = Long.compareUnsigned( o1.keyPrefix, o2.keyPrefix );
+        if ( cmp != 0 ) {
+          return cmp;
+        }
+      }
       try {
         return rowMeta.compare( o1.row, o2.row, fieldNrs );
       } catch ( KettleValueException e ) {
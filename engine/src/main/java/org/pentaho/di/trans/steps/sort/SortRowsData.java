@@ -18,6 +18,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
@@ -35,14 +36,27 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int getBufferIndex;
 
   public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
+  public List<InputStream> compressedStreams;
   public List<DataInputStream> dis;
   public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
+  /**
+   * @deprecated the temporary files are compressed with Snappy, their streams are in {@link #compressedStreams}. This
+   *             list stays empty.
+   */
+  @Deprecated
+  public List<GZIPInputStream> gzis;
+
+  /**
+   * @deprecated the rows read from the temporary files are merged by a loser tree. This list stays empty.
+   */
+  @Deprecated
   public List<RowTempFile> tempRows;
 
+  // Merges the rows of the temporary files
+  LoserTree<RowTempFile> merge;
+
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
   public RowMetaInterface outputRowMeta;
@@ -51,6 +65,15 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
+  // Normalized prefix of the first sort key, null if that key can't be encoded
+  SortKeyPrefix keyPrefix;
+
+  // Sorts large buffers in parallel, null when the step sorts on its own thread
+  ForkJoinPool sortPool;
+
+  // The sort keys are compared without conversions, so the pool threads can share the value metadata
+  boolean parallelSortKeys;
+
   Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
 
@@ -60,6 +83,10 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int freeMemoryPctLimit;
   public int memoryReporting;
 
+  // The estimated bytes of the rows in the buffer, and the limit of it, 0 if there is none
+  long bufferMemory;
+  long memoryLimit;
+
   /*
    * Group Fields Implementation heroic
    */
@@ -72,7 +99,9 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
 
     files = new ArrayList<FileObject>();
     fis = new ArrayList<InputStream>();
+    compressedStreams = new ArrayList<InputStream>();
     gzis = new ArrayList<GZIPInputStream>();
+    tempRows = new ArrayList<RowTempFile>();
     dis = new ArrayList<DataInputStream>();
     bufferSizes = new ArrayList<Integer>();
 
@@ -0,0 +1,448 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.tableinput;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Reads a query in partitions, ranges of a numeric or date split column. The query is wrapped in a select that keeps
+ * the rows of one range, the first range also gets the rows without a value. The ranges are split between the minimum
+ * and the maximum of the column, the step copies read every so many of them.<br>
+ * <br>
+ * On one connection the partitions are read one after the other in the step thread. On more connections every
+ * connection reads partitions in a thread of its own, the rows come together in a queue.
+ */
+public class PartitionedQuery {
+
+  private static final String ALIAS = "partitioned_query";
+
+  private static final Pattern SINGLE_TABLE = Pattern.compile(
+    "^\\s*SELECT\\s.+?\\sFROM\\s+([^\\s,();]+)(\\s+(WHERE|ORDER\\s+BY)\\s.*)?$",
+    Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+
+  private static final Pattern ORDER_BY = Pattern.compile( "\\bORDER\\s+BY\\b", Pattern.CASE_INSENSITIVE );
+
+  private static final Object[] END = new Object[ 0 ];
+
+  /**
+   * A range of the split column: the SQL reading it and the bounds to pass as parameters.
+   */
+  static class Partition {
+    final String sql;
+    final RowMetaInterface parametersMeta;
+    final Object[] parameters;
+
+    Partition( String sql, RowMetaInterface parametersMeta, Object[] parameters ) {
+      this.sql = sql;
+      this.parametersMeta = parametersMeta;
+      this.parameters = parameters;
+    }
+  }
+
+  private final List<Partition> partitions;
+  private final Database[] databases;
+  private final boolean lazyConversion;
+  private final AtomicInteger nextPartition = new AtomicInteger();
+
+  private volatile RowMetaInterface rowMeta;
+  private volatile boolean stopped;
+  private volatile KettleException error;
+
+  // Reading on one connection
+  //
+  private ResultSet resultSet;
+
+  // Reading on more connections
+  //
+  private ExecutorService executor;
+  private BlockingQueue<Object[]> rows;
+  private int running;
+
+  /**
+   * @param partitions     the partitions to read
+   * @param databases      the connected databases to read them on
+   * @param lazyConversion true to keep the strings of the rows as binary data
+   */
+  public PartitionedQuery( List<Partition> partitions, Database[] databases, boolean lazyConversion ) {
+    this.partitions = partitions;
+    this.databases = databases;
+    this.lazyConversion = lazyConversion;
+  }
+
+  /**
+   * Starts reading the partitions on the connections after the first.
+   *
+   * @param threadName the name of the threads
+   * @param queueSize  the number of rows the threads read ahead
+   */
+  public void start( String threadName, int queueSize ) {
+    if ( databases.length < 2 ) {
+      return;
+    }
+    rows = new ArrayBlockingQueue<>( Math.max( queueSize, 1 ) );
+    running = databases.length;
+    executor = Executors.newFixedThreadPool( databases.length, runnable -> {
+      Thread thread = new Thread( runnable, threadName );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    for ( Database database : databases ) {
+      executor.submit( () -> read( database ) );
+    }
+  }
+
+  /**
+   * @return the next row of the partitions or null when they are all read
+   */
+  public Object[] getRow() throws KettleException {
+    if ( executor == null ) {
+      return getRow( databases[ 0 ] );
+    }
+    try {
+      while ( running > 0 && !stopped ) {
+        if ( error != null ) {
+          throw error;
+        }
+        Object[] row = rows.poll( 100, TimeUnit.MILLISECONDS );
+        if ( row == END ) {
+          running--;
+        } else if ( row != null ) {
+          return row;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    if ( error != null ) {
+      throw error;
+    }
+    return null;
+  }
+
+  private Object[] getRow( Database database ) throws KettleException {
+    while ( !stopped ) {
+      if ( resultSet != null ) {
+        Object[] row = database.getRow( resultSet, lazyConversion );
+        if ( row != null ) {
+          return row;
+        }
+        database.closeQuery( resultSet );
+        resultSet = null;
+      }
+      Partition partition = nextPartition();
+      if ( partition == null ) {
+        break;
+      }
+      resultSet = openQuery( database, partition );
+    }
+    return null;
+  }
+
+  private void read( Database database ) {
+    try {
+      for ( Partition partition = nextPartition(); partition != null && !stopped; partition = nextPartition() ) {
+        ResultSet rs = openQuery( database, partition );
+        try {
+          for ( Object[] row = database.getRow( rs, lazyConversion ); row != null && !stopped;
+                row = database.getRow( rs, lazyConversion ) ) {
+            put( row );
+          }
+        } finally {
+          database.closeQuery( rs );
+        }
+      }
+    } catch ( KettleException e ) {
+      if ( !stopped ) {
+        error = e;
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        put( END );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void put( Object[] row ) throws InterruptedException {
+    while ( !rows.offer( row, 100, TimeUnit.MILLISECONDS ) ) {
+      if ( stopped ) {
+        return;
+      }
+    }
+  }
+
+  private Partition nextPartition() {
+    int index = nextPartition.getAndIncrement();
+    return index < partitions.size() ? partitions.get( index ) : null;
+  }
+
+  private ResultSet openQuery( Database database, Partition partition ) throws KettleDatabaseException {
+    ResultSet rs =
+      database.openQuery( partition.sql, partition.parametersMeta, partition.parameters, ResultSet.FETCH_FORWARD,
+        lazyConversion );
+    if ( rs == null ) {
+      throw new KettleDatabaseException( "Couldn't open query [" + partition.sql + "]" );
+    }
+    if ( rowMeta == null ) {
+      rowMeta = database.getReturnRowMeta();
+    }
+    return rs;
+  }
+
+  /**
+   * @return the layout of the rows, it's known once the first partition is opened
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * Cancels the queries, the threads stop reading.
+   */
+  public void cancel() throws KettleDatabaseException {
+    stopped = true;
+    for ( Database database : databases ) {
+      if ( database.getConnection() != null ) {
+        database.cancelQuery();
+      }
+    }
+  }
+
+  /**
+   * Stops reading and closes the open query, the databases are left to the step.
+   */
+  public void close() throws KettleException {
+    stopped = true;
+    if ( executor != null ) {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if ( resultSet != null ) {
+      databases[ 0 ].closeQuery( resultSet );
+      resultSet = null;
+    }
+  }
+
+  /**
+   * @return the table a query reads from, null if it's not a simple query on a single table
+   */
+  static String getTableName( String sql ) {
+    Matcher matcher = SINGLE_TABLE.matcher( stripQuery( sql ) );
+    return matcher.matches() ? matcher.group( 1 ) : null;
+  }
+
+  /**
+   * @return true if the query ends with an ORDER BY of its own, not one in parentheses or quotes. It can't be read in
+   *         partitions: they don't keep the order and some databases don't take an ORDER BY in a derived table.
+   */
+  static boolean hasOrderBy( String sql ) {
+    String query = stripQuery( sql );
+    Matcher matcher = ORDER_BY.matcher( query );
+    while ( matcher.find() ) {
+      if ( isTopLevel( query, matcher.start() ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the position in the query is outside of parentheses and quotes
+   */
+  private static boolean isTopLevel( String query, int position ) {
+    int depth = 0;
+    char quote = 0;
+    for ( int i = 0; i < position; i++ ) {
+      char c = query.charAt( i );
+      if ( quote != 0 ) {
+        if ( c == quote ) {
+          quote = 0;
+        }
+      } else if ( c == '\'' || c == '"' || c == '`' ) {
+        quote = c;
+      } else if ( c == '(' ) {
+        depth++;
+      } else if ( c == ')' ) {
+        depth--;
+      }
+    }
+    return depth == 0 && quote == 0;
+  }
+
+  /**
+   * @return the query reading the minimum and maximum of the split column
+   */
+  static String getBoundsSQL( DatabaseMeta databaseMeta, String sql, String splitColumn ) {
+    String column = databaseMeta.quoteField( splitColumn );
+    return "SELECT MIN( " + column + " ), MAX( " + column + " ) FROM ( " + stripQuery( sql ) + " ) " + ALIAS;
+  }
+
+  /**
+   * Creates the partitions between the split points. The first one also reads the rows without a value, the last one
+   * the rows beyond the maximum.
+   *
+   * @param splitMeta   the type of the split column
+   * @param splitPoints the values between the partitions, ascending
+   * @return the partitions, only the query itself without split points
+   */
+  static List<Partition> getPartitions( DatabaseMeta databaseMeta, String sql, String splitColumn,
+                                        ValueMetaInterface splitMeta, List<Object> splitPoints ) {
+    List<Partition> partitions = new ArrayList<>();
+    if ( splitPoints.isEmpty() ) {
+      partitions.add( new Partition( sql, null, null ) );
+      return partitions;
+    }
+    String column = databaseMeta.quoteField( splitColumn );
+    String select = "SELECT * FROM ( " + stripQuery( sql ) + " ) " + ALIAS + " WHERE ";
+    for ( int i = 0; i <= splitPoints.size(); i++ ) {
+      RowMetaInterface parametersMeta = new RowMeta();
+      List<Object> parameters = new ArrayList<>();
+      String condition;
+      if ( i == 0 ) {
+        condition = "( " + column + " IS NULL OR " + column + " < ? )";
+      } else if ( i == splitPoints.size() ) {
+        condition = column + " >= ?";
+      } else {
+        condition = column + " >= ? AND " + column + " < ?";
+      }
+      if ( i > 0 ) {
+        addParameter( parametersMeta, parameters, splitMeta, "from", splitPoints.get( i - 1 ) );
+      }
+      if ( i < splitPoints.size() ) {
+        addParameter( parametersMeta, parameters, splitMeta, "to", splitPoints.get( i ) );
+      }
+      partitions.add( new Partition( select + condition, parametersMeta, parameters.toArray() ) );
+    }
+    return partitions;
+  }
+
+  private static void addParameter( RowMetaInterface parametersMeta, List<Object> parameters,
+                                    ValueMetaInterface splitMeta, String name, Object value ) {
+    ValueMetaInterface parameterMeta = splitMeta.clone();
+    parameterMeta.setName( name );
+    parameterMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+    parametersMeta.addValueMeta( parameterMeta );
+    parameters.add( value );
+  }
+
+  /**
+   * Splits the range of the split column in partitions of the same width. Integers and dates are rounded up, so
+   * narrow ranges get fewer partitions.
+   *
+   * @param splitMeta    the type of the minimum and maximum
+   * @param min          the minimum of the split column
+   * @param max          the maximum of the split column
+   * @param nrPartitions the number of partitions to split the range in
+   * @return the values between the partitions, ascending and without the minimum
+   * @throws KettleValueException if the split column isn't a number or a date
+   */
+  static List<Object> getSplitPoints( ValueMetaInterface splitMeta, Object min, Object max, int nrPartitions )
+    throws KettleValueException {
+    List<Object> splitPoints = new ArrayList<>();
+    BigDecimal low = toBigDecimal( splitMeta, min );
+    BigDecimal high = toBigDecimal( splitMeta, max );
+    if ( low == null || high == null || nrPartitions < 2 ) {
+      return splitPoints;
+    }
+    BigDecimal width = high.subtract( low ).divide( BigDecimal.valueOf( nrPartitions ), MathContext.DECIMAL128 );
+    BigDecimal previous = low;
+    for ( int i = 1; i < nrPartitions; i++ ) {
+      BigDecimal point = low.add( width.multiply( BigDecimal.valueOf( i ) ) );
+      if ( splitMeta.getType() != ValueMetaInterface.TYPE_NUMBER
+        && splitMeta.getType() != ValueMetaInterface.TYPE_BIGNUMBER ) {
+        point = point.setScale( 0, RoundingMode.CEILING );
+      }
+      if ( point.compareTo( previous ) > 0 && point.compareTo( high ) <= 0 ) {
+        splitPoints.add( fromBigDecimal( splitMeta, point ) );
+        previous = point;
+      }
+    }
+    return splitPoints;
+  }
+
+  private static BigDecimal toBigDecimal( ValueMetaInterface splitMeta, Object value ) throws KettleValueException {
+    if ( value == null ) {
+      return null;
+    }
+    switch ( splitMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return BigDecimal.valueOf( splitMeta.getInteger( value ) );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return BigDecimal.valueOf( splitMeta.getNumber( value ) );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return splitMeta.getBigNumber( value );
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return BigDecimal.valueOf( splitMeta.getDate( value ).getTime() );
+      default:
+        throw new KettleValueException( "Unable to split on column [" + splitMeta.getName() + "] of type "
+          + splitMeta.getTypeDesc() + ", it has to be a number or a date" );
+    }
+  }
+
+  private static Object fromBigDecimal( ValueMetaInterface splitMeta, BigDecimal value ) {
+    switch ( splitMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return value.longValue();
+      case ValueMetaInterface.TYPE_NUMBER:
+        return value.doubleValue();
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return new Timestamp( value.longValue() );
+      case ValueMetaInterface.TYPE_DATE:
+        return new Date( value.longValue() );
+      default:
+        return value;
+    }
+  }
+
+  private static String stripQuery( String sql ) {
+    String query = sql.trim();
+    while ( query.endsWith( ";" ) ) {
+      query = query.substring( 0, query.length() - 1 ).trim();
+    }
+    return query;
+  }
+}
@@ -15,6 +15,8 @@ package org.pentaho.di.trans.steps.tableinput;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -38,6 +40,7 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseDatabaseStep;
+import org.pentaho.di.trans.step.LookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -97,6 +100,14 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     dbLock.lock();
     try {
 
+      if ( data.partitionedRead ) {
+        if ( first ) {
+          first = false;
+          startPartitionedRead();
+        }
+        return processPartitionedRow();
+      }
+
       if ( first ) { // we just got started
 
         Object[] parameters;
@@ -216,6 +227,153 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     }
   }
 
+  private boolean processPartitionedRow() throws KettleException {
+    Object[] row;
+    try {
+      row = data.partitionedQuery.getRow();
+    } catch ( KettleDatabaseException e ) {
+      if ( e.getCause() instanceof SQLException && isStopped() ) {
+        // The queries were cancelled
+        logDebug( e.getMessage() );
+        return false;
+      }
+      throw e;
+    }
+    if ( row == null ) {
+      setOutputDone();
+      return false;
+    }
+    if ( data.rowMeta == null ) {
+      data.rowMeta = data.partitionedQuery.getRowMeta();
+      for ( ValueMetaInterface valueMeta : data.rowMeta.getValueMetaList() ) {
+        valueMeta.setOrigin( getStepname() );
+      }
+    }
+    incrementLinesInput();
+    putRow( data.rowMeta, row );
+
+    if ( checkFeedback( getLinesInput() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "TableInput.Log.LineNumber", String.valueOf( getLinesInput() ) ) );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits the range of the split column in partitions and starts reading the ones of this step copy: every so many,
+   * as many as there are copies.
+   */
+  private void startPartitionedRead() throws KettleException {
+    String sql = meta.isVariableReplacementActive() ? environmentSubstitute( meta.getSQL() ) : meta.getSQL();
+    String splitColumn = environmentSubstitute( meta.getSplitColumn() );
+    if ( Utils.isEmpty( splitColumn ) ) {
+      splitColumn = getPrimaryKeyColumn( sql );
+    }
+
+    int nrCopies = getUniqueStepCountAcrossSlaves();
+    int nrConnections = Math.max( Const.toInt( environmentSubstitute( meta.getNrConnections() ), 1 ), 1 );
+    if ( nrConnections > 1 && getTransMeta().isUsingUniqueConnections() ) {
+      // The databases of a transaction share one connection
+      //
+      logBasic( BaseMessages.getString( PKG, "TableInput.Log.UniqueConnections" ) );
+      nrConnections = 1;
+    }
+    int nrPartitions = Const.toInt( environmentSubstitute( meta.getNrPartitions() ), 0 );
+    if ( nrPartitions <= 0 ) {
+      nrPartitions = nrCopies * nrConnections;
+    }
+
+    RowMetaAndData bounds = readBounds( sql, splitColumn );
+    ValueMetaInterface splitMeta = bounds.getValueMeta( 0 );
+    List<Object> splitPoints =
+      PartitionedQuery.getSplitPoints( splitMeta, bounds.getData()[ 0 ], bounds.getData()[ 1 ], nrPartitions );
+    List<PartitionedQuery.Partition> partitions =
+      PartitionedQuery.getPartitions( meta.getDatabaseMeta(), sql, splitColumn, splitMeta, splitPoints );
+
+    List<PartitionedQuery.Partition> copyPartitions = new ArrayList<>();
+    for ( int i = getUniqueStepNrAcrossSlaves(); i < partitions.size(); i += nrCopies ) {
+      copyPartitions.add( partitions.get( i ) );
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TableInput.Log.PartitionedRead", String.valueOf( copyPartitions
+        .size() ), String.valueOf( partitions.size() ), splitColumn, String.valueOf( nrConnections ) ) );
+    }
+
+    data.partitionDatabases = new Database[ Math.max( Math.min( nrConnections, copyPartitions.size() ), 1 ) ];
+    data.partitionDatabases[ 0 ] = data.db;
+    for ( int i = 1; i < data.partitionDatabases.length; i++ ) {
+      data.partitionDatabases[ i ] = connectPartitionDatabase();
+    }
+    data.partitionedQuery =
+      new PartitionedQuery( copyPartitions, data.partitionDatabases, meta.isLazyConversionActive() );
+    data.partitionedQuery.start( getStepname() + " partitioned read", getTransMeta().getSizeRowset() );
+  }
+
+  /**
+   * Reads the minimum and maximum of the split column. The step copies share them, the first one reads them.
+   */
+  private RowMetaAndData readBounds( String sql, String splitColumn ) throws KettleException {
+    String boundsSQL = PartitionedQuery.getBoundsSQL( meta.getDatabaseMeta(), sql, splitColumn );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TableInput.Log.SqlQuery", boundsSQL ) );
+    }
+    data.boundsReference = LookupCacheRegistry.getInstance().acquire( getTrans(), "TableInput bounds "
+      + getStepname(), 0L, () -> data.db.getOneRow( boundsSQL ), bounds -> 0L );
+    return data.boundsReference.get();
+  }
+
+  /**
+   * @return the first column of the primary key of the table the query reads from
+   */
+  private String getPrimaryKeyColumn( String sql ) throws KettleException {
+    String table = PartitionedQuery.getTableName( sql );
+    if ( table != null ) {
+      // The primary keys are looked up without the schema and the quotes
+      //
+      table = table.substring( table.lastIndexOf( '.' ) + 1 ).replaceAll( "[\"`\\[\\]]", "" );
+      String[] keys = data.db.getPrimaryKeyColumnNames( table );
+      if ( keys.length == 0 ) {
+        keys = data.db.getPrimaryKeyColumnNames( table.toUpperCase() );
+      }
+      if ( keys.length > 0 ) {
+        return keys[ 0 ];
+      }
+    }
+    throw new KettleException( BaseMessages.getString( PKG, "TableInput.Exception.NoSplitColumn" ) );
+  }
+
+  private Database connectPartitionDatabase() throws KettleDatabaseException {
+    Database db = new Database( this, meta.getDatabaseMeta() );
+    db.shareVariablesWith( this );
+    db.setFetchSize( data.db.getFetchSize() );
+    if ( meta.getDatabaseMeta().isRequiringTransactionsOnQueries() ) {
+      db.setCommitSize( 100 );
+    }
+    db.connect( getPartitionID() );
+    db.setAutoCommit();
+    return db;
+  }
+
+  private void closePartitionedRead() throws KettleException {
+    try {
+      if ( data.partitionedQuery != null ) {
+        data.partitionedQuery.close();
+      }
+    } finally {
+      if ( data.partitionDatabases != null ) {
+        for ( int i = 1; i < data.partitionDatabases.length; i++ ) {
+          if ( data.partitionDatabases[ i ] != null ) {
+            data.partitionDatabases[ i ].close();
+          }
+        }
+      }
+      if ( data.boundsReference != null ) {
+        data.boundsReference.release();
+      }
+    }
+  }
+
   private void closePreviousQuery() throws KettleDatabaseException {
     if ( data.db != null ) {
       data.db.closeQuery( data.rs );
@@ -279,6 +437,7 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
         logBasic( BaseMessages.getString( PKG, "TableInput.Log.FinishedReadingQuery" ) );
       }
       try {
+        closePartitionedRead();
         closePreviousQuery();
       } catch ( KettleException e ) {
         logError( BaseMessages.getString( PKG, "TableInput.Log.ErrorClosingQuery", e.toString() ) );
@@ -298,6 +457,13 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
       return;
     }
 
+    // The partitioned read waits for rows in the lock, cancel its queries first
+    //
+    PartitionedQuery partitionedQuery = ( (TableInputData) sdi ).partitionedQuery;
+    if ( partitionedQuery != null ) {
+      partitionedQuery.cancel();
+    }
+
     dbLock.lock();
     try {
       meta = (TableInputMeta) smi;
@@ -327,7 +493,23 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
           return false;
         }
         data.infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
-        data.db.setQueryLimit( Const.toInt( environmentSubstitute( meta.getRowLimit() ), 0 ) );
+        int rowLimit = Const.toInt( environmentSubstitute( meta.getRowLimit() ), 0 );
+        data.db.setQueryLimit( rowLimit );
+        data.db.setFetchSize( Const.toInt( environmentSubstitute( meta.getFetchSize() ), 0 ) );
+
+        if ( meta.isPartitionedRead() ) {
+          String sql = meta.isVariableReplacementActive() ? environmentSubstitute( meta.getSQL() ) : meta.getSQL();
+          if ( data.infoStream.getStepMeta() != null || rowLimit > 0 ) {
+            logBasic( BaseMessages.getString( PKG, "TableInput.Log.PartitionedReadNotPossible" ) );
+          } else if ( PartitionedQuery.hasOrderBy( sql ) ) {
+            // The partitions are read in parallel and the query becomes a derived table: the order would be lost
+            // and SQL Server rejects an ORDER BY there
+            //
+            logBasic( BaseMessages.getString( PKG, "TableInput.Log.PartitionedReadOrderBy" ) );
+          } else {
+            data.partitionedRead = true;
+          }
+        }
 
         if ( meta.getDatabaseMeta().isRequiringTransactionsOnQueries() ) {
           data.db.setCommitSize( 100 ); // needed for PGSQL it seems...
@@ -15,10 +15,12 @@ package org.pentaho.di.trans.steps.tableinput;
 
 import java.sql.ResultSet;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
+import org.pentaho.di.trans.step.LookupCacheRegistry;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.errorhandling.StreamInterface;
 
@@ -36,6 +38,13 @@ public class TableInputData extends BaseDatabaseStepData implements StepDataInte
   public boolean isCanceled;
   public StreamInterface infoStream;
 
+  /** Read the query in ranges of the split column */
+  public boolean partitionedRead;
+  public PartitionedQuery partitionedQuery;
+  /** The step database and the extra connections the partitions are read on */
+  public Database[] partitionDatabases;
+  public LookupCacheRegistry.Reference<RowMetaAndData> boundsReference;
+
   public TableInputData() {
     super();
 
@@ -87,6 +87,24 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
 
   private RowMetaInterface cachedRowMeta;
 
+  /** Should I read the query in ranges of the split column, across the step copies and connections? */
+  @Injection( name = "PARTITIONED_READ" )
+  private boolean partitionedRead;
+
+  /** The numeric or date column to split the query on, the primary key of the table when empty */
+  @Injection( name = "SPLIT_COLUMN" )
+  private String splitColumn;
+
+  @Injection( name = "NR_PARTITIONS" )
+  private String nrPartitions;
+
+  /** The number of connections every step copy reads partitions on */
+  @Injection( name = "NR_CONNECTIONS" )
+  private String nrConnections;
+
+  @Injection( name = "FETCH_SIZE" )
+  private String fetchSize;
+
   public TableInputMeta() {
     super();
   }
@@ -157,6 +175,81 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     this.sql = sql;
   }
 
+  /**
+   * @return true if the query is read in ranges of the split column, across the step copies and connections
+   */
+  public boolean isPartitionedRead() {
+    return partitionedRead;
+  }
+
+  /**
+   * @param partitionedRead
+   *          true to read the query in ranges of the split column
+   */
+  public void setPartitionedRead( boolean partitionedRead ) {
+    this.partitionedRead = partitionedRead;
+  }
+
+  /**
+   * @return the numeric or date column to split the query on, empty for the primary key of the table
+   */
+  public String getSplitColumn() {
+    return splitColumn;
+  }
+
+  /**
+   * @param splitColumn
+   *          the numeric or date column to split the query on
+   */
+  public void setSplitColumn( String splitColumn ) {
+    this.splitColumn = splitColumn;
+  }
+
+  /**
+   * @return the number of ranges to split the query in, empty for one per step copy and connection
+   */
+  public String getNrPartitions() {
+    return nrPartitions;
+  }
+
+  /**
+   * @param nrPartitions
+   *          the number of ranges to split the query in
+   */
+  public void setNrPartitions( String nrPartitions ) {
+    this.nrPartitions = nrPartitions;
+  }
+
+  /**
+   * @return the number of connections every step copy reads its partitions on, empty for one
+   */
+  public String getNrConnections() {
+    return nrConnections;
+  }
+
+  /**
+   * @param nrConnections
+   *          the number of connections every step copy reads its partitions on
+   */
+  public void setNrConnections( String nrConnections ) {
+    this.nrConnections = nrConnections;
+  }
+
+  /**
+   * @return the number of rows the driver fetches at once, empty for the default
+   */
+  public String getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * @param fetchSize
+   *          the number of rows the driver fetches at once
+   */
+  public void setFetchSize( String fetchSize ) {
+    this.fetchSize = fetchSize;
+  }
+
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
     readData( stepnode, databases );
   }
@@ -182,6 +275,11 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       lazyConversionActive = "Y".equals( XMLHandler.getTagValue( stepnode, "lazy_conversion_active" ) );
       cachedRowMetaActive = "Y".equals( XMLHandler.getTagValue( stepnode, "cached_row_meta_active" ) );
       cachedRowMeta = new RowMeta( XMLHandler.getSubNode( stepnode, RowMeta.XML_META_TAG ) );
+      partitionedRead = "Y".equals( XMLHandler.getTagValue( stepnode, "partitioned_read" ) );
+      splitColumn = XMLHandler.getTagValue( stepnode, "split_column" );
+      nrPartitions = XMLHandler.getTagValue( stepnode, "nr_partitions" );
+      nrConnections = XMLHandler.getTagValue( stepnode, "nr_connections" );
+      fetchSize = XMLHandler.getTagValue( stepnode, "fetch_size" );
 
     } catch ( Exception e ) {
       throw new KettleXMLException( "Unable to load step info from XML", e );
@@ -301,6 +399,11 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     retval.append( "    " + XMLHandler.addTagValue( "variables_active", variableReplacementActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "lazy_conversion_active", lazyConversionActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "cached_row_meta_active", cachedRowMetaActive ) );
+    retval.append( "    " + XMLHandler.addTagValue( "partitioned_read", partitionedRead ) );
+    retval.append( "    " + XMLHandler.addTagValue( "split_column", splitColumn ) );
+    retval.append( "    " + XMLHandler.addTagValue( "nr_partitions", nrPartitions ) );
+    retval.append( "    " + XMLHandler.addTagValue( "nr_connections", nrConnections ) );
+    retval.append( "    " + XMLHandler.addTagValue( "fetch_size", fetchSize ) );
     storeCachedRowMeta( retval );
     return retval.toString();
   }
@@ -354,6 +457,11 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       variableReplacementActive = rep.getStepAttributeBoolean( id_step, "variables_active" );
       lazyConversionActive = rep.getStepAttributeBoolean( id_step, "lazy_conversion_active" );
       cachedRowMetaActive = rep.getStepAttributeBoolean( id_step, "cached_row_meta_active" );
+      partitionedRead = rep.getStepAttributeBoolean( id_step, "partitioned_read" );
+      splitColumn = rep.getStepAttributeString( id_step, "split_column" );
+      nrPartitions = rep.getStepAttributeString( id_step, "nr_partitions" );
+      nrConnections = rep.getStepAttributeString( id_step, "nr_connections" );
+      fetchSize = rep.getStepAttributeString( id_step, "fetch_size" );
 
       String sRowMeta = rep.getStepAttributeString( id_step, RowMeta.XML_META_TAG );
       if ( sRowMeta != null ) {
@@ -380,6 +488,11 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       rep.saveStepAttribute( id_transformation, id_step, "variables_active", variableReplacementActive );
       rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion_active", lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, "cached_row_meta_active", cachedRowMetaActive );
+      rep.saveStepAttribute( id_transformation, id_step, "partitioned_read", partitionedRead );
+      rep.saveStepAttribute( id_transformation, id_step, "split_column", splitColumn );
+      rep.saveStepAttribute( id_transformation, id_step, "nr_partitions", nrPartitions );
+      rep.saveStepAttribute( id_transformation, id_step, "nr_connections", nrConnections );
+      rep.saveStepAttribute( id_transformation, id_step, "fetch_size", fetchSize );
       if ( cachedRowMeta != null ) {
         rep.saveStepAttribute( id_transformation, id_step, RowMeta.XML_META_TAG, cachedRowMeta.getMetaXML() );
       }
@@ -0,0 +1,275 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleDatabaseBatchException;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Writes the batches of a Table Output step in background threads, every thread on a connection and in a transaction
+ * of its own, so that the step prepares the next rows while the database inserts the previous ones. A batch is
+ * committed on its own.<br>
+ * <br>
+ * The step takes the written batches back in the order it handed them over and sends their rows on, so the rows and
+ * the error rows keep their order. Only so many batches are in flight, after that the step waits for the oldest one.
+ */
+public class BatchWriter {
+
+  /**
+   * The rows of a table the step hands over together.
+   */
+  public static class Batch {
+    private final String tableName;
+    private final List<Object[]> insertRows = new ArrayList<>();
+    private final List<Object[]> outputRows = new ArrayList<>();
+
+    // Filled in by the writer
+    //
+    private final List<Object[]> writtenRows = new ArrayList<>();
+    private final Map<Integer, KettleDatabaseException> rowErrors = new LinkedHashMap<>();
+    private KettleDatabaseBatchException batchException;
+
+    public Batch( String tableName ) {
+      this.tableName = tableName;
+    }
+
+    public void add( Object[] insertRow, Object[] outputRow ) {
+      insertRows.add( insertRow );
+      outputRows.add( outputRow );
+    }
+
+    public int size() {
+      return insertRows.size();
+    }
+
+    public String getTableName() {
+      return tableName;
+    }
+
+    public List<Object[]> getOutputRows() {
+      return outputRows;
+    }
+
+    /**
+     * @return the output rows that went into the JDBC batch, in order
+     */
+    public List<Object[]> getWrittenRows() {
+      return writtenRows;
+    }
+
+    /**
+     * @return the rows that couldn't be added to the batch by their index, they were skipped
+     */
+    public Map<Integer, KettleDatabaseException> getRowErrors() {
+      return rowErrors;
+    }
+
+    /**
+     * @return the failure of the batch when the step does error handling, the rows that made it are committed
+     */
+    public KettleDatabaseBatchException getBatchException() {
+      return batchException;
+    }
+  }
+
+  private class Writer {
+    private final Database db;
+    private final RowMetaInterface insertRowMeta;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    Writer( Database db, RowMetaInterface insertRowMeta ) {
+      this.db = db;
+      this.insertRowMeta = insertRowMeta;
+    }
+
+    void write( Batch batch ) throws KettleException {
+      PreparedStatement statement = statements.get( batch.tableName );
+      if ( statement == null ) {
+        statement = db.prepareSQL( db.getInsertStatement( schemaName, batch.tableName, insertRowMeta ) );
+        statements.put( batch.tableName, statement );
+      }
+
+      for ( int i = 0; i < batch.insertRows.size(); i++ ) {
+        Object[] insertRow = batch.insertRows.get( i );
+        try {
+          db.setValues( insertRowMeta, insertRow, statement );
+          db.insertRow( statement, true, false );
+          batch.writtenRows.add( batch.outputRows.get( i ) );
+        } catch ( KettleDatabaseException dbe ) {
+          if ( !skipRowErrors ) {
+            db.clearBatch( statement );
+            db.rollback();
+            throw new KettleException( "Error inserting row into table ["
+              + batch.tableName + "] with values: " + insertRowMeta.getString( insertRow ), dbe );
+          }
+          batch.rowErrors.put( i, dbe );
+        }
+      }
+
+      try {
+        if ( db.getUseBatchInsert( true ) ) {
+          statement.executeBatch();
+          db.commit();
+          statement.clearBatch();
+        } else {
+          db.commit();
+        }
+      } catch ( SQLException ex ) {
+        KettleDatabaseBatchException be = Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+        db.clearBatch( statement );
+        if ( errorHandling ) {
+          db.commit( true );
+          batch.batchException = be;
+        } else {
+          db.rollback();
+          throw new KettleException( TableOutput.getBatchErrorMessage( batch.tableName, be ), be );
+        }
+      }
+    }
+  }
+
+  private final String schemaName;
+  private final boolean errorHandling;
+  private final boolean skipRowErrors;
+  private final int maxInFlight;
+
+  private final List<Writer> writers = new ArrayList<>();
+  private final BlockingQueue<Writer> idleWriters = new LinkedBlockingQueue<>();
+  private final ExecutorService executor;
+  private final Deque<Future<Batch>> inFlight = new ArrayDeque<>();
+
+  /**
+   * @param databases     the connected databases to write on, one per thread
+   * @param insertRowMeta the layout of the rows to insert
+   * @param schemaName    the schema of the tables
+   * @param errorHandling true to commit the rows of a failing batch that made it and to hand the failure back
+   * @param ignoreErrors  true to skip the rows that can't be added to a batch without error handling
+   * @param threadName    the name of the threads
+   * @param maxInFlight   the number of batches handed over before the step waits for the oldest one
+   */
+  public BatchWriter( List<Database> databases, RowMetaInterface insertRowMeta, String schemaName,
+                      boolean errorHandling, boolean ignoreErrors, String threadName, int maxInFlight ) {
+    this.schemaName = schemaName;
+    this.errorHandling = errorHandling;
+    this.skipRowErrors = errorHandling || ignoreErrors;
+    this.maxInFlight = Math.max( maxInFlight, 1 );
+
+    // The value metadata converts values with formats of its own, every thread gets a copy
+    //
+    for ( Database db : databases ) {
+      Writer writer = new Writer( db, insertRowMeta.clone() );
+      writers.add( writer );
+      idleWriters.add( writer );
+    }
+    executor = Executors.newFixedThreadPool( databases.size(), runnable -> {
+      Thread thread = new Thread( runnable, threadName );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  /**
+   * Hands a batch over to the next free connection.
+   */
+  public void submit( Batch batch ) {
+    inFlight.add( executor.submit( () -> {
+      Writer writer = idleWriters.take();
+      try {
+        writer.write( batch );
+      } finally {
+        idleWriters.add( writer );
+      }
+      return batch;
+    } ) );
+  }
+
+  /**
+   * Takes back the oldest batch if it's written. Too many batches in flight or a wait for all of them makes it wait
+   * for the oldest one.
+   *
+   * @param waitForAll true to wait for the oldest batch in any case
+   * @return the oldest batch or null if there is none to take back yet
+   * @throws KettleException the failure of the oldest batch, it was rolled back
+   */
+  public Batch takeWritten( boolean waitForAll ) throws KettleException {
+    Future<Batch> oldest = inFlight.peek();
+    if ( oldest == null || ( !waitForAll && !oldest.isDone() && inFlight.size() <= maxInFlight ) ) {
+      return null;
+    }
+    inFlight.remove();
+    try {
+      return oldest.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleException ) {
+        throw (KettleException) e.getCause();
+      }
+      throw new KettleException( e.getCause() );
+    }
+  }
+
+  /**
+   * @return the number of batches handed over and not taken back
+   */
+  public int getNrInFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * Stops the threads and closes the connections.
+   *
+   * @param rollback true to roll back what isn't committed yet
+   */
+  public void close( boolean rollback ) {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination( 1, TimeUnit.MINUTES );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    for ( Writer writer : writers ) {
+      try {
+        if ( rollback ) {
+          writer.db.rollback();
+        }
+      } catch ( KettleDatabaseException e ) {
+        // The connection is closed anyway
+      } finally {
+        writer.db.close();
+      }
+    }
+  }
+}
@@ -18,11 +18,15 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseBulkWriter;
+import org.pentaho.di.core.database.MultiRowInsert;
 import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.exception.KettleDatabaseBatchException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -37,6 +41,7 @@ import org.pentaho.di.trans.step.*;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -67,12 +72,23 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
-    Object[] r = getRow(); // this also waits for a previous step to be finished.
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRows( ROW_BATCH_SIZE ); // this also waits for a previous step to be finished.
+    if ( rows == null ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this step
       if ( first && meta.truncateTable() ) {
         truncateTable();
       }
+      if ( data.bulkWrite ) {
+        for ( String tableName : data.bulkWriters.keySet() ) {
+          flushBulkWrite( tableName );
+        }
+      }
+      if ( data.batchWriter != null ) {
+        flushBatches();
+      }
+      if ( !data.multiRowInserts.isEmpty() ) {
+        flushMultiRowInserts();
+      }
       return false;
     }
 
@@ -116,21 +132,53 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           }
         }
       }
+
+      // Where the values to insert are in the batch of input rows. Not when the table name field is taken out.
+      //
+      if ( meta.specifyFields() ) {
+        data.rowBatchColumnNrs = data.valuenrs;
+      } else if ( !meta.isTableNameInField() || meta.isTableNameInTable() ) {
+        data.rowBatchColumnNrs = new int[data.insertRowMeta.size()];
+        for ( int i = 0; i < data.rowBatchColumnNrs.length; i++ ) {
+          data.rowBatchColumnNrs[i] = i;
+        }
+      }
+    }
+    if ( data.rowBatchColumnNrs != null ) {
+      if ( data.rowBatch == null ) {
+        data.rowBatch = RowBatch.fromRows( getInputRowMeta(), rows, rows.length );
+      } else {
+        data.rowBatch.setRows( rows, rows.length );
+      }
     }
 
+    long previousLinesRead = getLinesRead() - rows.length;
+    Object[][] outputRows = new Object[rows.length][];
+    int nrOutputRows = 0;
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
+      for ( int rowNr = 0; rowNr < rows.length; rowNr++ ) {
+        data.rowBatchRowNr = rowNr;
+        Object[] outputRowData = writeToTable( getInputRowMeta(), rows[rowNr] );
+        if ( outputRowData != null ) {
+          outputRows[nrOutputRows++] = outputRowData; // in case we want it go further...
+          incrementLinesOutput();
+        }
       }
+      int nrRowsToPut = nrOutputRows;
+      nrOutputRows = 0;
+      putRows( data.outputRowMeta, outputRows, nrRowsToPut );
 
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( "linenr " + getLinesRead() );
         }
       }
     } catch ( KettleException e ) {
+      // The rows written before the failing one still go further
+      //
+      if ( nrOutputRows > 0 ) {
+        putRows( data.outputRowMeta, outputRows, nrOutputRows );
+      }
       logError( "Because of an error, this step can't continue: ", e );
       setErrors( 1 );
       stopAll();
@@ -141,6 +189,11 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return true;
   }
 
+  private boolean isInRowBatch( Object[] r ) {
+    return data.rowBatchColumnNrs != null && data.rowBatch != null && data.rowBatchRowNr < data.rowBatch.size()
+      && data.rowBatch.getRow( data.rowBatchRowNr ) == r;
+  }
+
   protected Object[] writeToTable( RowMetaInterface rowMeta, Object[] r ) throws KettleException {
 
     if ( r == null ) { // Stop: last line or error encountered
@@ -236,6 +289,27 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.bulkWrite ) {
+      DatabaseBulkWriter bulkWriter = getBulkWriter( tableName );
+      if ( bulkWriter != null ) {
+        addToBulkWrite( tableName, bulkWriter, rowMeta, r, insertRowData, outputRowData );
+        return null;
+      }
+    }
+
+    if ( data.writerConnections > 0 ) {
+      addToBatch( tableName, insertRowData, outputRowData );
+      return null;
+    }
+
+    if ( data.insertValuesRows > 1 ) {
+      MultiRowInsert multiRowInsert = getMultiRowInsert( tableName );
+      if ( multiRowInsert != null ) {
+        addToMultiRowInsert( tableName, multiRowInsert, insertRowData, outputRowData );
+        return null;
+      }
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -255,7 +329,13 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       if ( data.useSafePoints ) {
         data.savepoint = data.db.setSavepoint();
       }
-      data.db.setValues( data.insertRowMeta, insertRowData, insertStatement );
+      if ( isInRowBatch( r ) ) {
+        // The values are bound from the columns of the batch of input rows
+        data.db.setValues( data.insertRowMeta, data.rowBatch, data.rowBatchRowNr, data.rowBatchColumnNrs,
+          insertStatement );
+      } else {
+        data.db.setValues( data.insertRowMeta, insertRowData, insertStatement );
+      }
       data.db.insertRow( insertStatement, data.batchMode, false ); // false: no commit, it is handled in this step differently
       if ( isRowLevel() ) {
         logRowlevel( "Written row: " + data.insertRowMeta.getString( insertRowData ) );
@@ -333,16 +413,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       } else {
         data.db.clearBatch( insertStatement );
         data.db.rollback();
-        StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
-        msg.append( Const.CR );
-        msg.append( "Errors encountered (first 10):" ).append( Const.CR );
-        for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
-          Exception exception = be.getExceptionsList().get( x );
-          if ( exception.getMessage() != null ) {
-            msg.append( exception.getMessage() ).append( Const.CR );
-          }
-        }
-        throw new KettleException( msg.toString(), be );
+        throw new KettleException( getBatchErrorMessage( tableName, be ), be );
       }
     } catch ( KettleDatabaseException dbe ) {
       if ( getStepMeta().isDoingErrorHandling() ) {
@@ -362,18 +433,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         errorMessage = dbe.toString();
       } else {
         if ( meta.ignoreErrors() ) {
-          if ( data.warnings < 20 ) {
-            if ( log.isBasic() ) {
-              logBasic( "WARNING: Couldn't insert row into table: "
-                + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
-            }
-          } else if ( data.warnings == 20 ) {
-            if ( log.isBasic() ) {
-              logBasic( "FINAL WARNING (no more then 20 displayed): Couldn't insert row into table: "
-                + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
-            }
-          }
-          data.warnings++;
+          logInsertWarning( rowMeta, r, dbe );
         } else {
           setErrors( getErrors() + 1 );
           data.db.rollback();
@@ -428,14 +488,325 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  private void logInsertWarning( RowMetaInterface rowMeta, Object[] r, KettleDatabaseException dbe )
+    throws KettleValueException {
+    if ( data.warnings < 20 ) {
+      if ( log.isBasic() ) {
+        logBasic( "WARNING: Couldn't insert row into table: "
+          + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
+      }
+    } else if ( data.warnings == 20 ) {
+      if ( log.isBasic() ) {
+        logBasic( "FINAL WARNING (no more then 20 displayed): Couldn't insert row into table: "
+          + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
+      }
+    }
+    data.warnings++;
+  }
+
+  static String getBatchErrorMessage( String tableName, KettleDatabaseBatchException be ) {
+    StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
+    msg.append( Const.CR );
+    msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+    for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+      Exception exception = be.getExceptionsList().get( x );
+      if ( exception.getMessage() != null ) {
+        msg.append( exception.getMessage() ).append( Const.CR );
+      }
+    }
+    return msg.toString();
+  }
+
+  /**
+   * @return the bulk writer of the table or null if the database has no bulk load for the rows or a load into the
+   *         table failed with error handling or ignored insert errors, the rows of the table are inserted then
+   */
+  private DatabaseBulkWriter getBulkWriter( String tableName ) throws KettleException {
+    if ( data.bulkWriteFallbacks.contains( tableName ) ) {
+      return null;
+    }
+    DatabaseBulkWriter bulkWriter = data.bulkWriters.get( tableName );
+    if ( bulkWriter == null ) {
+      bulkWriter =
+        data.db.getBulkWriter( environmentSubstitute( meta.getSchemaName() ), tableName, data.insertRowMeta );
+      if ( bulkWriter == null ) {
+        logBasic( BaseMessages.getString( PKG, "TableOutput.Log.BulkWriteNotSupported", tableName ) );
+        data.bulkWriteFallbacks.add( tableName );
+        return null;
+      }
+      if ( data.bulkWriters.isEmpty() ) {
+        // A failing load rolls back, the truncate stays
+        //
+        data.db.commit( true );
+      }
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "TableOutput.Log.BulkWrite", tableName ) );
+      }
+      data.bulkWriters.put( tableName, bulkWriter );
+      data.bulkRows.put( tableName, new ArrayList<>() );
+    }
+    return bulkWriter;
+  }
+
+  private void addToBulkWrite( String tableName, DatabaseBulkWriter bulkWriter, RowMetaInterface rowMeta,
+                               Object[] r, Object[] insertRowData, Object[] outputRowData ) throws KettleException {
+    try {
+      bulkWriter.addRow( insertRowData );
+    } catch ( KettleDatabaseException dbe ) {
+      // A row that can't be converted fails on its own, like an insert
+      //
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( rowMeta, r, 1L, dbe.toString(), null, "TOP001" );
+      } else if ( meta.ignoreErrors() ) {
+        logInsertWarning( rowMeta, r, dbe );
+      } else {
+        setErrors( getErrors() + 1 );
+        data.db.rollback();
+        throw new KettleException( "Error inserting row into table ["
+          + tableName + "] with values: " + rowMeta.getString( r ), dbe );
+      }
+      return;
+    }
+    data.bulkRows.get( tableName ).add( outputRowData );
+
+    if ( bulkWriter.getNrRows() >= data.commitSize ) {
+      flushBulkWrite( tableName );
+    }
+  }
+
+  /**
+   * Loads and commits the rows of a table. A load is all or nothing: with error handling or ignored insert errors the
+   * rows of a failing load are inserted instead and so are the rows of the table after them, only the rows failing on
+   * their own are error rows or logged.
+   */
+  private void flushBulkWrite( String tableName ) throws KettleException {
+    List<Object[]> rows = data.bulkRows.get( tableName );
+    if ( rows.isEmpty() ) {
+      return;
+    }
+    try {
+      if ( !data.bulkWriteFallbacks.isEmpty() ) {
+        // The rows inserted into other tables stay out of the rollback of a failing load
+        //
+        data.db.commit();
+      }
+      data.bulkWriters.get( tableName ).flush();
+      data.db.commit();
+    } catch ( KettleDatabaseException dbe ) {
+      data.db.rollback();
+      if ( !getStepMeta().isDoingErrorHandling() && !meta.ignoreErrors() ) {
+        rows.clear();
+        throw new KettleException( "Error bulk loading rows into table [" + tableName + "]", dbe );
+      }
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.BulkWriteFailed", tableName, dbe.getMessage() ) );
+      data.bulkWriteFallbacks.add( tableName );
+      List<Object[]> failedRows = new ArrayList<>( rows );
+      rows.clear();
+      for ( Object[] row : failedRows ) {
+        Object[] outputRowData = writeToTable( getInputRowMeta(), row );
+        if ( outputRowData != null ) {
+          putRow( data.outputRowMeta, outputRowData );
+          incrementLinesOutput();
+        }
+      }
+      return;
+    }
+    for ( Object[] row : rows ) {
+      putRow( data.outputRowMeta, row );
+      incrementLinesOutput();
+    }
+    rows.clear();
+  }
+
+  /**
+   * @return the multi-row inserter of the table or null if the database inserts a row per statement, the rows are
+   *         inserted one by one then
+   */
+  private MultiRowInsert getMultiRowInsert( String tableName ) {
+    MultiRowInsert multiRowInsert = data.multiRowInserts.get( tableName );
+    if ( multiRowInsert == null ) {
+      multiRowInsert = data.db.getMultiRowInsert( environmentSubstitute( meta.getSchemaName() ), tableName,
+        data.insertRowMeta, data.insertValuesRows );
+      if ( multiRowInsert == null ) {
+        logBasic( BaseMessages.getString( PKG, "TableOutput.Log.InsertValuesRowsNotSupported" ) );
+        data.insertValuesRows = 0;
+        return null;
+      }
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "TableOutput.Log.InsertValuesRows", tableName,
+          multiRowInsert.getNrRowsPerStatement() ) );
+      }
+      data.multiRowInserts.put( tableName, multiRowInsert );
+      data.multiRowOutput.put( tableName, new ArrayList<>() );
+    }
+    return multiRowInsert;
+  }
+
+  /**
+   * Adds a row to the multi-row insert of its table. The rows go further once their statement is executed, a commit
+   * follows every commit size rows of the table.
+   */
+  private void addToMultiRowInsert( String tableName, MultiRowInsert multiRowInsert, Object[] insertRowData,
+                                    Object[] outputRowData ) throws KettleException {
+    data.multiRowOutput.get( tableName ).add( outputRowData );
+    try {
+      putInsertedRows( tableName, multiRowInsert.addRow( insertRowData ) );
+    } catch ( KettleDatabaseException dbe ) {
+      failMultiRowInsert( tableName, dbe );
+    }
+  }
+
+  /**
+   * Inserts the rows left in the multi-row inserts at the end of the input and commits them.
+   */
+  private void flushMultiRowInserts() throws KettleException {
+    for ( Map.Entry<String, MultiRowInsert> entry : data.multiRowInserts.entrySet() ) {
+      try {
+        putInsertedRows( entry.getKey(), entry.getValue().flush() );
+      } catch ( KettleDatabaseException dbe ) {
+        failMultiRowInsert( entry.getKey(), dbe );
+      }
+    }
+    data.db.commit();
+  }
+
+  private void putInsertedRows( String tableName, int nrRows ) throws KettleException {
+    if ( nrRows == 0 ) {
+      return;
+    }
+    List<Object[]> rows = data.multiRowOutput.get( tableName );
+    for ( int i = 0; i < nrRows; i++ ) {
+      putRow( data.outputRowMeta, rows.get( i ) );
+      incrementLinesOutput();
+    }
+    rows.subList( 0, nrRows ).clear();
+
+    Integer commitCounter = data.commitCounterMap.get( tableName );
+    int counter = ( commitCounter == null ? 0 : commitCounter ) + nrRows;
+    if ( counter >= data.commitSize ) {
+      data.db.commit();
+      counter = 0;
+    }
+    data.commitCounterMap.put( tableName, counter );
+  }
+
+  /**
+   * A statement holds the rows of more input rows, it can't fail for one row only: the transaction is rolled back.
+   */
+  private void failMultiRowInsert( String tableName, KettleDatabaseException dbe ) throws KettleException {
+    setErrors( getErrors() + 1 );
+    data.multiRowOutput.get( tableName ).clear();
+    data.db.rollback();
+    throw new KettleException( "Error inserting rows into table [" + tableName + "]", dbe );
+  }
+
+  /**
+   * Adds a row to the batch of its table and hands the batch over to the background writers once it's full. The
+   * batches written in the meantime go further.
+   */
+  private void addToBatch( String tableName, Object[] insertRowData, Object[] outputRowData ) throws KettleException {
+    if ( data.batchWriter == null ) {
+      startBatchWriter();
+    }
+    BatchWriter.Batch batch = data.pendingBatches.get( tableName );
+    if ( batch == null ) {
+      batch = new BatchWriter.Batch( tableName );
+      data.pendingBatches.put( tableName, batch );
+    }
+    batch.add( insertRowData, outputRowData );
+    if ( isRowLevel() ) {
+      logRowlevel( "Batched row: " + data.insertRowMeta.getString( insertRowData ) );
+    }
+
+    if ( batch.size() >= data.commitSize ) {
+      data.pendingBatches.remove( tableName );
+      data.batchWriter.submit( batch );
+    }
+    for ( BatchWriter.Batch written = data.batchWriter.takeWritten( false ); written != null;
+          written = data.batchWriter.takeWritten( false ) ) {
+      putWrittenBatch( written );
+    }
+  }
+
+  /**
+   * Hands the batches that aren't full over as well and waits until all of them are written.
+   */
+  private void flushBatches() throws KettleException {
+    for ( BatchWriter.Batch batch : data.pendingBatches.values() ) {
+      data.batchWriter.submit( batch );
+    }
+    data.pendingBatches.clear();
+    while ( data.batchWriter.getNrInFlight() > 0 ) {
+      putWrittenBatch( data.batchWriter.takeWritten( true ) );
+    }
+  }
+
+  private void startBatchWriter() throws KettleException {
+    // The transaction of the step holds the lock of a truncate, the writers would wait for it
+    //
+    data.db.commit( true );
+
+    List<Database> databases = new ArrayList<>();
+    try {
+      for ( int i = 0; i < data.writerConnections; i++ ) {
+        Database db = new Database( this, meta.getDatabaseMeta() );
+        db.shareVariablesWith( this );
+        databases.add( db );
+        db.connect( getPartitionID() );
+        db.setCommit( data.commitSize );
+      }
+    } catch ( KettleException e ) {
+      for ( Database db : databases ) {
+        db.close();
+      }
+      throw e;
+    }
+    data.batchWriter =
+      new BatchWriter( databases, data.insertRowMeta, environmentSubstitute( meta.getSchemaName() ),
+        getStepMeta().isDoingErrorHandling(), meta.ignoreErrors(), getStepname() + " - writer",
+        2 * data.writerConnections );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TableOutput.Log.StartedBatchWriter", data.writerConnections ) );
+    }
+  }
+
+  /**
+   * Sends the rows of a written batch further, the rows that didn't make it to the error handling.
+   */
+  private void putWrittenBatch( BatchWriter.Batch batch ) throws KettleException {
+    for ( Map.Entry<Integer, KettleDatabaseException> rowError : batch.getRowErrors().entrySet() ) {
+      Object[] row = batch.getOutputRows().get( rowError.getKey() );
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( getInputRowMeta(), row, 1L, rowError.getValue().toString(), null, "TOP001" );
+      } else {
+        logInsertWarning( getInputRowMeta(), row, rowError.getValue() );
+      }
+    }
+
+    KettleDatabaseBatchException be = batch.getBatchException();
+    if ( be != null ) {
+      processBatchException( be.toString(), be.getUpdateCounts(), be.getExceptionsList(), batch.getWrittenRows() );
+    } else {
+      for ( Object[] row : batch.getWrittenRows() ) {
+        putRow( data.outputRowMeta, row );
+        incrementLinesOutput();
+      }
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
+    processBatchException( errorMessage, updateCounts, exceptionsList, data.batchBuffer );
+  }
+
+  private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList,
+                                      List<Object[]> rows ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
     //
     if ( updateCounts != null ) {
       int errNr = 0;
-      for ( int i = 0; i < updateCounts.length; i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+      for ( int i = 0; i < updateCounts.length && i < rows.size(); i++ ) {
+        Object[] row = rows.get( i );
         if ( updateCounts[i] > 0 ) {
           // send the error foward
           putRow( data.outputRowMeta, row );
@@ -454,14 +825,14 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       // If we don't have update counts, it probably means the DB doesn't support it.
       // In this case we don't have a choice but to consider all inserted rows to be error rows.
       //
-      for ( int i = 0; i < data.batchBuffer.size(); i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+      for ( int i = 0; i < rows.size(); i++ ) {
+        Object[] row = rows.get( i );
         putError( data.outputRowMeta, row, 1L, errorMessage, null, "TOP0003" );
       }
     }
 
     // Clear the buffer afterwards...
-    data.batchBuffer.clear();
+    rows.clear();
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -510,6 +881,15 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           logBasic( "Connected to database [" + meta.getDatabaseMeta() + "] (commit=" + data.commitSize + ")" );
         }
 
+        // A bulk load holds the rows of a commit in memory and commits itself
+        if ( meta.isBulkWrite() ) {
+          data.bulkWrite =
+            data.commitSize > 0 && !meta.isReturningGeneratedKeys() && !getTransMeta().isUsingUniqueConnections();
+          if ( !data.bulkWrite ) {
+            logBasic( BaseMessages.getString( PKG, "TableOutput.Log.BulkWriteNotPossible" ) );
+          }
+        }
+
         // Postpone commit as long as possible. PDI-2091
         if ( data.commitSize == 0 ) {
           data.commitSize = Integer.MAX_VALUE;
@@ -520,6 +900,26 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           data.tableName = environmentSubstitute( meta.getTableName() );
         }
 
+        // A multi-row statement fails for all of its rows, so it can't send single rows to the error handling
+        int insertValuesRows = Const.toInt( environmentSubstitute( meta.getInsertValuesRows() ), 0 );
+        if ( insertValuesRows > 1 ) {
+          if ( !meta.isReturningGeneratedKeys() && !getStepMeta().isDoingErrorHandling() && !meta.ignoreErrors()
+            && dbInterface.getMaxInsertValuesRows() > 1 ) {
+            data.insertValuesRows = insertValuesRows;
+          } else {
+            logBasic( BaseMessages.getString( PKG, "TableOutput.Log.InsertValuesRowsNotPossible" ) );
+          }
+        }
+
+        int writerConnections = Const.toInt( environmentSubstitute( meta.getWriterConnections() ), 0 );
+        if ( writerConnections > 0 ) {
+          if ( data.batchMode ) {
+            data.writerConnections = writerConnections;
+          } else {
+            logBasic( BaseMessages.getString( PKG, "TableOutput.Log.WriterConnectionsNeedBatchMode" ) );
+          }
+        }
+
         return true;
       } catch ( KettleException e ) {
         logError( "An error occurred intialising this step: " + e.getMessage() );
@@ -552,6 +952,11 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
+    if ( data.batchWriter != null ) {
+      data.batchWriter.close( getErrors() > 0 );
+      data.batchWriter = null;
+    }
+
     if ( data.db != null ) {
       try {
         for ( String schemaTable : data.preparedStatements.keySet() ) {
@@ -18,12 +18,18 @@ import java.sql.Savepoint;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseBulkWriter;
+import org.pentaho.di.core.database.MultiRowInsert;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -69,6 +75,37 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /** The number of connections writing the batches in the background, 0 to write them in the step */
+  public int writerConnections;
+  public BatchWriter batchWriter;
+
+  /** The batches being filled per table */
+  public Map<String, BatchWriter.Batch> pendingBatches;
+
+  /** Load the rows through the native bulk load API of the database */
+  public boolean bulkWrite;
+
+  /** The bulk writers per table and the rows they hold, to send further once they're loaded */
+  public Map<String, DatabaseBulkWriter> bulkWriters;
+  public Map<String, List<Object[]>> bulkRows;
+
+  /** The tables the rows are inserted into after all: no bulk load for their rows or a failed load */
+  public Set<String> bulkWriteFallbacks;
+
+  /** The number of rows in a multi-row INSERT statement, 0 to insert a row per statement */
+  public int insertValuesRows;
+
+  /** The multi-row inserts per table and the rows they hold, to send further once they're inserted */
+  public Map<String, MultiRowInsert> multiRowInserts;
+  public Map<String, List<Object[]>> multiRowOutput;
+
+  /** The batch of input rows being written and the row of it, its columns are reused */
+  public RowBatch rowBatch;
+  public int rowBatchRowNr;
+
+  /** The column in the batch of every value to insert, null to bind the values from the insert row */
+  public int[] rowBatchColumnNrs;
+
   public TableOutputData() {
     super();
 
@@ -83,6 +120,12 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
     batchBuffer = new ArrayList<Object[]>();
     commitCounterMap = new HashMap<String, Integer>();
+    pendingBatches = new LinkedHashMap<String, BatchWriter.Batch>();
+    bulkWriters = new LinkedHashMap<String, DatabaseBulkWriter>();
+    bulkRows = new HashMap<String, List<Object[]>>();
+    bulkWriteFallbacks = new HashSet<String>();
+    multiRowInserts = new LinkedHashMap<String, MultiRowInsert>();
+    multiRowOutput = new HashMap<String, List<Object[]>>();
 
     releaseSavepoint = true;
   }
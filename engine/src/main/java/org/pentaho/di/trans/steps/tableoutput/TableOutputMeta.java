@@ -137,6 +137,18 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   @Injection( name = "AUTO_GENERATED_KEY_FIELD" )
   private String generatedKeyField;
 
+  /** The number of connections writing the batches in the background, empty or 0 to write them in the step */
+  @Injection( name = "WRITER_CONNECTIONS" )
+  private String writerConnections;
+
+  /** Load the rows through the native bulk load API of the database if it has one */
+  @Injection( name = "USE_BULK_WRITE" )
+  private boolean bulkWrite;
+
+  /** The number of rows in a multi-row INSERT statement, empty or 1 to insert a row per statement */
+  @Injection( name = "INSERT_VALUES_ROWS" )
+  private String insertValuesRows;
+
   // This follows the naming convention on TableInputMeta see
   // @See https://github.com/pentaho/pentaho-kettle/blob/285c5962c8bc73c5bec30933fe0b8fee00426043/engine/src/main/java/org/pentaho/di/trans/steps/tableinput/TableInputMeta.java#L100
   @Injection( name = "CONNECTIONNAME" )
@@ -154,6 +166,50 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   private String[] fieldStream;
 
 
+  /**
+   * @return true to load the rows through the native bulk load API of the database if it has one
+   */
+  public boolean isBulkWrite() {
+    return bulkWrite;
+  }
+
+  /**
+   * @param bulkWrite true to load the rows through the native bulk load API of the database if it has one
+   */
+  public void setBulkWrite( boolean bulkWrite ) {
+    this.bulkWrite = bulkWrite;
+  }
+
+  /**
+   * @return the number of rows in a multi-row INSERT statement
+   */
+  public String getInsertValuesRows() {
+    return insertValuesRows;
+  }
+
+  /**
+   * @param insertValuesRows the number of rows in a multi-row INSERT statement, empty or 1 to insert a row per
+   *                         statement
+   */
+  public void setInsertValuesRows( String insertValuesRows ) {
+    this.insertValuesRows = insertValuesRows;
+  }
+
+  /**
+   * @return the number of connections writing the batches in the background
+   */
+  public String getWriterConnections() {
+    return writerConnections;
+  }
+
+  /**
+   * @param writerConnections the number of connections writing the batches in the background, empty or 0 to write
+   *                          them in the step
+   */
+  public void setWriterConnections( String writerConnections ) {
+    this.writerConnections = writerConnections;
+  }
+
   /**
    * @return Returns the generatedKeyField.
    */
@@ -463,6 +519,9 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
 
       returningGeneratedKeys = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "return_keys" ) );
       generatedKeyField = XMLHandler.getTagValue( stepnode, "return_field" );
+      writerConnections = XMLHandler.getTagValue( stepnode, "writer_connections" );
+      bulkWrite = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_bulk_write" ) );
+      insertValuesRows = XMLHandler.getTagValue( stepnode, "insert_values_rows" );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrRows = XMLHandler.countNodes( fields, "field" );
@@ -519,6 +578,9 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
 
     retval.append( "    " + XMLHandler.addTagValue( "return_keys", returningGeneratedKeys ) );
     retval.append( "    " + XMLHandler.addTagValue( "return_field", generatedKeyField ) );
+    retval.append( "    " + XMLHandler.addTagValue( "writer_connections", writerConnections ) );
+    retval.append( "    " + XMLHandler.addTagValue( "use_bulk_write", bulkWrite ) );
+    retval.append( "    " + XMLHandler.addTagValue( "insert_values_rows", insertValuesRows ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
 
@@ -556,6 +618,9 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
 
       returningGeneratedKeys = rep.getStepAttributeBoolean( id_step, "return_keys" );
       generatedKeyField = rep.getStepAttributeString( id_step, "return_field" );
+      writerConnections = rep.getStepAttributeString( id_step, "writer_connections" );
+      bulkWrite = rep.getStepAttributeBoolean( id_step, "use_bulk_write" );
+      insertValuesRows = rep.getStepAttributeString( id_step, "insert_values_rows" );
 
       int nrCols = rep.countNrStepAttributes( id_step, "column_name" );
       int nrStreams = rep.countNrStepAttributes( id_step, "stream_name" );
@@ -595,6 +660,9 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
 
       rep.saveStepAttribute( id_transformation, id_step, "return_keys", returningGeneratedKeys );
       rep.saveStepAttribute( id_transformation, id_step, "return_field", generatedKeyField );
+      rep.saveStepAttribute( id_transformation, id_step, "writer_connections", writerConnections );
+      rep.saveStepAttribute( id_transformation, id_step, "use_bulk_write", bulkWrite );
+      rep.saveStepAttribute( id_transformation, id_step, "insert_values_rows", insertValuesRows );
 
       int nrRows = ( fieldDatabase.length < fieldStream.length ? fieldStream.length : fieldDatabase.length );
       for ( int idx = 0; idx < nrRows; idx++ ) {
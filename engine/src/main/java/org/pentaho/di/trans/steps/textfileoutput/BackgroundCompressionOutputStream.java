@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.compress.CompressionOutputStream;
+
+/**
+ * Hands the blocks written to a compression output stream over to a background thread, so the step formats the next
+ * rows while the previous ones are compressed. The blocks are compressed in the order they're written: the executor has
+ * a single thread. Only so many blocks are in flight, after that a write waits for the oldest one.<br>
+ * <br>
+ * A flush or a close waits for all of the blocks, a flush then flushes the target. A failure of the compression is
+ * thrown by the next write, flush or close.
+ */
+public class BackgroundCompressionOutputStream extends CompressionOutputStream {
+
+  private final CompressionOutputStream target;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final Deque<Future<?>> inFlight = new ArrayDeque<>();
+
+  /**
+   * @param target      the compression output stream to write to
+   * @param executor    the single thread executor that writes to the target
+   * @param maxInFlight the number of blocks handed over before a write waits for the oldest one
+   */
+  public BackgroundCompressionOutputStream( CompressionOutputStream target, ExecutorService executor,
+                                            int maxInFlight ) {
+    super( target, target.getCompressionProvider() );
+    this.target = target;
+    this.executor = executor;
+    this.maxInFlight = Math.max( maxInFlight, 1 );
+  }
+
+  @Override
+  public void addEntry( String filename, String extension ) throws IOException {
+    waitForAll();
+    target.addEntry( filename, extension );
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    write( new byte[] { (byte) b }, 0, 1 );
+  }
+
+  @Override
+  public void write( byte[] b ) throws IOException {
+    write( b, 0, b.length );
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return;
+    }
+    while ( inFlight.size() >= maxInFlight ) {
+      waitForOldest();
+    }
+
+    // The caller fills its buffer again right away
+    //
+    byte[] block = Arrays.copyOfRange( b, off, off + len );
+    inFlight.add( executor.submit( () -> {
+      target.write( block );
+      return null;
+    } ) );
+  }
+
+  @Override
+  public void flush() throws IOException {
+    waitForAll();
+    target.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Wait for every block, the target can't be closed while one is written to it
+    //
+    IOException failure = null;
+    while ( !inFlight.isEmpty() ) {
+      try {
+        waitForOldest();
+      } catch ( IOException e ) {
+        if ( failure == null ) {
+          failure = e;
+        }
+      }
+    }
+    try {
+      target.close();
+    } catch ( IOException e ) {
+      if ( failure == null ) {
+        throw e;
+      }
+      failure.addSuppressed( e );
+    }
+    if ( failure != null ) {
+      throw failure;
+    }
+  }
+
+  /**
+   * @return the number of blocks handed over and not compressed yet, or compressed and not checked
+   */
+  int getNrInFlight() {
+    return inFlight.size();
+  }
+
+  private void waitForAll() throws IOException {
+    while ( !inFlight.isEmpty() ) {
+      waitForOldest();
+    }
+  }
+
+  private void waitForOldest() throws IOException {
+    Future<?> oldest = inFlight.remove();
+    try {
+      oldest.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.PlainDateFormat;
+import org.pentaho.di.core.row.value.PlainNumberFormat;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Writes the text of an integer or a date straight into a byte buffer, without the String the value metadata formats
+ * it to first and the bytes it encodes that String to next. A writer is only made for the formats the plain number and
+ * date formats of the value metadata cover, it writes exactly the same text, byte for byte. The other formats and the
+ * values it doesn't cover are written the usual way.
+ */
+public abstract class TextFileFieldWriter {
+
+  protected final byte[] buffer;
+
+  protected TextFileFieldWriter( int maxLength ) {
+    buffer = new byte[ maxLength ];
+  }
+
+  /**
+   * Writes the text of a value in the buffer.
+   *
+   * @param value the value to write
+   * @return the number of bytes in the buffer or -1 if the value has to be formatted by the value metadata
+   */
+  public abstract int write( Object value );
+
+  /**
+   * @return the buffer with the text of the last value written
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return the characters the writer may write, besides the digits
+   */
+  protected abstract String getCharacters();
+
+  /**
+   * Gets a writer for a field.
+   *
+   * @param v         the metadata of the field with the format options
+   * @param separator the separator of the fields, it may not be written by the writer
+   * @param enclosure the enclosure of the fields, it may not be written by the writer
+   * @return the writer or null if the field has to be formatted by the value metadata
+   */
+  public static TextFileFieldWriter getWriter( ValueMetaInterface v, byte[] separator, byte[] enclosure ) {
+    if ( v == null || v.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return null;
+    }
+    // A padded value is longer than the sample for short values, the value metadata pads it
+    //
+    if ( v.isOutputPaddingEnabled() && v.getLength() > 0 ) {
+      return null;
+    }
+    TextFileFieldWriter writer;
+    Object sample;
+    switch ( v.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        writer = IntegerWriter.getWriter( v.getDecimalFormat( false ) );
+        sample = -1234567890123L;
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        writer = DateWriter.getWriter( v.getDateFormat() );
+        sample = new Date( 1234567890123L );
+        break;
+      default:
+        return null;
+    }
+    if ( writer == null ) {
+      return null;
+    }
+
+    // The bytes have to be the ones of the encoding, and the separator and enclosure can't show up in between
+    //
+    String characters = "0123456789" + writer.getCharacters();
+    byte[] ascii = new byte[ characters.length() ];
+    for ( int i = 0; i < ascii.length; i++ ) {
+      ascii[ i ] = (byte) characters.charAt( i );
+    }
+    try {
+      Charset charset = Utils.isEmpty( v.getStringEncoding() )
+        ? Charset.defaultCharset() : Charset.forName( v.getStringEncoding() );
+      if ( !Arrays.equals( ascii, characters.getBytes( charset ) ) ) {
+        return null;
+      }
+    } catch ( IllegalArgumentException e ) {
+      return null;
+    }
+    for ( byte b : ascii ) {
+      if ( ( separator != null && separator.length > 0 && separator[ 0 ] == b )
+        || ( enclosure != null && enclosure.length > 0 && enclosure[ 0 ] == b ) ) {
+        return null;
+      }
+    }
+
+    // Never write anything else than the value metadata would
+    //
+    try {
+      int length = writer.write( sample );
+      if ( !Arrays.equals( v.getBinaryString( sample ), Arrays.copyOf( writer.getBuffer(), length ) ) ) {
+        return null;
+      }
+    } catch ( KettleValueException e ) {
+      return null;
+    }
+    return writer;
+  }
+
+  /**
+   * Writes a Long the way a DecimalFormat without grouping, fraction or affixes other than the minus sign does.
+   */
+  static class IntegerWriter extends TextFileFieldWriter {
+    private final PlainNumberFormat format;
+
+    IntegerWriter( PlainNumberFormat format ) {
+      super( format.getMaxIntegerLength() );
+      this.format = format;
+    }
+
+    static IntegerWriter getWriter( DecimalFormat decimalFormat ) {
+      PlainNumberFormat format = PlainNumberFormat.getInstance( decimalFormat );
+      return format != null && format.isFormattingIntegers() ? new IntegerWriter( format ) : null;
+    }
+
+    @Override
+    protected String getCharacters() {
+      return "-";
+    }
+
+    @Override
+    public int write( Object value ) {
+      return value instanceof Long ? format.format( (Long) value, buffer, 0 ) : -1;
+    }
+  }
+
+  /**
+   * Writes a Date the way a SimpleDateFormat with a Gregorian calendar and the fields yyyy, MM, dd, HH, mm, ss and SSS
+   * does, for the years 1600 to 9999.
+   */
+  static class DateWriter extends TextFileFieldWriter {
+    private final PlainDateFormat format;
+
+    DateWriter( PlainDateFormat format ) {
+      super( format.getLength() );
+      this.format = format;
+    }
+
+    static DateWriter getWriter( SimpleDateFormat dateFormat ) {
+      PlainDateFormat format = PlainDateFormat.getInstance( dateFormat );
+      return format != null ? new DateWriter( format ) : null;
+    }
+
+    @Override
+    protected String getCharacters() {
+      return format.getLiterals();
+    }
+
+    @Override
+    public int write( Object value ) {
+      return value instanceof Date ? format.format( ( (Date) value ).getTime(), buffer, 0 ) : -1;
+    }
+  }
+}
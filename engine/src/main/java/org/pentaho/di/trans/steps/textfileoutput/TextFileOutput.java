@@ -21,6 +21,7 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
@@ -61,6 +62,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   private static final String FILE_COMPRESSION_TYPE_NONE =
       TextFileOutputMeta.fileCompressionTypeCodes[TextFileOutputMeta.FILE_COMPRESSION_TYPE_NONE];
+  private static final int DEFAULT_BUFFER_SIZE = 65536;
+  private static final int COMPRESSION_BLOCKS_IN_FLIGHT = 4;
   private static final boolean COMPATIBILITY_APPEND_NO_HEADER = "Y".equals(
           Const.NVL( System.getProperty( Const.KETTLE_COMPATIBILITY_TEXT_FILE_OUTPUT_APPEND_NO_HEADER ), "N" ) );
 
@@ -176,7 +179,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
           OutputStream fileOutputStream =
             getOutputStream( filename, getTransMeta(), !isZipFile && appendToExistingFile );
-          CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
+          CompressionOutputStream compressionOutputStream =
+            createCompressionOutputStream( compressionProvider, fileOutputStream );
 
           // The compression output stream may also archive entries. For this we create the filename
           // (with appropriate extension) and add it as an entry to the output stream. For providers
@@ -191,7 +195,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             }
           }
 
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream =
+            new BufferedOutputStream( compressionOutputStream, getBufferSize() );
 
           fileStreams = data.new FileStream( fileOutputStream, compressionOutputStream, bufferedOutputStream );
 
@@ -209,9 +214,11 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
           OutputStream fileOutputStream = getOutputStream( filename, getTransMeta(), true );
           CompressionProvider compressionProvider = getCompressionProvider();
-          CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
+          CompressionOutputStream compressionOutputStream =
+            createCompressionOutputStream( compressionProvider, fileOutputStream );
           compressionOutputStream.addEntry( filename, environmentSubstitute( meta.getExtension() ) );
-          BufferedOutputStream bufferedOutputStream = new BufferedOutputStream( compressionOutputStream, 5000 );
+          BufferedOutputStream bufferedOutputStream =
+            new BufferedOutputStream( compressionOutputStream, getBufferSize() );
 
           fileStreams.setFileOutputStream( fileOutputStream );
           fileStreams.setCompressedOutputStream( compressionOutputStream );
@@ -237,6 +244,27 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Compresses on a thread of its own, the step formats the next rows in the meantime. Without compression the blocks
+   * go to the file straight away.
+   */
+  private CompressionOutputStream createCompressionOutputStream( CompressionProvider compressionProvider,
+                                                                 OutputStream fileOutputStream ) throws IOException {
+    CompressionOutputStream compressionOutputStream = compressionProvider.createOutputStream( fileOutputStream );
+    if ( FILE_COMPRESSION_TYPE_NONE.equals( compressionProvider.getName() ) ) {
+      return compressionOutputStream;
+    }
+    if ( data.compressionExecutor == null ) {
+      data.compressionExecutor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, getStepname() + " - compression" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+    return new BackgroundCompressionOutputStream( compressionOutputStream, data.compressionExecutor,
+      COMPRESSION_BLOCKS_IN_FLIGHT );
+  }
+
   public String getOutputFileName( Object[] row ) throws KettleException {
     String filename = null;
     if ( row == null ) {
@@ -279,6 +307,22 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     return flushInterval;
   }
 
+  /**
+   * @return the size of the buffer of an open file, from the variable KETTLE_FILE_OUTPUT_BUFFER_SIZE
+   */
+  public int getBufferSize() {
+    String bufferSizeStr = getTransMeta().getVariable( Const.KETTLE_FILE_OUTPUT_BUFFER_SIZE );
+    int bufferSize = DEFAULT_BUFFER_SIZE;
+    if ( bufferSizeStr != null ) {
+      try {
+        bufferSize = Integer.parseInt( bufferSizeStr.trim() );
+      } catch ( Exception ex ) {
+        // Do nothing
+      }
+    }
+    return bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+  }
+
   public int getMaxOpenFiles(  )  {
     String maxStreamCountStr = getTransMeta().getVariable( "KETTLE_FILE_OUTPUT_MAX_STREAM_COUNT" );
     int maxStreamCount = 0;
@@ -449,6 +493,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
             metaStore );
         }
         meta.calcMetaWithFieldOptions( data );
+        initFieldWriters();
       }
     }
 
@@ -479,20 +524,25 @@ public class TextFileOutput extends BaseStep implements StepInterface {
           // no special null value default was specified since no fields are specified at all
           // As such, we pass null
           //
-          writeField( v, valueData, null );
+          if ( !writeField( i, valueData ) ) {
+            writeField( v, valueData, null );
+          }
         }
       } else {
         /*
          * Only write the fields specified!
          */
+        ValueMetaInterface[] metaWithFieldOptions = meta.getMetaWithFieldOptions();
         for ( int i = 0; i < meta.getOutputFields().length; i++ ) {
           if ( i > 0 && data.binarySeparator.length > 0 ) {
             data.writer.write( data.binarySeparator );
           }
 
-          ValueMetaInterface v = meta.getMetaWithFieldOptions()[ i ];
+          ValueMetaInterface v = metaWithFieldOptions[ i ];
           Object valueData = r[ data.fieldnrs[ i ] ];
-          writeField( v, valueData, data.binaryNullValue[ i ] );
+          if ( !writeField( i, valueData ) ) {
+            writeField( v, valueData, data.binaryNullValue[ i ] );
+          }
         }
       }
 
@@ -655,6 +705,61 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Gets the writers of the integer and date fields that write their text straight into the buffer. Fast data dump
+   * writes the values as they are.
+   */
+  protected void initFieldWriters() {
+    data.fieldWriters = null;
+    if ( meta.isFastDump() || data.outputRowMeta == null ) {
+      return;
+    }
+    ValueMetaInterface[] valueMetas = Utils.isEmpty( meta.getOutputFields() )
+      ? data.outputRowMeta.getValueMetaList().toArray( new ValueMetaInterface[ 0 ] ) : meta.getMetaWithFieldOptions();
+    if ( valueMetas == null ) {
+      return;
+    }
+    TextFileFieldWriter[] fieldWriters = new TextFileFieldWriter[ valueMetas.length ];
+    boolean found = false;
+    for ( int i = 0; i < fieldWriters.length; i++ ) {
+      fieldWriters[ i ] = TextFileFieldWriter.getWriter( valueMetas[ i ], data.binarySeparator,
+        data.binaryEnclosure );
+      found |= fieldWriters[ i ] != null;
+    }
+    if ( found ) {
+      data.fieldWriters = fieldWriters;
+    }
+  }
+
+  /**
+   * Writes a field with its field writer, enclosed when that's forced.
+   *
+   * @return false if the field has no writer or the writer doesn't cover the value, it has to be written the usual way
+   */
+  private boolean writeField( int fieldIndex, Object valueData ) throws IOException {
+    if ( data.fieldWriters == null || fieldIndex >= data.fieldWriters.length
+      || data.fieldWriters[ fieldIndex ] == null ) {
+      return false;
+    }
+    TextFileFieldWriter fieldWriter = data.fieldWriters[ fieldIndex ];
+    int length = fieldWriter.write( valueData );
+    if ( length < 0 ) {
+      return false;
+    }
+
+    // The text holds no separator or enclosure
+    //
+    boolean writeEnclosures = meta.isEnclosureForced() && !meta.isPadded();
+    if ( writeEnclosures ) {
+      data.writer.write( data.binaryEnclosure );
+    }
+    data.writer.write( fieldWriter.getBuffer(), 0, length );
+    if ( writeEnclosures ) {
+      data.writer.write( data.binaryEnclosure );
+    }
+    return true;
+  }
+
   private List<Integer> getEnclosurePositions( byte[] str ) {
     List<Integer> positions = null;
     if ( data.binaryEnclosure != null && data.binaryEnclosure.length > 0 ) {
@@ -923,6 +1028,10 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     data.writer = null;
     data.out = null;
     data.fos = null;
+    if ( data.compressionExecutor != null ) {
+      data.compressionExecutor.shutdown();
+      data.compressionExecutor = null;
+    }
 
     super.dispose( smi, sdi );
   }
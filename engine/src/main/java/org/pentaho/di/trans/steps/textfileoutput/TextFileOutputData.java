@@ -24,6 +24,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import org.pentaho.di.core.compress.CompressionOutputStream;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -410,6 +411,10 @@ public class TextFileOutputData extends BaseStepData implements StepDataInterfac
 
   public byte[][] binaryNullValue;
 
+  public TextFileFieldWriter[] fieldWriters;
+
+  public ExecutorService compressionExecutor;
+
   public boolean oneFileOpened;
 
   public int fileNameFieldIndex;
@@ -13,8 +13,8 @@
 
 package org.pentaho.di.trans.steps.update;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
@@ -23,6 +23,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.StagingMerge;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -200,6 +201,9 @@ public class Update extends BaseDatabaseStep implements StepInterface {
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.stagingMerge != null ) {
+        flushStagingMerge();
+      }
 
       setOutputDone();
       return false;
@@ -276,7 +280,11 @@ public class Update extends BaseDatabaseStep implements StepInterface {
             + "" + data.valuenrs[i] );
         }
       }
-      if ( meta.isSkipLookup() ) {
+      data.stagingMerge = getStagingMerge();
+      if ( data.stagingMerge != null ) {
+        // The rows are updated through the staging table
+        data.lookupParameterRowMeta = new RowMeta();
+      } else if ( meta.isSkipLookup() ) {
         // We skip lookup
         // but we need fields for update
         data.lookupParameterRowMeta = new RowMeta();
@@ -302,13 +310,19 @@ public class Update extends BaseDatabaseStep implements StepInterface {
       } else {
         setLookup( getInputRowMeta() );
       }
-      prepareUpdate( getInputRowMeta() );
+      if ( data.stagingMerge == null ) {
+        prepareUpdate( getInputRowMeta() );
+      }
     }
 
     try {
-      Object[] outputRow = lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
-      if ( outputRow != null ) {
-        putRow( data.outputRowMeta, outputRow ); // copy non-ignored rows to output rowset(s);
+      if ( data.stagingMerge != null ) {
+        addToStagingMerge( r );
+      } else {
+        Object[] outputRow = lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
+        if ( outputRow != null ) {
+          putRow( data.outputRowMeta, outputRow ); // copy non-ignored rows to output rowset(s);
+        }
       }
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
@@ -336,6 +350,107 @@ public class Update extends BaseDatabaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Works out the set-based update through the staging table. It needs keys compared with =, no key column among the
+   * updated columns, no flag field and no error handling: a merge doesn't tell which rows it found.
+   *
+   * @return the merge or null to look up and update the rows one by one
+   */
+  private StagingMerge getStagingMerge() throws KettleException {
+    String stagingTable = environmentSubstitute( meta.getStagingTable() );
+    if ( Utils.isEmpty( stagingTable ) ) {
+      return null;
+    }
+    if ( getStepMeta().isDoingErrorHandling() || !Utils.isEmpty( meta.getIgnoreFlagField() ) ) {
+      logBasic( BaseMessages.getString( PKG, "Update.Log.StagingTableNotPossible" ) );
+      return null;
+    }
+
+    // The key columns first, then the updated columns
+    //
+    RowMetaInterface stagingRowMeta = new RowMeta();
+    List<Integer> indexes = new ArrayList<>();
+    for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+      int index = getInputRowMeta().indexOfValue( meta.getKeyStream()[i] );
+      if ( !"=".equals( meta.getKeyCondition()[i] ) || index < 0
+        || stagingRowMeta.indexOfValue( meta.getKeyLookup()[i] ) >= 0 ) {
+        logBasic( BaseMessages.getString( PKG, "Update.Log.StagingTableNotPossible" ) );
+        return null;
+      }
+      ValueMetaInterface keyValue = getInputRowMeta().getValueMeta( index ).clone();
+      keyValue.setName( meta.getKeyLookup()[i] );
+      stagingRowMeta.addValueMeta( keyValue );
+      indexes.add( index );
+    }
+    int nrKeys = stagingRowMeta.size();
+    boolean[] update = new boolean[ nrKeys + meta.getUpdateLookup().length ];
+    for ( int i = 0; i < meta.getUpdateLookup().length; i++ ) {
+      if ( stagingRowMeta.indexOfValue( meta.getUpdateLookup()[i] ) >= 0 ) {
+        logBasic( BaseMessages.getString( PKG, "Update.Log.StagingTableNotPossible" ) );
+        return null;
+      }
+      ValueMetaInterface updateValue = getInputRowMeta().getValueMeta( data.valuenrs[i] ).clone();
+      updateValue.setName( meta.getUpdateLookup()[i] );
+      stagingRowMeta.addValueMeta( updateValue );
+      indexes.add( data.valuenrs[i] );
+      update[ nrKeys + i ] = true;
+    }
+
+    if ( getUniqueStepCountAcrossSlaves() > 1 ) {
+      stagingTable += "_" + getUniqueStepNrAcrossSlaves();
+    }
+    StagingMerge stagingMerge = data.db.getStagingMerge( environmentSubstitute( meta.getSchemaName() ),
+      environmentSubstitute( meta.getTableName() ), stagingTable, stagingRowMeta, nrKeys, update, false );
+    if ( stagingMerge == null ) {
+      logBasic( BaseMessages.getString( PKG, "Update.Log.StagingTableNotSupported" ) );
+      return null;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "Update.Log.StagingTable", stagingTable,
+        stagingMerge.getMergeStatement() ) );
+    }
+    data.stagingIndexes = ArrayUtils.toPrimitive( indexes.toArray( new Integer[0] ) );
+    data.commitSize = meta.getCommitSize( this );
+    return stagingMerge;
+  }
+
+  /**
+   * Adds a row to the staging table, the merge follows every commit size rows.
+   */
+  private void addToStagingMerge( Object[] r ) throws KettleException {
+    Object[] stagingRow = new Object[data.stagingIndexes.length];
+    for ( int i = 0; i < data.stagingIndexes.length; i++ ) {
+      stagingRow[i] = r[data.stagingIndexes[i]];
+    }
+    data.stagingMerge.addRow( stagingRow );
+    data.stagingRows.add( r );
+    incrementLinesInput();
+    if ( data.commitSize > 0 && data.stagingRows.size() >= data.commitSize ) {
+      flushStagingMerge();
+    }
+  }
+
+  /**
+   * Merges the staging table into the table and commits. Fewer updated rows than merged keys means a key wasn't found,
+   * that fails the step unless not found keys are ignored or the lookup is skipped, like it does row by row.
+   */
+  private void flushStagingMerge() throws KettleException {
+    int nrRows = data.stagingMerge.getNrRows();
+    int nrUpdated = data.stagingMerge.flush();
+    if ( nrRows > 0 && !meta.isErrorIgnored() && !meta.isSkipLookup()
+      && nrUpdated < data.stagingMerge.countMergedRows() ) {
+      data.db.rollback();
+      throw new KettleDatabaseException( BaseMessages.getString( PKG, "Update.Exception.KeyCouldNotFound" )
+        + data.stagingMerge.getMergeStatement() );
+    }
+    data.db.commit();
+    setLinesUpdated( getLinesUpdated() + nrUpdated );
+    for ( Object[] row : data.stagingRows ) {
+      putRow( data.outputRowMeta, row );
+    }
+    data.stagingRows.clear();
+  }
+
   public void setLookup( RowMetaInterface rowMeta ) throws KettleDatabaseException {
     data.lookupParameterRowMeta = new RowMeta();
     data.lookupReturnRowMeta = new RowMeta();
@@ -393,14 +508,10 @@ public class Update extends BaseDatabaseStep implements StepInterface {
       sql += " ) ) ";
     }
 
-    try {
-      if ( log.isDetailed() ) {
-        logDetailed( "Setting preparedStatement to [" + sql + "]" );
-      }
-      data.prepStatementLookup = data.db.getConnection().prepareStatement( databaseMeta.stripCR( sql ) );
-    } catch ( SQLException ex ) {
-      throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", ex );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting preparedStatement to [" + sql + "]" );
     }
+    data.prepStatementLookup = data.db.prepareCachedSQL( sql );
 
   }
 
@@ -457,14 +568,10 @@ public class Update extends BaseDatabaseStep implements StepInterface {
       }
       sql += " ) ) ";
     }
-    try {
-      if ( log.isDetailed() ) {
-        logDetailed( "Setting update preparedStatement to [" + sql + "]" );
-      }
-      data.prepStatementUpdate = data.db.getConnection().prepareStatement( databaseMeta.stripCR( sql ) );
-    } catch ( SQLException ex ) {
-      throw new KettleDatabaseException( "Unable to prepare statement for SQL statement [" + sql + "]", ex );
+    if ( log.isDetailed() ) {
+      logDetailed( "Setting update preparedStatement to [" + sql + "]" );
     }
+    data.prepStatementUpdate = data.db.prepareCachedSQL( sql );
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -497,8 +604,9 @@ public class Update extends BaseDatabaseStep implements StepInterface {
             data.db.rollback();
           }
         }
-        data.db.closePreparedStatement( data.prepStatementUpdate );
-        data.db.closePreparedStatement( data.prepStatementLookup );
+        if ( data.stagingMerge != null ) {
+          data.stagingMerge.close();
+        }
       } catch ( KettleDatabaseException e ) {
         logError( BaseMessages.getString( PKG, "Update.Log.UnableToCommitUpdateConnection" )
           + data.db + "] :" + e.toString() );
@@ -14,8 +14,11 @@
 package org.pentaho.di.trans.steps.update;
 
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.StagingMerge;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -47,6 +50,11 @@ public class UpdateData extends BaseDatabaseStepData implements StepDataInterfac
   public RowMetaInterface lookupReturnRowMeta;
   public RowMetaInterface updateParameterRowMeta;
 
+  public StagingMerge stagingMerge;
+  public int[] stagingIndexes; // Stream value nrs of the staging table columns
+  public List<Object[]> stagingRows = new ArrayList<>(); // The rows held back until they are merged
+  public int commitSize;
+
   public UpdateData() {
     super();
 
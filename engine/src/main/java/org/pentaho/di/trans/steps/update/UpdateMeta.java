@@ -114,6 +114,10 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
   @Injection( name = "BATCH_UPDATE" )
   private boolean useBatchUpdate;
 
+  /** The staging table to update the rows set-based through, empty to update them one by one */
+  @Injection( name = "STAGING_TABLE" )
+  private String stagingTable;
+
   @Injection( name = "CONNECTIONNAME" )
   public void setConnection( String connectionName ) {
     databaseMeta = DatabaseMeta.findDatabase( databases, connectionName );
@@ -315,6 +319,21 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
     this.errorIgnored = ignoreError;
   }
 
+  /**
+   * @return the staging table to update the rows set-based through
+   */
+  public String getStagingTable() {
+    return stagingTable;
+  }
+
+  /**
+   * @param stagingTable
+   *          the staging table to update the rows set-based through, empty to update them one by one
+   */
+  public void setStagingTable( String stagingTable ) {
+    this.stagingTable = stagingTable;
+  }
+
   /**
    * @return Returns the ignoreFlagField.
    */
@@ -376,6 +395,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
       skipLookup = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "skip_lookup" ) );
       errorIgnored = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "error_ignored" ) );
       ignoreFlagField = XMLHandler.getTagValue( stepnode, "ignore_flag_field" );
+      stagingTable = XMLHandler.getTagValue( stepnode, "staging_table" );
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tableName = XMLHandler.getTagValue( stepnode, "lookup", "table" );
 
@@ -451,6 +471,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
     retval.append( "    " + XMLHandler.addTagValue( "error_ignored", errorIgnored ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_flag_field", ignoreFlagField ) );
+    retval.append( "    " + XMLHandler.addTagValue( "staging_table", stagingTable ) );
     retval.append( "    <lookup>" + Const.CR );
     retval.append( "      " + XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " + XMLHandler.addTagValue( "table", tableName ) );
@@ -500,6 +521,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
 
       errorIgnored = rep.getStepAttributeBoolean( id_step, "error_ignored" );
       ignoreFlagField = rep.getStepAttributeString( id_step, "ignore_flag_field" );
+      stagingTable = rep.getStepAttributeString( id_step, "staging_table" );
 
       int nrKeyName = rep.countNrStepAttributes( id_step, "key_name" );
       int nrKeyField = rep.countNrStepAttributes( id_step, "key_field" );
@@ -544,6 +566,7 @@ public class UpdateMeta extends BaseDatabaseStepMeta implements StepMetaInterfac
 
       rep.saveStepAttribute( id_transformation, id_step, "error_ignored", errorIgnored );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_flag_field", ignoreFlagField );
+      rep.saveStepAttribute( id_transformation, id_step, "staging_table", stagingTable );
 
       for ( int i = 0; i < keyStream.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "key_name", keyStream[i] );
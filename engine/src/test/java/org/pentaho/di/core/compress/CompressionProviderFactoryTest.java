@@ -107,6 +107,7 @@ public class CompressionProviderFactoryTest {
         put( "None", false );
         put( "Zip", false );
         put( "GZip", false );
+        put( "BGZF", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
       }
@@ -138,6 +139,7 @@ public class CompressionProviderFactoryTest {
         put( "None", false );
         put( "Zip", false );
         put( "GZip", false );
+        put( "BGZF", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
       }
@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionPluginType;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class BGZFCompressionProviderTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  public static final String PROVIDER_NAME = "BGZF";
+
+  public CompressionProviderFactory factory = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    PluginRegistry.addPluginType( CompressionPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    factory = CompressionProviderFactory.getInstance();
+  }
+
+  @Test
+  public void testGetProviderAttributes() {
+    BGZFCompressionProvider provider = (BGZFCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    assertNotNull( provider );
+    assertEquals( PROVIDER_NAME, provider.getName() );
+    assertEquals( "Block GZIP compression", provider.getDescription() );
+    assertTrue( provider.supportsInput() );
+    assertTrue( provider.supportsOutput() );
+    assertEquals( "gz", provider.getDefaultExtension() );
+    assertTrue( provider.getNrThreads() >= 1 );
+  }
+
+  @Test
+  public void testWritesAndReadsAFile() throws IOException {
+    BGZFCompressionProvider provider = (BGZFCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 50000; i++ ) {
+      content.append( i ).append( ";line " ).append( i ).append( '\n' );
+    }
+    byte[] bytes = content.toString().getBytes( StandardCharsets.UTF_8 );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try ( BGZFCompressionOutputStream outStream = provider.createOutputStream( out ) ) {
+      outStream.write( bytes );
+    }
+    byte[] compressed = out.toByteArray();
+    assertTrue( BGZFInputStream.isBGZF( compressed, compressed.length ) );
+
+    try ( BGZFCompressionInputStream inStream = provider.createInputStream( new ByteArrayInputStream( compressed ) ) ) {
+      assertArrayEquals( bytes, readAll( inStream ) );
+    }
+
+    // Any gzip reader reads the blocks one after the other
+    //
+    try ( GZIPInputStream inStream = new GZIPInputStream( new ByteArrayInputStream( compressed ) ) ) {
+      assertArrayEquals( bytes, readAll( inStream ) );
+    }
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[ 4096 ];
+    int n;
+    while ( ( n = in.read( buffer ) ) > 0 ) {
+      out.write( buffer, 0, n );
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.bgzf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BGZFInputStreamTest {
+
+  private byte[] content;
+
+  @Before
+  public void setUp() {
+    Random random = new Random( 42 );
+    content = new byte[ 5 * BGZFOutputStream.BLOCK_CONTENT_SIZE + 1234 ];
+    for ( int i = 0; i < content.length; i++ ) {
+      content[ i ] = i % 5 == 0 ? (byte) random.nextInt( 256 ) : (byte) ( 'a' + i % 26 );
+    }
+  }
+
+  @Test
+  public void readsWhatIsWrittenOnMoreThreads() throws IOException {
+    for ( int nrThreads = 1; nrThreads <= 3; nrThreads++ ) {
+      byte[] compressed = compress( content, nrThreads );
+      assertArrayEquals( content, readAll( new BGZFInputStream( new ByteArrayInputStream( compressed ), 1 ) ) );
+      assertArrayEquals( content, readAll( new BGZFInputStream( new ByteArrayInputStream( compressed ), 4 ) ) );
+    }
+  }
+
+  @Test
+  public void storesContentThatDoesNotCompress() throws IOException {
+    byte[] noise = new byte[ 3 * BGZFOutputStream.BLOCK_CONTENT_SIZE ];
+    new Random( 7 ).nextBytes( noise );
+    byte[] compressed = compress( noise, 2 );
+    assertArrayEquals( noise, readAll( new BGZFInputStream( new ByteArrayInputStream( compressed ), 2 ) ) );
+  }
+
+  @Test
+  public void skipsWholeBlocks() throws IOException {
+    byte[] compressed = compress( content, 1 );
+    InputStream in = new BGZFInputStream( new ByteArrayInputStream( compressed ) );
+    long position = 3L * BGZFOutputStream.BLOCK_CONTENT_SIZE + 17;
+    assertEquals( position, in.skip( position ) );
+    assertEquals( content[ (int) position ] & 0xFF, in.read() );
+    assertEquals( content.length - position - 1, in.skip( Long.MAX_VALUE ) );
+    assertEquals( -1, in.read() );
+  }
+
+  @Test
+  public void recognizesBlockCompressedFiles() throws IOException {
+    byte[] compressed = compress( content, 1 );
+    assertTrue( BGZFInputStream.isBGZF( compressed, compressed.length ) );
+    assertTrue( BGZFInputStream.isBGZF( BGZFOutputStream.EOF_BLOCK, BGZFOutputStream.EOF_BLOCK.length ) );
+
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try ( GZIPOutputStream out = new GZIPOutputStream( gzipped ) ) {
+      out.write( content );
+    }
+    assertFalse( BGZFInputStream.isBGZF( gzipped.toByteArray(), gzipped.size() ) );
+    assertFalse( BGZFInputStream.isBGZF( compressed, 10 ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void failsOnACorruptBlock() throws IOException {
+    byte[] compressed = compress( content, 1 );
+    compressed[ 40 ] ^= 0x55;
+    readAll( new BGZFInputStream( new ByteArrayInputStream( compressed ) ) );
+  }
+
+  private static byte[] compress( byte[] bytes, int nrThreads ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try ( BGZFOutputStream bgzf = new BGZFOutputStream( out, Deflater.DEFAULT_COMPRESSION, nrThreads ) ) {
+      // Odd pieces so that the writes cross the blocks
+      //
+      for ( int i = 0; i < bytes.length; i += 1000 ) {
+        bgzf.write( bytes, i, Math.min( 1000, bytes.length - i ) );
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    try ( InputStream stream = in ) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[ 4096 ];
+      int n;
+      while ( ( n = stream.read( buffer ) ) > 0 ) {
+        out.write( buffer, 0, n );
+      }
+      return out.toByteArray();
+    }
+  }
+}
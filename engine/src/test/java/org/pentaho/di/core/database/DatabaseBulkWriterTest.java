@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the bulk writer on H2, with CSVREAD standing in for the native loader of a database.
+ */
+public class DatabaseBulkWriterTest {
+
+  /**
+   * Loads the written rows from a file with CSVREAD, an empty value without quotes is null there as well.
+   */
+  private static class H2CsvReadStrategy extends CsvBulkWriteStrategy {
+    H2CsvReadStrategy() {
+      super( "" );
+    }
+
+    @Override
+    public long load( Database database, String schemaName, String tableName, RowMetaInterface rowMeta,
+                      InputStream data ) throws KettleDatabaseException {
+      DatabaseMeta databaseMeta = database.getDatabaseMeta();
+      try {
+        File file = File.createTempFile( "bulk", ".csv" );
+        try {
+          Files.copy( data, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+          String columns = String.join( ",", rowMeta.getFieldNames() );
+          String sql = "INSERT INTO " + databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName ) + " "
+            + getColumnList( databaseMeta, rowMeta ) + " SELECT * FROM CSVREAD( '"
+            + file.getAbsolutePath().replace( "'", "''" ) + "', '" + columns + "', 'charset=UTF-8' )";
+          try ( Statement statement = database.getConnection().createStatement() ) {
+            return statement.executeUpdate( sql );
+          }
+        } finally {
+          file.delete();
+        }
+      } catch ( Exception e ) {
+        throw new KettleDatabaseException( "Error loading rows into table " + tableName, e );
+      }
+    }
+  }
+
+  private Database database;
+  private RowMetaInterface rowMeta;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() {
+      @Override
+      public BulkWriteStrategy getBulkWriteStrategy() {
+        return new H2CsvReadStrategy();
+      }
+    } );
+    databaseMeta.setName( "mem:BULK" );
+    databaseMeta.setDBName( "mem:BULK" );
+    databaseMeta.setDatabaseType( "H2" );
+
+    database = new Database( databaseMeta );
+    database.connect();
+    database.execStatement( "CREATE TABLE ORDERS ( ID INTEGER, NAME VARCHAR( 50 ), ACTIVE BOOLEAN, CREATED TIMESTAMP )" );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "ID" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "NAME" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "ACTIVE" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "CREATED" ) );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    database.execStatement( "DROP TABLE ORDERS" );
+    database.disconnect();
+  }
+
+  @Test
+  public void loadsTheRowsTogether() throws Exception {
+    DatabaseBulkWriter writer = database.getBulkWriter( null, "ORDERS", rowMeta );
+    assertNotNull( writer );
+
+    Timestamp created = Timestamp.valueOf( "2024-03-01 10:15:30.5" );
+    writer.addRow( new Object[] { 1L, "say \"hi\", bye", true, created } );
+    writer.addRow( new Object[] { 2L, "", false, null } );
+    writer.addRow( new Object[] { 3L, null, null, null } );
+    assertEquals( 3, writer.getNrRows() );
+    assertEquals( 0, count() );
+
+    assertEquals( 3L, writer.flush() );
+    assertEquals( 0, writer.getNrRows() );
+    assertEquals( 3, count() );
+
+    try ( Statement statement = database.getConnection().createStatement();
+          ResultSet resultSet = statement.executeQuery( "SELECT NAME, ACTIVE, CREATED FROM ORDERS ORDER BY ID" ) ) {
+      resultSet.next();
+      assertEquals( "say \"hi\", bye", resultSet.getString( 1 ) );
+      assertEquals( true, resultSet.getBoolean( 2 ) );
+      assertEquals( created, resultSet.getTimestamp( 3 ) );
+      resultSet.next();
+      assertEquals( "", resultSet.getString( 1 ) );
+      assertNull( resultSet.getTimestamp( 3 ) );
+      resultSet.next();
+      assertNull( resultSet.getString( 1 ) );
+      assertNull( resultSet.getObject( 2 ) );
+    }
+  }
+
+  @Test
+  public void forgetsTheRowsOfAFailingLoad() throws Exception {
+    DatabaseBulkWriter writer = database.getBulkWriter( null, "MISSING", rowMeta );
+    writer.addRow( new Object[] { 1L, "a", true, null } );
+    try {
+      writer.flush();
+      fail();
+    } catch ( KettleDatabaseException e ) {
+      assertEquals( 0, writer.getNrRows() );
+    }
+  }
+
+  @Test
+  public void insertsRowsTheLoaderCantTake() {
+    rowMeta.addValueMeta( new ValueMetaBinary( "PICTURE" ) );
+    assertNull( database.getBulkWriter( null, "ORDERS", rowMeta ) );
+  }
+
+  private int count() throws SQLException {
+    try ( Statement statement = database.getConnection().createStatement();
+          ResultSet resultSet = statement.executeQuery( "SELECT COUNT(*) FROM ORDERS" ) ) {
+      resultSet.next();
+      return resultSet.getInt( 1 );
+    }
+  }
+}
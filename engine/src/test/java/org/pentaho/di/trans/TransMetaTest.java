@@ -21,6 +21,7 @@ import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.bowl.Bowl;
 import org.pentaho.di.core.bowl.DefaultBowl;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -978,4 +979,20 @@ public class TransMetaTest {
     assertTrue( "Null filename should result in null or empty after deserialization",
         deserializedTransMeta.getFilename() == null || deserializedTransMeta.getFilename().isEmpty() );
   }
+
+  @Test
+  public void testRowSetTypeXmlRoundTrip() throws Exception {
+    TransMeta sourceTransMeta = new TransMeta();
+    assertEquals( TransMeta.RowSetType.Blocking, sourceTransMeta.getRowSetType() );
+    sourceTransMeta.setRowSetType( TransMeta.RowSetType.RingBuffer );
+    sourceTransMeta.setRowSetWaitStrategy( RingBufferRowSet.WaitStrategy.YIELD );
+
+    org.w3c.dom.Document doc = XMLHandler.loadXMLString( sourceTransMeta.getXML() );
+    Node transNode = XMLHandler.getSubNode( doc, TransMeta.XML_TAG );
+    TransMeta targetTransMeta = new TransMeta();
+    targetTransMeta.loadXML( transNode, null, false );
+
+    assertEquals( TransMeta.RowSetType.RingBuffer, targetTransMeta.getRowSetType() );
+    assertEquals( RingBufferRowSet.WaitStrategy.YIELD, targetTransMeta.getRowSetWaitStrategy() );
+  }
 }
@@ -417,6 +417,147 @@ public class BaseStepTest {
   }
 
 
+  @Test
+  public void getRowsAndPutRowsWithDefaultRowHandlerMethods() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandlerWithDefaultMethods() );
+
+    Object[][] rows = baseStep.getRows( 10 );
+    assertEquals( 1, rows.length );
+
+    baseStep.setRowHandler( rowHandler );
+    RowMetaInterface rowMetaInterface = mock( RowMetaInterface.class );
+    Object[][] objects = new Object[][] { { "foo" }, { "bar" } };
+    baseStep.putRows( rowMetaInterface, objects, 2 );
+    verify( rowHandler, times( 1 ) ).putRows( rowMetaInterface, objects, 2 );
+  }
+
+  @Test
+  public void putRowsAndGetRowsKeepRowOrder() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    BlockingRowSet input = new BlockingRowSet( 10 );
+    for ( long i = 0; i < 7; i++ ) {
+      input.putRow( rowMeta, new Object[] { i } );
+    }
+    input.setDone();
+    baseStep.addRowSetToInputRowSets( input );
+    BlockingRowSet output = new BlockingRowSet( 10 );
+    baseStep.addRowSetToOutputRowSets( output );
+
+    Object[][] rows;
+    while ( ( rows = baseStep.getRows( 3 ) ) != null ) {
+      assertTrue( rows.length <= 3 );
+      baseStep.putRows( rowMeta, rows, rows.length );
+    }
+
+    assertEquals( 7, baseStep.getLinesRead() );
+    assertEquals( 7, baseStep.getLinesWritten() );
+    for ( long i = 0; i < 7; i++ ) {
+      assertEquals( i, output.getRowImmediate()[0] );
+    }
+    assertNull( output.getRowImmediate() );
+  }
+
+  @Test
+  public void putRowsSkipsNullRows() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    BlockingRowSet output = new BlockingRowSet( 10 );
+    baseStep.addRowSetToOutputRowSets( output );
+
+    Object[][] rows = new Object[][] { { 1L }, null, { 2L }, null };
+    baseStep.putRows( rowMeta, rows, rows.length );
+
+    assertEquals( 2, baseStep.getLinesWritten() );
+    assertEquals( 1L, output.getRowImmediate()[0] );
+    assertEquals( 2L, output.getRowImmediate()[0] );
+    assertNull( output.getRowImmediate() );
+  }
+
+  @Test
+  public void statusCountersKeepTheirValue() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+
+    assertEquals( 1, baseStep.incrementLinesRead() );
+    assertEquals( 2, baseStep.incrementLinesRead() );
+    assertEquals( 1, baseStep.decrementLinesRead() );
+    assertEquals( 1, baseStep.getLinesRead() );
+
+    baseStep.setLinesWritten( 10 );
+    assertEquals( 11, baseStep.incrementLinesWritten() );
+    assertEquals( 10, baseStep.decrementLinesWritten() );
+
+    baseStep.setLinesInput( 5 );
+    baseStep.setLinesOutput( 6 );
+    baseStep.setLinesUpdated( 7 );
+    baseStep.setLinesRejected( 8 );
+    baseStep.setLinesSkipped( 9 );
+    assertEquals( 6, baseStep.incrementLinesInput() );
+    assertEquals( 7, baseStep.incrementLinesOutput() );
+    assertEquals( 8, baseStep.incrementLinesUpdated() );
+    assertEquals( 9, baseStep.incrementLinesRejected() );
+    assertEquals( 10, baseStep.incrementLinesSkipped() );
+
+    baseStep.setLinesRead( 0 );
+    assertEquals( 0, baseStep.getLinesRead() );
+  }
+
+  @Test
+  @SuppressWarnings( "deprecation" )
+  public void statusCountersAreTheDeprecatedFields() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+
+    baseStep.incrementLinesRead();
+    assertEquals( 1, baseStep.linesRead );
+    baseStep.linesRejected = 4;
+    assertEquals( 5, baseStep.incrementLinesRejected() );
+    assertEquals( 5, baseStep.getLinesRejected() );
+  }
+
+  @Test
+  public void statusCountersAreNotLostUnderConcurrentUpdates() throws Exception {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    int nrThreads = 4;
+    int nrIncrements = 10000;
+
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < nrThreads; t++ ) {
+      threads.add( new Thread( () -> {
+        for ( int i = 0; i < nrIncrements; i++ ) {
+          baseStep.incrementLinesOutput();
+          baseStep.getLinesOutput();
+        }
+      } ) );
+    }
+    for ( Thread thread : threads ) {
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+
+    assertEquals( (long) nrThreads * nrIncrements, baseStep.getLinesOutput() );
+  }
+
   private RowHandler rowHandlerWithDefaultMethods() {
     return new RowHandler() {
       @Override public Object[] getRow() {
@@ -0,0 +1,213 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.trans.Trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LookupCacheRegistryTest {
+
+  private LookupCacheRegistry registry;
+  private AtomicLong now;
+  private AtomicInteger loads;
+  private Object owner;
+
+  @Before
+  public void setUp() {
+    registry = new LookupCacheRegistry();
+    now = new AtomicLong( 1000L );
+    registry.clock = now::get;
+    registry.memoryLimit = () -> 0L;
+    loads = new AtomicInteger();
+    owner = new Object();
+  }
+
+  @Test
+  public void loadsACacheOnceForAllItsUsers() throws Exception {
+    LookupCacheRegistry.Reference<String> first = acquire( owner, "codes", 0L, 100L );
+    LookupCacheRegistry.Reference<String> second = acquire( owner, "codes", 0L, 100L );
+
+    assertEquals( 1, loads.get() );
+    assertSame( first.get(), second.get() );
+    assertFalse( first.isShared() );
+    assertTrue( second.isShared() );
+    assertEquals( 100L, registry.getMemoryUsed() );
+
+    // Other names and other scopes have caches of their own
+    //
+    acquire( owner, "countries", 0L, 10L );
+    acquire( new Object(), "codes", 0L, 100L );
+    assertEquals( 3, loads.get() );
+    assertEquals( 3, registry.size() );
+  }
+
+  @Test
+  public void loadsAnExpiredCacheAgain() throws Exception {
+    LookupCacheRegistry.Reference<String> first = acquire( owner, "codes", 5000L, 100L );
+    now.addAndGet( 4999L );
+    acquire( owner, "codes", 5000L, 100L ).release();
+    assertEquals( 1, loads.get() );
+
+    now.addAndGet( 1L );
+    LookupCacheRegistry.Reference<String> reloaded = acquire( owner, "codes", 5000L, 100L );
+    assertEquals( 2, loads.get() );
+    assertFalse( reloaded.isShared() );
+    assertEquals( "codes#1", first.get() );
+    assertEquals( "codes#2", reloaded.get() );
+    assertEquals( 100L, registry.getMemoryUsed() );
+  }
+
+  @Test
+  public void removesTheOldestUnusedCachesOverTheMemoryLimit() throws Exception {
+    registry.memoryLimit = () -> 250L;
+    LookupCacheRegistry.Reference<String> oldest = acquire( owner, "oldest", 0L, 100L );
+    now.incrementAndGet();
+    LookupCacheRegistry.Reference<String> used = acquire( owner, "used", 0L, 100L );
+    now.incrementAndGet();
+    LookupCacheRegistry.Reference<String> newer = acquire( owner, "newer", 0L, 100L );
+
+    // All of them are used, the limit doesn't remove them
+    //
+    assertEquals( 300L, registry.getMemoryUsed() );
+    oldest.release();
+    newer.release();
+    assertEquals( 200L, registry.getMemoryUsed() );
+    assertEquals( 2, registry.size() );
+
+    acquire( owner, "newer", 0L, 100L );
+    assertEquals( 3, loads.get() );
+    acquire( owner, "oldest", 0L, 100L );
+    assertEquals( 4, loads.get() );
+    used.release();
+  }
+
+  @Test
+  public void releasesAReferenceOnce() throws Exception {
+    registry.memoryLimit = () -> 50L;
+    LookupCacheRegistry.Reference<String> first = acquire( owner, "codes", 0L, 100L );
+    LookupCacheRegistry.Reference<String> second = acquire( owner, "codes", 0L, 100L );
+    first.release();
+    first.release();
+    assertEquals( 1, registry.size() );
+    second.release();
+    assertEquals( 0, registry.size() );
+    assertEquals( 0L, registry.getMemoryUsed() );
+  }
+
+  @Test
+  public void loadsAgainAfterAFailure() throws Exception {
+    try {
+      registry.acquire( owner, "codes", 0L, () -> {
+        throw new KettleException( "no connection" );
+      }, value -> 0L );
+      fail();
+    } catch ( KettleException e ) {
+      assertEquals( 0, registry.size() );
+    }
+    assertEquals( "codes#1", acquire( owner, "codes", 0L, 100L ).get() );
+  }
+
+  @Test
+  public void removesTheCachesOfAScope() throws Exception {
+    LookupCacheRegistry.Reference<String> reference = acquire( owner, "codes", 0L, 100L );
+    registry.removeScope( owner );
+    assertEquals( 0, registry.size() );
+    assertEquals( 0L, registry.getMemoryUsed() );
+
+    // The step still using it keeps it
+    //
+    assertEquals( "codes#1", reference.get() );
+    reference.release();
+    assertEquals( 0L, registry.getMemoryUsed() );
+  }
+
+  @Test
+  public void stepCopiesWaitForOneLoad() throws Exception {
+    int nrCopies = 8;
+    CountDownLatch start = new CountDownLatch( 1 );
+    ExecutorService executor = Executors.newFixedThreadPool( nrCopies );
+    try {
+      List<Future<String>> values = new ArrayList<>();
+      for ( int i = 0; i < nrCopies; i++ ) {
+        values.add( executor.submit( (Callable<String>) () -> {
+          start.await();
+          return registry.acquire( owner, "codes", 0L, () -> {
+            try {
+              Thread.sleep( 50 );
+            } catch ( InterruptedException e ) {
+              throw new KettleException( e );
+            }
+            return "codes#" + loads.incrementAndGet();
+          }, value -> 100L ).get();
+        } ) );
+      }
+      start.countDown();
+      for ( Future<String> value : values ) {
+        assertEquals( "codes#1", value.get() );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals( 1, loads.get() );
+  }
+
+  @Test
+  public void findsTheOwnerOfAScope() {
+    Job topJob = mock( Job.class );
+    Trans jobTrans = mock( Trans.class );
+    when( jobTrans.getParentJob() ).thenReturn( topJob );
+    Trans subTrans = mock( Trans.class );
+    when( subTrans.getParentTrans() ).thenReturn( jobTrans );
+
+    assertNull( registry.getScopeOwner( LookupCacheRegistry.Scope.NONE, subTrans ) );
+    assertSame( jobTrans, registry.getScopeOwner( LookupCacheRegistry.Scope.TRANS, subTrans ) );
+    assertSame( topJob, registry.getScopeOwner( LookupCacheRegistry.Scope.JOB, subTrans ) );
+    assertSame( registry, registry.getScopeOwner( LookupCacheRegistry.Scope.JVM, subTrans ) );
+
+    // Without a job the transformation at the top is the scope
+    //
+    Trans trans = mock( Trans.class );
+    assertSame( trans, registry.getScopeOwner( LookupCacheRegistry.Scope.JOB, trans ) );
+
+    assertEquals( LookupCacheRegistry.Scope.JOB, LookupCacheRegistry.Scope.getScope( " job " ) );
+    assertEquals( LookupCacheRegistry.Scope.NONE, LookupCacheRegistry.Scope.getScope( "" ) );
+    assertEquals( LookupCacheRegistry.Scope.NONE, LookupCacheRegistry.Scope.getScope( "carte" ) );
+  }
+
+  private LookupCacheRegistry.Reference<String> acquire( Object owner, String name, long timeToLive, long size )
+    throws KettleException {
+    return registry.acquire( owner, name, timeToLive, () -> name + "#" + loads.incrementAndGet(), value -> size );
+  }
+}
@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ByteScannerTest {
+
+  private final ByteScanner scanner = new ByteScanner( (byte) ';', (byte) '\r', (byte) '\n' );
+
+  @Test
+  public void findsTheFirstByteInAWord() {
+    byte[] line = bytes( "abcdefghijklmnop;qrstuvwxyz\n" );
+    assertEquals( 16, scanner.indexOf( line, 0, line.length ) );
+    assertEquals( 27, scanner.indexOf( line, 17, line.length ) );
+    assertEquals( 3, scanner.indexOf( bytes( "abc;;;;;" ), 0, 8 ) );
+  }
+
+  @Test
+  public void findsTheBytesInTheTail() {
+    byte[] line = bytes( "abcdefghij\r" );
+    assertEquals( 10, scanner.indexOf( line, 0, line.length ) );
+    assertEquals( 10, scanner.indexOf( line, 4, line.length ) );
+  }
+
+  @Test
+  public void returnsTheEndWithoutAMatch() {
+    byte[] line = bytes( "abcdefghijklmnopqrst;" );
+    assertEquals( 20, scanner.indexOf( line, 0, 20 ) );
+    assertEquals( 0, scanner.indexOf( line, 0, 0 ) );
+  }
+
+  @Test
+  public void findsBytesWithTheHighBitSet() {
+    ByteScanner highScanner = new ByteScanner( (byte) 0xA7 );
+    byte[] line = new byte[] { 0x27, (byte) 0x80, (byte) 0xFF, 0x00, 0x01, 0x27, (byte) 0xA6, (byte) 0xA8, (byte) 0xA7 };
+    assertEquals( 8, highScanner.indexOf( line, 0, line.length ) );
+  }
+
+  @Test
+  public void lightsUpTheZeroBytesOnly() {
+    assertEquals( 0x8000008000000080L, ByteScanner.zeroBytes( 0x00FF0100FF010200L ) );
+    assertEquals( 0L, ByteScanner.zeroBytes( 0x0101010101010101L ) );
+    assertEquals( 0x8080808080808080L, ByteScanner.zeroBytes( 0L ) );
+  }
+
+  private static byte[] bytes( String text ) {
+    return text.getBytes( StandardCharsets.ISO_8859_1 );
+  }
+}
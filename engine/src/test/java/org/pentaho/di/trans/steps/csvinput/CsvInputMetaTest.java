@@ -46,7 +46,8 @@ public class CsvInputMetaTest implements InitializerInterface<StepMetaInterface>
     PluginRegistry.init( false );
     List<String> attributes =
         Arrays.asList( "BufferSize", "Delimiter", "Enclosure", "Encoding", "Filename", "FilenameField", "InputFields", "RowNumField",
-            "AddResultFile", "HeaderPresent", "IncludingFilename", "LazyConversionActive", "NewlinePossibleInFields", "RunningInParallel" );
+            "AddResultFile", "HeaderPresent", "IncludingFilename", "LazyConversionActive", "NewlinePossibleInFields", "RunningInParallel",
+            "ParseThreads", "UnorderedOutput" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleConversionException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MappedCsvReaderTest {
+
+  private File file;
+  private RowMetaInterface convertRowMeta;
+  private MappedCsvReader reader;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile( "mapped", ".csv" );
+    convertRowMeta = new RowMeta();
+    convertRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    convertRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    for ( ValueMetaInterface valueMeta : convertRowMeta.getValueMetaList() ) {
+      valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+      valueMeta.setStorageMetadata( new ValueMetaString( valueMeta.getName() ) );
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if ( reader != null ) {
+      reader.close();
+    }
+    file.delete();
+  }
+
+  @Test
+  public void readsTheChunksInTheOrderOfTheFile() throws Exception {
+    StringBuilder content = new StringBuilder( "id,name\n" );
+    for ( int i = 0; i < 1000; i++ ) {
+      content.append( i ).append( ",name " ).append( i ).append( i % 2 == 0 ? "\r\n" : "\n" );
+    }
+
+    // Small chunks and windows, so lines run past the end of a window
+    //
+    reader = open( content.toString(), false, 64, 256 );
+    reader.skipLine();
+    reader.start( "test", 3, true );
+    for ( long i = 0; i < 1000; i++ ) {
+      assertArrayEquals( new Object[] { i, "name " + i }, reader.getRow() );
+    }
+    assertNull( reader.getRow() );
+  }
+
+  @Test
+  public void readsAllTheRowsOutOfOrder() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 1000; i++ ) {
+      content.append( i ).append( ",x\n" );
+    }
+    reader = open( content.toString(), false, 32, 128 );
+    reader.start( "test", 4, false );
+
+    Set<Long> ids = new HashSet<>();
+    for ( Object[] row = reader.getRow(); row != null; row = reader.getRow() ) {
+      ids.add( (Long) row[ 0 ] );
+    }
+    assertEquals( 1000, ids.size() );
+  }
+
+  @Test
+  public void slicesEnclosedFieldsLazily() throws Exception {
+    reader = open( "1,\"a, \"\"b\"\"\"\n2,\n3,\"c\"", true, 4, 1024 );
+    reader.start( "test", 2, true );
+
+    List<String> names = new ArrayList<>();
+    for ( Object[] row = reader.getRow(); row != null; row = reader.getRow() ) {
+      names.add( new String( (byte[]) row[ 1 ], StandardCharsets.UTF_8 ) );
+    }
+    assertEquals( 3, names.size() );
+    assertEquals( "a, \"b\"", names.get( 0 ) );
+    assertEquals( "", names.get( 1 ) );
+    assertEquals( "c", names.get( 2 ) );
+  }
+
+  @Test
+  public void handsTheConversionErrorsBackWithTheRow() throws Exception {
+    reader = open( "1,a\nbad,b\n3,c\n", false, 1024, 4096 );
+    reader.start( "test", 2, true );
+
+    assertEquals( 1L, reader.getRow()[ 0 ] );
+    try {
+      reader.getRow();
+      fail();
+    } catch ( KettleConversionException e ) {
+      assertEquals( 1, e.getCauses().size() );
+      assertEquals( "b", e.getRowData()[ 1 ] );
+    }
+    assertEquals( 3L, reader.getRow()[ 0 ] );
+    assertNull( reader.getRow() );
+  }
+
+  private MappedCsvReader open( String content, boolean lazyConversion, int chunkSize, int windowSize )
+    throws Exception {
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+    return new MappedCsvReader( channel, 0L, UnnamedFieldsMapping.mapping( 2 ), 2, convertRowMeta, lazyConversion,
+      ",".getBytes(), "\"".getBytes(), chunkSize, windowSize );
+  }
+}
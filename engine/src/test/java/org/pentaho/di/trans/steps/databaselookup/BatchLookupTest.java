@@ -0,0 +1,225 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseInterface;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchLookupTest {
+
+  private DatabaseMeta databaseMeta;
+  private Database db;
+  private ResultSet resultSet;
+  private RowMeta lookupMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+
+    // The table returns the description first and then the key field
+    //
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "code" ) );
+
+    db = mock( Database.class );
+    resultSet = mock( ResultSet.class );
+    when( db.prepareSQL( anyString() ) ).thenReturn( mock( PreparedStatement.class ) );
+    when( db.openQuery( any( PreparedStatement.class ), any( RowMetaInterface.class ), any( Object[].class ) ) )
+      .thenReturn( resultSet );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+
+    lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  @Test
+  public void getsTheSQLOfAnInList() {
+    assertEquals( "SELECT description AS descr, code FROM codes WHERE code IN ( ?, ?, ? ) ORDER BY code",
+      BatchLookup.getSQL( databaseMeta, "codes", new String[] { "code" }, new String[] { "description" },
+        new String[] { "descr" }, "code", 3 ) );
+  }
+
+  @Test
+  public void getsTheSQLOfMoreKeyFields() {
+    assertEquals( "SELECT description, code, version FROM codes "
+        + "WHERE ( code = ? AND version = ? ) OR ( code = ? AND version = ? )",
+      BatchLookup.getSQL( databaseMeta, "codes", new String[] { "code", "version" },
+        new String[] { "description" }, new String[] { null }, null, 2 ) );
+  }
+
+  @Test
+  public void limitsTheBatchSizeToWhatTheDatabaseTakes() {
+    DatabaseInterface databaseInterface = mock( DatabaseInterface.class );
+    when( databaseInterface.getMaxStatementParameters() ).thenReturn( 2000 );
+    when( databaseInterface.getMaxInListSize() ).thenReturn( 1000 );
+
+    assertEquals( 500, BatchLookup.getBatchSize( databaseInterface, 1, 500 ) );
+    assertEquals( 1000, BatchLookup.getBatchSize( databaseInterface, 1, 5000 ) );
+    assertEquals( 666, BatchLookup.getBatchSize( databaseInterface, 3, 5000 ) );
+  }
+
+  @Test
+  public void looksUpTheDistinctKeysOfABatch() throws Exception {
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", 1L }, new Object[] { "three", 3L }, null );
+
+    BatchLookup batchLookup = new BatchLookup( db, "SELECT", 4, 1, false, false );
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( lookupMeta, new Object[] { "a" }, new Object[] { 1L }, null );
+    batch.add( lookupMeta, new Object[] { "b" }, new Object[] { 2L }, null );
+    batch.add( lookupMeta, new Object[] { "c" }, new Object[] { 1L }, null );
+    batch.add( lookupMeta, new Object[] { "d" }, new Object[] { 3L }, new Object[] { "cached" } );
+    batch.add( lookupMeta, new Object[] { "e" }, new Object[] { 3L }, null );
+    assertEquals( 5, batch.size() );
+    assertEquals( 3, batch.getNrKeys() );
+
+    batchLookup.submit( batch, lookupMeta );
+    batchLookup.await( batch );
+
+    // The batch isn't full, the last key fills it up
+    //
+    ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass( Object[].class );
+    verify( db ).openQuery( any( PreparedStatement.class ), any( RowMetaInterface.class ), params.capture() );
+    assertArrayEquals( new Object[] { 1L, 2L, 3L, 3L }, params.getValue() );
+
+    assertArrayEquals( new Object[] { "one" }, batch.getRow( lookupMeta, new Object[] { 1L } ) );
+    assertArrayEquals( new Object[] { "three" }, batch.getRow( lookupMeta, new Object[] { 3L } ) );
+    assertTrue( batch.contains( lookupMeta, new Object[] { 2L } ) );
+    assertNull( batch.getRow( lookupMeta, new Object[] { 2L } ) );
+    assertFalse( batch.contains( lookupMeta, new Object[] { 4L } ) );
+    assertArrayEquals( new Object[] { "cached" }, batch.getCachedRow( 3 ) );
+    assertArrayEquals( new Object[] { "c" }, batch.getInputRow( 2 ) );
+  }
+
+  @Test
+  public void findsTheMissingKeysOfABatch() throws Exception {
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", 1L }, null );
+
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( lookupMeta, new Object[] { "a" }, new Object[] { 1L }, null );
+    batch.add( lookupMeta, new Object[] { "b" }, new Object[] { 2L }, null );
+    new BatchLookup( db, "SELECT", 2, 1, false, false ).submit( batch, lookupMeta );
+
+    // Integers compare the same in the database, a key without a row is missing
+    //
+    assertFalse( batch.isMissing( lookupMeta, new Object[] { 1L } ) );
+    assertTrue( batch.isMissing( lookupMeta, new Object[] { 2L } ) );
+  }
+
+  @Test
+  public void checksTheMissingStringKeysOnTheirOwn() throws Exception {
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+    returnRowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", "ONE" }, null );
+    RowMeta stringMeta = new RowMeta();
+    stringMeta.addValueMeta( new ValueMetaString( "id" ) );
+
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( stringMeta, new Object[] { "a" }, new Object[] { "one" }, null );
+    new BatchLookup( db, "SELECT", 1, 1, false, false ).submit( batch, stringMeta );
+
+    // A case insensitive collation found the row, the key looked up has to be checked once
+    //
+    assertNull( batch.getRow( stringMeta, new Object[] { "one" } ) );
+    assertFalse( batch.isMissing( stringMeta, new Object[] { "one" } ) );
+    batch.addMissing( stringMeta, new Object[] { "one" } );
+    assertTrue( batch.isMissing( stringMeta, new Object[] { "one" } ) );
+  }
+
+  @Test
+  public void matchesBigNumbersOfAnotherScale() throws Exception {
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+    returnRowMeta.addValueMeta( new ValueMetaBigNumber( "code" ) );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "ten", new BigDecimal( "10.00" ) }, null );
+    RowMeta bigNumberMeta = new RowMeta();
+    bigNumberMeta.addValueMeta( new ValueMetaBigNumber( "id" ) );
+
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( bigNumberMeta, new Object[] { "a" }, new Object[] { BigDecimal.TEN }, null );
+    new BatchLookup( db, "SELECT", 1, 1, false, false ).submit( batch, bigNumberMeta );
+
+    assertArrayEquals( new Object[] { "ten" }, batch.getRow( bigNumberMeta, new Object[] { BigDecimal.TEN } ) );
+  }
+
+  @Test
+  public void looksUpBatchesAheadInAThreadOfTheirOwn() throws Exception {
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", 1L }, null, new Object[] { "two", 2L }, null );
+
+    BatchLookup batchLookup = new BatchLookup( db, "SELECT", 1, 1, false, true );
+    BatchLookup.Batch first = new BatchLookup.Batch();
+    first.add( lookupMeta, new Object[] { "a" }, new Object[] { 1L }, null );
+    BatchLookup.Batch second = new BatchLookup.Batch();
+    second.add( lookupMeta, new Object[] { "b" }, new Object[] { 2L }, null );
+
+    batchLookup.submit( first, lookupMeta );
+    batchLookup.submit( second, lookupMeta );
+    batchLookup.await( first );
+    batchLookup.await( second );
+    batchLookup.close();
+
+    assertArrayEquals( new Object[] { "one" }, first.getRow( lookupMeta, new Object[] { 1L } ) );
+    assertArrayEquals( new Object[] { "two" }, second.getRow( lookupMeta, new Object[] { 2L } ) );
+    verify( db, times( 1 ) ).prepareSQL( "SELECT" );
+  }
+
+  @Test
+  public void keepsTheFirstRowOfAKey() throws Exception {
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", 1L }, new Object[] { "uno", 1L }, null );
+
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( lookupMeta, new Object[] { "a" }, new Object[] { 1L }, null );
+    new BatchLookup( db, "SELECT", 2, 1, false, false ).submit( batch, lookupMeta );
+
+    assertArrayEquals( new Object[] { "one" }, batch.getRow( lookupMeta, new Object[] { 1L } ) );
+  }
+
+  @Test( expected = KettleDatabaseException.class )
+  public void failsOnMultipleResults() throws Exception {
+    when( db.getRow( resultSet ) ).thenReturn( new Object[] { "one", 1L }, new Object[] { "uno", 1L }, null );
+
+    BatchLookup.Batch batch = new BatchLookup.Batch();
+    batch.add( lookupMeta, new Object[] { "a" }, new Object[] { 1L }, null );
+    new BatchLookup( db, "SELECT", 2, 1, true, false ).submit( batch, lookupMeta );
+  }
+}
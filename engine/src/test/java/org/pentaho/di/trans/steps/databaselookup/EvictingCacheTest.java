@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class EvictingCacheTest {
+
+  private DatabaseLookupData data;
+  private DatabaseLookupMeta meta;
+  private RowMeta keyMeta;
+
+  @Before
+  public void setUp() {
+    data = new DatabaseLookupData();
+    data.allEquals = true;
+    meta = mock( DatabaseLookupMeta.class );
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  @Test
+  public void keepsTheFirstValueOfAKey() throws Exception {
+    EvictingCache cache = new EvictingCache( data, 10, 0L, EvictingCache.Policy.LRU );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 100L } );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 200L } );
+
+    assertEquals( 1, cache.size() );
+    assertEquals( 100L, cache.getRowFromCache( keyMeta, new Object[] { 1L } )[0] );
+  }
+
+  @Test
+  public void lruEvictsTheLeastRecentlyUsedKey() throws Exception {
+    EvictingCache cache = new EvictingCache( data, 3, 0L, EvictingCache.Policy.LRU );
+    for ( long i = 1; i <= 3; i++ ) {
+      cache.storeRowInCache( meta, keyMeta, new Object[] { i }, new Object[] { i * 100 } );
+    }
+    // Key 1 is the oldest but it's used again
+    assertNotNull( cache.getRowFromCache( keyMeta, new Object[] { 1L } ) );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 4L }, new Object[] { 400L } );
+
+    assertEquals( 3, cache.size() );
+    assertNotNull( cache.getRowFromCache( keyMeta, new Object[] { 1L } ) );
+    assertNull( cache.getRowFromCache( keyMeta, new Object[] { 2L } ) );
+    assertNotNull( cache.getRowFromCache( keyMeta, new Object[] { 3L } ) );
+    assertNotNull( cache.getRowFromCache( keyMeta, new Object[] { 4L } ) );
+    assertEquals( 1L, cache.getEvictions() );
+  }
+
+  @Test
+  public void countsHitsAndMisses() throws Exception {
+    EvictingCache cache = new EvictingCache( data, 0, 0L, EvictingCache.Policy.LRU );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 100L } );
+    cache.getRowFromCache( keyMeta, new Object[] { 1L } );
+    cache.getRowFromCache( keyMeta, new Object[] { 1L } );
+    cache.getRowFromCache( keyMeta, new Object[] { 2L } );
+
+    assertEquals( 2L, cache.getHits() );
+    assertEquals( 1L, cache.getMisses() );
+    assertEquals( 0L, cache.getEvictions() );
+  }
+
+  @Test
+  public void staysWithinTheMemoryLimit() throws Exception {
+    RowMeta stringKeyMeta = new RowMeta();
+    stringKeyMeta.addValueMeta( new ValueMetaString( "code" ) );
+    long memoryLimit = 64 * 1024;
+    EvictingCache cache = new EvictingCache( data, 0, memoryLimit, EvictingCache.Policy.LRU );
+    for ( int i = 0; i < 10000; i++ ) {
+      cache.storeRowInCache( meta, stringKeyMeta, new Object[] { "code" + i }, new Object[] { "description" + i } );
+      assertTrue( cache.getEstimatedSize() <= memoryLimit );
+    }
+    assertTrue( cache.size() > 100 );
+    assertTrue( cache.size() < 10000 );
+    assertEquals( 10000L - cache.size(), cache.getEvictions() );
+    assertNotNull( cache.getRowFromCache( stringKeyMeta, new Object[] { "code9999" } ) );
+  }
+
+  @Test
+  public void tinyLfuKeepsHotKeysDuringAScan() throws Exception {
+    int cacheSize = 1000;
+    EvictingCache lru = new EvictingCache( data, cacheSize, 0L, EvictingCache.Policy.LRU );
+    EvictingCache tinyLfu = new EvictingCache( data, cacheSize, 0L, EvictingCache.Policy.TINY_LFU );
+
+    // 100 hot keys looked up over and over again, mixed with scans of cold keys that are never looked up again and
+    // push the hot keys out of an LRU cache
+    //
+    long coldKey = 1000000L;
+    for ( int round = 0; round < 20; round++ ) {
+      for ( long hotKey = 0; hotKey < 100; hotKey++ ) {
+        lookup( lru, hotKey );
+        lookup( tinyLfu, hotKey );
+      }
+      for ( int i = 0; i < 2000; i++, coldKey++ ) {
+        lookup( lru, coldKey );
+        lookup( tinyLfu, coldKey );
+      }
+    }
+
+    assertTrue( tinyLfu.size() <= cacheSize );
+    assertTrue( "W-TinyLFU hits " + tinyLfu.getHits() + " vs LRU hits " + lru.getHits(),
+      tinyLfu.getHits() > lru.getHits() );
+    for ( long hotKey = 0; hotKey < 100; hotKey++ ) {
+      assertNotNull( tinyLfu.getRowFromCache( keyMeta, new Object[] { hotKey } ) );
+    }
+  }
+
+  @Test
+  public void tinyLfuStaysWithinTheCacheSize() throws Exception {
+    EvictingCache cache = new EvictingCache( data, 50, 0L, EvictingCache.Policy.TINY_LFU );
+    for ( long i = 0; i < 5000; i++ ) {
+      lookup( cache, i % 700 );
+      assertTrue( cache.size() <= 50 );
+    }
+    assertEquals( 5000L, cache.getHits() + cache.getMisses() );
+  }
+
+  @Test
+  public void otherConditionsAreNotCached() throws Exception {
+    data.allEquals = false;
+    EvictingCache cache = new EvictingCache( data, 10, 0L, EvictingCache.Policy.LRU );
+    cache.storeRowInCache( meta, keyMeta, new Object[] { 1L }, new Object[] { 100L } );
+    assertNull( cache.getRowFromCache( keyMeta, new Object[] { 1L } ) );
+  }
+
+  @Test
+  public void frequencySketchCountsAndAges() {
+    EvictingCache.FrequencySketch sketch = new EvictingCache.FrequencySketch( 64 );
+    for ( int i = 0; i < 10; i++ ) {
+      sketch.increment( 42 );
+    }
+    assertEquals( 10, sketch.frequency( 42 ) );
+
+    // The counters saturate at 15 and are halved after 10 times the expected number of increments
+    //
+    for ( int i = 0; i < 10; i++ ) {
+      sketch.increment( 42 );
+    }
+    assertEquals( 15, sketch.frequency( 42 ) );
+    for ( int i = 0; i < 640; i++ ) {
+      sketch.increment( 1000 + i );
+    }
+    assertTrue( sketch.frequency( 42 ) < 15 );
+  }
+
+  /**
+   * Does what the step does: looks up a key and stores the result of the database on a miss.
+   */
+  private void lookup( EvictingCache cache, long key ) throws Exception {
+    if ( cache.getRowFromCache( keyMeta, new Object[] { key } ) == null ) {
+      cache.storeRowInCache( meta, keyMeta, new Object[] { key }, new Object[] { key * 100 } );
+    }
+  }
+}
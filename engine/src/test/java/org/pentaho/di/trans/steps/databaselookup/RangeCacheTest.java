@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RangeCacheTest {
+
+  private DatabaseLookupMeta meta;
+  private DatabaseLookupData data;
+
+  @Before
+  public void setUp() {
+    meta = mock( DatabaseLookupMeta.class );
+    data = new DatabaseLookupData();
+  }
+
+  @Test
+  public void findsTheVersionOfADimensionValidAtADate() throws Exception {
+    // id = ? AND date_from <= ? AND date_to > ?
+    //
+    setConditions( new int[] { DatabaseLookupMeta.CONDITION_EQ, DatabaseLookupMeta.CONDITION_LE,
+      DatabaseLookupMeta.CONDITION_GT }, false );
+    RowMeta tableKeyMeta = new RowMeta();
+    tableKeyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    tableKeyMeta.addValueMeta( new ValueMetaDate( "date_from" ) );
+    tableKeyMeta.addValueMeta( new ValueMetaDate( "date_to" ) );
+    RowMeta lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    lookupMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    lookupMeta.addValueMeta( new ValueMetaDate( "date" ) );
+
+    RangeCache cache = new RangeCache( data, 0 );
+    for ( long id = 1; id <= 100; id++ ) {
+      for ( long version = 0; version < 10; version++ ) {
+        cache.storeRowInCache( meta, tableKeyMeta,
+          new Object[] { id, new Date( version * 1000 ), new Date( ( version + 1 ) * 1000 ) },
+          new Object[] { id * 100 + version } );
+      }
+    }
+    assertEquals( 1000, cache.size() );
+
+    assertEquals( 4207L, cache.getRowFromCache( lookupMeta, atDate( 42L, 7500 ) )[0] );
+    assertEquals( 4207L, cache.getRowFromCache( lookupMeta, atDate( 42L, 7000 ) )[0] );
+    assertEquals( 4206L, cache.getRowFromCache( lookupMeta, atDate( 42L, 6999 ) )[0] );
+
+    // Out of the ranges cached, for an unknown id and for a null
+    //
+    assertNull( cache.getRowFromCache( lookupMeta, atDate( 42L, 10000 ) ) );
+    assertNull( cache.getRowFromCache( lookupMeta, atDate( 42L, -1 ) ) );
+    assertNull( cache.getRowFromCache( lookupMeta, atDate( 101L, 500 ) ) );
+    assertNull( cache.getRowFromCache( lookupMeta, atDate( null, 500 ) ) );
+    assertNull( cache.getRowFromCache( lookupMeta, new Object[] { 42L, null, null } ) );
+  }
+
+  @Test
+  public void findsARowBetweenTwoValues() throws Exception {
+    // amount BETWEEN ? AND ?
+    //
+    setConditions( new int[] { DatabaseLookupMeta.CONDITION_BETWEEN }, true );
+    RowMeta tableKeyMeta = new RowMeta();
+    tableKeyMeta.addValueMeta( new ValueMetaInteger( "amount" ) );
+    RowMeta lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger( "low" ) );
+    lookupMeta.addValueMeta( new ValueMetaInteger( "high" ) );
+
+    RangeCache cache = new RangeCache( data, 0 );
+    cache.storeRowInCache( meta, tableKeyMeta, new Object[] { 10L }, new Object[] { "ten" } );
+    cache.storeRowInCache( meta, tableKeyMeta, new Object[] { 20L }, new Object[] { "twenty" } );
+    cache.storeRowInCache( meta, tableKeyMeta, new Object[] { 20L }, new Object[] { "twenty again" } );
+
+    assertEquals( 2, cache.size() );
+    assertEquals( "ten", cache.getRowFromCache( lookupMeta, new Object[] { 5L, 15L } )[0] );
+    assertEquals( "twenty", cache.getRowFromCache( lookupMeta, new Object[] { 15L, 20L } )[0] );
+    assertNull( cache.getRowFromCache( lookupMeta, new Object[] { 11L, 19L } ) );
+    assertNull( cache.getRowFromCache( lookupMeta, new Object[] { 15L, 5L } ) );
+  }
+
+  @Test
+  public void evictsTheOldestRows() throws Exception {
+    // code < ?
+    //
+    setConditions( new int[] { DatabaseLookupMeta.CONDITION_LT }, false );
+    RowMeta tableKeyMeta = new RowMeta();
+    tableKeyMeta.addValueMeta( new ValueMetaInteger( "code" ) );
+
+    RangeCache cache = new RangeCache( data, 3 );
+    for ( long code = 1; code <= 5; code++ ) {
+      cache.storeRowInCache( meta, tableKeyMeta, new Object[] { code }, new Object[] { code } );
+    }
+
+    assertEquals( 3, cache.size() );
+    assertEquals( 5L, cache.getRowFromCache( tableKeyMeta, new Object[] { 100L } )[0] );
+    assertEquals( 3L, cache.getRowFromCache( tableKeyMeta, new Object[] { 4L } )[0] );
+    assertNull( cache.getRowFromCache( tableKeyMeta, new Object[] { 3L } ) );
+  }
+
+  @Test
+  public void cachesOnlyConditionsItCanEvaluate() {
+    assertTrue( RangeCache.isCacheable( new int[] { DatabaseLookupMeta.CONDITION_EQ,
+      DatabaseLookupMeta.CONDITION_NE, DatabaseLookupMeta.CONDITION_IS_NOT_NULL } ) );
+    assertFalse( RangeCache.isCacheable( new int[] { DatabaseLookupMeta.CONDITION_EQ,
+      DatabaseLookupMeta.CONDITION_LIKE } ) );
+    assertFalse( RangeCache.isCacheable( new int[] { -1 } ) );
+  }
+
+  private static Object[] atDate( Long id, long time ) {
+    return new Object[] { id, new Date( time ), new Date( time ) };
+  }
+
+  /**
+   * Sets the conditions like init() and processRow() do, every condition looks up one stream field.
+   */
+  private void setConditions( int[] conditions, boolean between ) {
+    data.conditions = conditions;
+    data.keynrs = new int[conditions.length];
+    data.keynrs2 = new int[conditions.length];
+    for ( int i = 0; i < conditions.length; i++ ) {
+      data.keynrs[i] = i;
+      data.keynrs2[i] = between ? i + 1 : -1;
+    }
+  }
+}
@@ -14,16 +14,138 @@
 package org.pentaho.di.trans.steps.dimensionlookup;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.junit.Test;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.row.value.ValueMetaTimestamp;
 import org.pentaho.di.core.util.Assert;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 public class DimensionCacheTest {
 
+  private static final long T0 = 1425300000000L;
+  private static final long HOUR = 3600000L;
+
+  @Test
+  public void testLookupVersions() throws Exception {
+    DimensionCache dc = newCache();
+    Object[] v2 = row( 11L, "A", 2L, at( 2 ), at( 4 ) );
+    Object[] v1 = row( 10L, "A", 1L, null, at( 2 ) );
+    Object[] v3 = row( 12L, "A", 3L, at( 4 ), null );
+    Object[] other = row( 20L, "B", 1L, at( 1 ), at( 9 ) );
+
+    // The versions are ordered whatever order they're added in
+    //
+    dc.addRow( v2 );
+    dc.addRow( other );
+    dc.addRow( v3 );
+    dc.addRow( v1 );
+    assertEquals( 4, dc.size() );
+    assertEquals( 3, dc.getRows( lookup( "A", null ) ).size() );
+    assertSame( v1, dc.getRows( lookup( "A", null ) ).get( 0 ) );
+
+    assertSame( v1, dc.lookupVersion( lookup( "A", at( 0 ) ) ) );
+    assertSame( v2, dc.lookupVersion( lookup( "A", at( 2 ) ) ) );
+    assertSame( v2, dc.lookupVersion( lookup( "A", at( 3 ) ) ) );
+    assertSame( v3, dc.lookupVersion( lookup( "A", at( 4 ) ) ) );
+    assertSame( v3, dc.lookupVersion( lookup( "A", at( 100 ) ) ) );
+
+    assertSame( other, dc.lookupVersion( lookup( "B", at( 1 ) ) ) );
+    assertNull( dc.lookupVersion( lookup( "B", at( 0 ) ) ) );
+    assertNull( dc.lookupVersion( lookup( "B", at( 9 ) ) ) );
+    assertTrue( dc.containsKey( lookup( "B", at( 9 ) ) ) );
+
+    assertNull( dc.lookupVersion( lookup( "C", at( 1 ) ) ) );
+    assertFalse( dc.containsKey( lookup( "C", at( 1 ) ) ) );
+    assertTrue( dc.getRows( lookup( "C", null ) ).isEmpty() );
+  }
+
+  @Test
+  public void testKeepLatestVersions() throws Exception {
+    DimensionCache dc = newCache();
+    Object[] v2 = row( 11L, "A", 2L, at( 2 ), at( 100 ) );
+    dc.addLatestRow( row( 10L, "A", 1L, at( 0 ), at( 2 ) ), 2 );
+    dc.addLatestRow( v2, 2 );
+    dc.addLatestRow( row( 9L, "A", 1L, at( 0 ), at( 2 ) ), 2 );
+    assertEquals( 1, dc.size() );
+    assertSame( v2, dc.lookupVersion( lookup( "A", at( 50 ) ) ) );
+    assertNull( dc.lookupVersion( lookup( "A", at( 1 ) ) ) );
+
+    // A new version ends the one before it
+    //
+    Object[] ended = row( 11L, "A", 2L, at( 2 ), at( 60 ) );
+    Object[] v3 = row( 12L, "A", 3L, at( 60 ), at( 100 ) );
+    assertTrue( dc.replaceRow( v2, ended ) );
+    assertFalse( dc.replaceRow( v2, ended ) );
+    dc.addRow( v3 );
+    assertSame( ended, dc.lookupVersion( lookup( "A", at( 50 ) ) ) );
+    assertSame( v3, dc.lookupVersion( lookup( "A", at( 60 ) ) ) );
+    assertEquals( 2, dc.size() );
+  }
+
+  @Test
+  @SuppressWarnings( "deprecation" )
+  public void testSortedListMethods() throws Exception {
+    DimensionCache dc = newCache();
+    Object[] v1 = row( 10L, "A", 1L, null, at( 2 ) );
+    Object[] v2 = row( 11L, "A", 2L, at( 2 ), null );
+    Object[] other = row( 20L, "B", 1L, at( 1 ), at( 9 ) );
+    dc.setRowCache( Arrays.asList( other, v2 ) );
+    dc.addRow( 0, v1 );
+    dc.sortRows();
+
+    assertEquals( 3, dc.getRowCache().size() );
+    assertSame( v1, dc.getRow( 0 ) );
+    assertSame( v2, dc.getRow( 1 ) );
+    assertSame( other, dc.getRow( 2 ) );
+
+    assertEquals( 0, dc.lookupRow( lookup( "A", at( 1 ) ) ) );
+    assertEquals( 1, dc.lookupRow( lookup( "A", at( 5 ) ) ) );
+    assertEquals( 2, dc.lookupRow( lookup( "B", at( 5 ) ) ) );
+    assertTrue( dc.lookupRow( lookup( "B", at( 9 ) ) ) < 0 );
+    assertTrue( dc.lookupRow( lookup( "C", at( 1 ) ) ) < 0 );
+
+    dc.clear();
+    assertEquals( 0, dc.size() );
+    assertTrue( dc.getRowCache().isEmpty() );
+    assertNull( dc.lookupVersion( lookup( "A", at( 1 ) ) ) );
+  }
+
+  /**
+   * tk, natural key, version, date from, date to
+   */
+  private static DimensionCache newCache() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "TK" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "CODE" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "VERSION" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "DATE_FROM" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "DATE_TO" ) );
+    return new DimensionCache( rowMeta, new int[] { 1 }, 3, 4 );
+  }
+
+  private static Object[] row( Long tk, String code, Long version, Date from, Date to ) {
+    return new Object[] { tk, code, version, from, to };
+  }
+
+  private static Object[] lookup( String code, Date date ) {
+    return new Object[] { null, code, null, date, null };
+  }
+
+  private static Date at( int hours ) {
+    return new Timestamp( T0 + HOUR * hours );
+  }
+
   @Test
   public void testCompareDateInterval() {
     RowMetaInterface rowMeta = new RowMeta();
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+import org.pentaho.di.trans.steps.loadsave.validator.ArrayLoadSaveValidator;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+import org.pentaho.di.trans.steps.loadsave.validator.StringLoadSaveValidator;
+
+public class HashJoinMetaTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "joinType", "keyFields", "buildKeyFields", "memoryLimit", "directory" );
+
+    Map<String, String> getterMap = new HashMap<String, String>();
+    Map<String, String> setterMap = new HashMap<String, String>();
+    for ( String attribute : attributes ) {
+      String suffix = Character.toUpperCase( attribute.charAt( 0 ) ) + attribute.substring( 1 );
+      getterMap.put( attribute, "get" + suffix );
+      setterMap.put( attribute, "set" + suffix );
+    }
+
+    // The key fields of both sides come in pairs
+    //
+    Map<String, FieldLoadSaveValidator<?>> attrValidatorMap = new HashMap<String, FieldLoadSaveValidator<?>>();
+    attrValidatorMap.put( "keyFields", new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 5 ) );
+    attrValidatorMap.put( "buildKeyFields", new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 5 ) );
+
+    LoadSaveTester loadSaveTester = new LoadSaveTester( HashJoinMeta.class, attributes, getterMap, setterMap,
+      attrValidatorMap, new HashMap<String, FieldLoadSaveValidator<?>>() );
+    loadSaveTester.testSerialization();
+  }
+
+  @Test
+  public void testGetFields() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+
+    RowMeta outputRowMeta = new RowMeta();
+    outputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    outputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    RowMeta buildRowMeta = new RowMeta();
+    buildRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    buildRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+
+    meta.getFields( DefaultBowl.getInstance(), outputRowMeta, "Hash Join", new RowMetaInterface[] { buildRowMeta },
+      new StepMeta( "Hash Join", meta ), new Variables(), null, null );
+
+    assertArrayEquals( new String[] { "id", "name", "id_1", "description" }, outputRowMeta.getFieldNames() );
+  }
+
+  @Test
+  public void testClone() {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.allocate( 2 );
+    meta.setKeyFields( new String[] { "k1", "k2" } );
+    meta.setBuildKeyFields( new String[] { "b1", "b2" } );
+    meta.setJoinType( HashJoinMeta.join_types[3] );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setSubject( "build" );
+
+    HashJoinMeta aClone = (HashJoinMeta) meta.clone();
+    assertNotSame( meta, aClone );
+    assertNotSame( meta.getKeyFields(), aClone.getKeyFields() );
+    assertArrayEquals( meta.getKeyFields(), aClone.getKeyFields() );
+    assertArrayEquals( meta.getBuildKeyFields(), aClone.getBuildKeyFields() );
+    assertEquals( meta.getJoinType(), aClone.getJoinType() );
+    assertEquals( meta.getMemoryLimit(), aClone.getMemoryLimit() );
+    assertEquals( meta.getDirectory(), aClone.getDirectory() );
+
+    StreamInterface infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
+    StreamInterface cloneInfoStream = aClone.getStepIOMeta().getInfoStreams().get( 0 );
+    assertFalse( infoStream == cloneInfoStream );
+    assertEquals( infoStream.getSubject(), cloneInfoStream.getSubject() );
+  }
+}
@@ -0,0 +1,234 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinTable.SpillFile;
+
+public class HashJoinTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "Hash Join";
+  private static final String BUILD_STEP_NAME = "Build";
+
+  /** The build rows have keys 0 to NR_KEYS - 1, twice each, the main input rows have keys NR_KEYS / 2 and up */
+  private static final int NR_KEYS = 40000;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testInnerJoin() throws Exception {
+    assertJoin( "INNER", null );
+  }
+
+  @Test
+  public void testLeftOuterJoin() throws Exception {
+    assertJoin( "LEFT OUTER", null );
+  }
+
+  @Test
+  public void testRightOuterJoin() throws Exception {
+    assertJoin( "RIGHT OUTER", null );
+  }
+
+  @Test
+  public void testFullOuterJoin() throws Exception {
+    assertJoin( "FULL OUTER", null );
+  }
+
+  @Test
+  public void testInnerJoinSpilledPartitions() throws Exception {
+    assertJoin( "INNER", "1" );
+  }
+
+  @Test
+  public void testFullOuterJoinSpilledPartitions() throws Exception {
+    assertJoin( "FULL OUTER", "1" );
+  }
+
+  @Test
+  public void testPartitionNumbersAreSpread() {
+    int[] counts = new int[HashJoinTable.NR_PARTITIONS];
+    for ( int hashCode = 0; hashCode < 6400; hashCode++ ) {
+      counts[HashJoinTable.getPartitionNr( hashCode * 31 )]++;
+    }
+    for ( int count : counts ) {
+      assertTrue( count > 0 );
+    }
+  }
+
+  private void assertJoin( String joinType, String memoryLimit ) throws Exception {
+    int joinTypeNr = Const.indexOfString( joinType, HashJoinMeta.join_types );
+    boolean probeOuter = HashJoinMeta.probe_optionals[joinTypeNr];
+    boolean buildOuter = HashJoinMeta.build_optionals[joinTypeNr];
+
+    File tempDir = new File( System.getProperty( "java.io.tmpdir" ) );
+    int nrTempFiles = countTempFiles( tempDir );
+
+    List<Object[]> output = runStep( joinType, memoryLimit );
+
+    int nrJoined = 0;
+    int nrProbeOnly = 0;
+    int nrBuildOnly = 0;
+    for ( Object[] row : output ) {
+      if ( row[1] != null && row[3] != null ) {
+        nrJoined++;
+        assertEquals( row[0], row[2] );
+        assertEquals( "name" + row[0], row[1] );
+        assertTrue( ( (String) row[3] ).startsWith( "description" + row[2] + "/" ) );
+      } else if ( row[3] == null ) {
+        nrProbeOnly++;
+        assertNull( row[2] );
+      } else {
+        nrBuildOnly++;
+        assertNull( row[0] );
+      }
+    }
+
+    // The keys in common match two build rows, the null keys never match
+    //
+    assertEquals( NR_KEYS, nrJoined );
+    assertEquals( probeOuter ? NR_KEYS / 2 + 1 : 0, nrProbeOnly );
+    assertEquals( buildOuter ? NR_KEYS + 1 : 0, nrBuildOnly );
+    assertEquals( nrTempFiles, countTempFiles( tempDir ) );
+  }
+
+  private static int countTempFiles( File tempDir ) {
+    String[] names = tempDir.list( ( dir, name ) -> name.startsWith( "hashjoin" ) );
+    return names == null ? 0 : names.length;
+  }
+
+  private List<Object[]> runStep( String joinType, String memoryLimit ) throws KettleException {
+    RowMeta probeRowMeta = new RowMeta();
+    probeRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    probeRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    RowMeta buildRowMeta = new RowMeta();
+    buildRowMeta.addValueMeta( new ValueMetaInteger( "code" ) );
+    buildRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.allocate( 1 );
+    meta.getKeyFields()[0] = "id";
+    meta.getBuildKeyFields()[0] = "code";
+    meta.setJoinType( joinType );
+    meta.setMemoryLimit( memoryLimit );
+    StepMeta buildStepMeta = new StepMeta( BUILD_STEP_NAME, new DummyTransMeta() );
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( buildStepMeta );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+
+    HashJoinData data = new HashJoinData();
+    HashJoin step = spy( new HashJoin( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    step.initializeVariablesFrom( null );
+    doNothing().when( step ).setOutputDone();
+    doReturn( probeRowMeta ).when( step ).getInputRowMeta();
+
+    initData( step, meta, data );
+
+    RowSet buildRowSet = mock( RowSet.class );
+    when( buildRowSet.getRowMeta() ).thenReturn( buildRowMeta );
+    doReturn( buildRowSet ).when( step ).findInputRowSet( BUILD_STEP_NAME );
+    int[] buildRowNr = new int[1];
+    doAnswer( invocation -> {
+      int i = buildRowNr[0]++;
+      if ( i < 2 * NR_KEYS ) {
+        long key = i % NR_KEYS;
+        return new Object[] { key, "description" + key + "/" + i };
+      }
+      return i == 2 * NR_KEYS ? new Object[] { null, "no key" } : null;
+    } ).when( step ).getRowFrom( buildRowSet );
+
+    int[] probeRowNr = new int[1];
+    doAnswer( invocation -> {
+      int i = probeRowNr[0]++;
+      if ( i < NR_KEYS ) {
+        long key = NR_KEYS / 2 + i;
+        return new Object[] { key, "name" + key };
+      }
+      return i == NR_KEYS ? new Object[] { null, "no key" } : null;
+    } ).when( step ).getRow();
+
+    List<Object[]> output = new ArrayList<>();
+    doAnswer( invocation -> {
+      output.add( invocation.getArgument( 1 ) );
+      return null;
+    } ).when( step ).putRow( any(), any() );
+
+    while ( step.processRow( meta, data ) ) {
+      // Keep on joining
+    }
+    step.dispose( meta, data );
+
+    if ( memoryLimit == null ) {
+      verify( step, never() ).openSpillFile();
+    } else {
+      verify( step, atLeastOnce() ).openSpillFile();
+    }
+    return output;
+  }
+
+  /**
+   * Does what init() does for the data, without the rest of the engine.
+   */
+  private static void initData( HashJoin step, HashJoinMeta meta, HashJoinData data ) {
+    int joinType = Const.indexOfString( meta.getJoinType(), HashJoinMeta.join_types );
+    data.probeOuter = HashJoinMeta.probe_optionals[joinType];
+    data.buildOuter = HashJoinMeta.build_optionals[joinType];
+    data.infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
+    data.memoryLimit = meta.getMemoryLimit() == null ? 0L : Long.parseLong( meta.getMemoryLimit() ) * 1024 * 1024;
+    data.directory = step.environmentSubstitute( meta.getDirectory() );
+    data.probeFiles = new SpillFile[HashJoinTable.NR_PARTITIONS];
+  }
+}
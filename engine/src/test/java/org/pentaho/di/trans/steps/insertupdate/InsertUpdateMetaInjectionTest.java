@@ -84,6 +84,11 @@ public class InsertUpdateMetaInjectionTest extends BaseMetadataInjectionTest<Ins
         return meta.getUpdateFields()[ 0 ].getUpdate();
       }
     } );
+    check( "STAGING_TABLE", new StringGetter() {
+      public String get() {
+        return meta.getStagingTable();
+      }
+    } );
     skipPropertyTest( "CONNECTIONNAME" );
   }
 }
@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+public class MemoryGroupByMergeTest {
+
+  private static final int[] TYPES = new int[] {
+    MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, MemoryGroupByMeta.TYPE_GROUP_MEDIAN,
+    MemoryGroupByMeta.TYPE_GROUP_MIN, MemoryGroupByMeta.TYPE_GROUP_MAX, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+    MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY };
+
+  static StepMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  private MemoryGroupBy step;
+  private MemoryGroupByData data;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    mockHelper =
+      new StepMockHelper<>( "Memory Group By", MemoryGroupByMeta.class, MemoryGroupByData.class );
+    when( mockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, TYPES.length );
+    meta.getGroupField()[0] = "key";
+    for ( int i = 0; i < TYPES.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = TYPES[i];
+    }
+    when( mockHelper.stepMeta.getStepMetaInterface() ).thenReturn( meta );
+
+    data = new MemoryGroupByData();
+    data.inputRowMeta = new RowMeta();
+    data.inputRowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    data.inputRowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta( data.inputRowMeta.getValueMeta( 0 ) );
+    data.groupnrs = new int[] { 0 };
+    data.subjectnrs = new int[TYPES.length];
+    for ( int i = 0; i < TYPES.length; i++ ) {
+      data.subjectnrs[i] = 1;
+    }
+    data.map = new HashMap<>();
+
+    step = new MemoryGroupBy( mockHelper.stepMeta, data, 0, mockHelper.transMeta, mockHelper.trans );
+    step.newAggregate( null, null );
+  }
+
+  private Aggregate aggregate( double... values ) throws KettleException {
+    data.map = new HashMap<>();
+    for ( double value : values ) {
+      step.addToAggregate( new Object[] { 1L, value } );
+    }
+    return data.map.values().iterator().next();
+  }
+
+  @Test
+  public void testMergedAggregatesEqualAggregatesOfAllRows() throws KettleException {
+    Object[] expected = step.getAggregateResult( aggregate( 5.0, 1.5, 8.0, 1.5, -2.0, 7.25, 1.5 ) );
+
+    Aggregate merged = aggregate( 5.0, 1.5, 8.0 );
+    step.mergeAggregate( merged, aggregate( 1.5, -2.0 ) );
+    step.mergeAggregate( merged, aggregate( 7.25, 1.5 ) );
+    Object[] result = step.getAggregateResult( merged );
+
+    for ( int i = 0; i < TYPES.length; i++ ) {
+      if ( expected[i] instanceof Double ) {
+        assertEquals( "agg" + i, (Double) expected[i], (Double) result[i], 1e-9 );
+      } else {
+        assertEquals( "agg" + i, expected[i], result[i] );
+      }
+    }
+  }
+
+  @Test
+  public void testOrderDependentAggregatesAreNotMergeable() {
+    for ( int type : TYPES ) {
+      assertTrue( MemoryGroupByMeta.isMergeable( type ) );
+    }
+    assertFalse( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_FIRST ) );
+    assertFalse( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL ) );
+    assertFalse( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA ) );
+  }
+
+  @Test
+  public void testEveryGroupIsInOnePartition() throws Exception {
+    Map<HashEntry, Aggregate> copy1 = new HashMap<>();
+    Map<HashEntry, Aggregate> copy2 = new HashMap<>();
+    for ( long key = 0; key < 1000; key++ ) {
+      copy1.put( data.getHashEntry( new Object[] { key } ), new Aggregate() );
+      copy2.put( data.getHashEntry( new Object[] { key + 500 } ), new Aggregate() );
+    }
+
+    MemoryGroupByMerge merge = new MemoryGroupByMerge( 2 );
+    merge.addPartial( copy1 );
+    merge.addPartial( copy2 );
+    assertTrue( merge.await( mock( StepInterface.class ) ) );
+    assertFalse( merge.isEmpty() );
+
+    Map<Long, Integer> partitionOfKey = new HashMap<>();
+    int nrPartitions = 0;
+    for ( int partition = merge.nextPartition(); partition >= 0; partition = merge.nextPartition() ) {
+      nrPartitions++;
+      for ( List<Map.Entry<HashEntry, Aggregate>> groups : merge.getGroups( partition ) ) {
+        Set<Long> keys = new HashSet<>();
+        for ( Map.Entry<HashEntry, Aggregate> group : groups ) {
+          Long key = (Long) group.getKey().getGroupData()[0];
+          assertTrue( keys.add( key ) );
+          Integer previous = partitionOfKey.put( key, partition );
+          assertTrue( previous == null || previous == partition );
+        }
+      }
+    }
+    assertEquals( 2 * MemoryGroupByMerge.PARTITIONS_PER_COPY, nrPartitions );
+    assertEquals( 1500, partitionOfKey.size() );
+  }
+
+  @Test
+  public void testEmptyMerge() throws Exception {
+    MemoryGroupByMerge merge = new MemoryGroupByMerge( 1 );
+    merge.addPartial( new HashMap<>() );
+    assertTrue( merge.await( mock( StepInterface.class ) ) );
+    assertTrue( merge.isEmpty() );
+  }
+}
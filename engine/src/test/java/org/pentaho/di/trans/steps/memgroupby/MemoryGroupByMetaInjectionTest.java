@@ -63,5 +63,11 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
           return meta.isAlwaysGivingBackOneRow();
         }
       } );
+    check( "MERGINGCOPIES", new BooleanGetter() {
+        @Override
+        public boolean get() {
+          return meta.isMergingCopies();
+        }
+      } );
   }
 }
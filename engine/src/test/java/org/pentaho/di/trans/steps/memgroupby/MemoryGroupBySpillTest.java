@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testSpillPartitionsSpreadOverTheNextLevel() {
+    for ( int level = 0; level < 3; level++ ) {
+      int[] counts = new int[MemoryGroupBy.NR_SPILL_PARTITIONS];
+      for ( int hashCode = 0; hashCode < 16000; hashCode++ ) {
+        if ( level == 0 || MemoryGroupBy.getSpillPartitionNr( hashCode, level - 1 ) == 5 ) {
+          counts[MemoryGroupBy.getSpillPartitionNr( hashCode, level )]++;
+        }
+      }
+      for ( int count : counts ) {
+        assertTrue( "level " + level, count > 0 );
+      }
+    }
+  }
+
+  @Test
+  public void testEstimateValueSize() {
+    assertTrue( MemoryGroupBy.estimateValueSize( "abcdef" ) > MemoryGroupBy.estimateValueSize( "a" ) );
+    assertTrue( MemoryGroupBy.estimateValueSize( 1L ) > MemoryGroupBy.estimateValueSize( null ) );
+  }
+
+  @Test
+  public void testAggregateWithoutMemoryLimit() throws Exception {
+    List<Object[]> output = runStep( null, 1000, 3 );
+    assertEquals( 1000, output.size() );
+    assertGroups( output, 1000, 3 );
+  }
+
+  @Test
+  public void testAggregateSpilledGroups() throws Exception {
+    // At about 400 bytes a group 1 MB holds a few thousand groups, the spilled partitions are split up once more
+    //
+    int nrGroups = 100000;
+    File tempDir = new File( System.getProperty( "java.io.tmpdir" ) );
+    int nrTempFiles = countTempFiles( tempDir );
+
+    List<Object[]> output = runStep( "1", nrGroups, 2 );
+
+    assertEquals( nrGroups, output.size() );
+    assertGroups( output, nrGroups, 2 );
+    assertEquals( nrTempFiles, countTempFiles( tempDir ) );
+  }
+
+  private static int countTempFiles( File tempDir ) {
+    String[] names = tempDir.list( ( dir, name ) -> name.startsWith( "memgroupby" ) );
+    return names == null ? 0 : names.length;
+  }
+
+  /**
+   * Group g gets the values g, g + nrGroups, g + 2 * nrGroups, ...
+   */
+  private static void assertGroups( List<Object[]> output, int nrGroups, int rowsPerGroup ) {
+    Map<Long, Object[]> groups = new HashMap<>();
+    for ( Object[] row : output ) {
+      assertNull( groups.put( (Long) row[0], row ) );
+    }
+    for ( long g = 0; g < nrGroups; g++ ) {
+      Object[] row = groups.get( g );
+      long last = g + (long) ( rowsPerGroup - 1 ) * nrGroups;
+      assertEquals( rowsPerGroup * g + (long) nrGroups * rowsPerGroup * ( rowsPerGroup - 1 ) / 2, row[1] );
+      assertEquals( (long) rowsPerGroup, row[2] );
+      assertEquals( g, row[3] );
+      assertEquals( last, row[4] );
+    }
+  }
+
+  private List<Object[]> runStep( String memoryLimit, int nrGroups, int rowsPerGroup ) throws KettleException {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, 4 );
+    meta.getGroupField()[0] = "key";
+    int[] types = new int[] { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+      MemoryGroupByMeta.TYPE_GROUP_FIRST, MemoryGroupByMeta.TYPE_GROUP_LAST };
+    for ( int i = 0; i < types.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = types[i];
+    }
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.map = new HashMap<>();
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+
+    Variables variables = new Variables();
+    variables.initializeVariablesFrom( null );
+    if ( memoryLimit != null ) {
+      variables.setVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_LIMIT, memoryLimit );
+    }
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    step.copyVariablesFrom( variables );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    long[] rowNr = new long[1];
+    long nrRows = (long) nrGroups * rowsPerGroup;
+    doAnswer( invocation -> {
+      long i = rowNr[0]++;
+      return i < nrRows ? new Object[] { i % nrGroups, i } : null;
+    } ).when( step ).getRow();
+
+    List<Object[]> output = new ArrayList<>();
+    int[] maxGroupsInMemory = new int[1];
+    doAnswer( invocation -> {
+      output.add( invocation.getArgument( 1 ) );
+      maxGroupsInMemory[0] = Math.max( maxGroupsInMemory[0], data.map.size() );
+      return null;
+    } ).when( step ).putRow( any(), any() );
+
+    while ( step.processRow( meta, data ) ) {
+      // Keep on aggregating
+    }
+
+    if ( memoryLimit == null ) {
+      assertEquals( nrGroups, maxGroupsInMemory[0] );
+    } else {
+      assertTrue( maxGroupsInMemory[0] < nrGroups );
+    }
+    assertTrue( data.pendingPartitions.isEmpty() );
+    assertTrue( data.map.isEmpty() );
+    return output;
+  }
+}
@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LoserTreeTest {
+
+  private static List<Integer> merge( List<List<Integer>> sources ) {
+    Integer[] heads = new Integer[sources.size()];
+    int[] positions = new int[sources.size()];
+    for ( int i = 0; i < heads.length; i++ ) {
+      heads[i] = sources.get( i ).isEmpty() ? null : sources.get( i ).get( 0 );
+    }
+
+    List<Integer> merged = new ArrayList<>();
+    LoserTree<Integer> tree = new LoserTree<>( Comparator.naturalOrder(), heads );
+    while ( tree.peek() != null ) {
+      merged.add( tree.peek() );
+      int source = tree.getWinner();
+      List<Integer> values = sources.get( source );
+      positions[source]++;
+      tree.replaceWinner( positions[source] < values.size() ? values.get( positions[source] ) : null );
+    }
+    return merged;
+  }
+
+  @Test
+  public void testMergeSortedSources() {
+    Random random = new Random( 42 );
+    for ( int nrSources = 0; nrSources <= 17; nrSources++ ) {
+      List<List<Integer>> sources = new ArrayList<>();
+      List<Integer> expected = new ArrayList<>();
+      for ( int s = 0; s < nrSources; s++ ) {
+        List<Integer> values = new ArrayList<>();
+        int size = random.nextInt( 20 );
+        for ( int i = 0; i < size; i++ ) {
+          values.add( random.nextInt( 50 ) );
+        }
+        Collections.sort( values );
+        sources.add( values );
+        expected.addAll( values );
+      }
+      Collections.sort( expected );
+      assertEquals( "merging " + nrSources + " sources", expected, merge( sources ) );
+    }
+  }
+
+  @Test
+  public void testEqualValuesComeFromTheLowestSourceFirst() {
+    Integer[] heads = new Integer[] { null, 1000, 1000, 1000 };
+    LoserTree<Integer> tree = new LoserTree<>( Comparator.naturalOrder(), heads );
+    assertEquals( 1, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertEquals( 2, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertEquals( 3, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertNull( tree.peek() );
+  }
+}
@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class SortKeyPrefixTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final int[] FIELDNRS = new int[] { 0 };
+
+  private static RowMetaInterface rowMeta( ValueMetaInterface valueMeta ) {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMeta );
+    return rowMeta;
+  }
+
+  /**
+   * Whenever two prefixes differ they have to give the order of the full comparison.
+   */
+  private static void assertPrefixOrder( RowMetaInterface rowMeta, List<Object> values ) throws Exception {
+    SortKeyPrefix keyPrefix = SortKeyPrefix.create( rowMeta, FIELDNRS );
+    assertNotNull( keyPrefix );
+    for ( Object value1 : values ) {
+      Object[] row1 = new Object[] { value1 };
+      long prefix1 = keyPrefix.prefix( row1 );
+      for ( Object value2 : values ) {
+        Object[] row2 = new Object[] { value2 };
+        int cmp = Long.compareUnsigned( prefix1, keyPrefix.prefix( row2 ) );
+        if ( cmp != 0 ) {
+          assertEquals( value1 + " <> " + value2, Integer.signum( rowMeta.compare( row1, row2, FIELDNRS ) ), cmp );
+        }
+      }
+    }
+  }
+
+  private static void assertPrefixOrderBothWays( ValueMetaInterface valueMeta, List<Object> values )
+    throws Exception {
+    assertPrefixOrder( rowMeta( valueMeta ), values );
+    valueMeta.setSortedDescending( true );
+    assertPrefixOrder( rowMeta( valueMeta ), values );
+  }
+
+  @Test
+  public void testIntegers() throws Exception {
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( Long.MIN_VALUE );
+    values.add( Long.MAX_VALUE );
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 50; i++ ) {
+      values.add( random.nextBoolean() ? random.nextLong() : (long) random.nextInt( 10 ) - 5 );
+    }
+    assertPrefixOrderBothWays( new ValueMetaInteger( "key" ), values );
+  }
+
+  @Test
+  public void testNumbers() throws Exception {
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( -0.0 );
+    values.add( 0.0 );
+    values.add( Double.NaN );
+    values.add( Double.NEGATIVE_INFINITY );
+    values.add( Double.POSITIVE_INFINITY );
+    values.add( Double.MIN_VALUE );
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 50; i++ ) {
+      values.add( ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 20 ) - 10 ) );
+    }
+    assertPrefixOrderBothWays( new ValueMetaNumber( "key" ), values );
+  }
+
+  @Test
+  public void testDatesAndBooleans() throws Exception {
+    List<Object> dates = new ArrayList<>();
+    dates.add( null );
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 50; i++ ) {
+      dates.add( new Date( random.nextLong() % 100000000000000L ) );
+    }
+    assertPrefixOrderBothWays( new ValueMetaDate( "key" ), dates );
+
+    List<Object> booleans = new ArrayList<>();
+    booleans.add( null );
+    booleans.add( true );
+    booleans.add( false );
+    assertPrefixOrderBothWays( new ValueMetaBoolean( "key" ), booleans );
+  }
+
+  @Test
+  public void testStrings() throws Exception {
+    List<Object> values = new ArrayList<>();
+    values.add( null );
+    values.add( "" );
+    values.add( "\u0000" );
+    values.add( "a" );
+    values.add( "ab" );
+    values.add( "abc" );
+    values.add( "abcd" );
+    values.add( "abd" );
+    values.add( "B" );
+    values.add( "\uffff\uffff\uffff" );
+    values.add( "\ud83d\ude00" );
+    ValueMetaInterface valueMeta = new ValueMetaString( "key" );
+    valueMeta.setCollatorDisabled( true );
+    assertPrefixOrderBothWays( valueMeta, values );
+  }
+
+  @Test
+  public void testKeysWithoutPrefix() {
+    ValueMetaInterface collator = new ValueMetaString( "key" );
+    collator.setCollatorDisabled( false );
+    assertNull( SortKeyPrefix.create( rowMeta( collator ), FIELDNRS ) );
+
+    ValueMetaInterface caseInsensitive = new ValueMetaString( "key" );
+    caseInsensitive.setCollatorDisabled( true );
+    caseInsensitive.setCaseInsensitive( true );
+    assertNull( SortKeyPrefix.create( rowMeta( caseInsensitive ), FIELDNRS ) );
+
+    ValueMetaInterface customComparator =
+      new ValueMetaString( "key", ( a, b ) -> b.toString().compareTo( a.toString() ) );
+    assertNull( SortKeyPrefix.create( rowMeta( customComparator ), FIELDNRS ) );
+
+    assertNull( SortKeyPrefix.create( rowMeta( new ValueMetaBigNumber( "key" ) ), FIELDNRS ) );
+
+    ValueMetaInterface lazy = new ValueMetaInteger( "key" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertNull( SortKeyPrefix.create( rowMeta( lazy ), FIELDNRS ) );
+    assertNull( SortKeyPrefix.create( rowMeta( new ValueMetaInteger( "key" ) ), new int[0] ) );
+  }
+}
@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class SortRowsTest {
+
+  @Test
+  public void testEstimatedRowSizeGrowsWithTheValues() {
+    long empty = SortRows.estimateRowSize( new Object[ 3 ] );
+    assertEquals( 16L + 3 * 8L, empty );
+
+    long shortString = SortRows.estimateRowSize( new Object[] { "a", null, null } );
+    long longString = SortRows.estimateRowSize( new Object[] { "abcdefghijklmnopqrstuvwxyz", null, null } );
+    assertTrue( shortString > empty );
+    assertTrue( longString > shortString );
+
+    long values = SortRows.estimateRowSize( new Object[] { 1L, new Date(), new BigDecimal( "12345678901234567890" ) } );
+    assertTrue( values > empty + 3 * 16L );
+    assertTrue( SortRows.estimateRowSize( new Object[] { new byte[ 1000 ], null, null } ) > empty + 1000 );
+  }
+}
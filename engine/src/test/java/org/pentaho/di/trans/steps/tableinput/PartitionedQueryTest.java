@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableinput;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PartitionedQueryTest {
+
+  private DatabaseMeta databaseMeta;
+
+  @Before
+  public void setUp() {
+    databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+  }
+
+  @Test
+  public void splitsAnIntegerRange() throws Exception {
+    ValueMetaInteger splitMeta = new ValueMetaInteger( "id" );
+    assertEquals( Arrays.<Object>asList( 4L, 6L, 8L ), PartitionedQuery.getSplitPoints( splitMeta, 1L, 10L, 4 ) );
+
+    // A narrow range gets fewer partitions, an empty one none
+    //
+    assertEquals( Arrays.<Object>asList( 2L ), PartitionedQuery.getSplitPoints( splitMeta, 1L, 2L, 4 ) );
+    assertEquals( Collections.emptyList(), PartitionedQuery.getSplitPoints( splitMeta, 5L, 5L, 4 ) );
+    assertEquals( Collections.emptyList(), PartitionedQuery.getSplitPoints( splitMeta, null, null, 4 ) );
+    assertEquals( Collections.emptyList(), PartitionedQuery.getSplitPoints( splitMeta, 1L, 10L, 1 ) );
+
+    // Without overflows at the ends of the type
+    //
+    assertEquals( Arrays.<Object>asList( 0L ),
+      PartitionedQuery.getSplitPoints( splitMeta, Long.MIN_VALUE + 1, Long.MAX_VALUE, 2 ) );
+  }
+
+  @Test
+  public void splitsADateRange() throws Exception {
+    ValueMetaDate splitMeta = new ValueMetaDate( "created" );
+    assertEquals( Arrays.<Object>asList( new Date( 3000L ), new Date( 5000L ) ),
+      PartitionedQuery.getSplitPoints( splitMeta, new Date( 1000L ), new Date( 7000L ), 3 ) );
+  }
+
+  @Test( expected = KettleValueException.class )
+  public void splitsNumbersAndDatesOnly() throws Exception {
+    PartitionedQuery.getSplitPoints( new ValueMetaString( "name" ), "a", "z", 2 );
+  }
+
+  @Test
+  public void wrapsTheQueryInRanges() {
+    assertEquals( "SELECT MIN( id ), MAX( id ) FROM ( SELECT * FROM orders ) partitioned_query",
+      PartitionedQuery.getBoundsSQL( databaseMeta, "SELECT * FROM orders;", "id" ) );
+
+    List<PartitionedQuery.Partition> partitions = PartitionedQuery.getPartitions( databaseMeta,
+      "SELECT * FROM orders", "id", new ValueMetaInteger( "id" ), Arrays.<Object>asList( 4L, 8L ) );
+    assertEquals( 3, partitions.size() );
+    assertEquals( "SELECT * FROM ( SELECT * FROM orders ) partitioned_query WHERE ( id IS NULL OR id < ? )",
+      partitions.get( 0 ).sql );
+    assertArrayEquals( new Object[] { 4L }, partitions.get( 0 ).parameters );
+    assertEquals( "SELECT * FROM ( SELECT * FROM orders ) partitioned_query WHERE id >= ? AND id < ?",
+      partitions.get( 1 ).sql );
+    assertArrayEquals( new Object[] { 4L, 8L }, partitions.get( 1 ).parameters );
+    assertEquals( 2, partitions.get( 1 ).parametersMeta.size() );
+    assertEquals( "SELECT * FROM ( SELECT * FROM orders ) partitioned_query WHERE id >= ?",
+      partitions.get( 2 ).sql );
+    assertArrayEquals( new Object[] { 8L }, partitions.get( 2 ).parameters );
+
+    // Without split points the query is read as it is
+    //
+    partitions = PartitionedQuery.getPartitions( databaseMeta, "SELECT * FROM orders", "id",
+      new ValueMetaInteger( "id" ), Collections.emptyList() );
+    assertEquals( 1, partitions.size() );
+    assertEquals( "SELECT * FROM orders", partitions.get( 0 ).sql );
+    assertNull( partitions.get( 0 ).parametersMeta );
+  }
+
+  @Test
+  public void findsTheTableOfASimpleQuery() {
+    assertEquals( "orders", PartitionedQuery.getTableName( "SELECT id, total FROM orders" ) );
+    assertEquals( "sales.orders", PartitionedQuery.getTableName( "select *\nfrom sales.orders\nwhere total > 0;" ) );
+    assertNull( PartitionedQuery.getTableName( "SELECT * FROM orders o JOIN customers c ON o.customer = c.id" ) );
+    assertNull( PartitionedQuery.getTableName( "SELECT * FROM orders, customers" ) );
+  }
+
+  @Test
+  public void findsAnOrderByOfTheQuery() {
+    assertTrue( PartitionedQuery.hasOrderBy( "SELECT * FROM orders ORDER BY id;" ) );
+    assertTrue( PartitionedQuery.hasOrderBy( "select *\nfrom orders\norder  by total desc" ) );
+    assertTrue( PartitionedQuery.hasOrderBy( "SELECT * FROM ( SELECT id FROM orders ) o ORDER BY id" ) );
+    assertFalse( PartitionedQuery.hasOrderBy( "SELECT * FROM orders" ) );
+    assertFalse( PartitionedQuery.hasOrderBy( "SELECT * FROM ( SELECT id FROM orders ORDER BY id ) o" ) );
+    assertFalse( PartitionedQuery.hasOrderBy( "SELECT ROW_NUMBER() OVER ( ORDER BY id ) nr FROM orders" ) );
+    assertFalse( PartitionedQuery.hasOrderBy( "SELECT * FROM orders WHERE note = 'order by date'" ) );
+  }
+
+  @Test
+  public void readsThePartitionsOnOneConnection() throws Exception {
+    Database database = mockDatabase( 3 );
+    PartitionedQuery query = new PartitionedQuery( partitions( 3 ), new Database[] { database }, false );
+    query.start( "test", 10 );
+
+    assertEquals( Arrays.asList( 0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L ), readAll( query ) );
+    assertEquals( "id", query.getRowMeta().getValueMeta( 0 ).getName() );
+    query.close();
+  }
+
+  @Test
+  public void readsThePartitionsOnMoreConnections() throws Exception {
+    Database first = mockDatabase( 5 );
+    Database second = mockDatabase( 5 );
+    PartitionedQuery query = new PartitionedQuery( partitions( 5 ), new Database[] { first, second }, false );
+    query.start( "test", 2 );
+
+    Set<Long> ids = new HashSet<>( readAll( query ) );
+    assertEquals( 15, ids.size() );
+    for ( long id = 0; id < 15; id++ ) {
+      assertEquals( true, ids.contains( id ) );
+    }
+    query.close();
+  }
+
+  @Test( expected = KettleDatabaseException.class )
+  public void failsWhenAConnectionFails() throws Exception {
+    Database failing = mock( Database.class );
+    when( failing.openQuery( anyString(), any(), any(), anyInt(), anyBoolean() ) )
+      .thenThrow( new KettleDatabaseException( "lost connection" ) );
+    PartitionedQuery query =
+      new PartitionedQuery( partitions( 2 ), new Database[] { failing, failing }, false );
+    query.start( "test", 10 );
+    try {
+      readAll( query );
+    } finally {
+      query.close();
+    }
+  }
+
+  private List<PartitionedQuery.Partition> partitions( int nrPartitions ) {
+    List<PartitionedQuery.Partition> partitions = new ArrayList<>();
+    for ( int i = 0; i < nrPartitions; i++ ) {
+      partitions.add( new PartitionedQuery.Partition( "partition " + i, null, null ) );
+    }
+    return partitions;
+  }
+
+  /**
+   * Every partition i has the rows 3 * i to 3 * i + 2.
+   */
+  private Database mockDatabase( int nrPartitions ) throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    Database database = mock( Database.class );
+    when( database.getReturnRowMeta() ).thenReturn( rowMeta );
+    for ( int i = 0; i < nrPartitions; i++ ) {
+      ResultSet resultSet = mock( ResultSet.class );
+      long id = 3L * i;
+      when( database.openQuery( eq( "partition " + i ), any(), any(), anyInt(), anyBoolean() ) )
+        .thenReturn( resultSet );
+      when( database.getRow( resultSet, false ) )
+        .thenReturn( new Object[] { id }, new Object[] { id + 1 }, new Object[] { id + 2 }, null );
+    }
+    return database;
+  }
+
+  private List<Long> readAll( PartitionedQuery query ) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    for ( Object[] row = query.getRow(); row != null; row = query.getRow() ) {
+      ids.add( (Long) row[ 0 ] );
+    }
+    return ids;
+  }
+}
@@ -59,6 +59,31 @@ public class TableInputMetaInjectionTest extends BaseMetadataInjectionTest<Table
         return meta.isCachedRowMetaActive();
       }
     } );
+    check( "PARTITIONED_READ", new BooleanGetter() {
+      public boolean get() {
+        return meta.isPartitionedRead();
+      }
+    } );
+    check( "SPLIT_COLUMN", new StringGetter() {
+      public String get() {
+        return meta.getSplitColumn();
+      }
+    } );
+    check( "NR_PARTITIONS", new StringGetter() {
+      public String get() {
+        return meta.getNrPartitions();
+      }
+    } );
+    check( "NR_CONNECTIONS", new StringGetter() {
+      public String get() {
+        return meta.getNrConnections();
+      }
+    } );
+    check( "FETCH_SIZE", new StringGetter() {
+      public String get() {
+        return meta.getFetchSize();
+      }
+    } );
     skipPropertyTest( "CONNECTIONNAME" );
   }
 }
@@ -0,0 +1,182 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchWriterTest {
+
+  private RowMetaInterface insertRowMeta;
+  private PreparedStatement statement;
+  private BatchWriter writer;
+
+  @Before
+  public void setUp() {
+    insertRowMeta = new RowMeta();
+    insertRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    statement = mock( PreparedStatement.class );
+  }
+
+  @After
+  public void tearDown() {
+    if ( writer != null ) {
+      writer.close( false );
+    }
+  }
+
+  @Test
+  public void takesTheBatchesBackInOrder() throws Exception {
+    Database first = mockDatabase();
+    Database second = mockDatabase();
+    writer = new BatchWriter( Arrays.asList( first, second ), insertRowMeta, null, false, false, "test", 4 );
+
+    List<BatchWriter.Batch> batches = new ArrayList<>();
+    for ( int i = 0; i < 10; i++ ) {
+      BatchWriter.Batch batch = batch( i * 3L, 3 );
+      batches.add( batch );
+      writer.submit( batch );
+    }
+    for ( BatchWriter.Batch batch : batches ) {
+      BatchWriter.Batch written = writer.takeWritten( true );
+      assertTrue( batch == written );
+      assertEquals( 3, written.getWrittenRows().size() );
+      assertNull( written.getBatchException() );
+    }
+    assertNull( writer.takeWritten( true ) );
+    assertEquals( 0, writer.getNrInFlight() );
+
+    // Every batch is committed on its own and the statement is prepared once per connection
+    //
+    verify( first, times( 1 ) ).prepareSQL( anyString() );
+    verify( second, times( 1 ) ).prepareSQL( anyString() );
+    verify( statement, times( 10 ) ).executeBatch();
+  }
+
+  @Test
+  public void waitsForTheOldestBatchWithTooManyInFlight() throws Exception {
+    writer = new BatchWriter( Arrays.asList( mockDatabase() ), insertRowMeta, null, false, false, "test", 1 );
+    BatchWriter.Batch first = batch( 0L, 1 );
+    writer.submit( first );
+    writer.submit( batch( 1L, 1 ) );
+    assertTrue( first == writer.takeWritten( false ) );
+  }
+
+  @Test
+  public void skipsTheRowsThatFailWithErrorHandling() throws Exception {
+    Database db = mockDatabase();
+    doThrow( new KettleDatabaseException( "bad row" ) ).when( db )
+      .setValues( any( RowMetaInterface.class ), argThat( row -> row != null && (Long) row[ 0 ] == 1L ),
+        any( PreparedStatement.class ) );
+    writer = new BatchWriter( Arrays.asList( db ), insertRowMeta, null, true, false, "test", 2 );
+
+    writer.submit( batch( 0L, 3 ) );
+    BatchWriter.Batch written = writer.takeWritten( true );
+    assertEquals( 2, written.getWrittenRows().size() );
+    assertEquals( 1, written.getRowErrors().size() );
+    assertNotNull( written.getRowErrors().get( 1 ) );
+    verify( db ).commit();
+  }
+
+  @Test
+  public void rollsBackAFailingRowWithoutErrorHandling() throws Exception {
+    Database db = mockDatabase();
+    doThrow( new KettleDatabaseException( "bad row" ) ).when( db )
+      .setValues( any( RowMetaInterface.class ), any( Object[].class ), any( PreparedStatement.class ) );
+    writer = new BatchWriter( Arrays.asList( db ), insertRowMeta, null, false, false, "test", 2 );
+
+    writer.submit( batch( 0L, 3 ) );
+    try {
+      writer.takeWritten( true );
+      fail();
+    } catch ( KettleException e ) {
+      verify( db ).rollback();
+      verify( db, never() ).commit();
+    }
+  }
+
+  @Test
+  public void handsTheBatchFailureBackWithErrorHandling() throws Exception {
+    Database db = mockDatabase();
+    when( statement.executeBatch() ).thenThrow( new BatchUpdateException( "duplicate", new int[] { 1, -3, 1 } ) );
+    writer = new BatchWriter( Arrays.asList( db ), insertRowMeta, null, true, false, "test", 2 );
+
+    writer.submit( batch( 0L, 3 ) );
+    BatchWriter.Batch written = writer.takeWritten( true );
+    assertNotNull( written.getBatchException() );
+    assertEquals( 3, written.getBatchException().getUpdateCounts().length );
+    verify( db ).commit( true );
+  }
+
+  @Test( expected = KettleException.class )
+  public void rollsBackAFailingBatchWithoutErrorHandling() throws Exception {
+    Database db = mockDatabase();
+    when( statement.executeBatch() ).thenThrow( new BatchUpdateException( "duplicate", new int[] { 1, -3 } ) );
+    writer = new BatchWriter( Arrays.asList( db ), insertRowMeta, null, false, false, "test", 2 );
+
+    writer.submit( batch( 0L, 2 ) );
+    try {
+      writer.takeWritten( true );
+    } finally {
+      verify( db ).rollback();
+    }
+  }
+
+  private Database mockDatabase() throws Exception {
+    Database db = mock( Database.class );
+    when( db.getInsertStatement( any(), eq( "orders" ), any( RowMetaInterface.class ) ) )
+      .thenReturn( "INSERT INTO orders" );
+    when( db.prepareSQL( anyString() ) ).thenReturn( statement );
+    when( db.getUseBatchInsert( anyBoolean() ) ).thenReturn( true );
+    return db;
+  }
+
+  private BatchWriter.Batch batch( long firstId, int size ) {
+    BatchWriter.Batch batch = new BatchWriter.Batch( "orders" );
+    for ( long id = firstId; id < firstId + size; id++ ) {
+      Object[] row = new Object[] { id };
+      batch.add( row, row );
+    }
+    return batch;
+  }
+}
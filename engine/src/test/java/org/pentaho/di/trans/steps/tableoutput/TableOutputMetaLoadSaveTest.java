@@ -44,7 +44,8 @@ public class TableOutputMetaLoadSaveTest implements InitializerInterface<StepMet
     List<String> attributes =
         Arrays.asList( "databaseMeta", "schemaName", "tableName", "commitSize", "truncateTable", "ignoreErrors", "useBatchUpdate",
             "partitioningEnabled", "partitioningField", "partitioningDaily", "partitioningMonthly", "tableNameInField", "tableNameField",
-            "tableNameInTable", "returningGeneratedKeys", "generatedKeyField", "specifyFields", "fieldStream", "fieldDatabase" );
+            "tableNameInTable", "returningGeneratedKeys", "generatedKeyField", "specifyFields", "fieldStream", "fieldDatabase",
+            "writerConnections", "bulkWrite", "insertValuesRows" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
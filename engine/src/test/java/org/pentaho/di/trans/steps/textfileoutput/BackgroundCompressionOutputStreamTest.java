@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class BackgroundCompressionOutputStreamTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void writesTheBlocksInOrder() throws Exception {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    TestCompressionOutputStream compression = new TestCompressionOutputStream( target );
+    BackgroundCompressionOutputStream out = new BackgroundCompressionOutputStream( compression, executor, 2 );
+
+    byte[] buffer = new byte[ 10 ];
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for ( int i = 0; i < 100; i++ ) {
+      // The buffer is filled again after every write, like the buffered output stream does
+      //
+      for ( int j = 0; j < buffer.length; j++ ) {
+        buffer[ j ] = (byte) ( i + j );
+      }
+      out.write( buffer, 1, 8 );
+      expected.write( buffer, 1, 8 );
+      assertTrue( out.getNrInFlight() <= 2 );
+    }
+    out.write( 'x' );
+    expected.write( 'x' );
+
+    out.flush();
+    assertEquals( 0, out.getNrInFlight() );
+    assertTrue( compression.flushed );
+    assertArrayEquals( expected.toByteArray(), target.toByteArray() );
+    out.close();
+    assertTrue( compression.closed );
+  }
+
+  @Test
+  public void throwsTheFailureOfTheCompression() throws Exception {
+    TestCompressionOutputStream compression = new TestCompressionOutputStream( new OutputStream() {
+      @Override
+      public void write( int b ) throws IOException {
+        throw new IOException( "disk full" );
+      }
+    } );
+    BackgroundCompressionOutputStream out = new BackgroundCompressionOutputStream( compression, executor, 4 );
+    out.write( new byte[] { 1, 2, 3 } );
+    try {
+      out.close();
+      fail();
+    } catch ( IOException e ) {
+      assertEquals( "disk full", e.getMessage() );
+    }
+    assertTrue( compression.closed );
+  }
+
+  private static class TestCompressionOutputStream extends CompressionOutputStream {
+    private boolean flushed;
+    private boolean closed;
+
+    TestCompressionOutputStream( OutputStream out ) {
+      super( out, mock( CompressionProvider.class ) );
+    }
+
+    @Override
+    public void flush() throws IOException {
+      flushed = true;
+      super.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}
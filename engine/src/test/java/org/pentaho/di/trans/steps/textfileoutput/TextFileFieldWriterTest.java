@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.textfileoutput;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TextFileFieldWriterTest {
+
+  private static final byte[] SEPARATOR = { ';' };
+  private static final byte[] ENCLOSURE = { '"' };
+
+  @Test
+  public void writesIntegersLikeTheValueMetadata() throws Exception {
+    for ( String mask : new String[] { null, "#", "0", "000000" } ) {
+      ValueMetaInteger v = new ValueMetaInteger( "id" );
+      v.setConversionMask( mask );
+      TextFileFieldWriter writer = TextFileFieldWriter.getWriter( v, SEPARATOR, ENCLOSURE );
+      assertNotNull( mask, writer );
+
+      Random random = new Random( 1 );
+      assertWritten( v, writer, 0L );
+      assertWritten( v, writer, -7L );
+      assertWritten( v, writer, Long.MAX_VALUE );
+      assertWritten( v, writer, Long.MIN_VALUE );
+      for ( int i = 0; i < 10000; i++ ) {
+        assertWritten( v, writer, random.nextLong() >> random.nextInt( 64 ) );
+      }
+    }
+  }
+
+  @Test
+  public void writesDatesLikeTheValueMetadata() throws Exception {
+    for ( String mask : new String[] { null, "yyyy-MM-dd", "dd/MM/yyyy HH:mm:ss", "yyyyMMdd" } ) {
+      for ( String timeZone : new String[] { "UTC", "Europe/Brussels", "America/New_York", "Asia/Kolkata" } ) {
+        ValueMetaDate v = new ValueMetaDate( "created" );
+        v.setConversionMask( mask );
+        v.setDateFormatTimeZone( TimeZone.getTimeZone( timeZone ) );
+        TextFileFieldWriter writer = TextFileFieldWriter.getWriter( v, SEPARATOR, ENCLOSURE );
+        assertNotNull( mask, writer );
+
+        Random random = new Random( 1 );
+        for ( int i = 0; i < 10000; i++ ) {
+          // From 1944 to 2071, over the switches to and from daylight saving time
+          //
+          long time = (long) ( ( random.nextDouble() - 0.2 ) * 4000000000000L );
+          assertWritten( v, writer, new Date( time ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void leavesTheOtherValuesToTheValueMetadata() throws Exception {
+    ValueMetaDate v = new ValueMetaDate( "created" );
+    v.setConversionMask( "yyyy-MM-dd" );
+    TextFileFieldWriter writer = TextFileFieldWriter.getWriter( v, SEPARATOR, ENCLOSURE );
+    assertEquals( -1, writer.write( null ) );
+    assertEquals( -1, writer.write( "2024-01-01" ) );
+    assertEquals( -1, writer.write( new Date( -20000000000000L ) ) );
+  }
+
+  @Test
+  public void leavesTheOtherFormatsToTheValueMetadata() {
+    // Grouping, fractions, padding
+    //
+    assertNull( getWriter( new ValueMetaInteger( "id" ), "#,##0" ) );
+    assertNull( getWriter( new ValueMetaInteger( "id" ), "0.00" ) );
+    assertNull( getWriter( new ValueMetaInteger( "id" ), " 0000;-0000" ) );
+    ValueMetaInteger padded = new ValueMetaInteger( "id" );
+    padded.setLength( 20 );
+    padded.setOutputPaddingEnabled( true );
+    assertNull( getWriter( padded, "0" ) );
+
+    // Names, two digit years, quoted text
+    //
+    assertNull( getWriter( new ValueMetaDate( "created" ), "dd MMM yyyy" ) );
+    assertNull( getWriter( new ValueMetaDate( "created" ), "yy-MM-dd" ) );
+    assertNull( getWriter( new ValueMetaDate( "created" ), "yyyy-MM-dd'T'HH:mm" ) );
+
+    // Decimals and other storage
+    //
+    assertNull( getWriter( new ValueMetaNumber( "amount" ), null ) );
+    ValueMetaInteger binaryString = new ValueMetaInteger( "id" );
+    binaryString.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertNull( TextFileFieldWriter.getWriter( binaryString, SEPARATOR, ENCLOSURE ) );
+  }
+
+  @Test
+  public void neverWritesTheSeparatorOrAnotherEncoding() {
+    ValueMetaDate v = new ValueMetaDate( "created" );
+    v.setConversionMask( "yyyy-MM-dd" );
+    assertNull( TextFileFieldWriter.getWriter( v, new byte[] { '-' }, ENCLOSURE ) );
+    assertNull( TextFileFieldWriter.getWriter( new ValueMetaInteger( "id" ), SEPARATOR, new byte[] { '0' } ) );
+
+    ValueMetaInteger utf16 = new ValueMetaInteger( "id" );
+    utf16.setStringEncoding( "UTF-16" );
+    assertNull( TextFileFieldWriter.getWriter( utf16, SEPARATOR, ENCLOSURE ) );
+  }
+
+  private TextFileFieldWriter getWriter( ValueMetaInterface v, String mask ) {
+    v.setConversionMask( mask );
+    return TextFileFieldWriter.getWriter( v, SEPARATOR, ENCLOSURE );
+  }
+
+  private void assertWritten( ValueMetaInterface v, TextFileFieldWriter writer, Object value ) throws Exception {
+    int length = writer.write( value );
+    assertArrayEquals( String.valueOf( value ), v.getBinaryString( value ),
+      length < 0 ? null : Arrays.copyOf( writer.getBuffer(), length ) );
+  }
+}
@@ -93,6 +93,11 @@ public class UpdateMetaInjectionTest extends BaseMetadataInjectionTest<UpdateMet
         return meta.getUpdateStream()[0];
       }
     } );
+    check( "STAGING_TABLE", new StringGetter() {
+      public String get() {
+        return meta.getStagingTable();
+      }
+    } );
     skipPropertyTest( "CONNECTIONNAME" );
   }
 }
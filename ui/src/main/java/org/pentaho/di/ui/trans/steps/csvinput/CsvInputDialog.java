@@ -119,6 +119,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
   private boolean isReceivingInput;
   private Button wRunningInParallel;
   private Button wNewlinePossible;
+  private TextVar wParseThreads;
+  private Button wUnorderedOutput;
   private ComboVar wEncoding;
   private CCombo wFormat;
 
@@ -480,6 +482,46 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     } );
     lastControl = wNewlinePossible;
 
+    // The number of threads to parse a file with
+    //
+    Label wlParseThreads = new Label( shell, SWT.RIGHT );
+    wlParseThreads.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "PARSE_THREADS" ) ) );
+    props.setLook( wlParseThreads );
+    FormData fdlParseThreads = new FormData();
+    fdlParseThreads.top = new FormAttachment( lastControl, margin );
+    fdlParseThreads.left = new FormAttachment( 0, 0 );
+    fdlParseThreads.right = new FormAttachment( middle, -margin );
+    wlParseThreads.setLayoutData( fdlParseThreads );
+    wParseThreads = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wParseThreads.setToolTipText( BaseMessages.getString( PKG, inputMeta.getTooltip( "PARSE_THREADS" ) ) );
+    props.setLook( wParseThreads );
+    wParseThreads.addModifyListener( lsMod );
+    FormData fdParseThreads = new FormData();
+    fdParseThreads.top = new FormAttachment( lastControl, margin );
+    fdParseThreads.left = new FormAttachment( middle, 0 );
+    fdParseThreads.right = new FormAttachment( 100, 0 );
+    wParseThreads.setLayoutData( fdParseThreads );
+    lastControl = wParseThreads;
+
+    // Can the rows of the threads come out of order?
+    //
+    Label wlUnorderedOutput = new Label( shell, SWT.RIGHT );
+    wlUnorderedOutput.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "UNORDERED_OUTPUT" ) ) );
+    props.setLook( wlUnorderedOutput );
+    FormData fdlUnorderedOutput = new FormData();
+    fdlUnorderedOutput.top = new FormAttachment( lastControl, margin );
+    fdlUnorderedOutput.left = new FormAttachment( 0, 0 );
+    fdlUnorderedOutput.right = new FormAttachment( middle, -margin );
+    wlUnorderedOutput.setLayoutData( fdlUnorderedOutput );
+    wUnorderedOutput = new Button( shell, SWT.CHECK );
+    wUnorderedOutput.setToolTipText( BaseMessages.getString( PKG, inputMeta.getTooltip( "UNORDERED_OUTPUT" ) ) );
+    props.setLook( wUnorderedOutput );
+    FormData fdUnorderedOutput = new FormData();
+    fdUnorderedOutput.top = new FormAttachment( lastControl, margin );
+    fdUnorderedOutput.left = new FormAttachment( middle, 0 );
+    wUnorderedOutput.setLayoutData( fdUnorderedOutput );
+    lastControl = wUnorderedOutput;
+
     // Format
     Label wlFormat = new Label( shell, SWT.RIGHT );
     wlFormat.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "FORMAT" ) ) );
@@ -778,6 +820,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wHeaderPresent.setSelection( inputMeta.isHeaderPresent() );
     wRunningInParallel.setSelection( inputMeta.isRunningInParallel() );
     wNewlinePossible.setSelection( inputMeta.isNewlinePossibleInFields() );
+    wParseThreads.setText( Const.NVL( inputMeta.getParseThreads(), "" ) );
+    wUnorderedOutput.setSelection( inputMeta.isUnorderedOutput() );
     wRowNumField.setText( Const.NVL( inputMeta.getRowNumField(), "" ) );
     wAddResult.setSelection( inputMeta.isAddResultFile() );
     wFormat.setText( Const.NVL( inputMeta.getFileFormat(), "" ) );
@@ -837,6 +881,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     inputMeta.setAddResultFile( wAddResult.getSelection() );
     inputMeta.setRunningInParallel( wRunningInParallel.getSelection() );
     inputMeta.setNewlinePossibleInFields( wNewlinePossible.getSelection() );
+    inputMeta.setParseThreads( wParseThreads.getText() );
+    inputMeta.setUnorderedOutput( wUnorderedOutput.getSelection() );
     inputMeta.setFileFormat( wFormat.getText() );
     inputMeta.setEncoding( wEncoding.getText() );
 
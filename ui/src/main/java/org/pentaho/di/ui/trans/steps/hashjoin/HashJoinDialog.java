@@ -0,0 +1,433 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.ui.trans.steps.hashjoin;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinMeta;
+import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterFileDialogTextVar;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterOptions;
+import org.pentaho.di.ui.core.events.dialog.SelectionOperation;
+import org.pentaho.di.ui.core.widget.ColumnInfo;
+import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+
+public class HashJoinDialog extends BaseStepDialog implements StepDialogInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private Label wlBuildStep;
+  private CCombo wBuildStep;
+  private FormData fdlBuildStep, fdBuildStep;
+
+  private Label wlType;
+  private CCombo wType;
+  private FormData fdlType, fdType;
+
+  private Label wlMemoryLimit;
+  private TextVar wMemoryLimit;
+  private FormData fdlMemoryLimit, fdMemoryLimit;
+
+  private Label wlDirectory;
+  private Button wbDirectory;
+  private TextVar wDirectory;
+  private FormData fdlDirectory, fdbDirectory, fdDirectory;
+
+  private Label wlKeys;
+  private TableView wKeys;
+  private FormData fdlKeys, fdKeys;
+
+  private Button wGetFields, wGetBuildFields;
+
+  private HashJoinMeta input;
+
+  public HashJoinDialog( Shell parent, Object in, TransMeta tr, String sname ) {
+    super( parent, (BaseStepMeta) in, tr, sname );
+    input = (HashJoinMeta) in;
+  }
+
+  @Override
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MIN | SWT.MAX );
+    props.setLook( shell );
+    setShellImage( shell, input );
+
+    ModifyListener lsMod = new ModifyListener() {
+      @Override
+      public void modifyText( ModifyEvent e ) {
+        input.setChanged();
+      }
+    };
+    backupChanged = input.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+
+    shell.setLayout( formLayout );
+    shell.setText( BaseMessages.getString( PKG, "HashJoinDialog.Shell.Label" ) );
+
+    int middle = props.getMiddlePct();
+    int margin = Const.MARGIN;
+
+    // Stepname line
+    wlStepname = new Label( shell, SWT.RIGHT );
+    wlStepname.setText( BaseMessages.getString( PKG, "HashJoinDialog.Stepname.Label" ) );
+    props.setLook( wlStepname );
+    fdlStepname = new FormData();
+    fdlStepname.left = new FormAttachment( 0, 0 );
+    fdlStepname.right = new FormAttachment( middle, -margin );
+    fdlStepname.top = new FormAttachment( 0, margin );
+    wlStepname.setLayoutData( fdlStepname );
+    wStepname = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStepname.setText( stepname );
+    props.setLook( wStepname );
+    wStepname.addModifyListener( lsMod );
+    fdStepname = new FormData();
+    fdStepname.left = new FormAttachment( middle, 0 );
+    fdStepname.top = new FormAttachment( 0, margin );
+    fdStepname.right = new FormAttachment( 100, 0 );
+    wStepname.setLayoutData( fdStepname );
+
+    // The step to read the build rows from
+    wlBuildStep = new Label( shell, SWT.RIGHT );
+    wlBuildStep.setText( BaseMessages.getString( PKG, "HashJoinDialog.BuildStep.Label" ) );
+    props.setLook( wlBuildStep );
+    fdlBuildStep = new FormData();
+    fdlBuildStep.left = new FormAttachment( 0, 0 );
+    fdlBuildStep.right = new FormAttachment( middle, -margin );
+    fdlBuildStep.top = new FormAttachment( wStepname, margin );
+    wlBuildStep.setLayoutData( fdlBuildStep );
+    wBuildStep = new CCombo( shell, SWT.BORDER );
+    props.setLook( wBuildStep );
+
+    String[] previousSteps = transMeta.getPrevStepNames( stepname );
+    if ( previousSteps != null ) {
+      wBuildStep.setItems( previousSteps );
+    }
+
+    wBuildStep.addModifyListener( lsMod );
+    fdBuildStep = new FormData();
+    fdBuildStep.left = new FormAttachment( middle, 0 );
+    fdBuildStep.top = new FormAttachment( wStepname, margin );
+    fdBuildStep.right = new FormAttachment( 100, 0 );
+    wBuildStep.setLayoutData( fdBuildStep );
+
+    // Join type
+    wlType = new Label( shell, SWT.RIGHT );
+    wlType.setText( BaseMessages.getString( PKG, "HashJoinDialog.Type.Label" ) );
+    props.setLook( wlType );
+    fdlType = new FormData();
+    fdlType.left = new FormAttachment( 0, 0 );
+    fdlType.right = new FormAttachment( middle, -margin );
+    fdlType.top = new FormAttachment( wBuildStep, margin );
+    wlType.setLayoutData( fdlType );
+    wType = new CCombo( shell, SWT.BORDER );
+    props.setLook( wType );
+
+    wType.setItems( HashJoinMeta.join_types );
+
+    wType.addModifyListener( lsMod );
+    fdType = new FormData();
+    fdType.top = new FormAttachment( wBuildStep, margin );
+    fdType.left = new FormAttachment( middle, 0 );
+    fdType.right = new FormAttachment( 100, 0 );
+    wType.setLayoutData( fdType );
+
+    // Memory limit of the build rows
+    wlMemoryLimit = new Label( shell, SWT.RIGHT );
+    wlMemoryLimit.setText( BaseMessages.getString( PKG, "HashJoinDialog.MemoryLimit.Label" ) );
+    wlMemoryLimit.setToolTipText( BaseMessages.getString( PKG, "HashJoinDialog.MemoryLimit.ToolTip" ) );
+    props.setLook( wlMemoryLimit );
+    fdlMemoryLimit = new FormData();
+    fdlMemoryLimit.left = new FormAttachment( 0, 0 );
+    fdlMemoryLimit.right = new FormAttachment( middle, -margin );
+    fdlMemoryLimit.top = new FormAttachment( wType, margin );
+    wlMemoryLimit.setLayoutData( fdlMemoryLimit );
+    wMemoryLimit = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMemoryLimit );
+    wMemoryLimit.addModifyListener( lsMod );
+    fdMemoryLimit = new FormData();
+    fdMemoryLimit.left = new FormAttachment( middle, 0 );
+    fdMemoryLimit.top = new FormAttachment( wType, margin );
+    fdMemoryLimit.right = new FormAttachment( 100, 0 );
+    wMemoryLimit.setLayoutData( fdMemoryLimit );
+
+    // Temp directory for the spilled rows
+    wlDirectory = new Label( shell, SWT.RIGHT );
+    wlDirectory.setText( BaseMessages.getString( PKG, "HashJoinDialog.Directory.Label" ) );
+    props.setLook( wlDirectory );
+    fdlDirectory = new FormData();
+    fdlDirectory.left = new FormAttachment( 0, 0 );
+    fdlDirectory.right = new FormAttachment( middle, -margin );
+    fdlDirectory.top = new FormAttachment( wMemoryLimit, margin );
+    wlDirectory.setLayoutData( fdlDirectory );
+
+    wbDirectory = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbDirectory );
+    wbDirectory.setText( BaseMessages.getString( PKG, "System.Button.Browse" ) );
+    fdbDirectory = new FormData();
+    fdbDirectory.right = new FormAttachment( 100, 0 );
+    fdbDirectory.top = new FormAttachment( wMemoryLimit, margin );
+    wbDirectory.setLayoutData( fdbDirectory );
+
+    wDirectory = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wDirectory );
+    wDirectory.addModifyListener( lsMod );
+    fdDirectory = new FormData();
+    fdDirectory.left = new FormAttachment( middle, 0 );
+    fdDirectory.top = new FormAttachment( wMemoryLimit, margin );
+    fdDirectory.right = new FormAttachment( wbDirectory, -margin );
+    wDirectory.setLayoutData( fdDirectory );
+
+    wbDirectory.addSelectionListener( new SelectionAdapterFileDialogTextVar( log, wDirectory, transMeta,
+      new SelectionAdapterOptions( transMeta.getBowl(), SelectionOperation.FOLDER ) ) );
+
+    // THE KEYS TO JOIN ON
+    wlKeys = new Label( shell, SWT.NONE );
+    wlKeys.setText( BaseMessages.getString( PKG, "HashJoinDialog.Keys.Label" ) );
+    props.setLook( wlKeys );
+    fdlKeys = new FormData();
+    fdlKeys.left = new FormAttachment( 0, 0 );
+    fdlKeys.top = new FormAttachment( wbDirectory, margin );
+    wlKeys.setLayoutData( fdlKeys );
+
+    int nrKeyRows = ( input.getKeyFields() != null ? input.getKeyFields().length : 1 );
+
+    ColumnInfo[] ciKeys =
+      new ColumnInfo[] {
+        new ColumnInfo(
+          BaseMessages.getString( PKG, "HashJoinDialog.ColumnInfo.Field" ), ColumnInfo.COLUMN_TYPE_TEXT, false ),
+        new ColumnInfo(
+          BaseMessages.getString( PKG, "HashJoinDialog.ColumnInfo.BuildField" ), ColumnInfo.COLUMN_TYPE_TEXT,
+          false ), };
+
+    wKeys =
+      new TableView(
+        transMeta, shell, SWT.BORDER | SWT.FULL_SELECTION | SWT.MULTI | SWT.V_SCROLL | SWT.H_SCROLL, ciKeys,
+        nrKeyRows, lsMod, props );
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wGetFields = new Button( shell, SWT.PUSH );
+    wGetFields.setText( BaseMessages.getString( PKG, "HashJoinDialog.GetFields.Button" ) );
+    wGetBuildFields = new Button( shell, SWT.PUSH );
+    wGetBuildFields.setText( BaseMessages.getString( PKG, "HashJoinDialog.BuildFields.Button" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+
+    setButtonPositions( new Button[] { wOK, wGetFields, wGetBuildFields, wCancel }, margin, null );
+
+    fdKeys = new FormData();
+    fdKeys.top = new FormAttachment( wlKeys, margin );
+    fdKeys.left = new FormAttachment( 0, 0 );
+    fdKeys.bottom = new FormAttachment( wOK, -2 * margin );
+    fdKeys.right = new FormAttachment( 100, 0 );
+    wKeys.setLayoutData( fdKeys );
+
+    // Add listeners
+    lsCancel = new Listener() {
+      @Override
+      public void handleEvent( Event e ) {
+        cancel();
+      }
+    };
+    lsOK = new Listener() {
+      @Override
+      public void handleEvent( Event e ) {
+        ok();
+      }
+    };
+
+    wCancel.addListener( SWT.Selection, lsCancel );
+    wOK.addListener( SWT.Selection, lsOK );
+    wGetFields.addListener( SWT.Selection, new Listener() {
+      @Override
+      public void handleEvent( Event e ) {
+        getFields();
+      }
+    } );
+    wGetBuildFields.addListener( SWT.Selection, new Listener() {
+      @Override
+      public void handleEvent( Event e ) {
+        getBuildFields();
+      }
+    } );
+
+    lsDef = new SelectionAdapter() {
+      @Override
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+
+    wStepname.addSelectionListener( lsDef );
+    wMemoryLimit.addSelectionListener( lsDef );
+    wDirectory.addSelectionListener( lsDef );
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      @Override
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+
+    getData();
+    input.setChanged( backupChanged );
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  /**
+   * Copy information from the meta-data input to the dialog fields.
+   */
+  public void getData() {
+    StreamInterface infoStream = input.getStepIOMeta().getInfoStreams().get( 0 );
+
+    wBuildStep.setText( Const.NVL( infoStream.getStepname(), "" ) );
+    String joinType = input.getJoinType();
+    if ( joinType != null && joinType.length() > 0 ) {
+      wType.setText( joinType );
+    } else {
+      wType.setText( HashJoinMeta.join_types[0] );
+    }
+    wMemoryLimit.setText( Const.NVL( input.getMemoryLimit(), "" ) );
+    wDirectory.setText( Const.NVL( input.getDirectory(), "" ) );
+
+    for ( int i = 0; i < input.getKeyFields().length; i++ ) {
+      TableItem item = wKeys.table.getItem( i );
+      if ( input.getKeyFields()[i] != null ) {
+        item.setText( 1, input.getKeyFields()[i] );
+      }
+      if ( input.getBuildKeyFields()[i] != null ) {
+        item.setText( 2, input.getBuildKeyFields()[i] );
+      }
+    }
+
+    wKeys.setRowNums();
+    wKeys.optWidth( true );
+
+    wStepname.selectAll();
+    wStepname.setFocus();
+  }
+
+  private void cancel() {
+    stepname = null;
+    input.setChanged( backupChanged );
+    dispose();
+  }
+
+  private void getMeta( HashJoinMeta meta ) {
+    StreamInterface infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
+    infoStream.setStepMeta( transMeta.findStep( wBuildStep.getText() ) );
+
+    meta.setJoinType( wType.getText() );
+    meta.setMemoryLimit( wMemoryLimit.getText() );
+    meta.setDirectory( wDirectory.getText() );
+
+    int nrKeys = wKeys.nrNonEmpty();
+
+    meta.allocate( nrKeys );
+
+    //CHECKSTYLE:Indentation:OFF
+    for ( int i = 0; i < nrKeys; i++ ) {
+      TableItem item = wKeys.getNonEmpty( i );
+      meta.getKeyFields()[i] = item.getText( 1 );
+      meta.getBuildKeyFields()[i] = item.getText( 2 );
+    }
+  }
+
+  private void ok() {
+    if ( Utils.isEmpty( wStepname.getText() ) ) {
+      return;
+    }
+
+    getMeta( input );
+
+    stepname = wStepname.getText(); // return value
+
+    dispose();
+  }
+
+  private void getFields() {
+    try {
+      RowMetaInterface prev = transMeta.getPrevStepFields( stepname );
+      if ( prev != null ) {
+        BaseStepDialog.getFieldsFromPrevious( prev, wKeys, 1, new int[] { 1 }, new int[] {}, -1, -1, null );
+      }
+    } catch ( KettleException e ) {
+      new ErrorDialog(
+        shell, BaseMessages.getString( PKG, "HashJoinDialog.ErrorGettingFields.DialogTitle" ), BaseMessages
+          .getString( PKG, "HashJoinDialog.ErrorGettingFields.DialogMessage" ), e );
+    }
+  }
+
+  private void getBuildFields() {
+    try {
+      StepMeta buildStep = transMeta.findStep( wBuildStep.getText() );
+      if ( buildStep != null ) {
+        RowMetaInterface build = transMeta.getStepFields( buildStep );
+        if ( build != null ) {
+          BaseStepDialog.getFieldsFromPrevious( build, wKeys, 2, new int[] { 2 }, new int[] {}, -1, -1, null );
+        }
+      }
+    } catch ( KettleException e ) {
+      new ErrorDialog(
+        shell, BaseMessages.getString( PKG, "HashJoinDialog.ErrorGettingFields.DialogTitle" ), BaseMessages
+          .getString( PKG, "HashJoinDialog.ErrorGettingFields.DialogMessage" ), e );
+    }
+  }
+}
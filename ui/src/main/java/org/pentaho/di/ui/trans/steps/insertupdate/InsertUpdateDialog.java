@@ -102,6 +102,10 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
   private Button wUpdateBypassed;
   private FormData fdlUpdateBypassed, fdUpdateBypassed;
 
+  private Label wlStagingTable;
+  private TextVar wStagingTable;
+  private FormData fdlStagingTable, fdStagingTable;
+
   private Button wGetLU;
   private FormData fdGetLU;
   private Listener lsGetLU;
@@ -282,12 +286,31 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
     wUpdateBypassed.setLayoutData( fdUpdateBypassed );
     wUpdateBypassed.addSelectionListener( new ComponentSelectionListener( input ) );
 
+    // Staging table line
+    wlStagingTable = new Label( shell, SWT.RIGHT );
+    wlStagingTable.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.StagingTable.Label" ) );
+    props.setLook( wlStagingTable );
+    fdlStagingTable = new FormData();
+    fdlStagingTable.left = new FormAttachment( 0, 0 );
+    fdlStagingTable.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlStagingTable.right = new FormAttachment( middle, -margin );
+    wlStagingTable.setLayoutData( fdlStagingTable );
+    wStagingTable = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStagingTable.setToolTipText( BaseMessages.getString( PKG, "InsertUpdateDialog.StagingTable.Tooltip" ) );
+    props.setLook( wStagingTable );
+    wStagingTable.addModifyListener( lsMod );
+    fdStagingTable = new FormData();
+    fdStagingTable.left = new FormAttachment( middle, 0 );
+    fdStagingTable.top = new FormAttachment( wUpdateBypassed, margin );
+    fdStagingTable.right = new FormAttachment( 100, 0 );
+    wStagingTable.setLayoutData( fdStagingTable );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.Keys.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlKey.top = new FormAttachment( wStagingTable, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -467,6 +490,7 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
+    wStagingTable.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -656,6 +680,7 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
 
     wCommit.setText( input.getCommitSizeVar() );
     wUpdateBypassed.setSelection( input.isUpdateBypassed() );
+    wStagingTable.setText( Const.NVL( input.getStagingTable(), "" ) );
 
     if ( input.getKeyFields() != null ) {
       for ( int i = 0; i < input.getKeyFields().length; i++ ) {
@@ -728,6 +753,7 @@ public class InsertUpdateDialog extends BaseStepDialog implements StepDialogInte
 
     inf.setCommitSize( wCommit.getText() );
     inf.setUpdateBypassed( wUpdateBypassed.getSelection() );
+    inf.setStagingTable( wStagingTable.getText() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "InsertUpdateDialog.Log.FoundKeys", nrkeys + "" ) );
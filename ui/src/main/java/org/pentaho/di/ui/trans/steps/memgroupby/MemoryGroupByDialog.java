@@ -68,6 +68,10 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
   private Button wAlwaysAddResult;
   private FormData fdlAlwaysAddResult, fdAlwaysAddResult;
 
+  private Label wlMergeCopies;
+  private Button wMergeCopies;
+  private FormData fdlMergeCopies, fdMergeCopies;
+
   private Button wGet, wGetAgg;
   private FormData fdGet, fdGetAgg;
   private Listener lsGet, lsGetAgg;
@@ -159,12 +163,33 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wAlwaysAddResult.setLayoutData( fdAlwaysAddResult );
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // Let the step copies merge their groups
+    //
+    wlMergeCopies = new Label( shell, SWT.RIGHT );
+    wlMergeCopies.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MergeCopies.Label" ) );
+    wlMergeCopies.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MergeCopies.ToolTip" ) );
+    props.setLook( wlMergeCopies );
+    fdlMergeCopies = new FormData();
+    fdlMergeCopies.left = new FormAttachment( 0, 0 );
+    fdlMergeCopies.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlMergeCopies.right = new FormAttachment( middle, -margin );
+    wlMergeCopies.setLayoutData( fdlMergeCopies );
+    wMergeCopies = new Button( shell, SWT.CHECK );
+    wMergeCopies.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MergeCopies.ToolTip" ) );
+    props.setLook( wMergeCopies );
+    fdMergeCopies = new FormData();
+    fdMergeCopies.left = new FormAttachment( middle, 0 );
+    fdMergeCopies.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdMergeCopies.right = new FormAttachment( 100, 0 );
+    wMergeCopies.setLayoutData( fdMergeCopies );
+    wMergeCopies.addSelectionListener( lsSel );
+
     wlGroup = new Label( shell, SWT.NONE );
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook( wlGroup );
     fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlGroup.top = new FormAttachment( wMergeCopies, margin );
     wlGroup.setLayoutData( fdlGroup );
 
     int nrKeyCols = 1;
@@ -366,6 +391,7 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wMergeCopies.setSelection( input.isMergingCopies() );
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -416,6 +442,7 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     int nrfields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setMergingCopies( wMergeCopies.getSelection() );
 
     input.allocate( sizegroup, nrfields );
 
@@ -101,6 +101,21 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
   private Button wCachedRowMeta;
   private FormData fdlCachedRowMeta, fdCachedRowMeta;
 
+  private Label wlPartitionedRead;
+  private Button wPartitionedRead;
+
+  private Label wlSplitColumn;
+  private TextVar wSplitColumn;
+
+  private Label wlNrPartitions;
+  private TextVar wNrPartitions;
+
+  private Label wlNrConnections;
+  private TextVar wNrConnections;
+
+  private Label wlFetchSize;
+  private TextVar wFetchSize;
+
   private Button wbTable;
   private FormData fdbTable;
   private Listener lsbTable;
@@ -179,6 +194,103 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
 
     setButtonPositions( new Button[] { wOK, wPreview, wCancel }, margin, null );
 
+    // Fetch size ...
+    wlFetchSize = new Label( shell, SWT.RIGHT );
+    wlFetchSize.setText( BaseMessages.getString( PKG, "TableInputDialog.FetchSize" ) );
+    props.setLook( wlFetchSize );
+    FormData fdlFetchSize = new FormData();
+    fdlFetchSize.left = new FormAttachment( 0, 0 );
+    fdlFetchSize.right = new FormAttachment( middle, -margin );
+    fdlFetchSize.bottom = new FormAttachment( wOK, -2 * margin );
+    wlFetchSize.setLayoutData( fdlFetchSize );
+    wFetchSize = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wFetchSize );
+    wFetchSize.addModifyListener( lsMod );
+    FormData fdFetchSize = new FormData();
+    fdFetchSize.left = new FormAttachment( middle, 0 );
+    fdFetchSize.right = new FormAttachment( 100, 0 );
+    fdFetchSize.bottom = new FormAttachment( wOK, -2 * margin );
+    wFetchSize.setLayoutData( fdFetchSize );
+
+    // Connections per step copy ...
+    wlNrConnections = new Label( shell, SWT.RIGHT );
+    wlNrConnections.setText( BaseMessages.getString( PKG, "TableInputDialog.NrConnections" ) );
+    props.setLook( wlNrConnections );
+    FormData fdlNrConnections = new FormData();
+    fdlNrConnections.left = new FormAttachment( 0, 0 );
+    fdlNrConnections.right = new FormAttachment( middle, -margin );
+    fdlNrConnections.bottom = new FormAttachment( wFetchSize, -margin );
+    wlNrConnections.setLayoutData( fdlNrConnections );
+    wNrConnections = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wNrConnections );
+    wNrConnections.addModifyListener( lsMod );
+    FormData fdNrConnections = new FormData();
+    fdNrConnections.left = new FormAttachment( middle, 0 );
+    fdNrConnections.right = new FormAttachment( 100, 0 );
+    fdNrConnections.bottom = new FormAttachment( wFetchSize, -margin );
+    wNrConnections.setLayoutData( fdNrConnections );
+
+    // Number of partitions ...
+    wlNrPartitions = new Label( shell, SWT.RIGHT );
+    wlNrPartitions.setText( BaseMessages.getString( PKG, "TableInputDialog.NrPartitions" ) );
+    props.setLook( wlNrPartitions );
+    FormData fdlNrPartitions = new FormData();
+    fdlNrPartitions.left = new FormAttachment( 0, 0 );
+    fdlNrPartitions.right = new FormAttachment( middle, -margin );
+    fdlNrPartitions.bottom = new FormAttachment( wNrConnections, -margin );
+    wlNrPartitions.setLayoutData( fdlNrPartitions );
+    wNrPartitions = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wNrPartitions );
+    wNrPartitions.addModifyListener( lsMod );
+    FormData fdNrPartitions = new FormData();
+    fdNrPartitions.left = new FormAttachment( middle, 0 );
+    fdNrPartitions.right = new FormAttachment( 100, 0 );
+    fdNrPartitions.bottom = new FormAttachment( wNrConnections, -margin );
+    wNrPartitions.setLayoutData( fdNrPartitions );
+
+    // Split column ...
+    wlSplitColumn = new Label( shell, SWT.RIGHT );
+    wlSplitColumn.setText( BaseMessages.getString( PKG, "TableInputDialog.SplitColumn" ) );
+    props.setLook( wlSplitColumn );
+    FormData fdlSplitColumn = new FormData();
+    fdlSplitColumn.left = new FormAttachment( 0, 0 );
+    fdlSplitColumn.right = new FormAttachment( middle, -margin );
+    fdlSplitColumn.bottom = new FormAttachment( wNrPartitions, -margin );
+    wlSplitColumn.setLayoutData( fdlSplitColumn );
+    wSplitColumn = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSplitColumn );
+    wSplitColumn.addModifyListener( lsMod );
+    FormData fdSplitColumn = new FormData();
+    fdSplitColumn.left = new FormAttachment( middle, 0 );
+    fdSplitColumn.right = new FormAttachment( 100, 0 );
+    fdSplitColumn.bottom = new FormAttachment( wNrPartitions, -margin );
+    wSplitColumn.setLayoutData( fdSplitColumn );
+
+    // Partitioned read?
+    //
+    wlPartitionedRead = new Label( shell, SWT.RIGHT );
+    wlPartitionedRead.setText( BaseMessages.getString( PKG, "TableInputDialog.PartitionedRead" ) );
+    props.setLook( wlPartitionedRead );
+    FormData fdlPartitionedRead = new FormData();
+    fdlPartitionedRead.left = new FormAttachment( 0, 0 );
+    fdlPartitionedRead.right = new FormAttachment( middle, -margin );
+    fdlPartitionedRead.bottom = new FormAttachment( wSplitColumn, -margin );
+    wlPartitionedRead.setLayoutData( fdlPartitionedRead );
+    wPartitionedRead = new Button( shell, SWT.CHECK );
+    props.setLook( wPartitionedRead );
+    wPartitionedRead.setToolTipText( BaseMessages.getString( PKG, "TableInputDialog.PartitionedRead.Tooltip" ) );
+    FormData fdPartitionedRead = new FormData();
+    fdPartitionedRead.left = new FormAttachment( middle, 0 );
+    fdPartitionedRead.right = new FormAttachment( 100, 0 );
+    fdPartitionedRead.bottom = new FormAttachment( wSplitColumn, -margin );
+    wPartitionedRead.setLayoutData( fdPartitionedRead );
+    wPartitionedRead.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent arg0 ) {
+        input.setChanged();
+        setPartitionedReadFlags();
+      }
+    } );
+
     // Limit input ...
     wlLimit = new Label( shell, SWT.RIGHT );
     wlLimit.setText( BaseMessages.getString( PKG, "TableInputDialog.LimitSize" ) );
@@ -186,7 +298,7 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdlLimit = new FormData();
     fdlLimit.left = new FormAttachment( 0, 0 );
     fdlLimit.right = new FormAttachment( middle, -margin );
-    fdlLimit.bottom = new FormAttachment( wOK, -2 * margin );
+    fdlLimit.bottom = new FormAttachment( wPartitionedRead, -margin );
     wlLimit.setLayoutData( fdlLimit );
     wLimit = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
     props.setLook( wLimit );
@@ -194,7 +306,7 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdLimit = new FormData();
     fdLimit.left = new FormAttachment( middle, 0 );
     fdLimit.right = new FormAttachment( 100, 0 );
-    fdLimit.bottom = new FormAttachment( wOK, -2 * margin );
+    fdLimit.bottom = new FormAttachment( wPartitionedRead, -margin );
     wLimit.setLayoutData( fdLimit );
 
     // Execute for each row?
@@ -504,8 +616,14 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     wVariables.setSelection( input.isVariableReplacementActive() );
     wLazyConversion.setSelection( input.isLazyConversionActive() );
     wCachedRowMeta.setSelection( input.isCachedRowMetaActive() );
+    wPartitionedRead.setSelection( input.isPartitionedRead() );
+    wSplitColumn.setText( Const.NVL( input.getSplitColumn(), "" ) );
+    wNrPartitions.setText( Const.NVL( input.getNrPartitions(), "" ) );
+    wNrConnections.setText( Const.NVL( input.getNrConnections(), "" ) );
+    wFetchSize.setText( Const.NVL( input.getFetchSize(), "" ) );
 
     setSQLToolTip();
+    setPartitionedReadFlags();
     setFlags();
 
     wStepname.selectAll();
@@ -543,6 +661,21 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     meta.setVariableReplacementActive( wVariables.getSelection() );
     meta.setLazyConversionActive( wLazyConversion.getSelection() );
     meta.setCachedRowMetaActive( wCachedRowMeta.getSelection() );
+    meta.setPartitionedRead( wPartitionedRead.getSelection() );
+    meta.setSplitColumn( wSplitColumn.getText() );
+    meta.setNrPartitions( wNrPartitions.getText() );
+    meta.setNrConnections( wNrConnections.getText() );
+    meta.setFetchSize( wFetchSize.getText() );
+  }
+
+  private void setPartitionedReadFlags() {
+    boolean partitionedRead = wPartitionedRead.getSelection();
+    wlSplitColumn.setEnabled( partitionedRead );
+    wSplitColumn.setEnabled( partitionedRead );
+    wlNrPartitions.setEnabled( partitionedRead );
+    wNrPartitions.setEnabled( partitionedRead );
+    wlNrConnections.setEnabled( partitionedRead );
+    wNrConnections.setEnabled( partitionedRead );
   }
 
   private void ok() {
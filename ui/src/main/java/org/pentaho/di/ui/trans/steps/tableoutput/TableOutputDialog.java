@@ -126,6 +126,18 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private Button wBatch;
   private FormData fdlBatch, fdBatch;
 
+  private Label wlWriterConnections;
+  private TextVar wWriterConnections;
+  private FormData fdlWriterConnections, fdWriterConnections;
+
+  private Label wlBulkWrite;
+  private Button wBulkWrite;
+  private FormData fdlBulkWrite, fdBulkWrite;
+
+  private Label wlInsertValuesRows;
+  private TextVar wInsertValuesRows;
+  private FormData fdlInsertValuesRows, fdInsertValuesRows;
+
   private Label wlUsePart;
   private Button wUsePart;
   private FormData fdlUsePart, fdUsePart;
@@ -557,20 +569,77 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       }
     } );
 
+    // Background writer connections
+    wlWriterConnections = new Label( wMainComp, SWT.RIGHT );
+    wlWriterConnections.setText( BaseMessages.getString( PKG, "TableOutputDialog.WriterConnections.Label" ) );
+    wlWriterConnections.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.WriterConnections.Tooltip" ) );
+    props.setLook( wlWriterConnections );
+    fdlWriterConnections = new FormData();
+    fdlWriterConnections.left = new FormAttachment( 0, 0 );
+    fdlWriterConnections.top = new FormAttachment( wBatch, margin );
+    fdlWriterConnections.right = new FormAttachment( middle, -margin );
+    wlWriterConnections.setLayoutData( fdlWriterConnections );
+    wWriterConnections = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wWriterConnections );
+    wWriterConnections.addModifyListener( lsMod );
+    fdWriterConnections = new FormData();
+    fdWriterConnections.left = new FormAttachment( middle, 0 );
+    fdWriterConnections.top = new FormAttachment( wBatch, margin );
+    fdWriterConnections.right = new FormAttachment( 100, 0 );
+    wWriterConnections.setLayoutData( fdWriterConnections );
+
+    // Native bulk load
+    wlBulkWrite = new Label( wMainComp, SWT.RIGHT );
+    wlBulkWrite.setText( BaseMessages.getString( PKG, "TableOutputDialog.BulkWrite.Label" ) );
+    wlBulkWrite.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.BulkWrite.Tooltip" ) );
+    props.setLook( wlBulkWrite );
+    fdlBulkWrite = new FormData();
+    fdlBulkWrite.left = new FormAttachment( 0, 0 );
+    fdlBulkWrite.top = new FormAttachment( wWriterConnections, margin );
+    fdlBulkWrite.right = new FormAttachment( middle, -margin );
+    wlBulkWrite.setLayoutData( fdlBulkWrite );
+    wBulkWrite = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wBulkWrite );
+    fdBulkWrite = new FormData();
+    fdBulkWrite.left = new FormAttachment( middle, 0 );
+    fdBulkWrite.top = new FormAttachment( wWriterConnections, margin );
+    fdBulkWrite.right = new FormAttachment( 100, 0 );
+    wBulkWrite.setLayoutData( fdBulkWrite );
+    wBulkWrite.addSelectionListener( lsSelMod );
+
+    // Rows per INSERT statement
+    wlInsertValuesRows = new Label( wMainComp, SWT.RIGHT );
+    wlInsertValuesRows.setText( BaseMessages.getString( PKG, "TableOutputDialog.InsertValuesRows.Label" ) );
+    wlInsertValuesRows.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.InsertValuesRows.Tooltip" ) );
+    props.setLook( wlInsertValuesRows );
+    fdlInsertValuesRows = new FormData();
+    fdlInsertValuesRows.left = new FormAttachment( 0, 0 );
+    fdlInsertValuesRows.top = new FormAttachment( wBulkWrite, margin );
+    fdlInsertValuesRows.right = new FormAttachment( middle, -margin );
+    wlInsertValuesRows.setLayoutData( fdlInsertValuesRows );
+    wInsertValuesRows = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wInsertValuesRows );
+    wInsertValuesRows.addModifyListener( lsMod );
+    fdInsertValuesRows = new FormData();
+    fdInsertValuesRows.left = new FormAttachment( middle, 0 );
+    fdInsertValuesRows.top = new FormAttachment( wBulkWrite, margin );
+    fdInsertValuesRows.right = new FormAttachment( 100, 0 );
+    wInsertValuesRows.setLayoutData( fdInsertValuesRows );
+
     // NameInField
     wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wInsertValuesRows, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
     props.setLook( wNameInField );
     fdNameInField = new FormData();
     fdNameInField.left = new FormAttachment( middle, 0 );
-    fdNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdNameInField.top = new FormAttachment( wInsertValuesRows, margin * 5 );
     fdNameInField.right = new FormAttachment( 100, 0 );
     wNameInField.setLayoutData( fdNameInField );
     wNameInField.addSelectionListener( new SelectionAdapter() {
@@ -1235,6 +1304,18 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // The background writers write batches only
+    wlWriterConnections.setEnabled( useBatch );
+    wWriterConnections.setEnabled( useBatch );
+
+    // A bulk load can't return keys
+    wlBulkWrite.setEnabled( !returnKeys );
+    wBulkWrite.setEnabled( !returnKeys );
+
+    // A multi-row statement can't return keys either
+    wlInsertValuesRows.setEnabled( !returnKeys );
+    wInsertValuesRows.setEnabled( !returnKeys );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1282,6 +1363,9 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wBatch.setSelection( input.useBatchUpdate() );
 
     wCommit.setText( input.getCommitSize() );
+    wWriterConnections.setText( Const.NVL( input.getWriterConnections(), "" ) );
+    wBulkWrite.setSelection( input.isBulkWrite() );
+    wInsertValuesRows.setText( Const.NVL( input.getInsertValuesRows(), "" ) );
 
     wUsePart.setSelection( input.isPartitioningEnabled() );
     wPartDaily.setSelection( input.isPartitioningDaily() );
@@ -1333,6 +1417,9 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
+    info.setWriterConnections( wWriterConnections.getText() );
+    info.setBulkWrite( wBulkWrite.getSelection() );
+    info.setInsertValuesRows( wInsertValuesRows.getText() );
     info.setPartitioningEnabled( wUsePart.getSelection() );
     info.setPartitioningField( wPartField.getText() );
     info.setPartitioningDaily( wPartDaily.getSelection() );
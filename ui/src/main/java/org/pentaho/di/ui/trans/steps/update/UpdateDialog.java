@@ -104,6 +104,10 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
   private Text wIgnoreFlagField;
   private FormData fdlIgnoreFlagField, fdIgnoreFlagField;
 
+  private Label wlStagingTable;
+  private TextVar wStagingTable;
+  private FormData fdlStagingTable, fdStagingTable;
+
   private Button wGetLU;
   private FormData fdGetLU;
   private Listener lsGetLU;
@@ -353,12 +357,31 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     fdIgnoreFlagField.right = new FormAttachment( 100, 0 );
     wIgnoreFlagField.setLayoutData( fdIgnoreFlagField );
 
+    // Staging table line
+    wlStagingTable = new Label( shell, SWT.RIGHT );
+    wlStagingTable.setText( BaseMessages.getString( PKG, "UpdateDialog.StagingTable.Label" ) );
+    props.setLook( wlStagingTable );
+    fdlStagingTable = new FormData();
+    fdlStagingTable.left = new FormAttachment( 0, 0 );
+    fdlStagingTable.top = new FormAttachment( wIgnoreFlagField, margin );
+    fdlStagingTable.right = new FormAttachment( middle, -margin );
+    wlStagingTable.setLayoutData( fdlStagingTable );
+    wStagingTable = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStagingTable.setToolTipText( BaseMessages.getString( PKG, "UpdateDialog.StagingTable.Tooltip" ) );
+    props.setLook( wStagingTable );
+    wStagingTable.addModifyListener( lsMod );
+    fdStagingTable = new FormData();
+    fdStagingTable.left = new FormAttachment( middle, 0 );
+    fdStagingTable.top = new FormAttachment( wIgnoreFlagField, margin );
+    fdStagingTable.right = new FormAttachment( 100, 0 );
+    wStagingTable.setLayoutData( fdStagingTable );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "UpdateDialog.Key.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wIgnoreFlagField, margin );
+    fdlKey.top = new FormAttachment( wStagingTable, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -522,6 +545,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     wTable.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
     wIgnoreFlagField.addSelectionListener( lsDef );
+    wStagingTable.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -674,6 +698,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     if ( input.getIgnoreFlagField() != null ) {
       wIgnoreFlagField.setText( input.getIgnoreFlagField() );
     }
+    wStagingTable.setText( Const.NVL( input.getStagingTable(), "" ) );
 
     if ( input.getKeyStream() != null ) {
       for ( int i = 0; i < input.getKeyStream().length; i++ ) {
@@ -744,6 +769,7 @@ public class UpdateDialog extends BaseStepDialog implements StepDialogInterface
     inf.setCommitSize(  wCommit.getText() );
     inf.setUseBatchUpdate( wBatch.getSelection() );
     inf.setSkipLookup( wSkipLookup.getSelection() );
+    inf.setStagingTable( wStagingTable.getText() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "UpdateDialog.Log.FoundKeys", nrkeys + "" ) );